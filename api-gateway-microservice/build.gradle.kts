@@ -26,6 +26,10 @@ dependencies {
     // Spring
     implementation("org.springframework.boot:spring-boot-starter-web")
 
+    // Метрики (/actuator/prometheus): hedging-запросы к extraction-results и их выигрыши
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
+    implementation("io.micrometer:micrometer-registry-prometheus")
+
     // Thymeleaf
     implementation("org.springframework.boot:spring-boot-starter-thymeleaf")
 
@@ -2,8 +2,10 @@ package io.github.maksim0840.apigateway;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan  // record-ы настроек с @ConfigurationProperties (config)
 public class Main {
     public static void main(String[] args) {
         SpringApplication.run(Main.class, args);
@@ -0,0 +1,67 @@
+package io.github.maksim0840.apigateway.config;
+
+import io.github.maksim0840.apigateway.grpc.HedgingMetricsClientInterceptor;
+import io.github.maksim0840.extraction_result.v1.ExtractionResultServiceGrpc;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.devh.boot.grpc.client.channelfactory.GrpcChannelConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+@Configuration
+public class ExtractionResultChannelConfiguration {
+    private static final String CHANNEL_NAME = "extractionResults";
+
+    /**
+     * Service config канала extractionResults (gateway.extraction-results): hedging для идемпотентных Get и GetList -
+     * если ответа нет за hedging.delay, тот же запрос отправляется ещё раз, вызов получает первый ответ.
+     * UNAVAILABLE не прерывает остальные попытки; RESOURCE_EXHAUSTED (перегрузка сервиса) и прочие статусы - прерывают.
+     * retryThrottling останавливает hedging при росте доли ошибок, чтобы не умножать нагрузку на перегруженный сервис.
+     * Create и Delete отправляются один раз.
+     */
+    @Bean
+    public GrpcChannelConfigurer extractionResultChannelConfigurer(ExtractionResultClientProperties properties,
+                                                                   MeterRegistry meterRegistry) {
+        Map<String, Object> serviceConfig = serviceConfig(properties);
+        HedgingMetricsClientInterceptor hedgingMetrics = new HedgingMetricsClientInterceptor(meterRegistry);
+        return (channelBuilder, name) -> {
+            if (!CHANNEL_NAME.equals(name)) {
+                return;
+            }
+            channelBuilder.defaultServiceConfig(serviceConfig).enableRetry();
+            channelBuilder.intercept(hedgingMetrics);
+        };
+    }
+
+    // Числа в service config задаются как Double, длительности - строкой в секундах ("0.100s")
+    private static Map<String, Object> serviceConfig(ExtractionResultClientProperties properties) {
+        ExtractionResultClientProperties.RetryThrottling throttling = properties.retryThrottling();
+        Map<String, Object> retryThrottling = Map.of(
+                "maxTokens", (double) throttling.maxTokens(),
+                "tokenRatio", throttling.tokenRatio());
+
+        ExtractionResultClientProperties.Hedging hedging = properties.hedging();
+        if (!hedging.enabled()) {
+            return Map.of("retryThrottling", retryThrottling);
+        }
+        Map<String, Object> hedgingPolicy = Map.of(
+                "maxAttempts", (double) hedging.maxAttempts(),
+                "hedgingDelay", String.format(Locale.ROOT, "%.3fs", hedging.delay().toMillis() / 1000.0),
+                "nonFatalStatusCodes", List.of("UNAVAILABLE"));
+        Map<String, Object> idempotentReads = Map.of(
+                "name", List.of(
+                        methodName(ExtractionResultServiceGrpc.getGetMethod().getBareMethodName()),
+                        methodName(ExtractionResultServiceGrpc.getGetListMethod().getBareMethodName())),
+                "hedgingPolicy", hedgingPolicy);
+        return Map.of(
+                "methodConfig", List.of(idempotentReads),
+                "retryThrottling", retryThrottling);
+    }
+
+    private static Map<String, Object> methodName(String method) {
+        return Map.of("service", ExtractionResultServiceGrpc.SERVICE_NAME, "method", method);
+    }
+}
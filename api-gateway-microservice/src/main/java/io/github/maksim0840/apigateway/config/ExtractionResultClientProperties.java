@@ -0,0 +1,53 @@
+package io.github.maksim0840.apigateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки вызовов extraction-results (применяются в ExtractionResultChannelConfiguration и ExtractionResultGrpcClient).
+ * @param deadlines deadline каждого метода; итоговый deadline вызова - меньший из него и бюджета HTTP-запроса
+ * @param hedging hedging идемпотентных Get и GetList
+ * @param retryThrottling ограничение повторных и hedging-запросов при ошибках сервиса
+ */
+@ConfigurationProperties("gateway.extraction-results")
+public record ExtractionResultClientProperties(Deadlines deadlines, Hedging hedging, RetryThrottling retryThrottling) {
+
+    public ExtractionResultClientProperties {
+        deadlines = deadlines == null ? new Deadlines(null, null, null, null) : deadlines;
+        hedging = hedging == null ? new Hedging(false, 2, null) : hedging;
+        retryThrottling = retryThrottling == null ? new RetryThrottling(10, 0.1) : retryThrottling;
+    }
+
+    public record Deadlines(Duration create, Duration get, Duration getList, Duration delete) {
+
+        public Deadlines {
+            create = create == null ? Duration.ofSeconds(5) : create;
+            get = get == null ? Duration.ofSeconds(1) : get;
+            getList = getList == null ? Duration.ofSeconds(3) : getList;
+            delete = delete == null ? Duration.ofSeconds(3) : delete;
+        }
+    }
+
+    /**
+     * @param enabled hedging включён
+     * @param maxAttempts общее число попыток вызова, включая первую (gRPC ограничивает его 5)
+     * @param delay задержка перед каждой следующей попыткой, если ответа ещё нет
+     */
+    public record Hedging(boolean enabled, int maxAttempts, Duration delay) {
+
+        public Hedging {
+            delay = delay == null ? Duration.ofMillis(100) : delay;
+            if (maxAttempts < 2 || maxAttempts > 5) {
+                throw new IllegalArgumentException("gateway.extraction-results.hedging.max-attempts must be in [2, 5]");
+            }
+        }
+    }
+
+    /**
+     * Каждая ошибка вызова тратит токен, каждый успешный - возвращает tokenRatio токена;
+     * при запасе меньше половины maxTokens hedging-запросы не отправляются.
+     */
+    public record RetryThrottling(int maxTokens, double tokenRatio) {
+    }
+}
@@ -0,0 +1,24 @@
+package io.github.maksim0840.apigateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Бюджет времени входящего HTTP-запроса (применяется в GrpcRequestBudgetFilter).
+ * @param header заголовок, в котором клиент передаёт оставшееся время запроса в миллисекундах
+ * @param defaultBudget бюджет запроса без заголовка
+ * @param maxBudget верхняя граница бюджета из заголовка
+ */
+@ConfigurationProperties("gateway.request-budget")
+public record RequestBudgetProperties(String header, Duration defaultBudget, Duration maxBudget) {
+
+    public RequestBudgetProperties {
+        header = header == null ? "X-Request-Timeout-Ms" : header;
+        defaultBudget = defaultBudget == null ? Duration.ofSeconds(10) : defaultBudget;
+        maxBudget = maxBudget == null ? Duration.ofSeconds(30) : maxBudget;
+        if (defaultBudget.compareTo(maxBudget) > 0) {
+            throw new IllegalArgumentException("gateway.request-budget.default-budget exceeds max-budget");
+        }
+    }
+}
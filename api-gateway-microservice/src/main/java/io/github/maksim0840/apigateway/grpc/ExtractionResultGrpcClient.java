@@ -1,5 +1,6 @@
 package io.github.maksim0840.apigateway.grpc;
 
+import io.github.maksim0840.apigateway.config.ExtractionResultClientProperties;
 import io.github.maksim0840.apigateway.dto.ExtractionResultDTO;
 import io.github.maksim0840.apigateway.mapper.ProtoDTOExtractionResultMapper;
 import io.github.maksim0840.extraction_result.v1.*;
@@ -9,16 +10,28 @@ import io.grpc.StatusRuntimeException;
 import net.devh.boot.grpc.client.inject.GrpcClient;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Вызовы extraction-results с deadline каждого метода (gateway.extraction-results.deadlines).
+ * Вызовы внутри HTTP-запроса дополнительно ограничены его бюджетом (GrpcRequestBudgetFilter),
+ * hedging Get и GetList настраивается в service config канала (ExtractionResultChannelConfiguration).
+ */
 @Service
 public class ExtractionResultGrpcClient {
+    private final ExtractionResultClientProperties.Deadlines deadlines;
 
     @GrpcClient("extractionResults")
     private ExtractionResultServiceGrpc.ExtractionResultServiceBlockingStub blockingStub;
 
+    public ExtractionResultGrpcClient(ExtractionResultClientProperties properties) {
+        this.deadlines = properties.deadlines();
+    }
+
     public ExtractionResultDTO create(String url, String userId, Map<String, Object> jsonResult) {
         CreateExtractionResultRequest request = CreateExtractionResultRequest.newBuilder()
                 .setUrl(url)
@@ -27,7 +40,7 @@ public class ExtractionResultGrpcClient {
                 .build();
 
         try {
-            CreateExtractionResultResponse response = blockingStub.create(request);
+            CreateExtractionResultResponse response = withDeadline(deadlines.create()).create(request);
             ExtractionResultProto extractionResultProto = response.getExtractionResult();
             return ProtoDTOExtractionResultMapper.protoToDto(extractionResultProto);
         } catch (StatusRuntimeException e) {
@@ -41,7 +54,7 @@ public class ExtractionResultGrpcClient {
                 .build();
 
         try {
-            GetExtractionResultResponse response = blockingStub.get(request);
+            GetExtractionResultResponse response = withDeadline(deadlines.get()).get(request);
             ExtractionResultProto extractionResultProto = response.getExtractionResult();
             return ProtoDTOExtractionResultMapper.protoToDto(extractionResultProto);
         } catch (StatusRuntimeException e) {
@@ -49,10 +62,11 @@ public class ExtractionResultGrpcClient {
         }
     }
 
-    public List<ExtractionResultDTO> getList(String userId, Instant dateFrom, Instant dateTo, int pageNum, int pageSize, Boolean isSortDesc) {
+    public List<ExtractionResultDTO> getList(String userId, Instant dateFrom, Instant dateTo, int pageNum, int pageSize, Boolean isSortDesc, boolean summaryOnly) {
         GetListExtractionResultRequest.Builder requestBuilder = GetListExtractionResultRequest.newBuilder()
                 .setPageNum(pageNum)
-                .setPageSize(pageSize);
+                .setPageSize(pageSize)
+                .setSummaryOnly(summaryOnly);
         if (userId != null) requestBuilder.setUserId(userId);
         if (dateFrom != null) requestBuilder.setCreatedFrom(ProtoTimeMapper.instantToTimestamp(dateFrom));
         if (dateTo != null) requestBuilder.setCreatedTo(ProtoTimeMapper.instantToTimestamp(dateTo));
@@ -60,7 +74,7 @@ public class ExtractionResultGrpcClient {
         GetListExtractionResultRequest request = requestBuilder.build();
 
         try {
-            GetListExtractionResultResponse response = blockingStub.getList(request);
+            GetListExtractionResultResponse response = withDeadline(deadlines.getList()).getList(request);
             List<ExtractionResultProto> extractionResultsProto = response.getExtractionResultsList();
             return extractionResultsProto.stream()
                     .map(ProtoDTOExtractionResultMapper::protoToDto)
@@ -76,9 +90,13 @@ public class ExtractionResultGrpcClient {
                 .build();
 
         try {
-            DeleteExtractionResultResponse response = blockingStub.delete(request);
+            DeleteExtractionResultResponse response = withDeadline(deadlines.delete()).delete(request);
         } catch (StatusRuntimeException e) {
             throw GrpcExceptionMapper.map(e);
         }
     }
+
+    private ExtractionResultServiceGrpc.ExtractionResultServiceBlockingStub withDeadline(Duration deadline) {
+        return blockingStub.withDeadlineAfter(deadline.toMillis(), TimeUnit.MILLISECONDS);
+    }
 }
@@ -17,6 +17,8 @@ public class GrpcExceptionMapper {
             case INTERNAL -> new InternalServiceException(description, e);
             case NOT_FOUND -> new DataNotFoundException(description, e);
             case UNAVAILABLE -> new DataUnavailableException(description, e);
+            // сервис не ответил за время запроса (deadline метода или бюджет входящего HTTP-запроса)
+            case DEADLINE_EXCEEDED -> new DataUnavailableException("Request deadline exceeded: " + description, e);
             default -> new RuntimeException(description, e);
         };
     }
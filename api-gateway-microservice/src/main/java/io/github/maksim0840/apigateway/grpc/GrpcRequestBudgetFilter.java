@@ -0,0 +1,68 @@
+package io.github.maksim0840.apigateway.grpc;
+
+import io.github.maksim0840.apigateway.config.RequestBudgetProperties;
+import io.grpc.Context;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бюджет времени HTTP-запроса как deadline gRPC Context: на время обработки запроса к потоку Tomcat
+ * привязывается Context с deadline, и каждый gRPC-вызов запроса завершается не позже него
+ * (итоговый deadline вызова - меньший из deadline метода и бюджета запроса).
+ * Бюджет берётся из заголовка (оставшееся время клиента в мс, не больше maxBudget) или defaultBudget.
+ */
+@Component
+public class GrpcRequestBudgetFilter extends OncePerRequestFilter {
+    private final RequestBudgetProperties properties;
+    // Отмена Context по истечении deadline (сам вызов ограничивается deadline и без неё)
+    private final ScheduledExecutorService deadlineScheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("grpc-request-deadline").daemon().factory());
+
+    public GrpcRequestBudgetFilter(RequestBudgetProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Context.CancellableContext budgetContext = Context.current()
+                .withDeadlineAfter(budgetMillis(request), TimeUnit.MILLISECONDS, deadlineScheduler);
+        Context previous = budgetContext.attach();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            budgetContext.detach(previous);
+            budgetContext.cancel(null);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        deadlineScheduler.shutdownNow();
+    }
+
+    // Некорректный или неположительный заголовок игнорируется
+    private long budgetMillis(HttpServletRequest request) {
+        long maxBudget = properties.maxBudget().toMillis();
+        String header = request.getHeader(properties.header());
+        if (header != null) {
+            try {
+                long budget = Long.parseLong(header.trim());
+                if (budget > 0) {
+                    return Math.min(budget, maxBudget);
+                }
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return properties.defaultBudget().toMillis();
+    }
+}
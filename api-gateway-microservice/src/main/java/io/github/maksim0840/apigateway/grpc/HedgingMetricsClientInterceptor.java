@@ -0,0 +1,67 @@
+package io.github.maksim0840.apigateway.grpc;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ClientStreamTracer;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Метрики hedging-а вызовов канала: каждая попытка вызова получает свой ClientStreamTracer,
+ * у hedging-попытки номер предыдущих попыток больше нуля.
+ * grpc.client.hedges.fired - отправленные hedging-попытки, grpc.client.hedges.won - hedging-попытки,
+ * ответ которых стал ответом вызова (проигравшие попытки отменяются каналом со статусом CANCELLED).
+ * Общее число вызовов - в grpc.client.requests.sent (метрики grpc-client-spring-boot-starter).
+ */
+public class HedgingMetricsClientInterceptor implements ClientInterceptor {
+    private static final String FIRED_COUNTER = "grpc.client.hedges.fired";
+    private static final String WON_COUNTER = "grpc.client.hedges.won";
+
+    private final MeterRegistry meterRegistry;
+
+    public HedgingMetricsClientInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+        return next.newCall(method, callOptions.withStreamTracerFactory(new HedgeTracerFactory(method.getFullMethodName())));
+    }
+
+    private class HedgeTracerFactory extends ClientStreamTracer.Factory {
+        private final String method;
+
+        HedgeTracerFactory(String method) {
+            this.method = method;
+        }
+
+        @Override
+        public ClientStreamTracer newClientStreamTracer(ClientStreamTracer.StreamInfo info, Metadata headers) {
+            // первая попытка и прозрачные повторы (поток не дошёл до сервера) hedging-ом не считаются
+            if (info.getPreviousAttempts() == 0 || info.isTransparentRetry()) {
+                return new ClientStreamTracer() {};
+            }
+            counter(FIRED_COUNTER, "Hedged attempts sent in addition to the original call").increment();
+            return new ClientStreamTracer() {
+                @Override
+                public void streamClosed(Status status) {
+                    if (status.isOk()) {
+                        counter(WON_COUNTER, "Hedged attempts whose response completed the call").increment();
+                    }
+                }
+            };
+        }
+
+        private Counter counter(String name, String description) {
+            return Counter.builder(name)
+                    .description(description)
+                    .tag("method", method)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -22,7 +22,7 @@ public class ProtoDTOExtractionResultMapper {
                 .id(proto.getId())
                 .url(proto.getUrl())
                 .userId(proto.getUserId())
-                .jsonResult(ProtoJsonMapper.structToMap(proto.getJsonResult()))
+                .jsonResult(proto.hasJsonResult() ? ProtoJsonMapper.structToMap(proto.getJsonResult()) : null)  // null в summary-списках
                 .createdAt(ProtoTimeMapper.timestampToInstant(proto.getCreatedAt()))
                 .build();
     }
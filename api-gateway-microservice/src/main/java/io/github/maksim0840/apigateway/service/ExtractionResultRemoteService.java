@@ -27,8 +27,8 @@ public class ExtractionResultRemoteService {
         return grpcClient.get(id);
     }
 
-    public List<ExtractionResultDTO> getListExtractionResultByPageWithFiltering(String userId, Instant dateFrom, Instant dateTo, int pageNum, int pageSize, Boolean isSortDesc) {
-        return grpcClient.getList(userId, dateFrom, dateTo, pageNum, pageSize, isSortDesc);
+    public List<ExtractionResultDTO> getListExtractionResultByPageWithFiltering(String userId, Instant dateFrom, Instant dateTo, int pageNum, int pageSize, Boolean isSortDesc, boolean summaryOnly) {
+        return grpcClient.getList(userId, dateFrom, dateTo, pageNum, pageSize, isSortDesc, summaryOnly);
     }
 
     public void deleteExtractionResultById(String id) {
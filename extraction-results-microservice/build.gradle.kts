@@ -2,6 +2,7 @@ plugins {
     id("org.springframework.boot") version "3.4.2"
     id("io.spring.dependency-management") version "1.1.7"
     java
+    id("me.champeau.jmh") version "0.7.3" // JMH бенчмарки (src/jmh)
 }
 
 group = "io.github.maksim0840"
@@ -28,6 +29,26 @@ dependencies {
     // MongoDB
     implementation("org.springframework.boot:spring-boot-starter-data-mongodb")
 
+    // In-process кэш + метрики (hit/miss/eviction)
+    implementation("com.github.ben-manes.caffeine:caffeine")
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
+
+    // Метрики пула соединений и команд MongoDB, кэша и gRPC; /actuator/prometheus отдаёт PrometheusScrapeServer без starter-web
+    implementation("io.micrometer:micrometer-registry-prometheus")
+
+    // LZ4 сжатие крупных jsonResult при хранении
+    implementation("org.lz4:lz4-java:1.8.0")
+
+    // Потоковая (де)сериализация jsonResult, вынесенных в GridFS
+    implementation("com.fasterxml.jackson.core:jackson-databind")
+
+    // RFC 6902 JSON Patch между версиями jsonResult одного url (режим версий)
+    implementation("com.flipkart.zjsonpatch:zjsonpatch:0.4.16")
+
+    // Выгрузка типизированных полей в Arrow IPC файлы (StartExport)
+    implementation("org.apache.arrow:arrow-vector:17.0.0")
+    implementation("org.apache.arrow:arrow-memory-unsafe:17.0.0")
+
     // gRPC server
     implementation("net.devh:grpc-server-spring-boot-starter:3.1.0.RELEASE")
     implementation(project(":internal-api")) // общие зависимости для proto контрактов
@@ -44,6 +65,31 @@ dependencies {
 
 }
 
+// Запуск: ./gradlew :extraction-results-microservice:jmh
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    profilers.add("gc") // аллокации на операцию
+}
+
+// Arrow обращается к внутренним полям java.nio (адреса буферов)
+val arrowJvmArgs = listOf("--add-opens=java.base/java.nio=ALL-UNNAMED")
+
+tasks.bootJar {
+    manifest {
+        attributes("Add-Opens" to "java.base/java.nio")
+    }
+}
+
+tasks.bootRun {
+    jvmArgs(arrowJvmArgs)
+}
+
 tasks.test {
     useJUnitPlatform()
+    jvmArgs(arrowJvmArgs)
+    // бенчмарки из src/test/.../benchmark запускаются только явно: ./gradlew test -Pbenchmark
+    systemProperty("benchmark", project.hasProperty("benchmark"))
 }
@@ -0,0 +1,111 @@
+package io.github.maksim0840.extractionresults.grpc;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.ListValue;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Timestamp;
+import com.google.protobuf.Value;
+import io.github.maksim0840.extraction_result.v1.ExtractionResultProto;
+import io.github.maksim0840.extraction_result.v1.ExtractionResultServiceGrpc;
+import io.github.maksim0840.extraction_result.v1.GetExtractionResultResponse;
+import io.grpc.Drainable;
+import io.grpc.MethodDescriptor;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отправка ответа Get при попадании в кэш сериализованных proto:
+ * прежний путь (разбор байтов кэша в ExtractionResultProto, сборка GetExtractionResultResponse и сериализация
+ * стандартным marshaller-ом) против PreEncodedGetResponseMarshaller, который пишет байты кэша как есть.
+ * Оба варианта выгружаются через Drainable, как это делает grpc-фреймер; аллокации на вызов - профилировщик gc.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GetResponseEncodingBenchmark {
+
+    @Param({"1024", "65536", "1048576"})
+    private int payloadBytes;
+
+    private final MethodDescriptor.Marshaller<GetExtractionResultResponse> typedMarshaller =
+            ExtractionResultServiceGrpc.getGetMethod().getResponseMarshaller();
+    private final CountingOutputStream sink = new CountingOutputStream();
+    private byte[] cachedProto;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cachedProto = ExtractionResultProto.newBuilder()
+                .setId("65a1b2c3d4e5f60718293a4b")
+                .setUrl("https://shop.example.com/catalog?page=1")
+                .setUserId("user-1")
+                .setJsonResult(buildPayload(payloadBytes))
+                .setCreatedAt(Timestamp.newBuilder().setSeconds(1767225600).setNanos(123_000_000))
+                .build()
+                .toByteArray();
+    }
+
+    @Benchmark
+    public long typedResponse() throws IOException {
+        ExtractionResultProto proto = ExtractionResultProto.parseFrom(cachedProto);
+        GetExtractionResultResponse response = GetExtractionResultResponse.newBuilder().setExtractionResult(proto).build();
+        return drain(typedMarshaller.stream(response));
+    }
+
+    @Benchmark
+    public long preEncodedResponse() throws IOException {
+        return drain(PreEncodedGetResponseMarshaller.INSTANCE.stream(new PreEncodedGetResponse(cachedProto)));
+    }
+
+    // Проверка, что оба варианта дают одинаковые байты (вызывается один раз, вне измерений)
+    @TearDown(Level.Trial)
+    public void verify() throws InvalidProtocolBufferException {
+        GetExtractionResultResponse expected = GetExtractionResultResponse.newBuilder()
+                .setExtractionResult(ExtractionResultProto.parseFrom(cachedProto)).build();
+        GetExtractionResultResponse actual = GetExtractionResultResponse.parseFrom(
+                PreEncodedGetResponseMarshaller.INSTANCE.stream(new PreEncodedGetResponse(cachedProto)).readAllBytes());
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException("Pre-encoded Get response differs from the typed one");
+        }
+    }
+
+    private long drain(InputStream stream) throws IOException {
+        sink.count = 0;
+        ((Drainable) stream).drainTo(sink);
+        return sink.count;
+    }
+
+    // Выходной поток транспорта без копирования: считает записанные байты
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    // Набирает блоки до тех пор, пока сериализованный Struct не достигнет нужного размера
+    private static Struct buildPayload(int targetBytes) {
+        ListValue.Builder blocks = ListValue.newBuilder();
+        int size = 0;
+        for (int i = 0; size < targetBytes; i++) {
+            Struct block = Struct.newBuilder()
+                    .putFields("text", Value.newBuilder().setStringValue("recognized text line #" + i).build())
+                    .putFields("confidence", Value.newBuilder().setNumberValue(0.5 + (i % 50) / 100.0).build())
+                    .putFields("bold", Value.newBuilder().setBoolValue(i % 3 == 0).build())
+                    .build();
+            blocks.addValues(Value.newBuilder().setStructValue(block));
+            size += block.getSerializedSize();
+        }
+        return Struct.newBuilder().putFields("blocks", Value.newBuilder().setListValue(blocks).build()).build();
+    }
+}
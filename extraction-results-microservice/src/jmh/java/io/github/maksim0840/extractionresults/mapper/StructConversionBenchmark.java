@@ -0,0 +1,81 @@
+package io.github.maksim0840.extractionresults.mapper;
+
+import com.google.protobuf.ListValue;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import io.github.maksim0840.internalapi.extraction_result.v1.mapper.ProtoJsonMapper;
+import org.bson.Document;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение текущего пути Struct -> JSON-строка -> Map (ProtoJsonMapper)
+ * с прямым обходом дерева Struct <-> Document (ProtoBsonMapper) на payload-ах от 1 KB до 10 MB.
+ * Payload имитирует результат OCR/HTML парсинга: список вложенных объектов со строками, числами и флагами.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StructConversionBenchmark {
+
+    @Param({"1024", "65536", "1048576", "10485760"})
+    private int payloadBytes;
+
+    private Struct struct;
+    private Map<String, Object> jsonMap;
+    private Document document;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        struct = buildPayload(payloadBytes);
+        jsonMap = ProtoJsonMapper.structToMap(struct);
+        document = ProtoBsonMapper.structToDocument(struct);
+    }
+
+    @Benchmark
+    public Map<String, Object> structToMapViaJson() {
+        return ProtoJsonMapper.structToMap(struct);
+    }
+
+    @Benchmark
+    public Document structToDocumentDirect() {
+        return ProtoBsonMapper.structToDocument(struct);
+    }
+
+    @Benchmark
+    public Struct mapToStructViaJson() {
+        return ProtoJsonMapper.mapToStruct(jsonMap);
+    }
+
+    @Benchmark
+    public Struct documentToStructDirect() {
+        return ProtoBsonMapper.mapToStruct(document);
+    }
+
+    // Набирает блоки до тех пор, пока сериализованный Struct не достигнет нужного размера
+    private static Struct buildPayload(int targetBytes) {
+        ListValue.Builder blocks = ListValue.newBuilder();
+        int size = 0;
+        for (int i = 0; size < targetBytes; i++) {
+            Struct block = Struct.newBuilder()
+                    .putFields("text", Value.newBuilder().setStringValue("recognized text line #" + i).build())
+                    .putFields("confidence", Value.newBuilder().setNumberValue(0.5 + (i % 50) / 100.0).build())
+                    .putFields("bold", Value.newBuilder().setBoolValue(i % 3 == 0).build())
+                    .putFields("bbox", Value.newBuilder().setListValue(ListValue.newBuilder()
+                            .addValues(Value.newBuilder().setNumberValue(i))
+                            .addValues(Value.newBuilder().setNumberValue(i + 10))
+                            .addValues(Value.newBuilder().setNumberValue(i * 2))
+                            .addValues(Value.newBuilder().setNumberValue(i * 2 + 16))).build())
+                    .build();
+            Value blockValue = Value.newBuilder().setStructValue(block).build();
+            blocks.addValues(blockValue);
+            size += blockValue.getSerializedSize() + 4;  // + тег и длина элемента списка
+        }
+        return Struct.newBuilder()
+                .putFields("source", Value.newBuilder().setStringValue("https://example.com/catalog").build())
+                .putFields("blocks", Value.newBuilder().setListValue(blocks).build())
+                .build();
+    }
+}
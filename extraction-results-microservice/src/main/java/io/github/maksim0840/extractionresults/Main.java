@@ -2,10 +2,12 @@ package io.github.maksim0840.extractionresults;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan  // record-ы настроек с @ConfigurationProperties (config)
 @EnableMongoAuditing    // автозаполнение некоторых полей Spring-ом при создании объекта в базе
 public class Main {
     public static void main(String[] args) {
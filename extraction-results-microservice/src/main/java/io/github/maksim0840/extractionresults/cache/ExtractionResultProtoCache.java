@@ -0,0 +1,75 @@
+package io.github.maksim0840.extractionresults.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.github.maksim0840.extraction_result.v1.ExtractionResultProto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process кэш уже сериализованных ExtractionResultProto по id записи.
+ * Записи неизменяемы после создания (rpc на обновление нет), поэтому кэш инвалидируется только при удалении.
+ * Ограничен суммарным весом в байтах (вес записи = размер сериализованного proto, т.е. в основном jsonResult),
+ * а записи больше maxEntryBytes не кэшируются вовсе - один огромный документ не вытеснит весь рабочий набор.
+ * Метрики (hit/miss/eviction/вес) публикуются в MeterRegistry под именем кэша extraction_results_proto.
+ */
+@Component
+public class ExtractionResultProtoCache {
+    private static final String CACHE_NAME = "extraction_results_proto";
+
+    private final Cache<String, byte[]> cache;
+    private final int maxEntryBytes;
+
+    public ExtractionResultProtoCache(@Value("${extraction-results.cache.max-weight-bytes:67108864}") long maxWeightBytes,
+                                      @Value("${extraction-results.cache.max-entry-bytes:1048576}") int maxEntryBytes,
+                                      MeterRegistry meterRegistry) {
+        this.maxEntryBytes = maxEntryBytes;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((String id, byte[] bytes) -> id.length() + bytes.length)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Запись для ответа: сериализованный proto из кэша (bytes) или proto, не попавший в кэш (proto).
+     * Задано ровно одно из полей; bytes - массив кэша без копирования, изменять его нельзя.
+     */
+    public record Entry(byte[] bytes, ExtractionResultProto proto) {
+    }
+
+    // Сериализованный proto из кэша (null - промах)
+    public byte[] getIfPresent(String id) {
+        return cache.getIfPresent(id);
+    }
+
+    /**
+     * Сериализует proto и кладёт в кэш, если его размер не превышает maxEntryBytes.
+     * Размер берётся из getSerializedSize, поэтому для записи больше maxEntryBytes массив байт не создаётся.
+     * @return сериализованный proto или null, если запись не кэшируется
+     */
+    public byte[] putIfFits(String id, ExtractionResultProto proto) {
+        if (proto.getSerializedSize() > maxEntryBytes) {
+            return null;
+        }
+        byte[] bytes = proto.toByteArray();
+        cache.put(id, bytes);
+        return bytes;
+    }
+
+    public void invalidate(String id) {
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
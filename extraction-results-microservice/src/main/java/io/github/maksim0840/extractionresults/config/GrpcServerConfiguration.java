@@ -0,0 +1,31 @@
+package io.github.maksim0840.extractionresults.config;
+
+import net.devh.boot.grpc.server.serverfactory.GrpcServerConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class GrpcServerConfiguration {
+
+    /**
+     * Исполнитель вызовов grpc-сервера: отдельный виртуальный поток на каждый вызов.
+     * Блокирующие запросы MongoTemplate паркуют только свой виртуальный поток и не занимают общий пул,
+     * поэтому медленный запрос к базе не задерживает остальные вызовы.
+     * Ограничение параллельности - в ConcurrencyLimitInterceptor.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "extraction-results.server.virtual-threads", havingValue = "true", matchIfMissing = true)
+    public ExecutorService grpcCallExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "extraction-results.server.virtual-threads", havingValue = "true", matchIfMissing = true)
+    public GrpcServerConfigurer virtualThreadExecutorConfigurer(ExecutorService grpcCallExecutor) {
+        return serverBuilder -> serverBuilder.executor(grpcCallExecutor);
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.maksim0840.extractionresults.config;
+
+import com.mongodb.WriteConcern;
+import com.mongodb.event.ConnectionCheckOutFailedEvent;
+import com.mongodb.event.ConnectionCheckedOutEvent;
+import com.mongodb.event.ConnectionPoolListener;
+import io.github.maksim0840.extractionresults.domain.ExtractionResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.MongoActionOperation;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class MongoClientConfiguration {
+    private static final String CHECKOUT_TIMER = "mongodb.driver.pool.checkout";
+
+    /**
+     * Размеры и таймауты пула соединений из extraction-results.mongo.pool.
+     * Размер пула, ожидание в очереди и задержки команд публикуются автоконфигурацией Spring Boot
+     * (mongodb.driver.pool.*, mongodb.driver.commands), здесь добавляется время получения соединения из пула.
+     */
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoConnectionPoolCustomizer(MongoClientProperties properties,
+                                                                              MeterRegistry meterRegistry) {
+        MongoClientProperties.Pool pool = properties.pool();
+        ConnectionPoolListener checkoutListener = checkoutLatencyListener(meterRegistry);
+        return builder -> builder.applyToConnectionPoolSettings(settings -> {
+            if (pool.maxSize() > 0) {
+                settings.maxSize(pool.maxSize());
+            }
+            settings.minSize(pool.minSize());
+            if (pool.maxWaitTime() != null) {
+                settings.maxWaitTime(pool.maxWaitTime().toMillis(), TimeUnit.MILLISECONDS);
+            }
+            if (pool.maxConnectionIdleTime() != null) {
+                settings.maxConnectionIdleTime(pool.maxConnectionIdleTime().toMillis(), TimeUnit.MILLISECONDS);
+            }
+            settings.addConnectionPoolListener(checkoutListener);
+        });
+    }
+
+    /**
+     * MongoTemplate с write concern extraction-results.mongo.create-write-concern для вставки записей ExtractionResult.
+     * Остальные операции (удаление, общее хранилище payload-ов, GridFS) используют write concern клиента.
+     */
+    @Bean
+    public MongoTemplate mongoTemplate(MongoDatabaseFactory mongoDatabaseFactory, MongoConverter mongoConverter,
+                                       MongoClientProperties properties) {
+        WriteConcern createWriteConcern = properties.createWriteConcernValue();
+        Set<MongoActionOperation> createOperations = Set.of(MongoActionOperation.INSERT, MongoActionOperation.INSERT_LIST);
+
+        MongoTemplate mongoTemplate = new MongoTemplate(mongoDatabaseFactory, mongoConverter);
+        mongoTemplate.setWriteConcernResolver(action ->
+                ExtractionResult.class.equals(action.getEntityType()) && createOperations.contains(action.getMongoActionOperation())
+                        ? createWriteConcern
+                        : action.getDefaultWriteConcern());
+        return mongoTemplate;
+    }
+
+    // Гистограмма времени получения соединения из пула (успешного и завершившегося ошибкой)
+    private static ConnectionPoolListener checkoutLatencyListener(MeterRegistry meterRegistry) {
+        Timer checkedOut = Timer.builder(CHECKOUT_TIMER)
+                .description("Time to check out a connection from the MongoDB connection pool")
+                .tag("outcome", "success")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Timer checkOutFailed = Timer.builder(CHECKOUT_TIMER)
+                .description("Time to check out a connection from the MongoDB connection pool")
+                .tag("outcome", "failed")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        return new ConnectionPoolListener() {
+            @Override
+            public void connectionCheckedOut(ConnectionCheckedOutEvent event) {
+                checkedOut.record(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+            }
+
+            @Override
+            public void connectionCheckOutFailed(ConnectionCheckOutFailedEvent event) {
+                checkOutFailed.record(event.getElapsedTime(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package io.github.maksim0840.extractionresults.config;
+
+import com.mongodb.ReadPreference;
+import com.mongodb.WriteConcern;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Настройки клиента MongoDB поверх spring.data.mongodb.uri (применяются в MongoClientConfiguration).
+ * Имена read preference и write concern проверяются при старте, опечатка в конфигурации не даст запустить сервис.
+ * @param pool пул соединений драйвера
+ * @param listReadPreference read preference запросов списков (GetList, StreamList), например secondaryPreferred;
+ *                           Get всегда читает с primary, чтобы запись была видна сразу после Create
+ * @param createWriteConcern write concern вставки записей (Create), например majority
+ */
+@ConfigurationProperties("extraction-results.mongo")
+public record MongoClientProperties(Pool pool, String listReadPreference, String createWriteConcern) {
+
+    public MongoClientProperties {
+        pool = pool == null ? new Pool(0, 0, null, null) : pool;
+        listReadPreference = listReadPreference == null ? "primary" : listReadPreference;
+        createWriteConcern = createWriteConcern == null ? "acknowledged" : createWriteConcern;
+        ReadPreference.valueOf(listReadPreference);  // IllegalArgumentException для неизвестного имени
+        if (WriteConcern.valueOf(createWriteConcern) == null) {
+            throw new IllegalArgumentException("Unknown write concern: " + createWriteConcern);
+        }
+    }
+
+    public ReadPreference listReadPreferenceValue() {
+        return ReadPreference.valueOf(listReadPreference);
+    }
+
+    public WriteConcern createWriteConcernValue() {
+        return WriteConcern.valueOf(createWriteConcern);
+    }
+
+    /**
+     * @param maxSize максимум соединений (0 - значение драйвера, 100)
+     * @param minSize соединения, которые пул держит открытыми даже без нагрузки
+     * @param maxWaitTime ожидание свободного соединения, после которого запрос завершается ошибкой (null - значение драйвера)
+     * @param maxConnectionIdleTime простой, после которого соединение закрывается (null - без ограничения)
+     */
+    public record Pool(int maxSize, int minSize, Duration maxWaitTime, Duration maxConnectionIdleTime) {
+    }
+}
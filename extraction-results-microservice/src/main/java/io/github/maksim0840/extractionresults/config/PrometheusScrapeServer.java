@@ -0,0 +1,66 @@
+package io.github.maksim0840.extractionresults.config;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HTTP-эндпоинт метрик /actuator/prometheus (пул соединений и команды MongoDB, кэш, gRPC)
+ * на порту extraction-results.metrics.port (-1 - выключен).
+ * Сервис работает только по grpc, поэтому вместо spring-boot-starter-web (Tomcat + Spring MVC ради одного эндпоинта)
+ * используется встроенный в JDK HttpServer с одним потоком: scrape() выполняется раз в интервал опроса Prometheus.
+ */
+@Component
+public class PrometheusScrapeServer implements AutoCloseable {
+    private static final String PATH = "/actuator/prometheus";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final PrometheusMeterRegistry registry;
+    private final HttpServer server;
+
+    public PrometheusScrapeServer(PrometheusMeterRegistry registry,
+                                  @Value("${extraction-results.metrics.port:-1}") int port) {
+        this.registry = registry;
+        if (port < 0) {
+            this.server = null;
+            return;
+        }
+        try {
+            this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Metrics server start failed (port: " + port + ")", e);
+        }
+        server.createContext(PATH, this::scrape);
+        server.start();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private void scrape(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod()) || !PATH.equals(exchange.getRequestURI().getPath())) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
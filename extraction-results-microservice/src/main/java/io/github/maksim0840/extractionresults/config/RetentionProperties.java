@@ -0,0 +1,28 @@
+package io.github.maksim0840.extractionresults.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Уровни хранения записей ExtractionResult (например, по роли или тарифу пользователя).
+ * Запись уровня из tiers удаляется ExpiredExtractionResultReaper-ом через указанный срок после createdAt,
+ * запись без уровня (или с уровнем, которого нет в tiers) хранится бессрочно.
+ * @param defaultTier уровень для запросов, в которых он не указан
+ * @param tiers срок хранения по имени уровня
+ */
+@ConfigurationProperties("extraction-results.retention")
+public record RetentionProperties(String defaultTier, Map<String, Duration> tiers) {
+
+    public RetentionProperties {
+        tiers = tiers == null ? Map.of() : Map.copyOf(tiers);
+    }
+
+    // Момент удаления записи уровня tier (null - запись не удаляется)
+    public Instant expireAt(String tier, Instant createdAt) {
+        Duration ttl = tiers.get(tier == null ? (defaultTier == null ? "" : defaultTier) : tier);
+        return ttl == null ? null : createdAt.plus(ttl);
+    }
+}
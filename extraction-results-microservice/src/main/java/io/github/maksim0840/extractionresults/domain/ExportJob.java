@@ -0,0 +1,18 @@
+package io.github.maksim0840.extractionresults.domain;
+
+import java.time.Instant;
+
+/**
+ * Состояние задачи экспорта записей схемы в файл (снимок, при каждом изменении заменяется новым).
+ * @param filePath путь к готовому файлу (null, пока задача выполняется или если она завершилась ошибкой)
+ * @param error причина ошибки для FAILED
+ * @param finishedAt момент завершения (null - задача выполняется)
+ */
+public record ExportJob(String id, State state, String filePath, long rowsWritten, String error, Instant createdAt, Instant finishedAt) {
+
+    public enum State {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -1,5 +1,6 @@
 package io.github.maksim0840.extractionresults.domain;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
@@ -10,33 +11,58 @@ import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.IndexDirection;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.TextScore;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Домен, описывающий сущность объекта в таблице базы данных MongoDB.
  * Предназначен для хранения информации об итоговом результате парсинга и анализа данных (поле jsonResult).
  */
-@Document("extraction_results")
+@Document(collection = "extraction_results")
 @CompoundIndexes({
         // составной индекс по возрастанию userId и убыванию createdAt
-        @CompoundIndex(name = "user_created_idx", def = "{'userId': 1, 'createdAt': -1}"),
-        // отдельный индекс для createdAt
-        @CompoundIndex(name = "created_desc_idx", def = "{'createdAt': -1}")
+        // (_id в конце - для однозначного порядка при keyset-пагинации по (createdAt, _id);
+        // новое имя, т.к. прежний user_created_idx без _id удаляется при старте, см. ExtractionResultIndexMigration)
+        @CompoundIndex(name = "user_created_id_idx", def = "{'userId': 1, 'createdAt': -1, '_id': -1}"),
+        // отдельный индекс для createdAt (вместо прежнего created_desc_idx без _id)
+        @CompoundIndex(name = "created_id_desc_idx", def = "{'createdAt': -1, '_id': -1}"),
+        // последняя запись пользователя по url (GetLatestByUrl / GetLatestByUrls)
+        @CompoundIndex(name = "user_url_created_idx", def = "{'userId': 1, 'url': 1, 'createdAt': -1, '_id': -1}"),
+        // выгрузка записей схемы по пользователям и диапазону дат (StartExport)
+        @CompoundIndex(name = "schema_user_created_idx", def = "{'resultSchema': 1, 'userId': 1, 'createdAt': 1}"),
+        // номер версии уникален в истории (userId, url); записи без версии в индекс не попадают
+        @CompoundIndex(name = "user_url_version_idx", def = "{'userId': 1, 'url': 1, 'version': 1}",
+                unique = true, partialFilter = "{ 'version': { $exists: true } }")
         // отдельный индекс для "userId" не требуется, т.к. его заменяет leftmost prefix из составного ("userId, createdAt")
 })
 @Getter
 @Setter
 @Builder
+@AllArgsConstructor
 public class ExtractionResult {
     @Id
     private String id;                      // по умолчанию в MongoDB поле _id имеет тип ObjectId, который удобнее хранить в строке
     private String url;
     private String userId;
-    private Map<String, Object> jsonResult; // результат парсинга и корректировки данных
+    private Map<String, Object> jsonResult; // результат парсинга и корректировки данных (крупный может храниться сжатым, см. JsonResultCompressionCallback)
+    private String jsonResultGridFsId;      // id файла GridFS, если jsonResult превысил порог и вынесен туда (тогда в документе jsonResult нет)
+    private String jsonResultHash;          // SHA-256 jsonResult, если он хранится в общем DedupPayloadStore (тогда в документе jsonResult нет)
+    private String resultSchema;            // имя схемы результата, по которой проверен jsonResult (null - без схемы)
+    private Map<String, Object> typedFields; // проверенные по схеме значения полей jsonResult (для аналитики без чтения jsonResult)
+    private Integer version;                // номер версии в истории (userId, url) в режиме версий (null - запись без версии)
+    @Indexed(name = "snapshot_id_idx", sparse = true)
+    private String snapshotId;              // id полной версии, к которой применяется jsonPatch (null - jsonResult хранится целиком)
+    private List<Map<String, Object>> jsonPatch; // RFC 6902 операции от jsonResult snapshotId к этой версии (тогда в документе jsonResult нет)
     @CreatedDate                            // автозаполнение даты при сохранении
     private Instant createdAt;              // дата + часовой пояс
+    @Indexed(name = "expire_at_idx", sparse = true)
+    private Instant expireAt;               // момент удаления ExpiredExtractionResultReaper-ом (срок хранения тарифа), null - хранится бессрочно
+    private String searchText;              // строковые значения jsonResult для полнотекстового поиска (см. SearchTextCallback, текстовый индекс - ExtractionResultCollectionRouter)
+    @TextScore
+    private Float textScore;                // релевантность записи в результатах поиска (в базе не хранится)
 
     public ExtractionResult() {}
 
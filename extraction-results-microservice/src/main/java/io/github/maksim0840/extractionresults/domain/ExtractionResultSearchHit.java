@@ -0,0 +1,9 @@
+package io.github.maksim0840.extractionresults.domain;
+
+import java.util.List;
+
+/**
+ * Найденная полнотекстовым поиском запись с релевантностью ($meta textScore) и фрагментами совпадений.
+ */
+public record ExtractionResultSearchHit(ExtractionResult extractionResult, double score, List<String> highlights) {
+}
@@ -0,0 +1,13 @@
+package io.github.maksim0840.extractionresults.domain;
+
+import java.util.List;
+
+/**
+ * Результат агрегации количества записей ExtractionResult: всего и по группам (пользователь, день, хост url).
+ */
+public record ExtractionResultStats(long total, List<Count> byUser, List<Count> byDay, List<Count> byHost) {
+
+    // key == null, если значение группы у записей отсутствует (например, хост не выделился из url)
+    public record Count(String key, long count) {
+    }
+}
@@ -0,0 +1,11 @@
+package io.github.maksim0840.extractionresults.domain;
+
+/**
+ * Тип поля схемы результата. Значения jsonResult приходят из google.protobuf.Struct,
+ * поэтому все числа хранятся как double.
+ */
+public enum ResultFieldType {
+    STRING,
+    NUMBER,
+    BOOL
+}
@@ -0,0 +1,31 @@
+package io.github.maksim0840.extractionresults.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Именованная схема результата парсинга (обычно одна на ParsingParam).
+ * Записи, созданные со схемой, хранят рядом с jsonResult проверенные значения её полей (ExtractionResult.typedFields),
+ * которые читаются для аналитики и экспорта без загрузки всего jsonResult.
+ * Схема неизменяема: типы сохранённых значений не должны расходиться с описанием.
+ */
+@Document(collection = "extraction_result_schemas")
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+public class ResultSchema {
+    @Id
+    private String name;
+    private List<ResultSchemaField> fields;
+    private Instant createdAt;
+
+    public ResultSchema() {}
+}
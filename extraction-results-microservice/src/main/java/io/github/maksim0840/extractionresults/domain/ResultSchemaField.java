@@ -0,0 +1,10 @@
+package io.github.maksim0840.extractionresults.domain;
+
+/**
+ * Поле схемы результата.
+ * @param path путь к значению в jsonResult через точку (offer.price), он же имя столбца при экспорте
+ * @param type тип значения
+ * @param required запись без значения (или со значением null) не проходит проверку
+ */
+public record ResultSchemaField(String path, ResultFieldType type, boolean required) {
+}
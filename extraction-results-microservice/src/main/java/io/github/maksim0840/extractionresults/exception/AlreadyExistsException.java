@@ -0,0 +1,11 @@
+package io.github.maksim0840.extractionresults.exception;
+
+public class AlreadyExistsException extends RuntimeException {
+    public AlreadyExistsException(String message) {
+        super(message);
+    }
+
+    public AlreadyExistsException(String message, Throwable throwable) {
+        super(message, throwable);
+    }
+}
@@ -0,0 +1,12 @@
+package io.github.maksim0840.extractionresults.exception;
+
+// jsonResult не соответствует схеме результата (или схема с таким именем не зарегистрирована)
+public class ResultSchemaViolationException extends RuntimeException {
+    public ResultSchemaViolationException(String message) {
+        super(message);
+    }
+
+    public ResultSchemaViolationException(String message, Throwable throwable) {
+        super(message, throwable);
+    }
+}
@@ -0,0 +1,159 @@
+package io.github.maksim0840.extractionresults.export;
+
+import io.github.maksim0840.extractionresults.domain.ExtractionResult;
+import io.github.maksim0840.extractionresults.domain.ResultSchema;
+import io.github.maksim0840.extractionresults.domain.ResultSchemaField;
+import io.github.maksim0840.extractionresults.schema.ResultSchemaValidator;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.TimeStampMilliTZVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Запись ExtractionResult в Arrow IPC файл порциями по batchRows строк.
+ * Столбцы: id, url, user_id, created_at (UTC, мс) и поля схемы результата (путь поля - имя столбца).
+ * Векторы переиспользуются между порциями, поэтому память ограничена одной порцией независимо от размера выгрузки.
+ */
+class ArrowExportWriter implements AutoCloseable {
+    private static final int ID = 0;
+    private static final int URL = 1;
+    private static final int USER_ID = 2;
+    private static final int CREATED_AT = 3;
+    private static final int FIRST_SCHEMA_FIELD = 4;
+
+    private final List<ResultSchemaField> fields;
+    private final int batchRows;
+    private final VectorSchemaRoot root;
+    private final ArrowFileWriter writer;
+    private int rows = 0;  // строк в текущей порции
+
+    ArrowExportWriter(ResultSchema resultSchema, Path file, int batchRows, BufferAllocator allocator) throws IOException {
+        this.fields = resultSchema.getFields();
+        this.batchRows = batchRows;
+        this.root = VectorSchemaRoot.create(arrowSchema(fields), allocator);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        try {
+            this.writer = new ArrowFileWriter(root, null, channel);
+            writer.start();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            root.close();
+            throw e;
+        }
+        root.allocateNew();
+    }
+
+    void write(ExtractionResult extractionResult) throws IOException {
+        setString(ID, extractionResult.getId());
+        setString(URL, extractionResult.getUrl());
+        setString(USER_ID, extractionResult.getUserId());
+        TimeStampMilliTZVector createdAt = (TimeStampMilliTZVector) root.getVector(CREATED_AT);
+        if (extractionResult.getCreatedAt() == null) {
+            createdAt.setNull(rows);
+        } else {
+            createdAt.setSafe(rows, extractionResult.getCreatedAt().toEpochMilli());
+        }
+
+        for (int i = 0; i < fields.size(); i++) {
+            ResultSchemaField field = fields.get(i);
+            FieldVector vector = root.getVector(FIRST_SCHEMA_FIELD + i);
+            Object value = extractionResult.getTypedFields() == null ? null
+                    : ResultSchemaValidator.valueAt(extractionResult.getTypedFields(), field.path());
+            switch (field.type()) {
+                case STRING -> {
+                    if (value instanceof String string) {
+                        ((VarCharVector) vector).setSafe(rows, string.getBytes(StandardCharsets.UTF_8));
+                    } else {
+                        ((VarCharVector) vector).setNull(rows);
+                    }
+                }
+                case NUMBER -> {
+                    if (value instanceof Number number) {
+                        ((Float8Vector) vector).setSafe(rows, number.doubleValue());
+                    } else {
+                        ((Float8Vector) vector).setNull(rows);
+                    }
+                }
+                case BOOL -> {
+                    if (value instanceof Boolean bool) {
+                        ((BitVector) vector).setSafe(rows, bool ? 1 : 0);
+                    } else {
+                        ((BitVector) vector).setNull(rows);
+                    }
+                }
+            }
+        }
+
+        rows++;
+        if (rows == batchRows) {
+            writeBatch();
+        }
+    }
+
+    // Запись неполной последней порции и завершающего блока файла
+    void finish() throws IOException {
+        if (rows > 0) {
+            writeBatch();
+        }
+        writer.end();
+    }
+
+    @Override
+    public void close() {
+        try {
+            writer.close();  // закрывает и канал файла
+        } finally {
+            root.close();
+        }
+    }
+
+    private void writeBatch() throws IOException {
+        root.setRowCount(rows);
+        writer.writeBatch();
+        rows = 0;
+        root.allocateNew();  // освобождает буферы прошлой порции
+    }
+
+    private void setString(int column, String value) {
+        VarCharVector vector = (VarCharVector) root.getVector(column);
+        if (value == null) {
+            vector.setNull(rows);
+        } else {
+            vector.setSafe(rows, value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static Schema arrowSchema(List<ResultSchemaField> fields) {
+        List<Field> columns = new ArrayList<>();
+        columns.add(Field.notNullable("id", ArrowType.Utf8.INSTANCE));
+        columns.add(Field.nullable("url", ArrowType.Utf8.INSTANCE));
+        columns.add(Field.nullable("user_id", ArrowType.Utf8.INSTANCE));
+        columns.add(Field.nullable("created_at", new ArrowType.Timestamp(TimeUnit.MILLISECOND, "UTC")));
+        for (ResultSchemaField field : fields) {
+            ArrowType type = switch (field.type()) {
+                case STRING -> ArrowType.Utf8.INSTANCE;
+                case NUMBER -> new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE);
+                case BOOL -> ArrowType.Bool.INSTANCE;
+            };
+            columns.add(Field.nullable(field.path(), type));
+        }
+        return new Schema(columns);
+    }
+}
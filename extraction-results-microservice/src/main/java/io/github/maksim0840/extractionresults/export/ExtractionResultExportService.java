@@ -0,0 +1,171 @@
+package io.github.maksim0840.extractionresults.export;
+
+import io.github.maksim0840.extractionresults.domain.ExportJob;
+import io.github.maksim0840.extractionresults.domain.ExtractionResult;
+import io.github.maksim0840.extractionresults.domain.ResultSchema;
+import io.github.maksim0840.extractionresults.exception.NotFoundException;
+import io.github.maksim0840.extractionresults.repository.ExtractionResultRepository;
+import io.github.maksim0840.extractionresults.service.ResultSchemaService;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Задачи выгрузки типизированных полей записей схемы в Arrow IPC файлы на локальном диске (для офлайн-аналитики).
+ * Каждая задача выполняется в отдельном виртуальном потоке: курсор MongoDB читает записи порциями,
+ * ArrowExportWriter пишет их порциями по batchRows строк, так что память задачи не зависит от объёма выгрузки.
+ * Буферы Arrow всех задач выделяются из одного RootAllocator с пределом maxMemoryBytes.
+ * Состояние задач хранится в памяти экземпляра сервиса, завершённые задачи забываются через jobRetention.
+ */
+@Service
+public class ExtractionResultExportService implements AutoCloseable {
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final ExtractionResultRepository extractionResultsRepository;
+    private final ResultSchemaService resultSchemaService;
+    private final Path directory;
+    private final int batchRows;
+    private final Duration jobRetention;
+    private final Semaphore jobPermits;
+    private final BufferAllocator allocator;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    public ExtractionResultExportService(ExtractionResultRepository extractionResultsRepository,
+                                         ResultSchemaService resultSchemaService,
+                                         @Value("${extraction-results.export.directory:./exports}") Path directory,
+                                         @Value("${extraction-results.export.batch-rows:4096}") int batchRows,
+                                         @Value("${extraction-results.export.max-concurrent-jobs:2}") int maxConcurrentJobs,
+                                         @Value("${extraction-results.export.max-memory-bytes:268435456}") long maxMemoryBytes,
+                                         @Value("${extraction-results.export.job-retention:24h}") Duration jobRetention) {
+        this.extractionResultsRepository = extractionResultsRepository;
+        this.resultSchemaService = resultSchemaService;
+        this.directory = directory;
+        this.batchRows = batchRows;
+        this.jobRetention = jobRetention;
+        this.jobPermits = new Semaphore(maxConcurrentJobs);
+        this.allocator = new RootAllocator(maxMemoryBytes);
+    }
+
+    /**
+     * Запуск выгрузки записей схемы resultSchema пользователей userIds (пусто - всех) за [dateFrom; dateTo].
+     * @throws NotFoundException схема не зарегистрирована
+     * @throws IllegalStateException уже выполняется максимум задач
+     */
+    public ExportJob startExport(String resultSchema, List<String> userIds, Instant dateFrom, Instant dateTo) {
+        ResultSchema schema = resultSchemaService.getResultSchemaByName(resultSchema);
+        if (!jobPermits.tryAcquire()) {
+            throw new IllegalStateException("Too many running export jobs, retry later");
+        }
+
+        try {
+            forgetFinishedJobs();
+            Files.createDirectories(directory);
+            ExportJob job = new ExportJob(UUID.randomUUID().toString(), ExportJob.State.RUNNING, null, 0, null, Instant.now(), null);
+            jobs.put(job.id(), job);
+            executor.execute(() -> runExport(job, schema, List.copyOf(userIds), dateFrom, dateTo));
+            return job;
+        } catch (IOException | RuntimeException e) {
+            jobPermits.release();
+            throw new RuntimeException("Export job start failed: " + e.getMessage(), e);
+        }
+    }
+
+    public ExportJob getExport(String jobId) {
+        ExportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new NotFoundException("Export job not found (id: " + jobId + ")");
+        }
+        return job;
+    }
+
+    /*
+    Остановка при завершении контекста: выполняющиеся задачи прерываются (их .part файлы удаляются),
+    после их завершения закрывается RootAllocator - он освобождает память и сообщает об утечках буферов.
+    Если задачи не остановились за SHUTDOWN_TIMEOUT, allocator не закрывается: с открытыми дочерними allocator-ами
+    close() бросает исключение, а память всё равно освобождается вместе с процессом.
+    */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        allocator.close();
+    }
+
+    // Файл пишется под временным именем и переименовывается после завершения - готовый файл всегда целый
+    private void runExport(ExportJob job, ResultSchema schema, List<String> userIds, Instant dateFrom, Instant dateTo) {
+        Path file = directory.resolve(schema.getName() + "-" + job.id() + ".arrow");
+        Path partFile = directory.resolve(file.getFileName() + ".part");
+        long rows = 0;
+        try {
+            // имя схемы проверяется при регистрации; схемы, зарегистрированные до проверки, не должны выводить файл из каталога
+            if (!file.normalize().getParent().equals(directory.normalize())) {
+                throw new IllegalArgumentException("Invalid export file name for schema " + schema.getName());
+            }
+            try (BufferAllocator jobAllocator = allocator.newChildAllocator("export-" + job.id(), 0, allocator.getLimit());
+                 ArrowExportWriter writer = new ArrowExportWriter(schema, partFile, batchRows, jobAllocator);
+                 Stream<ExtractionResult> records = extractionResultsRepository.streamTypedFields(
+                         schema.getName(), userIds, dateFrom, dateTo, batchRows)) {
+                Iterator<ExtractionResult> iterator = records.iterator();
+                while (iterator.hasNext()) {
+                    writer.write(iterator.next());
+                    if (++rows % batchRows == 0) {
+                        jobs.put(job.id(), progress(job, rows));
+                    }
+                }
+                writer.finish();
+            }
+            Files.move(partFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            jobs.put(job.id(), new ExportJob(job.id(), ExportJob.State.COMPLETED, file.toAbsolutePath().toString(), rows,
+                    null, job.createdAt(), Instant.now()));
+        } catch (Exception e) {
+            deleteQuietly(partFile);
+            jobs.put(job.id(), new ExportJob(job.id(), ExportJob.State.FAILED, null, rows,
+                    e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage(), job.createdAt(), Instant.now()));
+        } finally {
+            jobPermits.release();
+        }
+    }
+
+    private static ExportJob progress(ExportJob job, long rows) {
+        return new ExportJob(job.id(), ExportJob.State.RUNNING, null, rows, null, job.createdAt(), null);
+    }
+
+    private void forgetFinishedJobs() {
+        Instant threshold = Instant.now().minus(jobRetention);
+        jobs.values().removeIf(job -> job.finishedAt() != null && job.finishedAt().isBefore(threshold));
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // недописанный .part файл останется на диске, на результат задачи это не влияет
+        }
+    }
+}
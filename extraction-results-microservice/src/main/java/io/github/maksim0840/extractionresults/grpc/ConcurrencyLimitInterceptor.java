@@ -0,0 +1,120 @@
+package io.github.maksim0840.extractionresults.grpc;
+
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.devh.boot.grpc.server.interceptor.GrpcGlobalServerInterceptor;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control для унарных вызовов grpc-сервера.
+ * Одновременно выполняется не больше maxConcurrentCalls вызовов, следующие ждут в очереди (FIFO) не дольше queueTimeoutMs.
+ * Если очередь уже содержит maxQueuedCalls вызовов или ожидание истекло - вызов сразу отклоняется с RESOURCE_EXHAUSTED,
+ * чтобы при перегрузке клиент получил быстрый отказ, а не растущую задержку.
+ * Потоковые вызовы (StreamList, CreateBatch) не ограничиваются: они держали бы разрешение всё время передачи.
+ */
+@GrpcGlobalServerInterceptor
+public class ConcurrencyLimitInterceptor implements ServerInterceptor {
+    private final Semaphore permits;
+    private final AtomicInteger queuedCalls = new AtomicInteger();
+    private final int maxQueuedCalls;
+    private final long queueTimeoutMs;
+    private final Counter rejectedCalls;
+
+    public ConcurrencyLimitInterceptor(@Value("${extraction-results.server.max-concurrent-calls:64}") int maxConcurrentCalls,
+                                       @Value("${extraction-results.server.max-queued-calls:256}") int maxQueuedCalls,
+                                       @Value("${extraction-results.server.queue-timeout-ms:1000}") long queueTimeoutMs,
+                                       MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+        this.maxQueuedCalls = maxQueuedCalls;
+        this.queueTimeoutMs = queueTimeoutMs;
+
+        Gauge.builder("extraction_results.grpc.calls.in_flight", permits, p -> maxConcurrentCalls - p.availablePermits())
+                .register(meterRegistry);
+        Gauge.builder("extraction_results.grpc.calls.queued", queuedCalls, AtomicInteger::get)
+                .register(meterRegistry);
+        this.rejectedCalls = Counter.builder("extraction_results.grpc.calls.rejected")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+                                                                 ServerCallHandler<ReqT, RespT> next) {
+        if (call.getMethodDescriptor().getType() != MethodDescriptor.MethodType.UNARY) {
+            return next.startCall(call, headers);
+        }
+
+        if (!acquire()) {
+            rejectedCalls.increment();
+            call.close(Status.RESOURCE_EXHAUSTED.withDescription("extraction-results server is overloaded, retry later"), new Metadata());
+            return new ServerCall.Listener<>() {};
+        }
+
+        // разрешение возвращается один раз: по завершении или отмене вызова
+        AtomicBoolean released = new AtomicBoolean(false);
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        };
+        try {
+            return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(next.startCall(call, headers)) {
+                @Override
+                public void onComplete() {
+                    try {
+                        super.onComplete();
+                    } finally {
+                        release.run();
+                    }
+                }
+
+                @Override
+                public void onCancel() {
+                    try {
+                        super.onCancel();
+                    } finally {
+                        release.run();
+                    }
+                }
+            };
+        } catch (RuntimeException e) {
+            release.run();
+            throw e;
+        }
+    }
+
+    // Ожидание разрешения блокирует поток вызова (при виртуальных потоках - дёшево).
+    // tryAcquire с таймаутом (в т.ч. нулевым) соблюдает FIFO справедливого семафора, а tryAcquire() без таймаута -
+    // нет: новый вызов занял бы освободившееся разрешение раньше ждущих в очереди
+    private boolean acquire() {
+        try {
+            if (permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+            if (queuedCalls.incrementAndGet() > maxQueuedCalls) {
+                queuedCalls.decrementAndGet();
+                return false;
+            }
+            try {
+                return permits.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS);
+            } finally {
+                queuedCalls.decrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -1,31 +1,78 @@
 package io.github.maksim0840.extractionresults.grpc;
 
 import io.github.maksim0840.extraction_result.v1.*;
+import io.github.maksim0840.extractionresults.cache.ExtractionResultProtoCache;
+import io.github.maksim0840.extractionresults.domain.ExportJob;
 import io.github.maksim0840.extractionresults.domain.ExtractionResult;
+import io.github.maksim0840.extractionresults.domain.ExtractionResultStats;
+import io.github.maksim0840.extractionresults.domain.ResultSchema;
+import io.github.maksim0840.extractionresults.exception.AlreadyExistsException;
 import io.github.maksim0840.extractionresults.exception.NotFoundException;
+import io.github.maksim0840.extractionresults.exception.ResultSchemaViolationException;
+import io.github.maksim0840.extractionresults.export.ExtractionResultExportService;
+import io.github.maksim0840.extractionresults.mapper.ProtoBsonMapper;
 import io.github.maksim0840.extractionresults.mapper.ProtoDomainExtractionResultMapper;
+import io.github.maksim0840.extractionresults.mapper.ProtoDomainResultSchemaMapper;
+import io.github.maksim0840.extractionresults.repository.ExtractionResultChangeStream;
+import io.github.maksim0840.extractionresults.repository.ExtractionResultCursor;
 import io.github.maksim0840.extractionresults.service.ExtractionResultService;
-import io.github.maksim0840.internalapi.extraction_result.v1.mapper.ProtoJsonMapper;
+import io.github.maksim0840.extractionresults.service.ResultSchemaService;
+import io.github.maksim0840.extractionresults.storage.JsonPatchCodec;
 import io.github.maksim0840.internalapi.common.v1.mapper.ProtoTimeMapper;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
-import net.devh.boot.grpc.server.service.GrpcService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Сервис, который регистрируется на grpc-сервере и реализует методы, вызываемые при получении соответствующего rpc запроса.
  * Отвечает за получение rpc запроса, обработку параметров и отправку ответа обратно grpc-клиенту.
+ * На сервере регистрируется через ExtractionResultServiceRegistration (вариант Get с готовыми байтами).
  */
-@GrpcService
+@Component
 public class ExtractionResultGrpcEndpoint extends ExtractionResultServiceGrpc.ExtractionResultServiceImplBase {
+    private static final int DEFAULT_STREAM_BATCH_SIZE = 500;
+    private static final int MAX_STREAM_BATCH_SIZE = 5000;
+    private static final int DEFAULT_STATS_TOP_N = 100;
+    private static final int MAX_STATS_TOP_N = 1000;
+    private static final int MAX_LATEST_URLS = 1000;
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final int MAX_SEARCH_LIMIT = 100;
+
     private final ExtractionResultService extractionResultService;
+    private final ResultSchemaService resultSchemaService;
+    private final ExtractionResultExportService extractionResultExportService;
+    private final int createBatchSize;  // сколько элементов потока CreateBatch записывается одним bulk-запросом
+    private final int createBatchMaxItems;  // предел элементов одного потока CreateBatch (ответ хранит результат каждого)
+    private final Semaphore subscriptionPermits;  // каждая подписка держит change stream курсор (и соединение во время ожидания)
+    private final int subscribeBufferSize;        // сколько неотправленных событий подписки допускается до её завершения
+    private final boolean searchEnabled;          // searchText и текстовый индекс хранятся (см. SearchTextCallback)
 
-    public ExtractionResultGrpcEndpoint(ExtractionResultService extractionResultService) {
+    public ExtractionResultGrpcEndpoint(ExtractionResultService extractionResultService,
+                                        ResultSchemaService resultSchemaService,
+                                        ExtractionResultExportService extractionResultExportService,
+                                        @Value("${extraction-results.create-batch.size:500}") int createBatchSize,
+                                        @Value("${extraction-results.create-batch.max-items:50000}") int createBatchMaxItems,
+                                        @Value("${extraction-results.subscribe.max-subscribers:32}") int maxSubscribers,
+                                        @Value("${extraction-results.subscribe.buffer-size:1000}") int subscribeBufferSize,
+                                        @Value("${extraction-results.storage.search-text.enabled:false}") boolean searchEnabled) {
         this.extractionResultService = extractionResultService;
+        this.resultSchemaService = resultSchemaService;
+        this.extractionResultExportService = extractionResultExportService;
+        this.createBatchSize = createBatchSize;
+        this.createBatchMaxItems = createBatchMaxItems;
+        this.subscriptionPermits = new Semaphore(maxSubscribers);
+        this.subscribeBufferSize = subscribeBufferSize;
+        this.searchEnabled = searchEnabled;
     }
 
     @Override
@@ -33,27 +80,36 @@ public class ExtractionResultGrpcEndpoint extends ExtractionResultServiceGrpc.Ex
                        StreamObserver<CreateExtractionResultResponse> observerResponse) {
         String url = request.getUrl();
         String userId = request.getUserId();
+        String retentionTier = request.hasRetentionTier() ? request.getRetentionTier() : null;
+        String resultSchema = request.hasResultSchema() ? request.getResultSchema() : null;
         Map<String, Object> jsonResult;
         try {
-            jsonResult = ProtoJsonMapper.structToMap(request.getJsonResult());
+            jsonResult = ProtoBsonMapper.structToDocument(request.getJsonResult());
         } catch (RuntimeException e) {
             observerResponse.onError(error(Status.INVALID_ARGUMENT, e.getMessage()));
             return;
         }
 
         try {
-            ExtractionResult extractionResult = extractionResultService.createExtractionResult(url, userId, jsonResult);
+            ExtractionResult extractionResult = extractionResultService.createExtractionResult(url, userId, jsonResult, retentionTier, resultSchema);
             ExtractionResultProto extractionResultProto = ProtoDomainExtractionResultMapper.domainToProto(extractionResult);
             CreateExtractionResultResponse response = CreateExtractionResultResponse.newBuilder()
                     .setExtractionResult(extractionResultProto).build();
 
             observerResponse.onNext(response);
             observerResponse.onCompleted();
+        } catch (ResultSchemaViolationException e) {
+            observerResponse.onError(error(Status.INVALID_ARGUMENT, e.getMessage()));
         } catch (RuntimeException e) {
             observerResponse.onError(error(Status.UNAVAILABLE, e.getMessage()));
         }
     }
 
+    @Override
+    public StreamObserver<CreateExtractionResultRequest> createBatch(StreamObserver<CreateBatchExtractionResultResponse> observerResponse) {
+        return new CreateBatchRequestObserver(observerResponse);
+    }
+
     @Override
     public void get(GetExtractionResultRequest request,
                     StreamObserver<GetExtractionResultResponse> observerResponse) {
@@ -64,8 +120,7 @@ public class ExtractionResultGrpcEndpoint extends ExtractionResultServiceGrpc.Ex
         }
 
         try {
-            ExtractionResult extractionResult = extractionResultService.getExtractionResultById(id);
-            ExtractionResultProto extractionResultProto = ProtoDomainExtractionResultMapper.domainToProto(extractionResult);
+            ExtractionResultProto extractionResultProto = extractionResultService.getExtractionResultProtoById(id);
             GetExtractionResultResponse response = GetExtractionResultResponse.newBuilder()
                             .setExtractionResult(extractionResultProto).build();
 
@@ -78,6 +133,27 @@ public class ExtractionResultGrpcEndpoint extends ExtractionResultServiceGrpc.Ex
         }
     }
 
+    // Get с отправкой сериализованного proto из кэша (регистрируется вместо get, см. ExtractionResultServiceRegistration)
+    void getPreEncoded(GetExtractionResultRequest request,
+                               StreamObserver<PreEncodedGetResponse> observerResponse) {
+        String id = request.getId();
+        if (id.isBlank()) {
+            observerResponse.onError(error(Status.INVALID_ARGUMENT, "id must not be blank"));
+            return;
+        }
+
+        try {
+            ExtractionResultProtoCache.Entry extractionResultProto = extractionResultService.getExtractionResultProtoEntryById(id);
+
+            observerResponse.onNext(new PreEncodedGetResponse(extractionResultProto.bytes(), extractionResultProto.proto()));
+            observerResponse.onCompleted();
+        } catch (NotFoundException e) {
+            observerResponse.onError(error(Status.NOT_FOUND, e.getMessage()));
+        } catch (RuntimeException e) {
+            observerResponse.onError(error(Status.UNAVAILABLE, e.getMessage()));
+        }
+    }
+
     @Override
     public void getList(GetListExtractionResultRequest request,
                         StreamObserver<GetListExtractionResultResponse> observerResponse) {
@@ -87,11 +163,12 @@ public class ExtractionResultGrpcEndpoint extends ExtractionResultServiceGrpc.Ex
         int pageNum = request.getPageNum();
         int pageSize = request.getPageSize();
         Boolean isSortDesc = request.hasSortCreatedDesc() ? request.getSortCreatedDesc() : null;
+        boolean summaryOnly = request.getSummaryOnly();
 
         try {
-            List<ExtractionResult> extractionResults = extractionResultService.getListExtractionResultByPageWithFiltering(userId, dateFrom, dateTo, pageNum, pageSize, isSortDesc);
+            List<ExtractionResult> extractionResults = extractionResultService.getListExtractionResultByPageWithFiltering(userId, dateFrom, dateTo, pageNum, pageSize, isSortDesc, summaryOnly);
             List<ExtractionResultProto> extractionResultsProto = extractionResults.stream()
-                            .map(ProtoDomainExtractionResultMapper::domainToProto)
+                            .map(extractionResultService::toProto)
                             .toList();
             GetListExtractionResultResponse response = GetListExtractionResultResponse.newBuilder()
                             .addAllExtractionResults(extractionResultsProto).build();
@@ -104,6 +181,284 @@ public class ExtractionResultGrpcEndpoint extends ExtractionResultServiceGrpc.Ex
 
     }
 
+    @Override
+    public void streamList(StreamListExtractionResultRequest request,
+                           StreamObserver<StreamListExtractionResultResponse> observerResponse) {
+        String userId = request.hasUserId() ? request.getUserId() : null;
+        Instant dateFrom = request.hasCreatedFrom() ? ProtoTimeMapper.timestampToInstant(request.getCreatedFrom()) : null;
+        Instant dateTo = request.hasCreatedTo() ? ProtoTimeMapper.timestampToInstant(request.getCreatedTo()) : null;
+        Boolean isSortDesc = request.hasSortCreatedDesc() ? request.getSortCreatedDesc() : null;
+        boolean summaryOnly = request.getSummaryOnly();
+        int batchSize = request.getBatchSize() > 0 ? Math.min(request.getBatchSize(), MAX_STREAM_BATCH_SIZE) : DEFAULT_STREAM_BATCH_SIZE;
+        ExtractionResultCursor startCursor;
+        try {
+            startCursor = request.hasContinuationToken() ? ExtractionResultCursor.decode(request.getContinuationToken()) : null;
+        } catch (IllegalArgumentException e) {
+            observerResponse.onError(error(Status.INVALID_ARGUMENT, e.getMessage()));
+            return;
+        }
+
+        // Порции читаются по мере готовности клиента принимать сообщения (backpressure)
+        ServerCallStreamObserver<StreamListExtractionResultResponse> serverObserver =
+                (ServerCallStreamObserver<StreamListExtractionResultResponse>) observerResponse;
+        new ExtractionResultStreamSender<>(serverObserver,
+                (after, size) -> extractionResultService.getListExtractionResultAfterCursorWithFiltering(userId, dateFrom, dateTo, after, size, isSortDesc, summaryOnly),
+                (extractionResult, cursor) -> StreamListExtractionResultResponse.newBuilder()
+                        .setExtractionResult(extractionResultService.toProto(extractionResult))
+                        .setContinuationToken(cursor.encode())
+                        .build(),
+                startCursor, batchSize).start();
+    }
+
+    @Override
+    public void stats(StatsExtractionResultRequest request,
+                      StreamObserver<StatsExtractionResultResponse> observerResponse) {
+        String userId = request.hasUserId() ? request.getUserId() : null;
+        Instant dateFrom = request.hasCreatedFrom() ? ProtoTimeMapper.timestampToInstant(request.getCreatedFrom()) : null;
+        Instant dateTo = request.hasCreatedTo() ? ProtoTimeMapper.timestampToInstant(request.getCreatedTo()) : null;
+        int topN = request.getTopN() > 0 ? Math.min(request.getTopN(), MAX_STATS_TOP_N) : DEFAULT_STATS_TOP_N;
+
+        try {
+            ExtractionResultStats stats = extractionResultService.getExtractionResultStatsWithFiltering(userId, dateFrom, dateTo, topN);
+            StatsExtractionResultResponse response = ProtoDomainExtractionResultMapper.statsToProto(stats);
+
+            observerResponse.onNext(response);
+            observerResponse.onCompleted();
+        } catch (RuntimeException e) {
+            observerResponse.onError(error(Status.UNAVAILABLE, e.getMessage()));
+        }
+    }
+
+    @Override
+    public void subscribe(SubscribeExtractionResultRequest request,
+                          StreamObserver<SubscribeExtractionResultResponse> observerResponse) {
+        String userId = request.hasUserId() ? request.getUserId() : null;
+        Instant startAt = request.hasStartAt() ? ProtoTimeMapper.timestampToInstant(request.getStartAt()) : null;
+        boolean summaryOnly = request.getSummaryOnly();
+        String resumeToken = request.hasResumeToken() ? request.getResumeToken() : null;
+        if (resumeToken != null) {
+            try {
+                ExtractionResultChangeStream.decodeResumeToken(resumeToken);
+            } catch (IllegalArgumentException e) {
+                observerResponse.onError(error(Status.INVALID_ARGUMENT, e.getMessage()));
+                return;
+            }
+        }
+        if (!subscriptionPermits.tryAcquire()) {
+            observerResponse.onError(error(Status.RESOURCE_EXHAUSTED, "Too many active subscriptions, retry later"));
+            return;
+        }
+
+        // События отправляются по мере готовности клиента, отстающий клиент отключается (backpressure)
+        ServerCallStreamObserver<SubscribeExtractionResultResponse> serverObserver =
+                (ServerCallStreamObserver<SubscribeExtractionResultResponse>) observerResponse;
+        new ExtractionResultSubscription(serverObserver,
+                () -> extractionResultService.openCreatedEventsCursor(userId, resumeToken, startAt),
+                fullDocument -> extractionResultService.createdEventToProto(fullDocument, summaryOnly),
+                subscribeBufferSize, subscriptionPermits::release).start();
+    }
+
+    @Override
+    public void search(SearchExtractionResultRequest request,
+                       StreamObserver<SearchExtractionResultResponse> observerResponse) {
+        String text = request.getQuery();
+        String userId = request.hasUserId() ? request.getUserId() : null;
+        Instant dateFrom = request.hasCreatedFrom() ? ProtoTimeMapper.timestampToInstant(request.getCreatedFrom()) : null;
+        Instant dateTo = request.hasCreatedTo() ? ProtoTimeMapper.timestampToInstant(request.getCreatedTo()) : null;
+        int limit = request.getLimit() > 0 ? Math.min(request.getLimit(), MAX_SEARCH_LIMIT) : DEFAULT_SEARCH_LIMIT;
+        boolean summaryOnly = request.getSummaryOnly();
+        if (!searchEnabled) {
+            observerResponse.onError(error(Status.FAILED_PRECONDITION, "full-text search is disabled (extraction-results.storage.search-text.enabled)"));
+            return;
+        }
+        if (text.isBlank()) {
+            observerResponse.onError(error(Status.INVALID_ARGUMENT, "query must not be blank"));
+            return;
+        }
+
+        try {
+            List<SearchExtractionResultHit> hits = extractionResultService.searchExtractionResults(text, userId, dateFrom, dateTo, limit, summaryOnly).stream()
+                    .map(hit -> ProtoDomainExtractionResultMapper.searchHitToProto(hit, extractionResultService.toProto(hit.extractionResult())))
+                    .toList();
+            SearchExtractionResultResponse response = SearchExtractionResultResponse.newBuilder()
+                    .addAllHits(hits).build();
+
+            observerResponse.onNext(response);
+            observerResponse.onCompleted();
+        } catch (RuntimeException e) {
+            observerResponse.onError(error(Status.UNAVAILABLE, e.getMessage()));
+        }
+    }
+
+    @Override
+    public void getLatestByUrl(GetLatestByUrlExtractionResultRequest request,
+                               StreamObserver<GetLatestByUrlExtractionResultResponse> observerResponse) {
+        String userId = request.getUserId();
+        String url = request.getUrl();
+        if (userId.isBlank() || url.isBlank()) {
+            observerResponse.onError(error(Status.INVALID_ARGUMENT, "user_id and url must not be blank"));
+            return;
+        }
+
+        try {
+            ExtractionResult extractionResult = extractionResultService.getLatestExtractionResultByUrl(userId, url);
+            GetLatestByUrlExtractionResultResponse response = GetLatestByUrlExtractionResultResponse.newBuilder()
+                    .setExtractionResult(extractionResultService.toProto(extractionResult)).build();
+
+            observerResponse.onNext(response);
+            observerResponse.onCompleted();
+        } catch (NotFoundException e) {
+            observerResponse.onError(error(Status.NOT_FOUND, e.getMessage()));
+        } catch (RuntimeException e) {
+            observerResponse.onError(error(Status.UNAVAILABLE, e.getMessage()));
+        }
+    }
+
+    @Override
+    public void getLatestByUrls(GetLatestByUrlsExtractionResultRequest request,
+                                StreamObserver<GetLatestByUrlsExtractionResultResponse> observerResponse) {
+        String userId = request.getUserId();
+        List<String> urls = request.getUrlsList();
+        if (userId.isBlank()) {
+            observerResponse.onError(error(Status.INVALID_ARGUMENT, "user_id must not be blank"));
+            return;
+        }
+        if (urls.size() > MAX_LATEST_URLS) {
+            observerResponse.onError(error(Status.INVALID_ARGUMENT, "urls must contain at most " + MAX_LATEST_URLS + " items"));
+            return;
+        }
+
+        try {
+            List<ExtractionResultProto> extractionResultsProto = extractionResultService.getLatestExtractionResultsByUrls(userId, urls).stream()
+                    .map(extractionResultService::toProto)
+                    .toList();
+            GetLatestByUrlsExtractionResultResponse response = GetLatestByUrlsExtractionResultResponse.newBuilder()
+                    .addAllExtractionResults(extractionResultsProto).build();
+
+            observerResponse.onNext(response);
+            observerResponse.onCompleted();
+        } catch (RuntimeException e) {
+            observerResponse.onError(error(Status.UNAVAILABLE, e.getMessage()));
+        }
+    }
+
+    @Override
+    public void getHistory(GetHistoryExtractionResultRequest request,
+                           StreamObserver<GetHistoryExtractionResultResponse> observerResponse) {
+        String userId = request.getUserId();
+        String url = request.getUrl();
+        Instant dateFrom = request.hasCreatedFrom() ? ProtoTimeMapper.timestampToInstant(request.getCreatedFrom()) : null;
+        Instant dateTo = request.hasCreatedTo() ? ProtoTimeMapper.timestampToInstant(request.getCreatedTo()) : null;
+        boolean summaryOnly = request.getSummaryOnly();
+        int batchSize = request.getBatchSize() > 0 ? Math.min(request.getBatchSize(), MAX_STREAM_BATCH_SIZE) : DEFAULT_STREAM_BATCH_SIZE;
+        if (userId.isBlank() || url.isBlank()) {
+            observerResponse.onError(error(Status.INVALID_ARGUMENT, "user_id and url must not be blank"));
+            return;
+        }
+
+        // Изменения каждой версии считаются от jsonResult предыдущей отправленной версии
+        ServerCallStreamObserver<GetHistoryExtractionResultResponse> serverObserver =
+                (ServerCallStreamObserver<GetHistoryExtractionResultResponse>) observerResponse;
+        AtomicReference<Map<String, Object>> previousJsonResult = new AtomicReference<>();
+        new ExtractionResultStreamSender<>(serverObserver,
+                (after, size) -> extractionResultService.getUrlHistoryAfterCursor(userId, url, dateFrom, dateTo, after, size, summaryOnly),
+                (extractionResult, cursor) -> {
+                    Map<String, Object> previous = previousJsonResult.getAndSet(extractionResult.getJsonResult());
+                    List<Map<String, Object>> changes = previous == null || extractionResult.getJsonResult() == null
+                            ? List.of()
+                            : JsonPatchCodec.diff(previous, extractionResult.getJsonResult());
+                    return ProtoDomainExtractionResultMapper.historyToProto(extractionResult, extractionResultService.toProto(extractionResult), changes);
+                },
+                null, batchSize).start();
+    }
+
+    @Override
+    public void registerResultSchema(RegisterResultSchemaExtractionResultRequest request,
+                                     StreamObserver<RegisterResultSchemaExtractionResultResponse> observerResponse) {
+        ResultSchemaProto schemaProto = request.getSchema();
+
+        try {
+            ResultSchema resultSchema = resultSchemaService.registerResultSchema(schemaProto.getName(),
+                    ProtoDomainResultSchemaMapper.protoToFields(schemaProto.getFieldsList()));
+            RegisterResultSchemaExtractionResultResponse response = RegisterResultSchemaExtractionResultResponse.newBuilder()
+                    .setSchema(ProtoDomainResultSchemaMapper.domainToProto(resultSchema)).build();
+
+            observerResponse.onNext(response);
+            observerResponse.onCompleted();
+        } catch (IllegalArgumentException e) {
+            observerResponse.onError(error(Status.INVALID_ARGUMENT, e.getMessage()));
+        } catch (AlreadyExistsException e) {
+            observerResponse.onError(error(Status.ALREADY_EXISTS, e.getMessage()));
+        } catch (RuntimeException e) {
+            observerResponse.onError(error(Status.UNAVAILABLE, e.getMessage()));
+        }
+    }
+
+    @Override
+    public void getResultSchema(GetResultSchemaExtractionResultRequest request,
+                                StreamObserver<GetResultSchemaExtractionResultResponse> observerResponse) {
+        String name = request.getName();
+        if (name.isBlank()) {
+            observerResponse.onError(error(Status.INVALID_ARGUMENT, "name must not be blank"));
+            return;
+        }
+
+        try {
+            ResultSchema resultSchema = resultSchemaService.getResultSchemaByName(name);
+            GetResultSchemaExtractionResultResponse response = GetResultSchemaExtractionResultResponse.newBuilder()
+                    .setSchema(ProtoDomainResultSchemaMapper.domainToProto(resultSchema)).build();
+
+            observerResponse.onNext(response);
+            observerResponse.onCompleted();
+        } catch (NotFoundException e) {
+            observerResponse.onError(error(Status.NOT_FOUND, e.getMessage()));
+        } catch (RuntimeException e) {
+            observerResponse.onError(error(Status.UNAVAILABLE, e.getMessage()));
+        }
+    }
+
+    @Override
+    public void startExport(StartExportExtractionResultRequest request,
+                            StreamObserver<StartExportExtractionResultResponse> observerResponse) {
+        String resultSchema = request.getResultSchema();
+        Instant dateFrom = request.hasCreatedFrom() ? ProtoTimeMapper.timestampToInstant(request.getCreatedFrom()) : null;
+        Instant dateTo = request.hasCreatedTo() ? ProtoTimeMapper.timestampToInstant(request.getCreatedTo()) : null;
+        if (resultSchema.isBlank()) {
+            observerResponse.onError(error(Status.INVALID_ARGUMENT, "result_schema must not be blank"));
+            return;
+        }
+
+        try {
+            ExportJob job = extractionResultExportService.startExport(resultSchema, request.getUserIdsList(), dateFrom, dateTo);
+            StartExportExtractionResultResponse response = StartExportExtractionResultResponse.newBuilder()
+                    .setJob(ProtoDomainResultSchemaMapper.exportJobToProto(job)).build();
+
+            observerResponse.onNext(response);
+            observerResponse.onCompleted();
+        } catch (NotFoundException e) {
+            observerResponse.onError(error(Status.NOT_FOUND, e.getMessage()));
+        } catch (IllegalStateException e) {
+            observerResponse.onError(error(Status.RESOURCE_EXHAUSTED, e.getMessage()));
+        } catch (RuntimeException e) {
+            observerResponse.onError(error(Status.UNAVAILABLE, e.getMessage()));
+        }
+    }
+
+    @Override
+    public void getExport(GetExportExtractionResultRequest request,
+                          StreamObserver<GetExportExtractionResultResponse> observerResponse) {
+        try {
+            ExportJob job = extractionResultExportService.getExport(request.getJobId());
+            GetExportExtractionResultResponse response = GetExportExtractionResultResponse.newBuilder()
+                    .setJob(ProtoDomainResultSchemaMapper.exportJobToProto(job)).build();
+
+            observerResponse.onNext(response);
+            observerResponse.onCompleted();
+        } catch (NotFoundException e) {
+            observerResponse.onError(error(Status.NOT_FOUND, e.getMessage()));
+        }
+    }
+
     @Override
     public void delete(DeleteExtractionResultRequest request,
                        StreamObserver<DeleteExtractionResultResponse> observerResponse) {
@@ -126,6 +481,140 @@ public class ExtractionResultGrpcEndpoint extends ExtractionResultServiceGrpc.Ex
         }
     }
 
+    @Override
+    public void deleteByFilter(DeleteByFilterExtractionResultRequest request,
+                               StreamObserver<DeleteByFilterExtractionResultResponse> observerResponse) {
+        String userId = request.hasUserId() ? request.getUserId() : null;
+        Instant dateFrom = request.hasCreatedFrom() ? ProtoTimeMapper.timestampToInstant(request.getCreatedFrom()) : null;
+        Instant dateTo = request.hasCreatedTo() ? ProtoTimeMapper.timestampToInstant(request.getCreatedTo()) : null;
+        // пустой фильтр удалил бы все записи сервиса
+        if (userId == null && dateFrom == null && dateTo == null) {
+            observerResponse.onError(error(Status.INVALID_ARGUMENT, "at least one of user_id, created_from, created_to must be set"));
+            return;
+        }
+
+        try {
+            long deletedCount = extractionResultService.deleteExtractionResultsByFilter(userId, dateFrom, dateTo);
+            DeleteByFilterExtractionResultResponse response = DeleteByFilterExtractionResultResponse.newBuilder()
+                    .setDeletedCount(deletedCount)
+                    .build();
+
+            observerResponse.onNext(response);
+            observerResponse.onCompleted();
+        } catch (RuntimeException e) {
+            observerResponse.onError(error(Status.UNAVAILABLE, e.getMessage()));
+        }
+    }
+
+    /**
+     * Принимает поток запросов CreateBatch, копит их в пачки по createBatchSize и записывает каждую пачку
+     * одним неупорядоченным bulk-запросом. Ответ с результатом по каждому элементу отправляется после завершения потока.
+     * Ответ накапливается в памяти, поэтому поток ограничен createBatchMaxItems элементами: на следующем элементе
+     * принятые элементы записываются, а вызов завершается RESOURCE_EXHAUSTED (элементы с этого индекса не записаны).
+     */
+    private class CreateBatchRequestObserver implements StreamObserver<CreateExtractionResultRequest> {
+        private final StreamObserver<CreateBatchExtractionResultResponse> observerResponse;
+        private final CreateBatchExtractionResultResponse.Builder responseBuilder = CreateBatchExtractionResultResponse.newBuilder();
+        private final List<ExtractionResult> batch = new ArrayList<>();
+        private final List<Integer> batchIndexes = new ArrayList<>();  // индексы элементов пачки в исходном потоке
+        private final List<String> batchRetentionTiers = new ArrayList<>();  // уровни хранения элементов пачки
+        private int nextIndex = 0;
+        private boolean closed = false;  // вызов уже завершён ошибкой - оставшиеся элементы не обрабатываются
+
+        CreateBatchRequestObserver(StreamObserver<CreateBatchExtractionResultResponse> observerResponse) {
+            this.observerResponse = observerResponse;
+        }
+
+        @Override
+        public void onNext(CreateExtractionResultRequest request) {
+            if (closed) {
+                return;
+            }
+            int index = nextIndex++;
+            if (index >= createBatchMaxItems) {
+                flush();
+                closed = true;
+                observerResponse.onError(error(Status.RESOURCE_EXHAUSTED, "CreateBatch stream exceeds " + createBatchMaxItems
+                        + " elements: elements from index " + index + " were not written, split the stream"));
+                return;
+            }
+            Map<String, Object> jsonResult;
+            try {
+                jsonResult = ProtoBsonMapper.structToDocument(request.getJsonResult());
+            } catch (RuntimeException e) {
+                addError(index, e.getMessage());
+                return;
+            }
+
+            ExtractionResult extractionResult = new ExtractionResult(request.getUrl(), request.getUserId(), jsonResult);
+            try {
+                extractionResultService.applyResultSchema(extractionResult, request.hasResultSchema() ? request.getResultSchema() : null);
+            } catch (RuntimeException e) {
+                addError(index, e.getMessage());
+                return;
+            }
+
+            batch.add(extractionResult);
+            batchIndexes.add(index);
+            batchRetentionTiers.add(request.hasRetentionTier() ? request.getRetentionTier() : null);
+            if (batch.size() >= createBatchSize) {
+                flush();
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            // клиент прервал поток - недописанную пачку отбрасываем
+            batch.clear();
+            batchIndexes.clear();
+            batchRetentionTiers.clear();
+        }
+
+        @Override
+        public void onCompleted() {
+            if (closed) {
+                return;
+            }
+            flush();
+            observerResponse.onNext(responseBuilder.build());
+            observerResponse.onCompleted();
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            try {
+                Map<Integer, String> errors = extractionResultService.createExtractionResultsBatch(batch, batchRetentionTiers);
+                for (int i = 0; i < batch.size(); i++) {
+                    if (errors.containsKey(i)) {
+                        addError(batchIndexes.get(i), errors.get(i));
+                    } else {
+                        responseBuilder.addItems(CreateBatchExtractionResultItem.newBuilder()
+                                .setIndex(batchIndexes.get(i))
+                                .setId(batch.get(i).getId()));
+                    }
+                }
+            } catch (RuntimeException e) {
+                // запрос не выполнился целиком - ошибка у каждого элемента пачки
+                for (Integer index : batchIndexes) {
+                    addError(index, e.getMessage());
+                }
+            }
+
+            batch.clear();
+            batchIndexes.clear();
+            batchRetentionTiers.clear();
+        }
+
+        private void addError(int index, String message) {
+            responseBuilder.addItems(CreateBatchExtractionResultItem.newBuilder()
+                    .setIndex(index)
+                    .setError(message == null ? "unknown error" : message));
+        }
+    }
+
     private StatusRuntimeException error(Status status, String description) {
         return status.withDescription(description).asRuntimeException();
     }
@@ -0,0 +1,62 @@
+package io.github.maksim0840.extractionresults.grpc;
+
+import io.github.maksim0840.extraction_result.v1.ExtractionResultServiceGrpc;
+import io.github.maksim0840.extraction_result.v1.GetExtractionResultRequest;
+import io.github.maksim0840.extraction_result.v1.GetExtractionResultResponse;
+import io.grpc.BindableService;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.ServiceDescriptor;
+import io.grpc.stub.ServerCalls;
+import net.devh.boot.grpc.server.service.GrpcService;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Регистрация ExtractionResultService на grpc-сервере.
+ * Берётся сгенерированное описание сервиса (ExtractionResultServiceGrpc.bindService(endpoint)), в котором Get заменён
+ * на вариант с PreEncodedGetResponseMarshaller: байты ExtractionResultProto из кэша уходят в транспорт как есть,
+ * без разбора в proto, сборки GetExtractionResultResponse и повторной сериализации. Контракт и формат на проводе не меняются.
+ * Сгенерированный bindService() у ImplBase - final, поэтому замена делается здесь, а не в ExtractionResultGrpcEndpoint.
+ */
+@GrpcService
+public class ExtractionResultServiceRegistration implements BindableService {
+    private final ExtractionResultGrpcEndpoint endpoint;
+    private final boolean preEncodedGet;
+
+    public ExtractionResultServiceRegistration(ExtractionResultGrpcEndpoint endpoint,
+                                               @Value("${extraction-results.get.pre-encoded:true}") boolean preEncodedGet) {
+        this.endpoint = endpoint;
+        this.preEncodedGet = preEncodedGet;
+    }
+
+    @Override
+    public ServerServiceDefinition bindService() {
+        ServerServiceDefinition generated = ExtractionResultServiceGrpc.bindService(endpoint);
+        if (!preEncodedGet) {
+            return generated;
+        }
+
+        MethodDescriptor<GetExtractionResultRequest, GetExtractionResultResponse> typedGet = ExtractionResultServiceGrpc.getGetMethod();
+        MethodDescriptor<GetExtractionResultRequest, PreEncodedGetResponse> preEncodedGetMethod =
+                typedGet.toBuilder(typedGet.getRequestMarshaller(), PreEncodedGetResponseMarshaller.INSTANCE).build();
+
+        List<ServerMethodDefinition<?, ?>> methods = new ArrayList<>();
+        for (ServerMethodDefinition<?, ?> method : generated.getMethods()) {
+            methods.add(method.getMethodDescriptor().getFullMethodName().equals(typedGet.getFullMethodName())
+                    ? ServerMethodDefinition.create(preEncodedGetMethod, ServerCalls.asyncUnaryCall(endpoint::getPreEncoded))
+                    : method);
+        }
+
+        // дескриптор сервиса должен содержать те же экземпляры MethodDescriptor, что и зарегистрированные методы
+        ServiceDescriptor.Builder descriptor = ServiceDescriptor.newBuilder(generated.getServiceDescriptor().getName())
+                .setSchemaDescriptor(generated.getServiceDescriptor().getSchemaDescriptor());
+        methods.forEach(method -> descriptor.addMethod(method.getMethodDescriptor()));
+        ServerServiceDefinition.Builder definition = ServerServiceDefinition.builder(descriptor.build());
+        methods.forEach(definition::addMethod);
+        return definition.build();
+    }
+}
@@ -0,0 +1,96 @@
+package io.github.maksim0840.extractionresults.grpc;
+
+import io.github.maksim0840.extractionresults.domain.ExtractionResult;
+import io.github.maksim0840.extractionresults.repository.ExtractionResultCursor;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+/**
+ * Отправка результатов server-streaming вызовов StreamList и GetHistory с учётом backpressure.
+ * Записи читаются из MongoDB порциями по keyset-курсору только тогда, когда клиент готов их принять
+ * (onReadyHandler), поэтому в памяти одновременно находится не больше одной порции.
+ * Состояние защищено ReentrantLock, а не synchronized: порция читается из MongoDB под блокировкой, и на виртуальном потоке
+ * grpc-исполнителя synchronized закрепил бы поток-носитель на всё время запроса (JDK 21).
+ */
+class ExtractionResultStreamSender<T> implements Runnable {
+
+    // Источник порций: (курсор последней отправленной записи, размер порции) -> следующая порция
+    @FunctionalInterface
+    interface BatchLoader {
+        List<ExtractionResult> load(ExtractionResultCursor after, int batchSize);
+    }
+
+    private final ServerCallStreamObserver<T> observer;
+    private final BatchLoader batchLoader;
+    private final BiFunction<ExtractionResult, ExtractionResultCursor, T> toResponse;  // (запись, её курсор) -> сообщение ответа
+    private final int batchSize;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<ExtractionResult> buffer = new ArrayDeque<>();
+    private ExtractionResultCursor cursor;
+    private boolean exhausted = false;   // последняя порция была неполной - данных больше нет
+    private boolean finished = false;    // вызов завершён (успешно, с ошибкой или отменён клиентом)
+
+    ExtractionResultStreamSender(ServerCallStreamObserver<T> observer,
+                                 BatchLoader batchLoader, BiFunction<ExtractionResult, ExtractionResultCursor, T> toResponse,
+                                 ExtractionResultCursor startCursor, int batchSize) {
+        this.observer = observer;
+        this.batchLoader = batchLoader;
+        this.toResponse = toResponse;
+        this.cursor = startCursor;
+        this.batchSize = batchSize;
+    }
+
+    // Регистрирует обработчики; вызывается внутри метода endpoint-а до его возврата
+    void start() {
+        observer.setOnCancelHandler(this::cancel);
+        observer.setOnReadyHandler(this);
+    }
+
+    // Вызывается grpc каждый раз, когда транспорт готов принять новые сообщения
+    @Override
+    public void run() {
+        lock.lock();
+        try {
+            while (!finished && observer.isReady()) {
+                if (buffer.isEmpty()) {
+                    if (exhausted) {
+                        finished = true;
+                        observer.onCompleted();
+                        return;
+                    }
+                    List<ExtractionResult> batch = batchLoader.load(cursor, batchSize);
+                    buffer.addAll(batch);
+                    exhausted = batch.size() < batchSize;
+                    continue;
+                }
+
+                ExtractionResult extractionResult = buffer.poll();
+                cursor = new ExtractionResultCursor(extractionResult.getCreatedAt(), extractionResult.getId());
+                observer.onNext(toResponse.apply(extractionResult, cursor));
+            }
+        } catch (RuntimeException e) {
+            finished = true;
+            buffer.clear();
+            observer.onError(Status.UNAVAILABLE.withDescription(e.getMessage()).asRuntimeException());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void cancel() {
+        lock.lock();
+        try {
+            finished = true;
+            buffer.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
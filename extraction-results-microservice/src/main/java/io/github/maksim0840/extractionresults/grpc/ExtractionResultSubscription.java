@@ -0,0 +1,121 @@
+package io.github.maksim0840.extractionresults.grpc;
+
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import io.github.maksim0840.extraction_result.v1.ExtractionResultProto;
+import io.github.maksim0840.extraction_result.v1.SubscribeExtractionResultResponse;
+import io.github.maksim0840.extractionresults.repository.ExtractionResultChangeStream;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import org.bson.Document;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Подписка server-streaming вызова Subscribe на change stream новых записей.
+ * События читаются из курсора в отдельном виртуальном потоке и складываются в ограниченный буфер,
+ * который отправляется клиенту по мере готовности транспорта (onReadyHandler).
+ * Если клиент не успевает и буфер переполняется, подписка завершается с RESOURCE_EXHAUSTED -
+ * клиент переподключается с resume_token последнего полученного события, а память сервера не растёт.
+ * Отправка защищена ReentrantLock, а не synchronized, чтобы виртуальные потоки не закрепляли поток-носитель (JDK 21).
+ */
+class ExtractionResultSubscription implements Runnable {
+    private final ServerCallStreamObserver<SubscribeExtractionResultResponse> observer;
+    private final Supplier<MongoChangeStreamCursor<ChangeStreamDocument<Document>>> cursorOpener;
+    private final Function<Document, ExtractionResultProto> toProto;   // fullDocument события -> proto (null - событие пропускается)
+    private final BlockingQueue<SubscribeExtractionResultResponse> buffer;
+    private final Runnable onFinish;                                   // вызывается один раз после закрытия курсора
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile boolean finished = false;   // вызов завершён (с ошибкой или отменён клиентом)
+
+    ExtractionResultSubscription(ServerCallStreamObserver<SubscribeExtractionResultResponse> observer,
+                                 Supplier<MongoChangeStreamCursor<ChangeStreamDocument<Document>>> cursorOpener,
+                                 Function<Document, ExtractionResultProto> toProto, int bufferSize, Runnable onFinish) {
+        this.observer = observer;
+        this.cursorOpener = cursorOpener;
+        this.toProto = toProto;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        this.onFinish = onFinish;
+    }
+
+    // Регистрирует обработчики и запускает чтение; вызывается внутри метода endpoint-а до его возврата
+    void start() {
+        observer.setOnCancelHandler(this::cancel);
+        observer.setOnReadyHandler(this);
+        Thread.ofVirtual().name("extraction-results-subscription").start(this::readEvents);
+    }
+
+    // Вызывается grpc каждый раз, когда транспорт готов принять новые сообщения, и читателем после добавления события
+    @Override
+    public void run() {
+        lock.lock();
+        try {
+            SubscribeExtractionResultResponse response;
+            while (!finished && observer.isReady() && (response = buffer.poll()) != null) {
+                observer.onNext(response);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Курсор ждёт события не дольше maxAwaitMs, поэтому отмена вызова замечается без закрытия курсора из другого потока
+    private void readEvents() {
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = cursorOpener.get()) {
+            while (!finished) {
+                ChangeStreamDocument<Document> event = cursor.tryNext();
+                if (event == null || event.getFullDocument() == null) {
+                    continue;
+                }
+                ExtractionResultProto extractionResult = toProto.apply(event.getFullDocument());
+                if (extractionResult == null) {
+                    continue;
+                }
+
+                SubscribeExtractionResultResponse response = SubscribeExtractionResultResponse.newBuilder()
+                        .setExtractionResult(extractionResult)
+                        .setResumeToken(ExtractionResultChangeStream.encodeResumeToken(event.getResumeToken()))
+                        .build();
+                if (!buffer.offer(response)) {
+                    fail(Status.RESOURCE_EXHAUSTED.withDescription(
+                            "Subscriber is too slow, resubscribe with the last received resume_token"));
+                    return;
+                }
+                run();
+            }
+        } catch (RuntimeException e) {
+            fail(Status.UNAVAILABLE.withDescription(e.getMessage()));
+        } finally {
+            onFinish.run();
+        }
+    }
+
+    private void fail(Status status) {
+        lock.lock();
+        try {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            buffer.clear();
+            observer.onError(status.asRuntimeException());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void cancel() {
+        lock.lock();
+        try {
+            finished = true;
+            buffer.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
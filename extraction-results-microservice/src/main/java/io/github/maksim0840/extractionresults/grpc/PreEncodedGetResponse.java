@@ -0,0 +1,17 @@
+package io.github.maksim0840.extractionresults.grpc;
+
+import io.github.maksim0840.extraction_result.v1.ExtractionResultProto;
+
+/**
+ * Ответ Get в виде уже сериализованного ExtractionResultProto (байты из кэша ExtractionResultProtoCache).
+ * Отправляется клиенту через PreEncodedGetResponseMarshaller, на проводе совпадает с GetExtractionResultResponse.
+ * Запись, не помещающаяся в кэш, передаётся как proto (uncachedProto) и сериализуется сразу в транспорт.
+ * @param extractionResultProto сериализованный ExtractionResultProto (не изменяется и не копируется), null - задан uncachedProto
+ * @param uncachedProto запись, не попавшая в кэш (null - задан extractionResultProto)
+ */
+record PreEncodedGetResponse(byte[] extractionResultProto, ExtractionResultProto uncachedProto) {
+
+    PreEncodedGetResponse(byte[] extractionResultProto) {
+        this(extractionResultProto, null);
+    }
+}
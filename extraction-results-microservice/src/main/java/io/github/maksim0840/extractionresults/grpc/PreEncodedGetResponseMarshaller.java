@@ -0,0 +1,138 @@
+package io.github.maksim0840.extractionresults.grpc;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import io.github.maksim0840.extraction_result.v1.ExtractionResultServiceGrpc;
+import io.github.maksim0840.extraction_result.v1.GetExtractionResultResponse;
+import io.grpc.Drainable;
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Marshaller ответа Get, который пишет в транспорт готовые байты ExtractionResultProto без сборки сообщения.
+ * GetExtractionResultResponse состоит из одного поля extraction_result = 1, поэтому его кодировка - это
+ * тег поля, длина и байты вложенного сообщения: перед байтами из кэша дописываются только тег и длина (2-6 байт).
+ * Поток реализует Drainable и KnownLength, так что grpc-фреймер копирует байты кэша сразу в буфер транспорта.
+ * Ответ без байтов (запись не помещается в кэш) пишется обычным protobuf marshaller-ом - тоже сразу в транспорт.
+ */
+final class PreEncodedGetResponseMarshaller implements MethodDescriptor.Marshaller<PreEncodedGetResponse> {
+    static final PreEncodedGetResponseMarshaller INSTANCE = new PreEncodedGetResponseMarshaller();
+
+    // Тег поля extraction_result (номер поля 1, length-delimited) - помещается в один байт
+    private static final byte EXTRACTION_RESULT_TAG =
+            (byte) (GetExtractionResultResponse.EXTRACTION_RESULT_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED);
+
+    private static final MethodDescriptor.Marshaller<GetExtractionResultResponse> TYPED =
+            ExtractionResultServiceGrpc.getGetMethod().getResponseMarshaller();
+
+    private PreEncodedGetResponseMarshaller() {
+    }
+
+    @Override
+    public InputStream stream(PreEncodedGetResponse response) {
+        if (response.extractionResultProto() == null) {
+            return TYPED.stream(GetExtractionResultResponse.newBuilder().setExtractionResult(response.uncachedProto()).build());
+        }
+        byte[] body = response.extractionResultProto();
+        return new PreEncodedStream(header(body.length), body);
+    }
+
+    // Нужен только клиенту, который использует этот marshaller (сервер ответы не разбирает)
+    @Override
+    public PreEncodedGetResponse parse(InputStream stream) {
+        try {
+            return new PreEncodedGetResponse(GetExtractionResultResponse.parseFrom(stream).getExtractionResult().toByteArray());
+        } catch (IOException e) {
+            throw Status.INTERNAL.withDescription("Invalid protobuf byte sequence").withCause(e).asRuntimeException();
+        }
+    }
+
+    // Тег поля и длина вложенного сообщения в формате varint
+    private static byte[] header(int length) {
+        byte[] header = new byte[1 + CodedOutputStream.computeUInt32SizeNoTag(length)];
+        header[0] = EXTRACTION_RESULT_TAG;
+        int position = 1;
+        int value = length;
+        while ((value & ~0x7F) != 0) {
+            header[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        header[position] = (byte) value;
+        return header;
+    }
+
+    // Поток из заголовка и байтов сообщения без их объединения в один массив
+    private static final class PreEncodedStream extends InputStream implements Drainable, KnownLength {
+        private final byte[] header;
+        private final byte[] body;
+        private int position = 0;
+
+        PreEncodedStream(byte[] header, byte[] body) {
+            this.header = header;
+            this.body = body;
+        }
+
+        @Override
+        public int drainTo(OutputStream target) throws IOException {
+            int drained = available();
+            if (position < header.length) {
+                target.write(header, position, header.length - position);
+                position = header.length;
+            }
+            int bodyPosition = position - header.length;
+            if (bodyPosition < body.length) {
+                target.write(body, bodyPosition, body.length - bodyPosition);
+            }
+            position = header.length + body.length;
+            return drained;
+        }
+
+        @Override
+        public int read() {
+            if (position < header.length) {
+                return header[position++] & 0xFF;
+            }
+            int bodyPosition = position - header.length;
+            if (bodyPosition < body.length) {
+                position++;
+                return body[bodyPosition] & 0xFF;
+            }
+            return -1;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (available() == 0) {
+                return -1;
+            }
+            int read = 0;
+            if (position < header.length) {
+                int count = Math.min(length, header.length - position);
+                System.arraycopy(header, position, target, offset, count);
+                position += count;
+                read += count;
+            }
+            int bodyPosition = position - header.length;
+            if (read < length && bodyPosition >= 0 && bodyPosition < body.length) {
+                int count = Math.min(length - read, body.length - bodyPosition);
+                System.arraycopy(body, bodyPosition, target, offset + read, count);
+                position += count;
+                read += count;
+            }
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return header.length + body.length - position;
+        }
+    }
+}
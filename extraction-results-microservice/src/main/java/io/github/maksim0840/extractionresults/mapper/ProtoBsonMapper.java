@@ -0,0 +1,106 @@
+package io.github.maksim0840.extractionresults.mapper;
+
+import com.google.protobuf.ListValue;
+import com.google.protobuf.NullValue;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Прямое преобразование google.protobuf.Struct <-> org.bson.Document без промежуточной JSON-строки.
+ * В отличие от ProtoJsonMapper не печатает Struct в JSON и не разбирает его обратно Jackson-ом,
+ * а за один проход обходит дерево Struct/Value и строит Document/List/примитивы (и наоборот).
+ * Document реализует Map<String, Object>, поэтому результат можно напрямую класть в доменные Map-поля.
+ */
+public class ProtoBsonMapper {
+
+    public static Document structToDocument(Struct struct) {
+        if (struct == null) {
+            throw new IllegalArgumentException("null Struct mapping");
+        }
+        Map<String, Value> fields = struct.getFieldsMap();
+        Document document = new Document();
+        for (Map.Entry<String, Value> field : fields.entrySet()) {
+            document.put(field.getKey(), valueToObject(field.getValue()));
+        }
+        return document;
+    }
+
+    public static Struct mapToStruct(Map<String, ?> map) {
+        if (map == null) {
+            throw new IllegalArgumentException("null Map mapping");
+        }
+        Struct.Builder structBuilder = Struct.newBuilder();
+        for (Map.Entry<String, ?> entry : map.entrySet()) {
+            structBuilder.putFields(entry.getKey(), objectToValue(entry.getValue()));
+        }
+        return structBuilder.build();
+    }
+
+    private static Object valueToObject(Value value) {
+        return switch (value.getKindCase()) {
+            case NULL_VALUE -> null;
+            case NUMBER_VALUE -> value.getNumberValue();  // числа в Struct всегда double (как и при разборе JSON через Jackson)
+            case STRING_VALUE -> value.getStringValue();
+            case BOOL_VALUE -> value.getBoolValue();
+            case STRUCT_VALUE -> structToDocument(value.getStructValue());
+            case LIST_VALUE -> listValueToList(value.getListValue());
+            case KIND_NOT_SET -> throw new IllegalArgumentException("Struct Value kind not set");
+        };
+    }
+
+    private static List<Object> listValueToList(ListValue listValue) {
+        List<Object> list = new ArrayList<>(listValue.getValuesCount());
+        for (Value value : listValue.getValuesList()) {
+            list.add(valueToObject(value));
+        }
+        return list;
+    }
+
+    private static Value objectToValue(Object object) {
+        Value.Builder valueBuilder = Value.newBuilder();
+        if (object == null) {
+            valueBuilder.setNullValue(NullValue.NULL_VALUE);
+        } else if (object instanceof Number number) {
+            valueBuilder.setNumberValue(number.doubleValue());
+        } else if (object instanceof CharSequence string) {
+            valueBuilder.setStringValue(string.toString());
+        } else if (object instanceof Boolean bool) {
+            valueBuilder.setBoolValue(bool);
+        } else if (object instanceof Map<?, ?> map) {
+            valueBuilder.setStructValue(nestedMapToStruct(map));
+        } else if (object instanceof Collection<?> collection) {
+            valueBuilder.setListValue(collectionToListValue(collection));
+        } else if (object instanceof Object[] array) {
+            valueBuilder.setListValue(collectionToListValue(Arrays.asList(array)));
+        } else if (object instanceof Date date) {
+            valueBuilder.setNumberValue(date.getTime());  // как Jackson по умолчанию: epoch millis
+        } else {
+            throw new IllegalArgumentException("Unsupported value type mapping: " + object.getClass().getName());
+        }
+        return valueBuilder.build();
+    }
+
+    private static Struct nestedMapToStruct(Map<?, ?> map) {
+        Struct.Builder structBuilder = Struct.newBuilder();
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            structBuilder.putFields(String.valueOf(entry.getKey()), objectToValue(entry.getValue()));
+        }
+        return structBuilder.build();
+    }
+
+    private static ListValue collectionToListValue(Collection<?> collection) {
+        ListValue.Builder listBuilder = ListValue.newBuilder();
+        for (Object element : collection) {
+            listBuilder.addValues(objectToValue(element));
+        }
+        return listBuilder.build();
+    }
+}
@@ -1,19 +1,93 @@
 package io.github.maksim0840.extractionresults.mapper;
 
+import com.google.protobuf.Struct;
 import io.github.maksim0840.extraction_result.v1.ExtractionResultProto;
+import io.github.maksim0840.extraction_result.v1.GetHistoryExtractionResultResponse;
+import io.github.maksim0840.extraction_result.v1.JsonPatchOperation;
+import io.github.maksim0840.extraction_result.v1.SearchExtractionResultHit;
+import io.github.maksim0840.extraction_result.v1.StatsCount;
+import io.github.maksim0840.extraction_result.v1.StatsExtractionResultResponse;
 import io.github.maksim0840.extractionresults.domain.ExtractionResult;
-import io.github.maksim0840.internalapi.extraction_result.v1.mapper.ProtoJsonMapper;
+import io.github.maksim0840.extractionresults.domain.ExtractionResultSearchHit;
+import io.github.maksim0840.extractionresults.domain.ExtractionResultStats;
 import io.github.maksim0840.internalapi.common.v1.mapper.ProtoTimeMapper;
+import org.bson.Document;
+
+import java.util.List;
+import java.util.Map;
 
 public class ProtoDomainExtractionResultMapper {
 
     public static ExtractionResultProto domainToProto(ExtractionResult domain) {
-        return ExtractionResultProto.newBuilder()
+        ExtractionResultProto.Builder builder = ExtractionResultProto.newBuilder()
                 .setId(domain.getId())
                 .setUrl(domain.getUrl())
                 .setUserId(domain.getUserId())
-                .setJsonResult(ProtoJsonMapper.mapToStruct(domain.getJsonResult()))
-                .setCreatedAt(ProtoTimeMapper.instantToTimestamp(domain.getCreatedAt()))
+                .setCreatedAt(ProtoTimeMapper.instantToTimestamp(domain.getCreatedAt()));
+        // jsonResult == null у записей, прочитанных с проекцией summaryOnly - облегчённый proto без json_result
+        if (domain.getJsonResult() != null) {
+            builder.setJsonResult(ProtoBsonMapper.mapToStruct(domain.getJsonResult()));
+        }
+        if (domain.getResultSchema() != null) {
+            builder.setResultSchema(domain.getResultSchema());
+        }
+        return builder.build();
+    }
+
+    // Маппинг с уже готовым Struct (jsonResult, прочитанный из GridFS)
+    public static ExtractionResultProto domainToProto(ExtractionResult domain, Struct jsonResult) {
+        return domainToProto(domain).toBuilder()
+                .setJsonResult(jsonResult)
+                .build();
+    }
+
+    // Маппинг найденной записи с уже готовым proto записи (jsonResult мог быть прочитан из GridFS)
+    public static SearchExtractionResultHit searchHitToProto(ExtractionResultSearchHit hit, ExtractionResultProto extractionResult) {
+        return SearchExtractionResultHit.newBuilder()
+                .setExtractionResult(extractionResult)
+                .setScore(hit.score())
+                .addAllHighlights(hit.highlights())
+                .build();
+    }
+
+    // Версия из истории с уже готовым proto записи и изменениями относительно предыдущей версии
+    public static GetHistoryExtractionResultResponse historyToProto(ExtractionResult domain, ExtractionResultProto extractionResult,
+                                                                    List<Map<String, Object>> changes) {
+        return GetHistoryExtractionResultResponse.newBuilder()
+                .setExtractionResult(extractionResult)
+                .setVersion(domain.getVersion() == null ? 0 : domain.getVersion())
+                .setSnapshot(domain.getVersion() != null && domain.getSnapshotId() == null)
+                .addAllChanges(changes.stream().map(ProtoDomainExtractionResultMapper::jsonPatchOperationToProto).toList())
+                .build();
+    }
+
+    // Операция RFC 6902 в виде Map {op, path, from, value}; value маппится через Document, т.к. может быть null
+    private static JsonPatchOperation jsonPatchOperationToProto(Map<String, Object> operation) {
+        JsonPatchOperation.Builder builder = JsonPatchOperation.newBuilder()
+                .setOp(String.valueOf(operation.get("op")))
+                .setPath(String.valueOf(operation.get("path")));
+        if (operation.get("from") != null) {
+            builder.setFrom(String.valueOf(operation.get("from")));
+        }
+        if (operation.containsKey("value")) {
+            builder.setValue(ProtoBsonMapper.mapToStruct(new Document("value", operation.get("value"))).getFieldsOrThrow("value"));
+        }
+        return builder.build();
+    }
+
+    public static StatsExtractionResultResponse statsToProto(ExtractionResultStats stats) {
+        return StatsExtractionResultResponse.newBuilder()
+                .setTotal(stats.total())
+                .addAllByUser(stats.byUser().stream().map(ProtoDomainExtractionResultMapper::countToProto).toList())
+                .addAllByDay(stats.byDay().stream().map(ProtoDomainExtractionResultMapper::countToProto).toList())
+                .addAllByHost(stats.byHost().stream().map(ProtoDomainExtractionResultMapper::countToProto).toList())
+                .build();
+    }
+
+    private static StatsCount countToProto(ExtractionResultStats.Count count) {
+        return StatsCount.newBuilder()
+                .setKey(count.key() == null ? "" : count.key())
+                .setCount(count.count())
                 .build();
     }
 
@@ -22,7 +96,7 @@ public class ProtoDomainExtractionResultMapper {
                 .id(proto.getId())
                 .url(proto.getUrl())
                 .userId(proto.getUserId())
-                .jsonResult(ProtoJsonMapper.structToMap(proto.getJsonResult()))
+                .jsonResult(ProtoBsonMapper.structToDocument(proto.getJsonResult()))
                 .createdAt(ProtoTimeMapper.timestampToInstant(proto.getCreatedAt()))
                 .build();
     }
@@ -0,0 +1,74 @@
+package io.github.maksim0840.extractionresults.mapper;
+
+import io.github.maksim0840.extraction_result.v1.ExportJobProto;
+import io.github.maksim0840.extraction_result.v1.ExportJobState;
+import io.github.maksim0840.extraction_result.v1.ResultFieldType;
+import io.github.maksim0840.extraction_result.v1.ResultSchemaFieldProto;
+import io.github.maksim0840.extraction_result.v1.ResultSchemaProto;
+import io.github.maksim0840.extractionresults.domain.ExportJob;
+import io.github.maksim0840.extractionresults.domain.ResultSchema;
+import io.github.maksim0840.extractionresults.domain.ResultSchemaField;
+import io.github.maksim0840.internalapi.common.v1.mapper.ProtoTimeMapper;
+
+import java.util.List;
+
+public class ProtoDomainResultSchemaMapper {
+
+    public static ResultSchemaProto domainToProto(ResultSchema domain) {
+        return ResultSchemaProto.newBuilder()
+                .setName(domain.getName())
+                .addAllFields(domain.getFields().stream().map(ProtoDomainResultSchemaMapper::fieldToProto).toList())
+                .setCreatedAt(ProtoTimeMapper.instantToTimestamp(domain.getCreatedAt()))
+                .build();
+    }
+
+    // Поля схемы из запроса регистрации (тип RESULT_FIELD_TYPE_UNSPECIFIED -> null, отклоняется при проверке схемы)
+    public static List<ResultSchemaField> protoToFields(List<ResultSchemaFieldProto> fields) {
+        return fields.stream()
+                .map(field -> new ResultSchemaField(field.getPath(), typeToDomain(field.getType()), field.getRequired()))
+                .toList();
+    }
+
+    public static ExportJobProto exportJobToProto(ExportJob job) {
+        ExportJobProto.Builder builder = ExportJobProto.newBuilder()
+                .setId(job.id())
+                .setState(switch (job.state()) {
+                    case RUNNING -> ExportJobState.EXPORT_JOB_STATE_RUNNING;
+                    case COMPLETED -> ExportJobState.EXPORT_JOB_STATE_COMPLETED;
+                    case FAILED -> ExportJobState.EXPORT_JOB_STATE_FAILED;
+                })
+                .setRowsWritten(job.rowsWritten())
+                .setCreatedAt(ProtoTimeMapper.instantToTimestamp(job.createdAt()));
+        if (job.filePath() != null) {
+            builder.setFilePath(job.filePath());
+        }
+        if (job.error() != null) {
+            builder.setError(job.error());
+        }
+        if (job.finishedAt() != null) {
+            builder.setFinishedAt(ProtoTimeMapper.instantToTimestamp(job.finishedAt()));
+        }
+        return builder.build();
+    }
+
+    private static ResultSchemaFieldProto fieldToProto(ResultSchemaField field) {
+        return ResultSchemaFieldProto.newBuilder()
+                .setPath(field.path())
+                .setType(switch (field.type()) {
+                    case STRING -> ResultFieldType.RESULT_FIELD_TYPE_STRING;
+                    case NUMBER -> ResultFieldType.RESULT_FIELD_TYPE_NUMBER;
+                    case BOOL -> ResultFieldType.RESULT_FIELD_TYPE_BOOL;
+                })
+                .setRequired(field.required())
+                .build();
+    }
+
+    private static io.github.maksim0840.extractionresults.domain.ResultFieldType typeToDomain(ResultFieldType type) {
+        return switch (type) {
+            case RESULT_FIELD_TYPE_STRING -> io.github.maksim0840.extractionresults.domain.ResultFieldType.STRING;
+            case RESULT_FIELD_TYPE_NUMBER -> io.github.maksim0840.extractionresults.domain.ResultFieldType.NUMBER;
+            case RESULT_FIELD_TYPE_BOOL -> io.github.maksim0840.extractionresults.domain.ResultFieldType.BOOL;
+            default -> null;
+        };
+    }
+}
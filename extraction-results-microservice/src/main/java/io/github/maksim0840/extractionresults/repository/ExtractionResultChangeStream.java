@@ -0,0 +1,91 @@
+package io.github.maksim0840.extractionresults.repository;
+
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import io.github.maksim0840.extractionresults.domain.ExtractionResult;
+import io.github.maksim0840.extractionresults.search.SearchTextCallback;
+import io.github.maksim0840.extractionresults.storage.JsonResultCompressionCallback;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonTimestamp;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Change stream событий вставки записей ExtractionResult (общая коллекция и помесячные бакеты).
+ * Событие содержит только лёгкие поля записи (id, url, userId, createdAt, ссылки на вынесенный jsonResult),
+ * содержимое при необходимости читается отдельно.
+ */
+@Component
+public class ExtractionResultChangeStream {
+    private static final Pattern RESUME_TOKEN = Pattern.compile("[0-9A-Fa-f]+");
+
+    private final MongoTemplate mongoTemplate;
+    private final String collectionRegex;
+    private final long maxAwaitMs;
+
+    public ExtractionResultChangeStream(MongoTemplate mongoTemplate,
+                                        @Value("${extraction-results.subscribe.max-await-ms:1000}") long maxAwaitMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.collectionRegex = "^" + Pattern.quote(mongoTemplate.getCollectionName(ExtractionResult.class)) + "(_\\d{6})?$";
+        this.maxAwaitMs = maxAwaitMs;
+    }
+
+    /**
+     * Открывает курсор change stream уровня базы с фильтром по коллекциям записей и (необязательно) по userId.
+     * tryNext() курсора ждёт новое событие не дольше maxAwaitMs.
+     * @param resumeToken продолжить после события с этим токеном (приоритетнее startAt)
+     * @param startAt события начиная с этого момента (null и без resumeToken - с момента открытия)
+     */
+    public MongoChangeStreamCursor<ChangeStreamDocument<Document>> openInserts(String userId, String resumeToken, Instant startAt) {
+        Bson match = Filters.and(Filters.eq("operationType", "insert"), Filters.regex("ns.coll", collectionRegex));
+        if (userId != null) {
+            match = Filters.and(match, Filters.eq("fullDocument.userId", userId));
+        }
+        List<Bson> pipeline = List.of(
+                Aggregates.match(match),
+                Aggregates.project(Projections.exclude(
+                        "fullDocument." + JsonResultCompressionCallback.JSON_RESULT_FIELD,
+                        "fullDocument." + JsonResultCompressionCallback.COMPRESSED_FIELD,
+                        "fullDocument." + SearchTextCallback.SEARCH_TEXT_FIELD))
+        );
+
+        ChangeStreamIterable<Document> changeStream = mongoTemplate.getDb().watch(pipeline)
+                .maxAwaitTime(maxAwaitMs, TimeUnit.MILLISECONDS);
+        if (resumeToken != null) {
+            changeStream = changeStream.resumeAfter(decodeResumeToken(resumeToken));
+        } else if (startAt != null) {
+            changeStream = changeStream.startAtOperationTime(new BsonTimestamp((int) startAt.getEpochSecond(), 0));
+        }
+        return changeStream.cursor();
+    }
+
+    // Лёгкие поля записи из fullDocument события
+    public ExtractionResult toDomain(Document fullDocument) {
+        return mongoTemplate.getConverter().read(ExtractionResult.class, fullDocument);
+    }
+
+    // Токен события для клиента: hex-строка _data resume token-а MongoDB
+    public static String encodeResumeToken(BsonDocument resumeToken) {
+        return resumeToken.getString("_data").getValue();
+    }
+
+    public static BsonDocument decodeResumeToken(String token) {
+        if (!RESUME_TOKEN.matcher(token).matches()) {
+            throw new IllegalArgumentException("Invalid resume token");
+        }
+        return new BsonDocument("_data", new BsonString(token));
+    }
+}
@@ -0,0 +1,186 @@
+package io.github.maksim0840.extractionresults.repository;
+
+import io.github.maksim0840.extractionresults.domain.ExtractionResult;
+import io.github.maksim0840.extractionresults.search.SearchTextCallback;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.index.TextIndexDefinition;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Выбор коллекции MongoDB для записей ExtractionResult.
+ * В обычном режиме все записи хранятся в одной коллекции extraction_results.
+ * В режиме помесячных бакетов запись хранится в коллекции extraction_results_yyyyMM по месяцу createdAt (UTC),
+ * поэтому индексы каждой коллекции ограничены одним месяцем, а запросы с диапазоном дат читают только нужные бакеты.
+ * id записи генерируется из createdAt (ObjectId содержит секунды создания), так что бакет по id определяется без поиска.
+ * Список существующих бакетов кэшируется (без listCollections перед каждым запросом): бакет добавляется в него
+ * при записи, а бакеты, созданные другими экземплярами сервиса, подхватываются при обновлении раз в refresh-ms.
+ */
+@Component
+public class ExtractionResultCollectionRouter {
+    private static final DateTimeFormatter BUCKET_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    // Индексы, заменённые индексами с _id в конце (user_created_id_idx, created_id_desc_idx),
+    // и TTL-индекс expireAt (удаление мимо сервиса не освобождало GridFS и общие payload, см. ExpiredExtractionResultReaper)
+    private static final Set<String> OBSOLETE_INDEXES = Set.of("user_created_idx", "created_desc_idx", "expire_at_ttl_idx");
+    // Имя совпадает с прежним индексом из @TextIndexed, чтобы на существующей базе не создавался второй текстовый индекс
+    private static final String SEARCH_TEXT_INDEX = "ExtractionResult_TextIndex";
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean bucketsEnabled;
+    private final boolean searchTextEnabled;
+    private final String baseCollection;
+    private final Pattern bucketPattern;
+    private final long refreshMs;
+    private final Set<String> indexedBuckets = ConcurrentHashMap.newKeySet();  // бакеты, для которых индексы уже созданы
+    private final Set<String> knownBuckets = ConcurrentHashMap.newKeySet();    // существующие бакеты (кэш listCollections)
+    private volatile boolean baseCollectionExists;
+    private volatile long refreshedAt;
+
+    public ExtractionResultCollectionRouter(MongoTemplate mongoTemplate,
+                                            @Value("${extraction-results.storage.monthly-buckets.enabled:false}") boolean bucketsEnabled,
+                                            @Value("${extraction-results.storage.monthly-buckets.refresh-ms:60000}") long refreshMs,
+                                            @Value("${extraction-results.storage.search-text.enabled:false}") boolean searchTextEnabled) {
+        this.mongoTemplate = mongoTemplate;
+        this.bucketsEnabled = bucketsEnabled;
+        this.refreshMs = refreshMs;
+        this.searchTextEnabled = searchTextEnabled;
+        this.baseCollection = mongoTemplate.getCollectionName(ExtractionResult.class);
+        this.bucketPattern = Pattern.compile(Pattern.quote(baseCollection) + "_\\d{6}");
+    }
+
+    // Коллекция для записи новой записи (индексы бакета создаются при первом обращении)
+    public String collectionForWrite(Instant createdAt) {
+        if (!bucketsEnabled) {
+            return baseCollection;
+        }
+        String bucket = bucketName(YearMonth.from(createdAt.atZone(ZoneOffset.UTC)));
+        if (indexedBuckets.add(bucket)) {
+            ensureIndexes(bucket);  // создаёт коллекцию, если её ещё нет
+            knownBuckets.add(bucket);
+        }
+        return bucket;
+    }
+
+    // Коллекция записи с данным id (для id, не являющихся ObjectId, - общая коллекция)
+    public String collectionForId(String id) {
+        if (!bucketsEnabled || !ObjectId.isValid(id)) {
+            return baseCollection;
+        }
+        Instant createdAt = new ObjectId(id).getDate().toInstant();
+        return bucketName(YearMonth.from(createdAt.atZone(ZoneOffset.UTC)));
+    }
+
+    /**
+     * Существующие коллекции, которые могут содержать записи из диапазона [dateFrom; dateTo] (границы необязательны):
+     * бакеты в порядке месяцев по убыванию или возрастанию, затем общая коллекция, если в ней остались записи,
+     * созданные до включения бакетов.
+     */
+    public List<String> collectionsForRange(Instant dateFrom, Instant dateTo, boolean isSortDesc) {
+        if (!bucketsEnabled) {
+            return List.of(baseCollection);
+        }
+        String fromBucket = dateFrom == null ? null : bucketName(YearMonth.from(dateFrom.atZone(ZoneOffset.UTC)));
+        String toBucket = dateTo == null ? null : bucketName(YearMonth.from(dateTo.atZone(ZoneOffset.UTC)));
+
+        // имена бакетов одинаковой длины, поэтому строковое сравнение совпадает с порядком месяцев
+        Comparator<String> order = isSortDesc ? Comparator.reverseOrder() : Comparator.naturalOrder();
+        refreshIfStale();
+        List<String> collections = new ArrayList<>(knownBuckets.stream()
+                .filter(name -> fromBucket == null || name.compareTo(fromBucket) >= 0)
+                .filter(name -> toBucket == null || name.compareTo(toBucket) <= 0)
+                .sorted(order)
+                .toList());
+        if (baseCollectionExists) {
+            collections.add(baseCollection);
+        }
+        return collections;
+    }
+
+    // Общая коллекция (записи, созданные до включения бакетов, и записи с id не из ObjectId)
+    public String baseCollection() {
+        return baseCollection;
+    }
+
+    // id новой записи: время ObjectId совпадает с createdAt (до секунды), чтобы collectionForId указывал на тот же бакет
+    public String newId(Instant createdAt) {
+        return new ObjectId(Date.from(createdAt)).toHexString();
+    }
+
+    /**
+     * Обновление списка бакетов без ожидания refresh-ms. Нужно перед удалением по диапазону (DeleteByFilter):
+     * бакет, созданный другим экземпляром после последнего обновления, иначе не попал бы в удаление.
+     */
+    public void refresh() {
+        if (bucketsEnabled) {
+            refreshOlderThan(0);
+        }
+    }
+
+    // Удалённые бакеты из кэша не исключаются до обновления: запрос к несуществующей коллекции просто ничего не находит
+    private void refreshIfStale() {
+        refreshOlderThan(refreshMs);
+    }
+
+    private void refreshOlderThan(long maxAgeMs) {
+        long now = System.currentTimeMillis();
+        if (maxAgeMs > 0 && now - refreshedAt < maxAgeMs) {
+            return;
+        }
+        synchronized (knownBuckets) {
+            if (maxAgeMs > 0 && now - refreshedAt < maxAgeMs) {
+                return;
+            }
+            Set<String> existing = mongoTemplate.getCollectionNames();
+            existing.stream()
+                    .filter(name -> bucketPattern.matcher(name).matches())
+                    .forEach(knownBuckets::add);
+            // бакет, созданный записью этого экземпляра во время listCollections, остаётся в кэше
+            knownBuckets.removeIf(name -> !existing.contains(name) && !indexedBuckets.contains(name));
+            baseCollectionExists = existing.contains(baseCollection);
+            refreshedAt = now;
+        }
+    }
+
+    private String bucketName(YearMonth month) {
+        return baseCollection + "_" + month.format(BUCKET_SUFFIX);
+    }
+
+    /*
+    Индексы из аннотаций домена (user_created_id_idx, created_id_desc_idx, expire_at_idx и др.) для коллекции.
+    Индексы с прежними именами (OBSOLETE_INDEXES) сначала удаляются: с тем же набором полей
+    новый индекс не создаётся (IndexOptionsConflict), а без _id они не нужны.
+    Текстовый индекс searchText (язык none - без стемминга, для любого языка) создаётся только в режиме
+    extraction-results.storage.search-text.enabled; созданный ранее индекс при выключении не удаляется.
+    */
+    void ensureIndexes(String collection) {
+        IndexOperations indexOps = mongoTemplate.indexOps(collection);
+        indexOps.getIndexInfo().stream()
+                .filter(index -> OBSOLETE_INDEXES.contains(index.getName()))
+                .forEach(index -> indexOps.dropIndex(index.getName()));
+        new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext())
+                .resolveIndexFor(ExtractionResult.class)
+                .forEach(indexOps::ensureIndex);
+        if (searchTextEnabled) {
+            indexOps.ensureIndex(TextIndexDefinition.builder()
+                    .named(SEARCH_TEXT_INDEX)
+                    .withDefaultLanguage("none")
+                    .onField(SearchTextCallback.SEARCH_TEXT_FIELD)
+                    .build());
+        }
+    }
+}
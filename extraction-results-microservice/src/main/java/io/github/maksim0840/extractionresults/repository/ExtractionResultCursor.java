@@ -0,0 +1,38 @@
+package io.github.maksim0840.extractionresults.repository;
+
+import org.bson.types.ObjectId;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Позиция keyset-курсора по паре (createdAt, _id).
+ * Пара однозначно задаёт место записи в сортировке, поэтому следующая порция читается
+ * условием "строго после курсора" по индексу, без пропуска (skip) уже выданных записей.
+ */
+public record ExtractionResultCursor(Instant createdAt, String id) {
+
+    private static final String SEPARATOR = "_";
+
+    // Токен для передачи клиенту: base64url("<createdAt epoch millis>_<ObjectId hex>")
+    public String encode() {
+        String raw = createdAt.toEpochMilli() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ExtractionResultCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separatorIdx = raw.indexOf(SEPARATOR);
+            Instant createdAt = Instant.ofEpochMilli(Long.parseLong(raw.substring(0, separatorIdx)));
+            String id = raw.substring(separatorIdx + 1);
+            if (!ObjectId.isValid(id)) {
+                throw new IllegalArgumentException("invalid id");
+            }
+            return new ExtractionResultCursor(createdAt, id);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid continuation token: " + token, e);
+        }
+    }
+}
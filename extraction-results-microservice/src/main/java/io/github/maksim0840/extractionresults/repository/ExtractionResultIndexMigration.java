@@ -0,0 +1,24 @@
+package io.github.maksim0840.extractionresults.repository;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Создание индексов ExtractionResult при старте (вместо spring.data.mongodb.auto-index-creation).
+ * Для общей коллекции и существующих бакетов сначала удаляются индексы с прежними именами
+ * (user_created_idx, created_desc_idx), затем создаются индексы из аннотаций домена,
+ * поэтому старт на существующей базе не падает на конфликте спецификаций индексов.
+ * Выполняется до запуска grpc-сервера (при создании бина).
+ */
+@Component
+public class ExtractionResultIndexMigration {
+
+    public ExtractionResultIndexMigration(ExtractionResultCollectionRouter collectionRouter) {
+        Set<String> collections = new LinkedHashSet<>();
+        collections.add(collectionRouter.baseCollection());
+        collections.addAll(collectionRouter.collectionsForRange(null, null, true));
+        collections.forEach(collectionRouter::ensureIndexes);
+    }
+}
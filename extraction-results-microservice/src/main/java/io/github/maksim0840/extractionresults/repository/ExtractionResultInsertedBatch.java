@@ -0,0 +1,13 @@
+package io.github.maksim0840.extractionresults.repository;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Результат неупорядоченной пакетной вставки.
+ * @param errors ошибки записи по индексу документа в переданном списке (пусто, если записаны все)
+ * @param notWritten индексы из errors, документы которых точно не записаны (их jsonResult в GridFS и дедупликации
+ *                   можно освобождать); остальные ошибки - запись с неизвестным исходом (таймаут, сеть)
+ */
+public record ExtractionResultInsertedBatch(Map<Integer, String> errors, Set<Integer> notWritten) {
+}
@@ -0,0 +1,13 @@
+package io.github.maksim0840.extractionresults.repository;
+
+import io.github.maksim0840.extractionresults.domain.ExtractionResult;
+
+import java.util.List;
+
+/**
+ * Результат удаления одной порции записей по фильтру.
+ * @param deletedCount сколько записей действительно удалено (часть могла быть удалена параллельно)
+ * @param removed записи порции только с полями id, jsonResultGridFsId и jsonResultHash (пусто - подходящих записей больше нет)
+ */
+public record ExtractionResultRemovedBatch(long deletedCount, List<ExtractionResult> removed) {
+}
@@ -1,15 +1,62 @@
 package io.github.maksim0840.extractionresults.repository;
 
 import io.github.maksim0840.extractionresults.domain.ExtractionResult;
+import io.github.maksim0840.extractionresults.domain.ExtractionResultStats;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Описание методов для обработки сложных запросов к базе данных
  */
 public interface ExtractionResultRepositoryCustom {
-    List<ExtractionResult> searchWithFiltering(String userId, Instant dateFrom, Instant dateTo, Pageable pageable);
+    List<ExtractionResult> searchWithFiltering(String userId, Instant dateFrom, Instant dateTo, Pageable pageable, boolean summaryOnly);
+
+    List<ExtractionResult> searchAfterCursor(String userId, Instant dateFrom, Instant dateTo,
+                                             ExtractionResultCursor after, boolean isSortDesc, int limit, boolean summaryOnly);
+
+    ExtractionResult insertRouted(ExtractionResult extractionResult);
+
+    Optional<ExtractionResult> findRoutedById(String id);
+
+    ExtractionResultInsertedBatch insertUnordered(List<ExtractionResult> extractionResults);
+
+    List<ExtractionResult> searchUrlHistoryAfterCursor(String userId, String url, Instant dateFrom, Instant dateTo,
+                                                       ExtractionResultCursor after, int limit, boolean summaryOnly);
+
+    List<ExtractionResult> findRoutedByIds(Collection<String> ids);
+
+    List<ExtractionResult> findVersionDependents(String snapshotId);
+
+    Stream<ExtractionResult> streamVersionSnapshots(String userId, Instant dateFrom, Instant dateTo);
+
+    ExtractionResult replaceRouted(ExtractionResult extractionResult);
+
+    void updateVersionPatch(String id, String snapshotId, List<Map<String, Object>> jsonPatch);
+
+    void extendExpireAt(String id, Instant expireAt);
+
+    List<ExtractionResult> searchFullText(String text, String userId, Instant dateFrom, Instant dateTo, int limit, boolean summaryOnly);
+
+    Optional<ExtractionResult> findLatestByUrl(String userId, String url);
+
+    List<ExtractionResult> findLatestByUrls(String userId, Collection<String> urls);
+
+    Optional<ExtractionResult> findLatestVersion(String userId, String url);
+
+    ExtractionResultStats aggregateStats(String userId, Instant dateFrom, Instant dateTo, int topN);
+
+    ExtractionResult removeById(String id);
+
+    Stream<ExtractionResult> streamTypedFields(String resultSchema, Collection<String> userIds, Instant dateFrom, Instant dateTo, int batchSize);
+
+    ExtractionResultRemovedBatch removeBatchByFilter(String userId, Instant dateFrom, Instant dateTo, int batchSize);
+
+    ExtractionResultRemovedBatch removeExpiredBatch(Instant now, int batchSize);
 }
@@ -1,28 +1,659 @@
 package io.github.maksim0840.extractionresults.repository;
 
+import com.mongodb.ReadPreference;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.Document;
+import io.github.maksim0840.extractionresults.config.MongoClientProperties;
 import io.github.maksim0840.extractionresults.domain.ExtractionResult;
+import io.github.maksim0840.extractionresults.domain.ExtractionResultStats;
+import io.github.maksim0840.extractionresults.search.SearchTextCallback;
+import io.github.maksim0840.extractionresults.storage.GridFsSpillOverCallback;
+import io.github.maksim0840.extractionresults.storage.JsonPatchVersionCallback;
+import io.github.maksim0840.extractionresults.storage.JsonResultCompressionCallback;
+import io.github.maksim0840.extractionresults.storage.JsonResultDedupCallback;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.aggregation.StringOperators;
+import org.springframework.data.mongodb.core.aggregation.UnionWithOperation;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.data.mongodb.core.query.Update;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Реализация методов, выполняющих сложные кастомные запросы к базе данных
  */
 public class ExtractionResultRepositoryImpl implements ExtractionResultRepositoryCustom {
 
+    // Выделение хоста из url: необязательная схема, затем всё до '/', ':', '?' или '#'
+    // Поле домена с $meta textScore (ExtractionResult.textScore)
+    private static final String TEXT_SCORE_FIELD = "textScore";
+
+    private static final String URL_HOST_REGEX = "^(?:[a-zA-Z][a-zA-Z0-9+.-]*://)?([^/:?#]+)";
+
+    // Порядок записей в списках: createdAt, затем id (как в индексах user_created_id_idx и created_id_desc_idx)
+    private static final Comparator<ExtractionResult> CREATED_ASC = Comparator
+            .comparing(ExtractionResult::getCreatedAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(ExtractionResult::getId);
+
     // Объект для работы с низкоуровневыми запросами к MongoDB
     private final MongoTemplate mongoTemplate;
+    // Выбор коллекции (общей или помесячного бакета) для записи
+    private final ExtractionResultCollectionRouter collectionRouter;
+    // Read preference запросов списков (например, secondaryPreferred, чтобы разгрузить primary)
+    private final ReadPreference listReadPreference;
 
-    public ExtractionResultRepositoryImpl(MongoTemplate mongoTemplate) {
+    public ExtractionResultRepositoryImpl(MongoTemplate mongoTemplate, ExtractionResultCollectionRouter collectionRouter,
+                                          MongoClientProperties mongoClientProperties) {
         this.mongoTemplate = mongoTemplate;
+        this.collectionRouter = collectionRouter;
+        this.listReadPreference = mongoClientProperties.listReadPreferenceValue();
+    }
+
+    @Override
+    public List<ExtractionResult> searchWithFiltering(String userId, Instant dateFrom, Instant dateTo, Pageable pageable, boolean summaryOnly) {
+        Sort.Order createdOrder = pageable.getSort().getOrderFor("createdAt");
+        boolean isSortDesc = createdOrder == null || createdOrder.isDescending();
+        List<String> collections = collectionRouter.collectionsForRange(dateFrom, dateTo, isSortDesc);
+        if (collections.size() == 1) {
+            Query query = new Query(filterCriteria(userId, dateFrom, dateTo)).with(pageable).withReadPreference(listReadPreference);
+            applyProjection(query, summaryOnly);
+
+            List<ExtractionResult> extractionResults = mongoTemplate.find(query, ExtractionResult.class, collections.get(0));
+            return extractionResults;
+        }
+
+        // несколько бакетов: из каждого достаточно первых offset + pageSize записей, страница выделяется после слияния
+        Query query = new Query(filterCriteria(userId, dateFrom, dateTo))
+                .with(Sort.by(isSortDesc ? Sort.Direction.DESC : Sort.Direction.ASC, "createdAt", "id"))
+                .limit(Math.toIntExact(pageable.getOffset() + pageable.getPageSize()))
+                .withReadPreference(listReadPreference);
+        applyProjection(query, summaryOnly);
+        return findMerged(query, collections, isSortDesc, pageable.getOffset(), pageable.getPageSize());
+    }
+
+    @Override
+    public List<ExtractionResult> searchAfterCursor(String userId, Instant dateFrom, Instant dateTo,
+                                                    ExtractionResultCursor after, boolean isSortDesc, int limit, boolean summaryOnly) {
+        return findAfterCursor(filterCriteria(userId, dateFrom, dateTo), dateFrom, dateTo, after, isSortDesc, limit, summaryOnly);
+    }
+
+    /**
+     * История записей пользователя для url по возрастанию (createdAt, _id) с keyset-пагинацией (GetHistory).
+     * Равенство по userId и url и диапазон createdAt покрываются user_url_created_idx.
+     */
+    @Override
+    public List<ExtractionResult> searchUrlHistoryAfterCursor(String userId, String url, Instant dateFrom, Instant dateTo,
+                                                              ExtractionResultCursor after, int limit, boolean summaryOnly) {
+        Criteria criteria = filterCriteria(userId, dateFrom, dateTo).and("url").is(url);
+        return findAfterCursor(criteria, dateFrom, dateTo, after, false, limit, summaryOnly);
+    }
+
+    // Порция записей по условию criteria строго после курсора в порядке (createdAt, _id) из всех бакетов диапазона
+    private List<ExtractionResult> findAfterCursor(Criteria criteria, Instant dateFrom, Instant dateTo,
+                                                   ExtractionResultCursor after, boolean isSortDesc, int limit, boolean summaryOnly) {
+        // keyset условие: строго после курсора в порядке сортировки (createdAt, _id)
+        if (after != null) {
+            Criteria createdAfter = isSortDesc
+                    ? Criteria.where("createdAt").lt(after.createdAt())
+                    : Criteria.where("createdAt").gt(after.createdAt());
+            Criteria sameCreatedIdAfter = isSortDesc
+                    ? Criteria.where("createdAt").is(after.createdAt()).and("id").lt(after.id())
+                    : Criteria.where("createdAt").is(after.createdAt()).and("id").gt(after.id());
+            criteria = criteria.andOperator(new Criteria().orOperator(createdAfter, sameCreatedIdAfter));
+        }
+
+        // _id добавлен в сортировку (и в индексы) для однозначного порядка записей с одинаковым createdAt
+        Sort.Direction sortDir = isSortDesc ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Query query = new Query(criteria)
+                .with(Sort.by(sortDir, "createdAt", "id"))
+                .limit(limit)
+                .withReadPreference(listReadPreference);
+        applyProjection(query, summaryOnly);
+
+        return findMerged(query, collectionRouter.collectionsForRange(dateFrom, dateTo, isSortDesc), isSortDesc, 0, limit);
+    }
+
+    /**
+     * Вставка новой записи в коллекцию по её createdAt.
+     * createdAt и id проставляются до вставки, чтобы по id можно было определить бакет записи.
+     */
+    @Override
+    public ExtractionResult insertRouted(ExtractionResult extractionResult) {
+        prepareForInsert(extractionResult);
+        return mongoTemplate.insert(extractionResult, collectionRouter.collectionForWrite(extractionResult.getCreatedAt()));
+    }
+
+    /**
+     * Поиск нескольких записей по id: один запрос $in на каждую коллекцию-бакет, вычисленную из id,
+     * затем общая коллекция для ненайденных (записи, созданные до включения бакетов). Всегда с primary, как и findRoutedById.
+     * @return найденные записи (порядок не определён)
+     */
+    @Override
+    public List<ExtractionResult> findRoutedByIds(Collection<String> ids) {
+        Map<String, List<String>> idsByCollection = new LinkedHashMap<>();
+        for (String id : ids) {
+            idsByCollection.computeIfAbsent(collectionRouter.collectionForId(id), collection -> new ArrayList<>()).add(id);
+        }
+
+        List<ExtractionResult> found = new ArrayList<>(ids.size());
+        Set<String> missing = new HashSet<>();
+        for (Map.Entry<String, List<String>> entry : idsByCollection.entrySet()) {
+            Query query = new Query(Criteria.where("id").in(entry.getValue())).withReadPreference(ReadPreference.primary());
+            applyProjection(query, false);
+            List<ExtractionResult> inCollection = mongoTemplate.find(query, ExtractionResult.class, entry.getKey());
+            found.addAll(inCollection);
+            if (!entry.getKey().equals(collectionRouter.baseCollection())) {
+                missing.addAll(entry.getValue());
+                inCollection.forEach(extractionResult -> missing.remove(extractionResult.getId()));
+            }
+        }
+        if (!missing.isEmpty()) {
+            Query query = new Query(Criteria.where("id").in(missing)).withReadPreference(ReadPreference.primary());
+            applyProjection(query, false);
+            found.addAll(mongoTemplate.find(query, ExtractionResult.class, collectionRouter.baseCollection()));
+        }
+        return found;
+    }
+
+    /**
+     * Версии, хранящиеся как patch к полной версии snapshotId (по snapshot_id_idx), во всех коллекциях.
+     * Читаются с primary: от результата зависит перестроение версий перед удалением полной версии.
+     */
+    @Override
+    public List<ExtractionResult> findVersionDependents(String snapshotId) {
+        Query query = new Query(Criteria.where("snapshotId").is(snapshotId)).withReadPreference(ReadPreference.primary());
+        applyProjection(query, false);
+
+        List<ExtractionResult> dependents = new ArrayList<>();
+        for (String collection : collectionRouter.collectionsForRange(null, null, false)) {
+            dependents.addAll(mongoTemplate.find(query, ExtractionResult.class, collection));
+        }
+        return dependents;
+    }
+
+    /**
+     * Полные версии (version задан, snapshotId нет) по фильтру userId/createdAt, только id и createdAt.
+     * Используется перед удалением по фильтру, поэтому список бакетов обновляется без ожидания кэша.
+     */
+    @Override
+    public Stream<ExtractionResult> streamVersionSnapshots(String userId, Instant dateFrom, Instant dateTo) {
+        collectionRouter.refresh();
+        Query query = new Query(filterCriteria(userId, dateFrom, dateTo)
+                .and("version").exists(true)
+                .and("snapshotId").exists(false));
+        query.fields().include("createdAt");
+
+        return collectionRouter.collectionsForRange(dateFrom, dateTo, false).stream()
+                .flatMap(collection -> mongoTemplate.stream(query, ExtractionResult.class, collection));
+    }
+
+    /**
+     * Замена записи целиком (с callback-ами хранения jsonResult) в её коллекции.
+     * @return запись до замены или null, если её уже нет
+     */
+    @Override
+    public ExtractionResult replaceRouted(ExtractionResult extractionResult) {
+        Query query = new Query(Criteria.where("id").is(extractionResult.getId()));
+        String collection = collectionRouter.collectionForId(extractionResult.getId());
+        ExtractionResult replaced = mongoTemplate.findAndReplace(query, extractionResult, collection);
+        if (replaced == null && !collection.equals(collectionRouter.baseCollection())) {
+            replaced = mongoTemplate.findAndReplace(query, extractionResult, collectionRouter.baseCollection());
+        }
+        return replaced;
+    }
+
+    @Override
+    public void updateVersionPatch(String id, String snapshotId, List<Map<String, Object>> jsonPatch) {
+        updateRouted(id, new Query(Criteria.where("id").is(id)), new Update()
+                .set("snapshotId", snapshotId)
+                .set(JsonPatchVersionCallback.JSON_PATCH_FIELD, jsonPatch));
+    }
+
+    /**
+     * Продление срока хранения записи до expireAt (null - бессрочно). Более поздний срок не сокращается.
+     */
+    @Override
+    public void extendExpireAt(String id, Instant expireAt) {
+        if (expireAt == null) {
+            updateRouted(id, new Query(Criteria.where("id").is(id)), new Update().unset("expireAt"));
+        } else {
+            updateRouted(id, new Query(Criteria.where("id").is(id).and("expireAt").lt(expireAt)), new Update().set("expireAt", expireAt));
+        }
+    }
+
+    // Обновление записи в коллекции, вычисленной из id, а при отсутствии там - в общей коллекции
+    private void updateRouted(String id, Query query, Update update) {
+        String collection = collectionRouter.collectionForId(id);
+        long matched = mongoTemplate.updateFirst(query, update, ExtractionResult.class, collection).getMatchedCount();
+        if (matched == 0 && !collection.equals(collectionRouter.baseCollection())) {
+            mongoTemplate.updateFirst(query, update, ExtractionResult.class, collectionRouter.baseCollection());
+        }
+    }
+
+    // Поиск по id в бакете, вычисленном из id, а затем в общей коллекции (записи, созданные до включения бакетов).
+    // Всегда с primary: запись должна быть видна сразу после Create, даже если клиент настроен читать с secondary
+    @Override
+    public Optional<ExtractionResult> findRoutedById(String id) {
+        Query query = new Query(Criteria.where("id").is(id)).withReadPreference(ReadPreference.primary());
+        applyProjection(query, false);
+
+        String collection = collectionRouter.collectionForId(id);
+        ExtractionResult extractionResult = mongoTemplate.findOne(query, ExtractionResult.class, collection);
+        if (extractionResult == null && !collection.equals(collectionRouter.baseCollection())) {
+            extractionResult = mongoTemplate.findOne(query, ExtractionResult.class, collectionRouter.baseCollection());
+        }
+        return Optional.ofNullable(extractionResult);
+    }
+
+    /**
+     * Неупорядоченная пакетная вставка одним bulk-запросом на коллекцию: ошибка одного документа не останавливает запись остальных.
+     * Ошибка bulk-запроса целиком (таймаут, сеть) относится только к документам его коллекции: записанными из них считаются те,
+     * что находятся в коллекции после ошибки; если и это проверить не удалось, исход записи остаётся неизвестным.
+     */
+    @Override
+    public ExtractionResultInsertedBatch insertUnordered(List<ExtractionResult> extractionResults) {
+        // по одному bulk-запросу на коллекцию; для каждой запоминаются индексы документов в исходном списке
+        Map<String, List<Integer>> indexesByCollection = new LinkedHashMap<>();
+        for (int i = 0; i < extractionResults.size(); i++) {
+            ExtractionResult extractionResult = extractionResults.get(i);
+            prepareForInsert(extractionResult);
+            indexesByCollection.computeIfAbsent(collectionRouter.collectionForWrite(extractionResult.getCreatedAt()),
+                    collection -> new ArrayList<>()).add(i);
+        }
+
+        Map<Integer, String> errors = new HashMap<>();
+        Set<Integer> notWritten = new HashSet<>();
+        for (Map.Entry<String, List<Integer>> entry : indexesByCollection.entrySet()) {
+            List<Integer> indexes = entry.getValue();
+            BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ExtractionResult.class, entry.getKey());
+            bulkOperations.insert(indexes.stream().map(extractionResults::get).toList());
+
+            try {
+                bulkOperations.execute();
+            } catch (BulkOperationException e) {
+                for (BulkWriteError error : e.getErrors()) {
+                    errors.put(indexes.get(error.getIndex()), error.getMessage());
+                    notWritten.add(indexes.get(error.getIndex()));
+                }
+            } catch (DataAccessException e) {
+                Set<String> writtenIds = findExistingIds(entry.getKey(), indexes.stream().map(i -> extractionResults.get(i).getId()).toList());
+                for (Integer index : indexes) {
+                    if (writtenIds == null) {
+                        errors.put(index, "write outcome unknown: " + e.getMessage());
+                    } else if (!writtenIds.contains(extractionResults.get(index).getId())) {
+                        errors.put(index, e.getMessage());
+                        notWritten.add(index);
+                    }
+                }
+            }
+        }
+        return new ExtractionResultInsertedBatch(errors, notWritten);
+    }
+
+    // id из списка, записи с которыми есть в коллекции (с primary); null - проверка не удалась
+    private Set<String> findExistingIds(String collection, List<String> ids) {
+        Query query = new Query(Criteria.where("id").in(ids)).withReadPreference(ReadPreference.primary());
+        query.fields().include("id");
+        try {
+            Set<String> existing = new HashSet<>();
+            mongoTemplate.find(query, ExtractionResult.class, collection).forEach(extractionResult -> existing.add(extractionResult.getId()));
+            return existing;
+        } catch (DataAccessException e) {
+            return null;
+        }
     }
 
+    // Проекция без служебного searchText и (для summaryOnly) без тяжёлого поля jsonResult в любом режиме хранения:
+    // MongoDB не передаёт их, в домене поля остаются null
+    private void applyProjection(Query query, boolean summaryOnly) {
+        query.fields().exclude(SearchTextCallback.SEARCH_TEXT_FIELD);
+        if (summaryOnly) {
+            excludeJsonResult(query);
+        }
+    }
+
+    private void excludeJsonResult(Query query) {
+        query.fields()
+                .exclude(JsonResultCompressionCallback.JSON_RESULT_FIELD)
+                .exclude(JsonResultCompressionCallback.COMPRESSED_FIELD)
+                .exclude(GridFsSpillOverCallback.GRIDFS_ID_FIELD)
+                .exclude(JsonResultDedupCallback.HASH_FIELD)
+                .exclude(JsonPatchVersionCallback.JSON_PATCH_FIELD);
+    }
+
+    /**
+     * Полнотекстовый поиск по текстовому индексу searchText ($text) с фильтрами userId/createdAt,
+     * по убыванию релевантности (textScore). Из нескольких бакетов берутся лучшие limit записей каждого, затем общие limit.
+     * searchText возвращается для построения фрагментов совпадений.
+     */
+    @Override
+    public List<ExtractionResult> searchFullText(String text, String userId, Instant dateFrom, Instant dateTo, int limit, boolean summaryOnly) {
+        List<String> collections = collectionRouter.collectionsForRange(dateFrom, dateTo, true);
+        List<ExtractionResult> found = new ArrayList<>();
+        for (String collection : collections) {
+            Query query = TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(text))
+                    .includeScore(TEXT_SCORE_FIELD)
+                    .sortByScore()
+                    .addCriteria(filterCriteria(userId, dateFrom, dateTo))
+                    .limit(limit);
+            if (summaryOnly) {
+                excludeJsonResult(query);
+            }
+            found.addAll(mongoTemplate.find(query, ExtractionResult.class, collection));
+        }
+
+        if (collections.size() > 1) {
+            found.sort(Comparator.comparing(ExtractionResult::getTextScore, Comparator.nullsLast(Comparator.reverseOrder())));
+            return found.subList(0, Math.min(limit, found.size()));
+        }
+        return found;
+    }
+
+    /**
+     * Последняя запись пользователя для url: равенство по userId и url и первая запись по createdAt в user_url_created_idx.
+     * Коллекции просматриваются от новых бакетов к старым до первой найденной записи.
+     */
+    @Override
+    public Optional<ExtractionResult> findLatestByUrl(String userId, String url) {
+        Query query = new Query(Criteria.where("userId").is(userId).and("url").is(url))
+                .with(Sort.by(Sort.Direction.DESC, "createdAt", "id"))
+                .limit(1);
+        applyProjection(query, false);
+        for (String collection : collectionRouter.collectionsForRange(null, null, true)) {
+            ExtractionResult latest = mongoTemplate.findOne(query, ExtractionResult.class, collection);
+            if (latest != null) {
+                return Optional.of(latest);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Запись с наибольшим номером версии в истории (userId, url) по user_url_version_idx (записи без версии не учитываются).
+     * Версии растут вместе с createdAt, поэтому достаточно первого бакета (от новых к старым), в котором версия нашлась.
+     * Читается с primary: по результату назначается номер следующей версии.
+     */
+    @Override
+    public Optional<ExtractionResult> findLatestVersion(String userId, String url) {
+        Query query = new Query(Criteria.where("userId").is(userId).and("url").is(url).and("version").exists(true))
+                .with(Sort.by(Sort.Direction.DESC, "version"))
+                .limit(1)
+                .withReadPreference(ReadPreference.primary());
+        applyProjection(query, false);
+        for (String collection : collectionRouter.collectionsForRange(null, null, true)) {
+            ExtractionResult latest = mongoTemplate.findOne(query, ExtractionResult.class, collection);
+            if (latest != null) {
+                return Optional.of(latest);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Последние записи пользователя для нескольких url одним aggregation-запросом на коллекцию:
+     * $match по userId и url $in, $sort в порядке user_url_created_idx, $group по url с первой записью группы.
+     * В более старых бакетах ищутся только url, для которых запись ещё не найдена.
+     * @return по одной записи на каждый url, для которого есть записи (порядок не определён)
+     */
+    @Override
+    public List<ExtractionResult> findLatestByUrls(String userId, Collection<String> urls) {
+        Set<String> remainingUrls = new HashSet<>(urls);
+        List<ExtractionResult> latest = new ArrayList<>(remainingUrls.size());
+        for (String collection : collectionRouter.collectionsForRange(null, null, true)) {
+            if (remainingUrls.isEmpty()) {
+                break;
+            }
+            Aggregation aggregation = Aggregation.newAggregation(
+                    Aggregation.match(Criteria.where("userId").is(userId).and("url").in(remainingUrls)),
+                    Aggregation.sort(Sort.by(Sort.Order.asc("url"), Sort.Order.desc("createdAt"), Sort.Order.desc("_id"))),
+                    Aggregation.group("url").first(Aggregation.ROOT).as("latest"),
+                    Aggregation.replaceRoot("latest"),
+                    Aggregation.project().andExclude(SearchTextCallback.SEARCH_TEXT_FIELD)
+            );
+            for (ExtractionResult extractionResult : mongoTemplate.aggregate(aggregation, collection, ExtractionResult.class)) {
+                latest.add(extractionResult);
+                remainingUrls.remove(extractionResult.getUrl());
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Статистика одним aggregation-запросом: $match по userId/createdAt (использует user_created_id_idx или created_id_desc_idx),
+     * затем $facet с независимыми $group по пользователю, дню (UTC) и хосту url поверх одного и того же набора записей.
+     */
+    @Override
+    public ExtractionResultStats aggregateStats(String userId, Instant dateFrom, Instant dateTo, int topN) {
+        List<String> collections = collectionRouter.collectionsForRange(dateFrom, dateTo, true);
+        if (collections.isEmpty()) {
+            return new ExtractionResultStats(0, List.of(), List.of(), List.of());
+        }
+
+        // остальные бакеты диапазона добавляются через $unionWith, каждый со своим $match по индексу
+        Criteria criteria = filterCriteria(userId, dateFrom, dateTo);
+        List<AggregationOperation> operations = new ArrayList<>();
+        operations.add(Aggregation.match(criteria));
+        for (String collection : collections.subList(1, collections.size())) {
+            operations.add(UnionWithOperation.unionWith(collection).pipeline(Aggregation.match(criteria)));
+        }
+        operations.add(
+                Aggregation.facet(Aggregation.count().as("count")).as("total")
+                        .and(
+                                Aggregation.group("userId").count().as("count"),
+                                Aggregation.sort(Sort.by(Sort.Order.desc("count"), Sort.Order.asc("_id"))),
+                                Aggregation.limit(topN)
+                        ).as("byUser")
+                        .and(
+                                Aggregation.project().and(DateOperators.dateOf("createdAt").toString("%Y-%m-%d")).as("day"),
+                                Aggregation.group("day").count().as("count"),
+                                Aggregation.sort(Sort.Direction.ASC, "_id")
+                        ).as("byDay")
+                        .and(
+                                // хост - первая группа регулярного выражения по url (схема и порт отбрасываются)
+                                Aggregation.project().and(StringOperators.valueOf("url").regexFind(URL_HOST_REGEX)).as("hostMatch"),
+                                Aggregation.project().and(ArrayOperators.arrayOf("hostMatch.captures").elementAt(0)).as("host"),
+                                Aggregation.group("host").count().as("count"),
+                                Aggregation.sort(Sort.by(Sort.Order.desc("count"), Sort.Order.asc("_id"))),
+                                Aggregation.limit(topN)
+                        ).as("byHost")
+        );
+
+        Aggregation aggregation = Aggregation.newAggregation(operations);
+        Document facets = mongoTemplate.aggregate(aggregation, collections.get(0), Document.class).getUniqueMappedResult();
+
+        List<Document> total = facets.getList("total", Document.class);
+        return new ExtractionResultStats(
+                total.isEmpty() ? 0 : total.get(0).get("count", Number.class).longValue(),
+                toCounts(facets.getList("byUser", Document.class)),
+                toCounts(facets.getList("byDay", Document.class)),
+                toCounts(facets.getList("byHost", Document.class))
+        );
+    }
+
+    /**
+     * Удаление записи за один запрос (findOneAndDelete) с возвратом ссылки на вынесенный в GridFS или в общее хранилище jsonResult.
+     * @return удалённая запись только с полями id, jsonResultGridFsId и jsonResultHash или null, если записи не было
+     */
+    @Override
+    public ExtractionResult removeById(String id) {
+        Query query = new Query(Criteria.where("id").is(id));
+        query.fields().include(GridFsSpillOverCallback.GRIDFS_ID_FIELD).include(JsonResultDedupCallback.HASH_FIELD);
+
+        String collection = collectionRouter.collectionForId(id);
+        ExtractionResult removed = mongoTemplate.findAndRemove(query, ExtractionResult.class, collection);
+        if (removed == null && !collection.equals(collectionRouter.baseCollection())) {
+            removed = mongoTemplate.findAndRemove(query, ExtractionResult.class, collectionRouter.baseCollection());
+        }
+        return removed;
+    }
+
+    /**
+     * Потоковое чтение записей схемы resultSchema (только id, url, userId, createdAt и typedFields) для экспорта.
+     * Курсор читает по batchSize документов, бакеты читаются по очереди - в памяти не больше одной порции.
+     * Порядок записей не задаётся: сортировка без подходящего индекса собрала бы всю выборку в памяти MongoDB.
+     * @param userIds пусто - записи всех пользователей
+     */
     @Override
-    public List<ExtractionResult> searchWithFiltering(String userId, Instant dateFrom, Instant dateTo, Pageable pageable) {
+    public Stream<ExtractionResult> streamTypedFields(String resultSchema, Collection<String> userIds,
+                                                      Instant dateFrom, Instant dateTo, int batchSize) {
+        Criteria criteria = Criteria.where("resultSchema").is(resultSchema);
+        if (!userIds.isEmpty()) {
+            criteria = criteria.and("userId").in(userIds);
+        }
+        Query query = new Query(new Criteria().andOperator(criteria, filterCriteria(null, dateFrom, dateTo)))
+                .cursorBatchSize(batchSize);
+        query.fields().include("url", "userId", "createdAt", "typedFields");
+
+        return collectionRouter.collectionsForRange(dateFrom, dateTo, false).stream()
+                .flatMap(collection -> mongoTemplate.stream(query, ExtractionResult.class, collection));
+    }
+
+    /**
+     * Удаление порции (до batchSize) записей по фильтру userId/createdAt из первой коллекции, в которой они остались.
+     * Записи без вынесенного jsonResult удаляются одним deleteMany по id, записи со ссылкой на GridFS или общее хранилище -
+     * по одной через findAndRemove, чтобы ссылку освободил ровно тот, кто удалил запись.
+     * Список бакетов обновляется перед каждой порцией (один listCollections на порцию): кэш может не знать бакет,
+     * созданный другим экземпляром, и его записи остались бы неудалёнными.
+     */
+    @Override
+    public ExtractionResultRemovedBatch removeBatchByFilter(String userId, Instant dateFrom, Instant dateTo, int batchSize) {
+        collectionRouter.refresh();
+        return removeBatch(filterCriteria(userId, dateFrom, dateTo), collectionRouter.collectionsForRange(dateFrom, dateTo, true), batchSize);
+    }
+
+    /**
+     * Удаление порции (до batchSize) записей с истёкшим сроком хранения (expireAt раньше now) по expire_at_idx
+     * из первой коллекции, в которой они остались. Ссылки освобождаются так же, как в removeBatchByFilter.
+     */
+    @Override
+    public ExtractionResultRemovedBatch removeExpiredBatch(Instant now, int batchSize) {
+        return removeBatch(Criteria.where("expireAt").lt(now), collectionRouter.collectionsForRange(null, null, false), batchSize);
+    }
+
+    private ExtractionResultRemovedBatch removeBatch(Criteria criteria, List<String> collections, int batchSize) {
+        Query candidatesQuery = new Query(criteria).limit(batchSize);
+        candidatesQuery.fields().include(GridFsSpillOverCallback.GRIDFS_ID_FIELD).include(JsonResultDedupCallback.HASH_FIELD);
+
+        for (String collection : collections) {
+            List<ExtractionResult> candidates = mongoTemplate.find(candidatesQuery, ExtractionResult.class, collection);
+            if (candidates.isEmpty()) {
+                continue;
+            }
+
+            List<ExtractionResult> removed = new ArrayList<>(candidates.size());
+            List<String> plainIds = new ArrayList<>(candidates.size());
+            long deletedCount = 0;
+            for (ExtractionResult candidate : candidates) {
+                if (candidate.getJsonResultGridFsId() == null && candidate.getJsonResultHash() == null) {
+                    plainIds.add(candidate.getId());
+                    removed.add(candidate);
+                    continue;
+                }
+                Query byId = new Query(Criteria.where("id").is(candidate.getId()));
+                byId.fields().include(GridFsSpillOverCallback.GRIDFS_ID_FIELD).include(JsonResultDedupCallback.HASH_FIELD);
+                ExtractionResult removedCandidate = mongoTemplate.findAndRemove(byId, ExtractionResult.class, collection);
+                if (removedCandidate != null) {
+                    removed.add(removedCandidate);
+                    deletedCount++;
+                }
+            }
+            if (!plainIds.isEmpty()) {
+                deletedCount += mongoTemplate.remove(new Query(Criteria.where("id").in(plainIds)), ExtractionResult.class, collection)
+                        .getDeletedCount();
+            }
+            return new ExtractionResultRemovedBatch(deletedCount, removed);
+        }
+        return new ExtractionResultRemovedBatch(0, List.of());
+    }
+
+    // createdAt (с точностью хранения дат в MongoDB) и id, согласованный с ним по времени, если они ещё не заданы
+    private void prepareForInsert(ExtractionResult extractionResult) {
+        if (extractionResult.getCreatedAt() == null) {
+            extractionResult.setCreatedAt(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+        }
+        if (extractionResult.getId() == null) {
+            extractionResult.setId(collectionRouter.newId(extractionResult.getCreatedAt()));
+        }
+    }
+
+    /**
+     * Выполнение отсортированного по (createdAt, id) запроса в каждой коллекции и k-путевое слияние результатов.
+     * @param skip сколько первых записей слитого списка пропустить
+     * @param limit сколько записей вернуть
+     */
+    private List<ExtractionResult> findMerged(Query query, List<String> collections, boolean isSortDesc, long skip, int limit) {
+        if (collections.size() == 1) {
+            return mongoTemplate.find(query, ExtractionResult.class, collections.get(0));
+        }
+
+        Comparator<ExtractionResult> order = isSortDesc ? CREATED_ASC.reversed() : CREATED_ASC;
+        PriorityQueue<MergeHead> heads = new PriorityQueue<>(Math.max(1, collections.size()),
+                Comparator.comparing(MergeHead::value, order));
+        for (String collection : collections) {
+            Iterator<ExtractionResult> rest = mongoTemplate.find(query, ExtractionResult.class, collection).iterator();
+            if (rest.hasNext()) {
+                heads.add(new MergeHead(rest.next(), rest));
+            }
+        }
+
+        List<ExtractionResult> merged = new ArrayList<>(limit);
+        long skipped = 0;
+        while (!heads.isEmpty() && merged.size() < limit) {
+            MergeHead head = heads.poll();
+            if (skipped < skip) {
+                skipped++;
+            } else {
+                merged.add(head.value());
+            }
+            if (head.rest().hasNext()) {
+                heads.add(new MergeHead(head.rest().next(), head.rest()));
+            }
+        }
+        return merged;
+    }
+
+    // Текущая запись и оставшиеся записи одной коллекции при слиянии
+    private record MergeHead(ExtractionResult value, Iterator<ExtractionResult> rest) {
+    }
+
+    // Группы $group ({_id: ключ, count: количество}) -> доменные счётчики
+    private List<ExtractionResultStats.Count> toCounts(List<Document> groups) {
+        List<ExtractionResultStats.Count> counts = new ArrayList<>(groups.size());
+        for (Document group : groups) {
+            Object key = group.get("_id");
+            counts.add(new ExtractionResultStats.Count(key == null ? null : key.toString(), group.get("count", Number.class).longValue()));
+        }
+        return counts;
+    }
+
+    // Общие условия фильтрации по userId и диапазону createdAt
+    private Criteria filterCriteria(String userId, Instant dateFrom, Instant dateTo) {
         Criteria criteria = new Criteria();
 
         if (userId != null) {
@@ -38,9 +669,6 @@ public class ExtractionResultRepositoryImpl implements ExtractionResultRepositor
             criteria = criteria.and("createdAt").lte(dateTo);  // createdDate <= dateTo
         }
 
-        Query query = new Query(criteria).with(pageable);
-
-        List<ExtractionResult> extractionResults = mongoTemplate.find(query, ExtractionResult.class);
-        return extractionResults;
+        return criteria;
     }
-}
\ No newline at end of file
+}
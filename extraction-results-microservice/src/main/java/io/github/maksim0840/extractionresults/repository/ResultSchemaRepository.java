@@ -0,0 +1,10 @@
+package io.github.maksim0840.extractionresults.repository;
+
+import io.github.maksim0840.extractionresults.domain.ResultSchema;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+/**
+ * Репозиторий зарегистрированных схем результата (id - имя схемы)
+ */
+public interface ResultSchemaRepository extends MongoRepository<ResultSchema, String> {
+}
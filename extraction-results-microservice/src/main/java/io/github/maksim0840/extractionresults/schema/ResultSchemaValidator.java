@@ -0,0 +1,121 @@
+package io.github.maksim0840.extractionresults.schema;
+
+import io.github.maksim0840.extractionresults.domain.ResultSchema;
+import io.github.maksim0840.extractionresults.domain.ResultSchemaField;
+import io.github.maksim0840.extractionresults.exception.ResultSchemaViolationException;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Проверка описания схемы результата и значений jsonResult по схеме.
+ */
+public class ResultSchemaValidator {
+    public static final int MAX_FIELDS = 256;
+
+    // Сегмент пути: допустимое имя поля MongoDB и столбца Arrow (без '.', '$' и пробелов)
+    private static final Pattern PATH_SEGMENT = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    // Имя схемы входит в имя файла выгрузки: без '/', '.' и других символов пути
+    private static final Pattern SCHEMA_NAME = Pattern.compile("[A-Za-z0-9_][A-Za-z0-9_-]{0,127}");
+    // Служебные столбцы экспорта, поля схемы не должны с ними совпадать
+    private static final Set<String> RESERVED_PATHS = Set.of("id", "url", "user_id", "created_at");
+
+    /**
+     * Проверка описания схемы перед регистрацией.
+     * @throws IllegalArgumentException некорректное имя, нет полей, некорректный или повторяющийся путь, не указан тип
+     */
+    public static void validateDefinition(String name, List<ResultSchemaField> fields) {
+        if (name == null || !SCHEMA_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("invalid schema name (letters, digits, '_' and '-', up to 128 chars): " + name);
+        }
+        if (fields == null || fields.isEmpty() || fields.size() > MAX_FIELDS) {
+            throw new IllegalArgumentException("schema must contain from 1 to " + MAX_FIELDS + " fields");
+        }
+
+        Set<String> paths = new HashSet<>();
+        for (ResultSchemaField field : fields) {
+            String path = field.path();
+            if (path == null || RESERVED_PATHS.contains(path)
+                    || !Arrays.stream(path.split("\\.", -1)).allMatch(segment -> PATH_SEGMENT.matcher(segment).matches())) {
+                throw new IllegalArgumentException("invalid schema field path: " + path);
+            }
+            if (field.type() == null) {
+                throw new IllegalArgumentException("schema field type must be set (path: " + path + ")");
+            }
+            if (!paths.add(path)) {
+                throw new IllegalArgumentException("duplicate schema field path: " + path);
+            }
+        }
+        // путь не может быть одновременно значением и объектом (offer и offer.price)
+        for (String path : paths) {
+            for (int dot = path.indexOf('.'); dot >= 0; dot = path.indexOf('.', dot + 1)) {
+                if (paths.contains(path.substring(0, dot))) {
+                    throw new IllegalArgumentException("schema field path " + path + " is nested in another field");
+                }
+            }
+        }
+    }
+
+    /**
+     * Проверка jsonResult по схеме и выделение значений её полей.
+     * @return значения полей схемы, вложенные по путям так же, как в jsonResult (offer.price -> {offer: {price: 1.0}});
+     *         отсутствующие необязательные поля пропускаются
+     * @throws ResultSchemaViolationException нет обязательного поля или значение другого типа
+     */
+    public static Map<String, Object> extractTypedFields(ResultSchema schema, Map<String, Object> jsonResult) {
+        Map<String, Object> typedFields = new LinkedHashMap<>();
+        for (ResultSchemaField field : schema.getFields()) {
+            Object value = valueAt(jsonResult, field.path());
+            if (value == null) {
+                if (field.required()) {
+                    throw new ResultSchemaViolationException("jsonResult misses required field " + field.path()
+                            + " of result schema " + schema.getName());
+                }
+                continue;
+            }
+            putAt(typedFields, field.path(), typedValue(schema, field, value));
+        }
+        return typedFields;
+    }
+
+    private static Object typedValue(ResultSchema schema, ResultSchemaField field, Object value) {
+        Object typed = switch (field.type()) {
+            case STRING -> value instanceof String ? value : null;
+            case NUMBER -> value instanceof Number number ? number.doubleValue() : null;
+            case BOOL -> value instanceof Boolean ? value : null;
+        };
+        if (typed == null) {
+            throw new ResultSchemaViolationException("jsonResult field " + field.path() + " must be " + field.type()
+                    + " by result schema " + schema.getName());
+        }
+        return typed;
+    }
+
+    // Значение по пути через точку во вложенных Map (null - пути нет)
+    @SuppressWarnings("unchecked")
+    public static Object valueAt(Map<String, Object> jsonResult, String path) {
+        Object current = jsonResult;
+        for (String segment : path.split("\\.")) {
+            if (!(current instanceof Map<?, ?> map)) {
+                return null;
+            }
+            current = ((Map<String, Object>) map).get(segment);
+        }
+        return current;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void putAt(Map<String, Object> target, String path, Object value) {
+        String[] segments = path.split("\\.");
+        Map<String, Object> current = target;
+        for (int i = 0; i < segments.length - 1; i++) {
+            current = (Map<String, Object>) current.computeIfAbsent(segments[i], key -> new LinkedHashMap<String, Object>());
+        }
+        current.put(segments[segments.length - 1], value);
+    }
+}
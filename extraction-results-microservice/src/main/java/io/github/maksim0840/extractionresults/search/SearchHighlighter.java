@@ -0,0 +1,62 @@
+package io.github.maksim0840.extractionresults.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Фрагменты searchText с найденными словами запроса, выделенными тегом <em>.
+ * Термы берутся так же, как их разбирает $text: фразы в кавычках целиком, остальные слова по пробелам,
+ * слова с '-' (исключение) пропускаются. Совпадение ищется без учёта регистра.
+ */
+public class SearchHighlighter {
+    private static final Pattern PHRASE = Pattern.compile("\"([^\"]+)\"");
+    private static final int CONTEXT_CHARS = 40;   // символов вокруг совпадения
+    private static final int MAX_FRAGMENTS = 3;
+
+    public static List<String> highlight(String searchText, String query) {
+        Pattern terms = termsPattern(query);
+        if (searchText == null || terms == null) {
+            return List.of();
+        }
+
+        List<String> fragments = new ArrayList<>();
+        for (String leaf : searchText.split("\n")) {
+            Matcher matcher = terms.matcher(leaf);
+            if (!matcher.find()) {
+                continue;
+            }
+            int start = Math.max(0, matcher.start() - CONTEXT_CHARS);
+            int end = Math.min(leaf.length(), matcher.end() + CONTEXT_CHARS);
+            String fragment = terms.matcher(leaf.substring(start, end))
+                    .replaceAll(match -> "<em>" + Matcher.quoteReplacement(match.group()) + "</em>");
+            fragments.add((start > 0 ? "…" : "") + fragment + (end < leaf.length() ? "…" : ""));
+            if (fragments.size() >= MAX_FRAGMENTS) {
+                break;
+            }
+        }
+        return fragments;
+    }
+
+    // Альтернатива всех термов запроса (null, если термов нет)
+    private static Pattern termsPattern(String query) {
+        List<String> terms = new ArrayList<>();
+        Matcher phrases = PHRASE.matcher(query);
+        while (phrases.find()) {
+            terms.add(phrases.group(1).strip());
+        }
+        for (String word : PHRASE.matcher(query).replaceAll(" ").split("\\s+")) {
+            if (!word.isEmpty() && !word.startsWith("-")) {
+                terms.add(word);
+            }
+        }
+        terms.removeIf(String::isBlank);
+        if (terms.isEmpty()) {
+            return null;
+        }
+        return Pattern.compile(terms.stream().map(Pattern::quote).collect(Collectors.joining("|")),
+                Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.maksim0840.extractionresults.search;
+
+import io.github.maksim0840.extractionresults.domain.ExtractionResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertCallback;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Заполнение поля searchText перед записью (в т.ч. пакетной): строковые значения jsonResult (листья на любой глубине),
+ * по одному на строку. Поле покрыто текстовым индексом MongoDB, поэтому поиск работает при любом способе хранения
+ * самого jsonResult (сжатие, GridFS, общее хранилище) и не требует чтения документов целиком.
+ * Поле дублирует до maxChars символов текста в каждом документе, поэтому режим включается отдельно
+ * (extraction-results.storage.search-text.enabled): при выключенном searchText не заполняется, текстовый индекс не создаётся,
+ * а Search отклоняется с FAILED_PRECONDITION.
+ */
+@Component
+public class SearchTextCallback implements BeforeConvertCallback<ExtractionResult> {
+    public static final String SEARCH_TEXT_FIELD = "searchText";
+
+    private final boolean enabled;
+    private final int maxChars;
+
+    public SearchTextCallback(@Value("${extraction-results.storage.search-text.enabled:false}") boolean enabled,
+                              @Value("${extraction-results.search.max-text-chars:100000}") int maxChars) {
+        this.enabled = enabled;
+        this.maxChars = maxChars;
+    }
+
+    @Override
+    public ExtractionResult onBeforeConvert(ExtractionResult entity, String collection) {
+        if (enabled && entity.getJsonResult() != null && entity.getSearchText() == null) {
+            entity.setSearchText(flatten(entity.getJsonResult(), maxChars));
+        }
+        return entity;
+    }
+
+    // Строковые листья jsonResult через перевод строки, не длиннее maxChars (остальное в поиск не попадает)
+    public static String flatten(Map<String, Object> jsonResult, int maxChars) {
+        StringBuilder text = new StringBuilder();
+        appendLeaves(jsonResult, text, maxChars);
+        return text.length() > maxChars ? text.substring(0, maxChars) : text.toString();
+    }
+
+    private static void appendLeaves(Object value, StringBuilder text, int maxChars) {
+        if (text.length() >= maxChars) {
+            return;
+        }
+        if (value instanceof String string && !string.isBlank()) {
+            if (!text.isEmpty()) {
+                text.append('\n');
+            }
+            text.append(string);
+        } else if (value instanceof Map<?, ?> map) {
+            for (Object child : map.values()) {
+                appendLeaves(child, text, maxChars);
+            }
+        } else if (value instanceof List<?> list) {
+            for (Object child : list) {
+                appendLeaves(child, text, maxChars);
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package io.github.maksim0840.extractionresults.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Периодическое удаление записей с истёкшим сроком хранения (expireAt) вместо TTL-индекса MongoDB.
+ * TTL-монитор удаляет документы мимо сервиса, и файлы GridFS и ссылки на общие payload таких записей не освобождались бы;
+ * здесь записи удаляются через ExtractionResultService тем же путём, что и DeleteByFilter.
+ * Несколько экземпляров сервиса могут удалять одновременно: ссылку освобождает только тот, кто удалил запись.
+ */
+@Component
+public class ExpiredExtractionResultReaper implements AutoCloseable {
+    private final ExtractionResultService extractionResultService;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("expired-extraction-results-reaper").daemon().factory());
+
+    public ExpiredExtractionResultReaper(ExtractionResultService extractionResultService,
+                                        @Value("${extraction-results.retention.reap-interval:60s}") Duration reapInterval) {
+        this.extractionResultService = extractionResultService;
+        scheduler.scheduleWithFixedDelay(this::reap, reapInterval.toMillis(), reapInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void reap() {
+        try {
+            extractionResultService.deleteExpiredExtractionResults(Instant.now());
+        } catch (RuntimeException ignored) {
+            // MongoDB недоступна: оставшиеся записи удалит следующий запуск (исключение отменило бы все следующие запуски)
+        }
+    }
+}
@@ -1,9 +1,32 @@
 package io.github.maksim0840.extractionresults.service;
 
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import io.github.maksim0840.extraction_result.v1.ExtractionResultProto;
+import io.github.maksim0840.extractionresults.cache.ExtractionResultProtoCache;
+import io.github.maksim0840.extractionresults.config.RetentionProperties;
 import io.github.maksim0840.extractionresults.domain.ExtractionResult;
+import io.github.maksim0840.extractionresults.domain.ExtractionResultSearchHit;
+import io.github.maksim0840.extractionresults.domain.ExtractionResultStats;
+import io.github.maksim0840.extractionresults.domain.ResultSchema;
 import io.github.maksim0840.extractionresults.exception.NotFoundException;
+import io.github.maksim0840.extractionresults.exception.ResultSchemaViolationException;
+import io.github.maksim0840.extractionresults.mapper.ProtoDomainExtractionResultMapper;
+import io.github.maksim0840.extractionresults.repository.ExtractionResultChangeStream;
+import io.github.maksim0840.extractionresults.repository.ExtractionResultCursor;
+import io.github.maksim0840.extractionresults.repository.ExtractionResultInsertedBatch;
+import io.github.maksim0840.extractionresults.repository.ExtractionResultRemovedBatch;
 import io.github.maksim0840.extractionresults.repository.ExtractionResultRepository;
+import io.github.maksim0840.extractionresults.schema.ResultSchemaValidator;
+import io.github.maksim0840.extractionresults.search.SearchHighlighter;
+import io.github.maksim0840.extractionresults.storage.DedupPayloadStore;
+import io.github.maksim0840.extractionresults.storage.GridFsJsonResultStore;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -11,40 +34,222 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
 
 /**
  * Сервис, отвечающий за логику обработки запросов, связанных с ExtractionResult доменом
  */
 @Service
 public class ExtractionResultService {
+    private static final int MAX_VERSION_ATTEMPTS = 3;  // попытки записи версии при параллельной записи того же url
 
     private final ExtractionResultRepository extractionResultsRepository;
+    private final ExtractionResultProtoCache extractionResultProtoCache;
+    private final GridFsJsonResultStore gridFsJsonResultStore;
+    private final DedupPayloadStore dedupPayloadStore;
+    private final RetentionProperties retentionProperties;
+    private final ExtractionResultChangeStream extractionResultChangeStream;
+    private final ResultSchemaService resultSchemaService;
+    private final ExtractionResultVersionService extractionResultVersionService;
+    private final int deleteBatchSize;
+    private final long deleteBatchPauseMs;
 
-    public ExtractionResultService(ExtractionResultRepository extractionResultsRepository) {
+    public ExtractionResultService(ExtractionResultRepository extractionResultsRepository,
+                                   ExtractionResultProtoCache extractionResultProtoCache,
+                                   GridFsJsonResultStore gridFsJsonResultStore,
+                                   DedupPayloadStore dedupPayloadStore,
+                                   RetentionProperties retentionProperties,
+                                   ExtractionResultChangeStream extractionResultChangeStream,
+                                   ResultSchemaService resultSchemaService,
+                                   ExtractionResultVersionService extractionResultVersionService,
+                                   @Value("${extraction-results.delete-by-filter.batch-size:1000}") int deleteBatchSize,
+                                   @Value("${extraction-results.delete-by-filter.batch-pause-ms:50}") long deleteBatchPauseMs) {
         this.extractionResultsRepository = extractionResultsRepository;
+        this.extractionResultProtoCache = extractionResultProtoCache;
+        this.gridFsJsonResultStore = gridFsJsonResultStore;
+        this.dedupPayloadStore = dedupPayloadStore;
+        this.retentionProperties = retentionProperties;
+        this.extractionResultChangeStream = extractionResultChangeStream;
+        this.resultSchemaService = resultSchemaService;
+        this.extractionResultVersionService = extractionResultVersionService;
+        this.deleteBatchSize = deleteBatchSize;
+        this.deleteBatchPauseMs = deleteBatchPauseMs;
     }
 
-    public ExtractionResult createExtractionResult(String url, String userId, Map<String, Object> jsonResult) {
+    /**
+     * Создание записи с уровнем хранения retentionTier (null - уровень по умолчанию)
+     * и проверкой jsonResult по схеме resultSchema (null - без схемы).
+     * createdAt проставляется до вставки, чтобы вычислить по нему expireAt и коллекцию-бакет.
+     * В режиме версий запись получает номер версии (userId, url) и может храниться как patch (см. ExtractionResultVersionService).
+     */
+    public ExtractionResult createExtractionResult(String url, String userId, Map<String, Object> jsonResult,
+                                                   String retentionTier, String resultSchema) {
         ExtractionResult extractionResult = new ExtractionResult(url, userId, jsonResult);
+        applyResultSchema(extractionResult, resultSchema);
+        extractionResult.setCreatedAt(Instant.now().truncatedTo(ChronoUnit.MILLIS));  // точность хранения дат в MongoDB
+        extractionResult.setExpireAt(retentionProperties.expireAt(retentionTier, extractionResult.getCreatedAt()));
+        if (extractionResultVersionService.isEnabled()) {
+            return insertVersion(extractionResult);
+        }
         try {
-            return extractionResultsRepository.save(extractionResult);
+            return extractionResultsRepository.insertRouted(extractionResult);
         } catch (DataAccessException e) {
+            releaseStoredJsonResult(extractionResult);
             throw new RuntimeException("MongoDB extractionResult write failed", e);
         }
     }
 
+    // Параллельная запись того же url получает тот же номер версии и отклоняется уникальным user_url_version_idx,
+    // тогда версия назначается заново
+    private ExtractionResult insertVersion(ExtractionResult extractionResult) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                extractionResultVersionService.assignVersion(extractionResult);
+                return extractionResultsRepository.insertRouted(extractionResult);
+            } catch (DuplicateKeyException e) {
+                releaseStoredJsonResult(extractionResult);
+                extractionResult.setJsonResultGridFsId(null);
+                extractionResult.setJsonResultHash(null);
+                if (attempt >= MAX_VERSION_ATTEMPTS) {
+                    throw new RuntimeException("MongoDB extractionResult version write conflict", e);
+                }
+            } catch (DataAccessException e) {
+                releaseStoredJsonResult(extractionResult);
+                throw new RuntimeException("MongoDB extractionResult write failed", e);
+            }
+        }
+    }
+
+    /**
+     * Проверка jsonResult записи по схеме resultSchema и сохранение в записи значений полей схемы (typedFields).
+     * @throws ResultSchemaViolationException схема не зарегистрирована или jsonResult ей не соответствует
+     */
+    public void applyResultSchema(ExtractionResult extractionResult, String resultSchema) {
+        if (resultSchema == null) {
+            return;
+        }
+
+        ResultSchema schema;
+        try {
+            schema = resultSchemaService.getResultSchemaByName(resultSchema);
+        } catch (NotFoundException e) {
+            throw new ResultSchemaViolationException("Result schema is not registered (name: " + resultSchema + ")", e);
+        }
+        extractionResult.setTypedFields(ResultSchemaValidator.extractTypedFields(schema, extractionResult.getJsonResult()));
+        extractionResult.setResultSchema(resultSchema);
+    }
+
+    /**
+     * Пакетное создание записей одним неупорядоченным bulk-запросом (по одному на коллекцию-бакет).
+     * createdAt и expireAt проставляются заранее, id - в репозитории, т.к. bulk insert не возвращает сгенерированные значения в объекты.
+     * В режиме версий bulk-запрос не используется: номер версии (userId, url) и patch относительно предыдущей версии
+     * зависят от уже записанных версий (в т.ч. от предыдущих элементов той же пачки), поэтому элементы записываются
+     * по одному тем же путём, что и createExtractionResult.
+     * @param retentionTiers уровень хранения каждого элемента (null - уровень по умолчанию)
+     * @return ошибки записи по индексу элемента в списке (успешно записанные элементы получают id)
+     *         ошибка с исходом "write outcome unknown" означает, что элемент мог быть записан
+     */
+    public Map<Integer, String> createExtractionResultsBatch(List<ExtractionResult> extractionResults, List<String> retentionTiers) {
+        Instant createdAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);  // точность хранения дат в MongoDB
+        for (int i = 0; i < extractionResults.size(); i++) {
+            ExtractionResult extractionResult = extractionResults.get(i);
+            extractionResult.setCreatedAt(createdAt);
+            extractionResult.setExpireAt(retentionProperties.expireAt(retentionTiers.get(i), createdAt));
+        }
+        if (extractionResultVersionService.isEnabled()) {
+            return insertVersions(extractionResults);
+        }
+
+        try {
+            ExtractionResultInsertedBatch inserted = extractionResultsRepository.insertUnordered(extractionResults);
+            // jsonResult освобождается только у точно не записанных документов: записанные (в т.ч. с неизвестным исходом)
+            // могут ссылаться на файл GridFS и payload дедупликации
+            inserted.notWritten().forEach(index -> releaseStoredJsonResult(extractionResults.get(index)));
+            return inserted.errors();
+        } catch (DataAccessException e) {
+            // исключение до отправки bulk-запросов (выбор коллекции, создание индексов) - не записан ни один документ
+            extractionResults.forEach(this::releaseStoredJsonResult);
+            throw new RuntimeException("MongoDB extractionResult batch write failed", e);
+        }
+    }
+
+    // Элементы пачки по порядку: версии одного url получают номера в порядке потока
+    private Map<Integer, String> insertVersions(List<ExtractionResult> extractionResults) {
+        Map<Integer, String> errors = new HashMap<>();
+        for (int i = 0; i < extractionResults.size(); i++) {
+            try {
+                insertVersion(extractionResults.get(i));
+            } catch (RuntimeException e) {
+                errors.put(i, e.getMessage());
+            }
+        }
+        return errors;
+    }
+
     public ExtractionResult getExtractionResultById(String id) {
         try {
-            return extractionResultsRepository.findById(id).orElseThrow(() ->
+            ExtractionResult extractionResult = extractionResultsRepository.findRoutedById(id).orElseThrow(() ->
                     new NotFoundException("MongoDB extractionResult not found (id: " + id + ")"));
+            return withJsonResults(List.of(extractionResult)).get(0);
         } catch (DataAccessException e) {
             throw new RuntimeException("MongoDB extractionResult read failed", e);
         }
     }
 
-    public List<ExtractionResult> getListExtractionResultByPageWithFiltering(String userId, Instant dateFrom, Instant dateTo, int pageNum, int pageSize, Boolean isSortDesc) {
+    /**
+     * Чтение записи через кэш сериализованных proto: при попадании не выполняется ни запрос к MongoDB,
+     * ни преобразование jsonResult из Document в Struct.
+     */
+    public ExtractionResultProto getExtractionResultProtoById(String id) {
+        byte[] bytes = extractionResultProtoCache.getIfPresent(id);
+        if (bytes == null) {
+            ExtractionResultProto extractionResultProto = toProto(getExtractionResultById(id));
+            extractionResultProtoCache.putIfFits(id, extractionResultProto);
+            return extractionResultProto;
+        }
+        try {
+            return ExtractionResultProto.parseFrom(bytes);
+        } catch (InvalidProtocolBufferException e) {
+            throw new RuntimeException("Cached extractionResult parse failed (id: " + id + ")", e);
+        }
+    }
+
+    /**
+     * Сериализованный ExtractionResultProto записи из кэша (при промахе - из базы с добавлением в кэш).
+     * Запись больше max-entry-bytes (например, с jsonResult из GridFS) возвращается только как proto:
+     * она не кэшируется и не сериализуется в отдельный массив - сериализация идёт сразу в транспорт.
+     */
+    public ExtractionResultProtoCache.Entry getExtractionResultProtoEntryById(String id) {
+        byte[] bytes = extractionResultProtoCache.getIfPresent(id);
+        if (bytes != null) {
+            return new ExtractionResultProtoCache.Entry(bytes, null);
+        }
+        ExtractionResultProto extractionResultProto = toProto(getExtractionResultById(id));
+        bytes = extractionResultProtoCache.putIfFits(id, extractionResultProto);
+        return bytes != null
+                ? new ExtractionResultProtoCache.Entry(bytes, null)
+                : new ExtractionResultProtoCache.Entry(null, extractionResultProto);
+    }
+
+    /**
+     * Маппинг записи в proto. jsonResult, вынесенный в GridFS, читается потоково сразу в Struct
+     * (без промежуточной Map в домене), у остальных записей маппится из домена.
+     */
+    public ExtractionResultProto toProto(ExtractionResult extractionResult) {
+        if (extractionResult.getJsonResultGridFsId() == null || extractionResult.getJsonResult() != null) {
+            return ProtoDomainExtractionResultMapper.domainToProto(extractionResult);
+        }
+        return ProtoDomainExtractionResultMapper.domainToProto(extractionResult,
+                gridFsJsonResultStore.readStruct(extractionResult.getJsonResultGridFsId()));
+    }
+
+    public List<ExtractionResult> getListExtractionResultByPageWithFiltering(String userId, Instant dateFrom, Instant dateTo, int pageNum, int pageSize, Boolean isSortDesc, boolean summaryOnly) {
         // Настраиваем сортировку
         Sort.Direction sortDir = Sort.Direction.DESC;
         if (isSortDesc != null) sortDir = isSortDesc ? Sort.Direction.DESC : Sort.Direction.ASC;
@@ -55,29 +260,243 @@ public class ExtractionResultService {
 
         // Выполняем запрос
         try {
-            return extractionResultsRepository.searchWithFiltering(userId, dateFrom, dateTo, pageable);
+            return withJsonResults(extractionResultsRepository.searchWithFiltering(userId, dateFrom, dateTo, pageable, summaryOnly));
         } catch (DataAccessException e) {
             throw new RuntimeException("MongoDB extractionResult read failed", e);
         }
     }
 
-    public void deleteExtractionResultById(String id) {
-        if (!checkExistenceExtractionResultById(id)) {
-            throw new NotFoundException("MongoDB extractionResult didn't exist (id: " + id + ")");
+    public List<ExtractionResult> getListExtractionResultAfterCursorWithFiltering(String userId, Instant dateFrom, Instant dateTo, ExtractionResultCursor after, int batchSize, Boolean isSortDesc, boolean summaryOnly) {
+        // Настраиваем сортировку (по умолчанию - по убыванию, как и в постраничном списке)
+        boolean sortDesc = (isSortDesc == null) || isSortDesc;
+
+        // Выполняем запрос
+        try {
+            return withJsonResults(extractionResultsRepository.searchAfterCursor(userId, dateFrom, dateTo, after, sortDesc, batchSize, summaryOnly));
+        } catch (DataAccessException e) {
+            throw new RuntimeException("MongoDB extractionResult read failed", e);
+        }
+    }
+
+    /**
+     * Порция истории записей пользователя для url по возрастанию createdAt (jsonResult версий восстановлен целиком).
+     */
+    public List<ExtractionResult> getUrlHistoryAfterCursor(String userId, String url, Instant dateFrom, Instant dateTo,
+                                                           ExtractionResultCursor after, int batchSize, boolean summaryOnly) {
+        try {
+            return withJsonResults(extractionResultsRepository.searchUrlHistoryAfterCursor(userId, url, dateFrom, dateTo, after, batchSize, summaryOnly));
+        } catch (DataAccessException e) {
+            throw new RuntimeException("MongoDB extractionResult read failed", e);
+        }
+    }
+
+    /**
+     * Полнотекстовый поиск с релевантностью и фрагментами совпадений (по searchText, который затем не возвращается).
+     */
+    public List<ExtractionResultSearchHit> searchExtractionResults(String text, String userId, Instant dateFrom, Instant dateTo, int limit, boolean summaryOnly) {
+        List<ExtractionResult> found;
+        try {
+            found = withJsonResults(extractionResultsRepository.searchFullText(text, userId, dateFrom, dateTo, limit, summaryOnly));
+        } catch (DataAccessException e) {
+            throw new RuntimeException("MongoDB extractionResult search failed", e);
+        }
+
+        List<ExtractionResultSearchHit> hits = new ArrayList<>(found.size());
+        for (ExtractionResult extractionResult : found) {
+            List<String> highlights = SearchHighlighter.highlight(extractionResult.getSearchText(), text);
+            double score = extractionResult.getTextScore() == null ? 0 : extractionResult.getTextScore();
+            extractionResult.setSearchText(null);
+            hits.add(new ExtractionResultSearchHit(extractionResult, score, highlights));
         }
+        return hits;
+    }
+
+    public ExtractionResult getLatestExtractionResultByUrl(String userId, String url) {
+        try {
+            ExtractionResult extractionResult = extractionResultsRepository.findLatestByUrl(userId, url).orElseThrow(() ->
+                    new NotFoundException("MongoDB extractionResult not found (userId: " + userId + ", url: " + url + ")"));
+            return withJsonResults(List.of(extractionResult)).get(0);
+        } catch (DataAccessException e) {
+            throw new RuntimeException("MongoDB extractionResult read failed", e);
+        }
+    }
+
+    /**
+     * Последние записи пользователя для нескольких url.
+     * @return в порядке urls (повторы url учитываются один раз), url без записей пропускаются
+     */
+    public List<ExtractionResult> getLatestExtractionResultsByUrls(String userId, List<String> urls) {
+        try {
+            Map<String, ExtractionResult> latestByUrl = new HashMap<>();
+            for (ExtractionResult extractionResult : extractionResultsRepository.findLatestByUrls(userId, urls)) {
+                latestByUrl.put(extractionResult.getUrl(), extractionResult);
+            }
+            return withJsonResults(urls.stream().distinct().map(latestByUrl::get).filter(Objects::nonNull).toList());
+        } catch (DataAccessException e) {
+            throw new RuntimeException("MongoDB extractionResult read failed", e);
+        }
+    }
+
+    /**
+     * Курсор событий создания записей (change stream), см. ExtractionResultChangeStream.
+     */
+    public MongoChangeStreamCursor<ChangeStreamDocument<Document>> openCreatedEventsCursor(String userId, String resumeToken, Instant startAt) {
+        try {
+            return extractionResultChangeStream.openInserts(userId, resumeToken, startAt);
+        } catch (MongoException e) {
+            throw new RuntimeException("MongoDB extractionResult change stream failed", e);
+        }
+    }
+
+    /**
+     * Proto записи из события создания: для summaryOnly - из полей события, иначе полная запись через кэш Get.
+     * @return null, если запись уже удалена
+     */
+    public ExtractionResultProto createdEventToProto(Document fullDocument, boolean summaryOnly) {
+        ExtractionResult extractionResult = extractionResultChangeStream.toDomain(fullDocument);
+        if (summaryOnly) {
+            return ProtoDomainExtractionResultMapper.domainToProto(extractionResult);
+        }
+        try {
+            return getExtractionResultProtoById(extractionResult.getId());
+        } catch (NotFoundException e) {
+            return null;
+        }
+    }
+
+    public ExtractionResultStats getExtractionResultStatsWithFiltering(String userId, Instant dateFrom, Instant dateTo, int topN) {
+        try {
+            return extractionResultsRepository.aggregateStats(userId, dateFrom, dateTo, topN);
+        } catch (DataAccessException e) {
+            throw new RuntimeException("MongoDB extractionResult aggregation failed", e);
+        }
+    }
 
+    public void deleteExtractionResultById(String id) {
+        ExtractionResult removed;
         try {
-            extractionResultsRepository.deleteById(id);
+            // поиск зависимых patch-версий - только в режиме версий (иначе удаление - один запрос)
+            if (extractionResultVersionService.isEnabled()) {
+                extractionResultVersionService.rebaseDependents(id, dependent -> true);
+            }
+            removed = extractionResultsRepository.removeById(id);
         } catch (DataAccessException e) {
             throw new RuntimeException("MongoDB extractionResult delete failed", e);
+        } finally {
+            extractionResultProtoCache.invalidate(id);
+        }
+
+        if (removed == null) {
+            throw new NotFoundException("MongoDB extractionResult didn't exist (id: " + id + ")");
+        }
+        if (removed.getJsonResultGridFsId() != null) {
+            gridFsJsonResultStore.delete(removed.getJsonResultGridFsId());
+        }
+        if (removed.getJsonResultHash() != null) {
+            dedupPayloadStore.release(removed.getJsonResultHash());
         }
     }
 
-    private boolean checkExistenceExtractionResultById(String id) {
+    /**
+     * Удаление всех записей по фильтру userId/createdAt порциями по deleteBatchSize.
+     * Небольшой диапазон удаляется за одну порцию, между полными порциями делается пауза deleteBatchPauseMs,
+     * чтобы удаление большого диапазона не забивало репликацию и не вытесняло остальную нагрузку.
+     * До удаления patch-версии вне диапазона перестраиваются от своих последних версий (режим версий).
+     * @return количество удалённых записей
+     */
+    public long deleteExtractionResultsByFilter(String userId, Instant dateFrom, Instant dateTo) {
         try {
-            return extractionResultsRepository.existsById(id);
+            extractionResultVersionService.rebaseBeforeDeleteByFilter(userId, dateFrom, dateTo);
         } catch (DataAccessException e) {
-            throw new RuntimeException("MongoDB extractionResult check existence failed", e);
+            throw new RuntimeException("MongoDB extractionResult versions rebase failed", e);
+        }
+
+        return removeBatches(() -> extractionResultsRepository.removeBatchByFilter(userId, dateFrom, dateTo, deleteBatchSize));
+    }
+
+    /**
+     * Удаление записей с истёкшим сроком хранения (expireAt раньше now) порциями по deleteBatchSize - тем же путём,
+     * что и DeleteByFilter: файлы GridFS и ссылки на общие payload освобождаются, записи удаляются из кэша get.
+     * Полная версия в режиме версий хранится не меньше своих patch-версий (extendExpireAt), поэтому перестраивать нечего.
+     * @return количество удалённых записей
+     */
+    public long deleteExpiredExtractionResults(Instant now) {
+        return removeBatches(() -> extractionResultsRepository.removeExpiredBatch(now, deleteBatchSize));
+    }
+
+    // Удаление порций до пустой с освобождением вынесенных jsonResult и паузой deleteBatchPauseMs между полными порциями
+    private long removeBatches(Supplier<ExtractionResultRemovedBatch> removeBatch) {
+        long deletedCount = 0;
+        while (true) {
+            ExtractionResultRemovedBatch batch;
+            try {
+                batch = removeBatch.get();
+            } catch (DataAccessException e) {
+                throw new RuntimeException("MongoDB extractionResult delete failed", e);
+            }
+            if (batch.removed().isEmpty()) {
+                return deletedCount;
+            }
+
+            deletedCount += batch.deletedCount();
+            for (ExtractionResult removed : batch.removed()) {
+                extractionResultProtoCache.invalidate(removed.getId());
+                if (removed.getJsonResultGridFsId() != null) {
+                    gridFsJsonResultStore.delete(removed.getJsonResultGridFsId());
+                }
+                if (removed.getJsonResultHash() != null) {
+                    dedupPayloadStore.release(removed.getJsonResultHash());
+                }
+            }
+
+            if (batch.removed().size() >= deleteBatchSize && deleteBatchPauseMs > 0) {
+                try {
+                    Thread.sleep(deleteBatchPauseMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("MongoDB extractionResult delete interrupted", e);
+                }
+            }
+        }
+    }
+
+    // jsonResult записей, хранящихся вне документа: из общего хранилища и восстановленные из patch версий
+    private List<ExtractionResult> withJsonResults(List<ExtractionResult> extractionResults) {
+        return extractionResultVersionService.withPatchedJsonResults(withDedupPayloads(extractionResults));
+    }
+
+    // Подстановка jsonResult из общего хранилища одним запросом на все записи списка (summaryOnly-записи хэша не содержат)
+    private List<ExtractionResult> withDedupPayloads(List<ExtractionResult> extractionResults) {
+        List<String> hashes = extractionResults.stream()
+                .filter(extractionResult -> extractionResult.getJsonResult() == null && extractionResult.getJsonResultHash() != null)
+                .map(ExtractionResult::getJsonResultHash)
+                .distinct()
+                .toList();
+        if (hashes.isEmpty()) {
+            return extractionResults;
+        }
+
+        Map<String, Map<String, Object>> payloads = dedupPayloadStore.load(hashes);
+        for (ExtractionResult extractionResult : extractionResults) {
+            if (extractionResult.getJsonResult() == null && extractionResult.getJsonResultHash() != null) {
+                extractionResult.setJsonResult(payloads.get(extractionResult.getJsonResultHash()));
+            }
+        }
+        return extractionResults;
+    }
+
+    // Удаление файла GridFS или ссылки на общий payload записи, которая не была сохранена
+    // (ошибка удаления не должна скрыть исходную ошибку записи)
+    private void releaseStoredJsonResult(ExtractionResult extractionResult) {
+        try {
+            if (extractionResult.getJsonResultGridFsId() != null) {
+                gridFsJsonResultStore.delete(extractionResult.getJsonResultGridFsId());
+            }
+            if (extractionResult.getJsonResultHash() != null) {
+                dedupPayloadStore.release(extractionResult.getJsonResultHash());
+            }
+        } catch (RuntimeException ignored) {
+            // файл или payload останется без ссылки, но запись в любом случае завершится ошибкой
         }
     }
 }
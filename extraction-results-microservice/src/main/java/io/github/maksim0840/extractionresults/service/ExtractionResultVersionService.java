@@ -0,0 +1,187 @@
+package io.github.maksim0840.extractionresults.service;
+
+import io.github.maksim0840.extractionresults.domain.ExtractionResult;
+import io.github.maksim0840.extractionresults.repository.ExtractionResultRepository;
+import io.github.maksim0840.extractionresults.storage.DedupPayloadStore;
+import io.github.maksim0840.extractionresults.storage.GridFsJsonResultStore;
+import io.github.maksim0840.extractionresults.storage.JsonPatchCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Режим версий: повторные результаты пользователя для одного url хранятся как RFC 6902 patch к полной версии.
+ * Первая версия (userId, url) и каждая snapshotInterval-я после полной хранятся целиком, остальные - только jsonPatch
+ * от полной версии snapshotId. Чтение любой версии - одна полная версия и один patch, а изменения в patch
+ * накапливаются не дольше snapshotInterval версий. Если patch больше maxPatchRatio от полного jsonResult,
+ * версия тоже хранится целиком.
+ * Полная версия не пропадает раньше своих patch-версий: её срок хранения продлевается при записи patch-версии,
+ * а перед удалением её patch-версии перестраиваются от последней из них (rebaseDependents).
+ */
+@Service
+public class ExtractionResultVersionService {
+    private final ExtractionResultRepository extractionResultsRepository;
+    private final GridFsJsonResultStore gridFsJsonResultStore;
+    private final DedupPayloadStore dedupPayloadStore;
+    private final boolean enabled;
+    private final int snapshotInterval;
+    private final double maxPatchRatio;
+
+    public ExtractionResultVersionService(ExtractionResultRepository extractionResultsRepository,
+                                          GridFsJsonResultStore gridFsJsonResultStore,
+                                          DedupPayloadStore dedupPayloadStore,
+                                          @Value("${extraction-results.versioning.enabled:false}") boolean enabled,
+                                          @Value("${extraction-results.versioning.snapshot-interval:10}") int snapshotInterval,
+                                          @Value("${extraction-results.versioning.max-patch-ratio:0.5}") double maxPatchRatio) {
+        this.extractionResultsRepository = extractionResultsRepository;
+        this.gridFsJsonResultStore = gridFsJsonResultStore;
+        this.dedupPayloadStore = dedupPayloadStore;
+        this.enabled = enabled;
+        this.snapshotInterval = snapshotInterval;
+        this.maxPatchRatio = maxPatchRatio;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Номер версии и способ хранения новой записи (до вставки, expireAt уже задан).
+     * jsonResult записи не изменяется; у patch-версии заполняются snapshotId и jsonPatch,
+     * а срок хранения полной версии продлевается до срока новой записи.
+     */
+    public void assignVersion(ExtractionResult extractionResult) {
+        extractionResult.setSnapshotId(null);
+        extractionResult.setJsonPatch(null);
+        ExtractionResult latest = extractionResultsRepository.findLatestVersion(extractionResult.getUserId(), extractionResult.getUrl()).orElse(null);
+        if (latest == null) {
+            extractionResult.setVersion(1);
+            return;
+        }
+        extractionResult.setVersion(latest.getVersion() + 1);
+
+        ExtractionResult snapshot = latest.getSnapshotId() == null
+                ? latest
+                : extractionResultsRepository.findRoutedById(latest.getSnapshotId()).orElse(null);
+        if (snapshot == null || snapshot.getVersion() == null || extractionResult.getVersion() - snapshot.getVersion() >= snapshotInterval) {
+            return;
+        }
+
+        List<Map<String, Object>> jsonPatch = JsonPatchCodec.diff(fullJsonResult(snapshot), extractionResult.getJsonResult());
+        if (JsonPatchCodec.jsonSize(jsonPatch) > maxPatchRatio * JsonPatchCodec.jsonSize(extractionResult.getJsonResult())) {
+            return;
+        }
+        extractionResultsRepository.extendExpireAt(snapshot.getId(), extractionResult.getExpireAt());
+        extractionResult.setSnapshotId(snapshot.getId());
+        extractionResult.setJsonPatch(jsonPatch);
+    }
+
+    /**
+     * Восстановление jsonResult прочитанных patch-версий (полные версии читаются одним запросом на бакет).
+     * summaryOnly-записи jsonPatch не содержат и не изменяются.
+     */
+    public List<ExtractionResult> withPatchedJsonResults(List<ExtractionResult> extractionResults) {
+        List<String> snapshotIds = extractionResults.stream()
+                .filter(extractionResult -> extractionResult.getJsonResult() == null && extractionResult.getJsonPatch() != null)
+                .map(ExtractionResult::getSnapshotId)
+                .distinct()
+                .toList();
+        if (snapshotIds.isEmpty()) {
+            return extractionResults;
+        }
+
+        Map<String, Map<String, Object>> snapshotJsonResults = new HashMap<>();
+        for (ExtractionResult snapshot : extractionResultsRepository.findRoutedByIds(snapshotIds)) {
+            snapshotJsonResults.put(snapshot.getId(), fullJsonResult(snapshot));
+        }
+        for (ExtractionResult extractionResult : extractionResults) {
+            if (extractionResult.getJsonResult() == null && extractionResult.getJsonPatch() != null) {
+                Map<String, Object> snapshotJsonResult = snapshotJsonResults.get(extractionResult.getSnapshotId());
+                if (snapshotJsonResult == null) {
+                    throw new IllegalStateException("Version snapshot not found (id: " + extractionResult.getSnapshotId() + ")");
+                }
+                extractionResult.setJsonResult(JsonPatchCodec.apply(snapshotJsonResult, extractionResult.getJsonPatch()));
+            }
+        }
+        return extractionResults;
+    }
+
+    /**
+     * Перестроение patch-версий полной версии snapshotId перед её удалением: последняя из них (по createdAt)
+     * становится полной версией со сроком хранения самой долгой из них, остальные получают patch от неё.
+     * @param kept patch-версии, которые останутся после удаления (остальные удаляются вместе с полной версией)
+     */
+    public void rebaseDependents(String snapshotId, Predicate<ExtractionResult> kept) {
+        List<ExtractionResult> dependents = extractionResultsRepository.findVersionDependents(snapshotId).stream()
+                .filter(kept)
+                .toList();
+        if (dependents.isEmpty()) {
+            return;
+        }
+        ExtractionResult snapshot = extractionResultsRepository.findRoutedById(snapshotId).orElse(null);
+        if (snapshot == null) {
+            return;
+        }
+
+        Map<String, Object> snapshotJsonResult = fullJsonResult(snapshot);
+        ExtractionResult newest = dependents.stream()
+                .max(Comparator.comparing(ExtractionResult::getCreatedAt).thenComparing(ExtractionResult::getId))
+                .orElseThrow();
+        Map<String, Object> newestJsonResult = JsonPatchCodec.apply(snapshotJsonResult, newest.getJsonPatch());
+        boolean keepForever = dependents.stream().anyMatch(dependent -> dependent.getExpireAt() == null);
+
+        newest.setJsonResult(newestJsonResult);
+        newest.setSnapshotId(null);
+        newest.setJsonPatch(null);
+        newest.setExpireAt(keepForever ? null : dependents.stream().map(ExtractionResult::getExpireAt).max(Comparator.naturalOrder()).orElseThrow());
+        extractionResultsRepository.replaceRouted(newest);
+
+        for (ExtractionResult dependent : dependents) {
+            if (dependent != newest) {
+                Map<String, Object> dependentJsonResult = JsonPatchCodec.apply(snapshotJsonResult, dependent.getJsonPatch());
+                extractionResultsRepository.updateVersionPatch(dependent.getId(), newest.getId(),
+                        JsonPatchCodec.diff(newestJsonResult, dependentJsonResult));
+            }
+        }
+    }
+
+    /**
+     * Перестроение patch-версий полных версий из фильтра userId/createdAt перед удалением по фильтру:
+     * сохраняются patch-версии вне диапазона дат (у всех версий один userId).
+     * При удалении всех записей пользователя (без дат) перестраивать нечего.
+     */
+    public void rebaseBeforeDeleteByFilter(String userId, Instant dateFrom, Instant dateTo) {
+        if (!enabled || (dateFrom == null && dateTo == null)) {
+            return;
+        }
+        Predicate<ExtractionResult> outsideRange = dependent ->
+                (dateFrom != null && dependent.getCreatedAt().isBefore(dateFrom)) || (dateTo != null && dependent.getCreatedAt().isAfter(dateTo));
+        try (Stream<ExtractionResult> snapshots = extractionResultsRepository.streamVersionSnapshots(userId, dateFrom, dateTo)) {
+            snapshots.forEach(snapshot -> rebaseDependents(snapshot.getId(), outsideRange));
+        }
+    }
+
+    // jsonResult полной версии в любом режиме хранения (в документе, сжатый, в GridFS или в общем хранилище)
+    private Map<String, Object> fullJsonResult(ExtractionResult snapshot) {
+        if (snapshot.getJsonResult() != null) {
+            return snapshot.getJsonResult();
+        }
+        if (snapshot.getJsonResultGridFsId() != null) {
+            return gridFsJsonResultStore.readMap(snapshot.getJsonResultGridFsId());
+        }
+        if (snapshot.getJsonResultHash() != null) {
+            Map<String, Object> payload = dedupPayloadStore.load(List.of(snapshot.getJsonResultHash())).get(snapshot.getJsonResultHash());
+            if (payload != null) {
+                return payload;
+            }
+        }
+        throw new IllegalStateException("Version snapshot jsonResult not found (id: " + snapshot.getId() + ")");
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.maksim0840.extractionresults.service;
+
+import io.github.maksim0840.extractionresults.domain.ResultSchema;
+import io.github.maksim0840.extractionresults.domain.ResultSchemaField;
+import io.github.maksim0840.extractionresults.exception.AlreadyExistsException;
+import io.github.maksim0840.extractionresults.exception.NotFoundException;
+import io.github.maksim0840.extractionresults.repository.ResultSchemaRepository;
+import io.github.maksim0840.extractionresults.schema.ResultSchemaValidator;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Сервис регистрации и чтения схем результата.
+ * Схемы неизменяемы, поэтому прочитанные схемы кэшируются без инвалидации (проверка каждой записи Create не идёт в базу).
+ */
+@Service
+public class ResultSchemaService {
+
+    private final ResultSchemaRepository resultSchemaRepository;
+    private final Map<String, ResultSchema> schemaCache = new ConcurrentHashMap<>();
+
+    public ResultSchemaService(ResultSchemaRepository resultSchemaRepository) {
+        this.resultSchemaRepository = resultSchemaRepository;
+    }
+
+    /**
+     * Регистрация схемы. Повторная регистрация с теми же полями возвращает существующую схему,
+     * с другими полями - AlreadyExistsException (сохранённые значения должны соответствовать описанию).
+     */
+    public ResultSchema registerResultSchema(String name, List<ResultSchemaField> fields) {
+        ResultSchemaValidator.validateDefinition(name, fields);
+        ResultSchema resultSchema = new ResultSchema(name, List.copyOf(fields), Instant.now().truncatedTo(ChronoUnit.MILLIS));
+        try {
+            resultSchemaRepository.insert(resultSchema);
+            schemaCache.put(name, resultSchema);
+            return resultSchema;
+        } catch (DuplicateKeyException e) {
+            ResultSchema existing = getResultSchemaByName(name);
+            if (!existing.getFields().equals(resultSchema.getFields())) {
+                throw new AlreadyExistsException("MongoDB resultSchema already exists with other fields (name: " + name + ")", e);
+            }
+            return existing;
+        } catch (DataAccessException e) {
+            throw new RuntimeException("MongoDB resultSchema write failed", e);
+        }
+    }
+
+    public ResultSchema getResultSchemaByName(String name) {
+        ResultSchema cached = schemaCache.get(name);
+        if (cached != null) {
+            return cached;
+        }
+
+        try {
+            ResultSchema resultSchema = resultSchemaRepository.findById(name).orElseThrow(() ->
+                    new NotFoundException("MongoDB resultSchema not found (name: " + name + ")"));
+            schemaCache.put(name, resultSchema);
+            return resultSchema;
+        } catch (DataAccessException e) {
+            throw new RuntimeException("MongoDB resultSchema read failed", e);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package io.github.maksim0840.extractionresults.storage;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Общее хранилище одинаковых jsonResult (content-addressed): документ {_id: SHA-256, jsonResult, jsonResultSize, refCount}.
+ * Хэш считается по канонической JSON-сериализации (ключи объектов отсортированы), поэтому порядок полей на хэш не влияет.
+ * Повторная запись того же содержимого (например, перепарсинг страницы без изменений) только увеличивает refCount,
+ * удаление ссылающейся записи уменьшает его, payload удаляется при refCount = 0.
+ * Метрики: extraction_results.dedup.payloads.stored / .reused, .bytes_saved и
+ * extraction_results.dedup.ratio (ссылки на payload-ы / записанные payload-ы с момента запуска).
+ */
+@Component
+public class DedupPayloadStore {
+    private static final ObjectMapper CANONICAL_OM = new ObjectMapper()
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    private static final String PAYLOAD_FIELD = "jsonResult";
+    private static final String SIZE_FIELD = "jsonResultSize";
+    private static final String REF_COUNT_FIELD = "refCount";
+
+    private final MongoTemplate mongoTemplate;
+    private final String collection;
+    private final Counter storedPayloads;
+    private final Counter reusedPayloads;
+    private final Counter savedBytes;
+
+    /**
+     * @param hash SHA-256 канонического JSON (hex)
+     * @param size размер канонического JSON в байтах
+     */
+    public record Digest(String hash, long size) {
+    }
+
+    public DedupPayloadStore(MongoTemplate mongoTemplate,
+                             @Value("${extraction-results.storage.dedup.collection:extraction_result_payloads}") String collection,
+                             MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.collection = collection;
+        this.storedPayloads = Counter.builder("extraction_results.dedup.payloads.stored").register(meterRegistry);
+        this.reusedPayloads = Counter.builder("extraction_results.dedup.payloads.reused").register(meterRegistry);
+        this.savedBytes = Counter.builder("extraction_results.dedup.bytes_saved").baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("extraction_results.dedup.ratio", this,
+                        store -> (store.storedPayloads.count() + store.reusedPayloads.count()) / Math.max(1.0, store.storedPayloads.count()))
+                .register(meterRegistry);
+    }
+
+    // Хэш и размер канонического JSON без буферизации (сериализация сразу в MessageDigest)
+    public Digest digest(Map<String, Object> jsonResult) {
+        DigestOutputStream out = new DigestOutputStream();
+        try {
+            CANONICAL_OM.writeValue(out, jsonResult);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("jsonResult serialization failed", e);
+        }
+        return new Digest(HexFormat.of().formatHex(out.sha256.digest()), out.count);
+    }
+
+    /**
+     * Добавление ссылки на payload одним upsert-запросом: новый payload записывается, у существующего увеличивается refCount.
+     * @return true, если payload записан впервые
+     */
+    public boolean acquire(Digest digest, Map<String, Object> jsonResult) {
+        Update update = new Update()
+                .inc(REF_COUNT_FIELD, 1)
+                .setOnInsert(PAYLOAD_FIELD, jsonResult)
+                .setOnInsert(SIZE_FIELD, digest.size());
+        UpdateResult result = mongoTemplate.upsert(byHash(digest.hash()), update, collection);
+
+        boolean stored = result.getUpsertedId() != null;
+        if (stored) {
+            storedPayloads.increment();
+        } else {
+            reusedPayloads.increment();
+            savedBytes.increment(digest.size());
+        }
+        return stored;
+    }
+
+    // payload-ы по хэшам одним запросом (отсутствующие хэши в результат не попадают)
+    public Map<String, Map<String, Object>> load(Collection<String> hashes) {
+        Query query = new Query(Criteria.where("_id").in(hashes));
+        query.fields().include(PAYLOAD_FIELD);
+
+        Map<String, Map<String, Object>> payloads = new HashMap<>();
+        for (Document payload : mongoTemplate.find(query, Document.class, collection)) {
+            payloads.put(payload.getString("_id"), payload.get(PAYLOAD_FIELD, Document.class));
+        }
+        return payloads;
+    }
+
+    /**
+     * Удаление ссылки на payload. Документ удаляется только если refCount всё ещё 0:
+     * параллельный acquire между уменьшением и удалением сохранит payload.
+     */
+    public void release(String hash) {
+        mongoTemplate.updateFirst(byHash(hash), new Update().inc(REF_COUNT_FIELD, -1), collection);
+        mongoTemplate.remove(new Query(Criteria.where("_id").is(hash).and(REF_COUNT_FIELD).lte(0)), collection);
+    }
+
+    private static Query byHash(String hash) {
+        return new Query(Criteria.where("_id").is(hash));
+    }
+
+    private static class DigestOutputStream extends OutputStream {
+        private final MessageDigest sha256;
+        private long count = 0;
+
+        DigestOutputStream() {
+            try {
+                this.sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not supported", e);
+            }
+        }
+
+        @Override
+        public void write(int b) {
+            sha256.update((byte) b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            sha256.update(b, off, len);
+            count += len;
+        }
+    }
+}
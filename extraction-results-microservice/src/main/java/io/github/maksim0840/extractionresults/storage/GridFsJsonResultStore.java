@@ -0,0 +1,115 @@
+package io.github.maksim0840.extractionresults.storage;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ListValue;
+import com.google.protobuf.NullValue;
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
+import com.mongodb.MongoException;
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.gridfs.GridFSDownloadStream;
+import com.mongodb.client.gridfs.GridFSUploadStream;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Хранение jsonResult, не помещающихся в документ MongoDB (лимит BSON 16 MB), в GridFS в виде JSON.
+ * Запись и чтение потоковые: JSON пишется Jackson-ом сразу в поток загрузки по чанкам,
+ * а при чтении разбирается по токенам из потока скачивания прямо в protobuf Struct -
+ * полный payload не держится в памяти ни байтами, ни промежуточной Map.
+ */
+@Component
+public class GridFsJsonResultStore {
+    private static final ObjectMapper OM = new ObjectMapper()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
+    private final GridFSBucket bucket;
+
+    // @Value указан полным именем из-за совпадения с com.google.protobuf.Value
+    public GridFsJsonResultStore(MongoDatabaseFactory mongoDatabaseFactory,
+                                 @org.springframework.beans.factory.annotation.Value("${extraction-results.storage.gridfs.bucket:extraction_results_json}") String bucketName) {
+        this.bucket = GridFSBuckets.create(mongoDatabaseFactory.getMongoDatabase(), bucketName);
+    }
+
+    // @return id файла GridFS
+    public String upload(String filename, Map<String, Object> jsonResult) {
+        GridFSUploadStream uploadStream = bucket.openUploadStream(filename);
+        try {
+            OM.writeValue(uploadStream, jsonResult);
+        } catch (IOException | RuntimeException e) {
+            uploadStream.abort();  // удаляет уже записанные чанки
+            throw new RuntimeException("GridFS jsonResult upload failed", e);
+        }
+        uploadStream.close();
+        return uploadStream.getObjectId().toHexString();
+    }
+
+    public Struct readStruct(String fileId) {
+        try (GridFSDownloadStream downloadStream = bucket.openDownloadStream(new ObjectId(fileId));
+             JsonParser parser = OM.getFactory().createParser(downloadStream)) {
+            parser.nextToken();
+            return readStruct(parser);
+        } catch (IOException | MongoException e) {
+            throw new RuntimeException("GridFS jsonResult read failed (id: " + fileId + ")", e);
+        }
+    }
+
+    // jsonResult целиком в Map (нужен, когда к нему применяется JSON Patch версии)
+    public Map<String, Object> readMap(String fileId) {
+        try (GridFSDownloadStream downloadStream = bucket.openDownloadStream(new ObjectId(fileId))) {
+            return OM.readValue(downloadStream, MAP_TYPE);
+        } catch (IOException | MongoException e) {
+            throw new RuntimeException("GridFS jsonResult read failed (id: " + fileId + ")", e);
+        }
+    }
+
+    public void delete(String fileId) {
+        try {
+            bucket.delete(new ObjectId(fileId));
+        } catch (MongoException e) {
+            throw new RuntimeException("GridFS jsonResult delete failed (id: " + fileId + ")", e);
+        }
+    }
+
+    // Текущий токен - START_OBJECT, по завершении - соответствующий END_OBJECT
+    private static Struct readStruct(JsonParser parser) throws IOException {
+        Struct.Builder structBuilder = Struct.newBuilder();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            structBuilder.putFields(name, readValue(parser));
+        }
+        return structBuilder.build();
+    }
+
+    private static Value readValue(JsonParser parser) throws IOException {
+        Value.Builder valueBuilder = Value.newBuilder();
+        switch (parser.currentToken()) {
+            case START_OBJECT -> valueBuilder.setStructValue(readStruct(parser));
+            case START_ARRAY -> {
+                ListValue.Builder listBuilder = ListValue.newBuilder();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    listBuilder.addValues(readValue(parser));
+                }
+                valueBuilder.setListValue(listBuilder);
+            }
+            case VALUE_STRING -> valueBuilder.setStringValue(parser.getText());
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> valueBuilder.setNumberValue(parser.getDoubleValue());
+            case VALUE_TRUE, VALUE_FALSE -> valueBuilder.setBoolValue(parser.getBooleanValue());
+            case VALUE_NULL -> valueBuilder.setNullValue(NullValue.NULL_VALUE);
+            default -> throw new IOException("Unexpected JSON token: " + parser.currentToken());
+        }
+        return valueBuilder.build();
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.maksim0840.extractionresults.storage;
+
+import io.github.maksim0840.extractionresults.domain.ExtractionResult;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertCallback;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveCallback;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+
+/**
+ * Вынос jsonResult больше порога в GridFS при записи (в т.ч. пакетной).
+ * Порог сравнивается с размером jsonResult в BSON (JsonResultBsonSize), а не в JSON: BSON массивов и чисел бывает
+ * намного больше текста, и jsonResult ниже порога в JSON мог не поместиться в документ (BSONObjectTooLarge).
+ * Перед конвертацией (BeforeConvertCallback) jsonResult выгружается в GridFS и в домене проставляется ссылка jsonResultGridFsId,
+ * перед записью (BeforeSaveCallback) сам jsonResult удаляется из сохраняемого документа.
+ * Объект домена при этом сохраняет jsonResult - ответ на create формируется без повторного чтения.
+ * Прочитанные из MongoDB записи содержат только ссылку, jsonResult потоково собирается из GridFS при маппинге в proto.
+ */
+@Component
+public class GridFsSpillOverCallback implements BeforeConvertCallback<ExtractionResult>, BeforeSaveCallback<ExtractionResult> {
+    public static final String GRIDFS_ID_FIELD = "jsonResultGridFsId";
+    // Предел порога: в документе 16 MB остаётся место для остальных полей (searchText, typedFields и др.)
+    public static final long MAX_INLINE_BYTES = 15L * 1024 * 1024;
+
+    private final GridFsJsonResultStore gridFsJsonResultStore;
+    private final long thresholdBytes;
+
+    public GridFsSpillOverCallback(GridFsJsonResultStore gridFsJsonResultStore,
+                                   @Value("${extraction-results.storage.gridfs.threshold-bytes:8388608}") long thresholdBytes) {
+        this.gridFsJsonResultStore = gridFsJsonResultStore;
+        this.thresholdBytes = Math.min(thresholdBytes, MAX_INLINE_BYTES);
+    }
+
+    @Override
+    public ExtractionResult onBeforeConvert(ExtractionResult entity, String collection) {
+        // jsonResult в общем хранилище (JsonResultDedupCallback) и у версии-patch (JsonPatchVersionCallback) не хранится в документе
+        if (entity.getJsonResult() == null || entity.getJsonPatch() != null
+                || entity.getJsonResultGridFsId() != null || entity.getJsonResultHash() != null) {
+            return entity;
+        }
+
+        if (JsonResultBsonSize.exceeds(entity.getJsonResult(), thresholdBytes)) {
+            entity.setJsonResultGridFsId(gridFsJsonResultStore.upload(Objects.toString(entity.getUrl(), ""), entity.getJsonResult()));
+        }
+        return entity;
+    }
+
+    @Override
+    public ExtractionResult onBeforeSave(ExtractionResult entity, Document document, String collection) {
+        if (entity.getJsonResultGridFsId() != null) {
+            document.remove(JsonResultCompressionCallback.JSON_RESULT_FIELD);
+        }
+        return entity;
+    }
+}
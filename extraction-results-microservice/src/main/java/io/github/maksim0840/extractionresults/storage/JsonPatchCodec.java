@@ -0,0 +1,47 @@
+package io.github.maksim0840.extractionresults.storage;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flipkart.zjsonpatch.JsonDiff;
+import com.flipkart.zjsonpatch.JsonPatch;
+import com.flipkart.zjsonpatch.JsonPatchApplicationException;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RFC 6902 JSON Patch между версиями jsonResult (zjsonpatch поверх дерева Jackson).
+ * Patch хранится в документе как список операций {op, path, value, from} - в том же виде, что и в JSON.
+ */
+public class JsonPatchCodec {
+    private static final ObjectMapper OM = new ObjectMapper();
+    private static final TypeReference<List<Map<String, Object>>> OPERATIONS = new TypeReference<>() {};
+    private static final TypeReference<Map<String, Object>> OBJECT = new TypeReference<>() {};
+
+    // Операции, переводящие source в target
+    public static List<Map<String, Object>> diff(Map<String, Object> source, Map<String, Object> target) {
+        JsonNode patch = JsonDiff.asJson(OM.valueToTree(source), OM.valueToTree(target));
+        return OM.convertValue(patch, OPERATIONS);
+    }
+
+    // Результат применения patch к source (source не изменяется)
+    public static Map<String, Object> apply(Map<String, Object> source, List<Map<String, Object>> patch) {
+        try {
+            JsonNode target = JsonPatch.apply(OM.valueToTree(patch), OM.valueToTree(source));
+            return OM.convertValue(target, OBJECT);
+        } catch (JsonPatchApplicationException e) {
+            throw new IllegalStateException("jsonPatch can't be applied to its snapshot", e);
+        }
+    }
+
+    // Размер значения в JSON (для сравнения размера patch с полным jsonResult)
+    public static long jsonSize(Object value) {
+        try {
+            return OM.writeValueAsBytes(value).length;
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("JSON serialization failed", e);
+        }
+    }
+}
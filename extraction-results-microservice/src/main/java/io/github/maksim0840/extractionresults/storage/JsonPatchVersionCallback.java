@@ -0,0 +1,27 @@
+package io.github.maksim0840.extractionresults.storage;
+
+import io.github.maksim0840.extractionresults.domain.ExtractionResult;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveCallback;
+import org.springframework.stereotype.Component;
+
+/**
+ * Хранение версии результата в виде patch (режим версий, см. ExtractionResultVersionService).
+ * У версии с jsonPatch перед записью (BeforeSaveCallback) jsonResult удаляется из сохраняемого документа:
+ * он восстанавливается при чтении применением jsonPatch к полной версии snapshotId.
+ * Объект домена при этом сохраняет jsonResult - ответ на create формируется без повторного чтения,
+ * а searchText и typedFields заполняются по полному jsonResult версии.
+ * Остальные callback-и хранения (сжатие, GridFS, общее хранилище) такие версии пропускают.
+ */
+@Component
+public class JsonPatchVersionCallback implements BeforeSaveCallback<ExtractionResult> {
+    public static final String JSON_PATCH_FIELD = "jsonPatch";
+
+    @Override
+    public ExtractionResult onBeforeSave(ExtractionResult entity, Document document, String collection) {
+        if (entity.getJsonPatch() != null) {
+            document.remove(JsonResultCompressionCallback.JSON_RESULT_FIELD);
+        }
+        return entity;
+    }
+}
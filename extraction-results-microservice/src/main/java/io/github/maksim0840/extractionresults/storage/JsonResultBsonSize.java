@@ -0,0 +1,150 @@
+package io.github.maksim0840.extractionresults.storage;
+
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonBinaryWriter;
+import org.bson.ByteBuf;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.OutputBuffer;
+import org.bson.types.Decimal128;
+import org.bson.types.ObjectId;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Размер jsonResult в BSON - в том виде, в котором он хранится в документе MongoDB (лимит документа - 16 MB).
+ * BSON может быть заметно больше JSON-текста: у каждого значения есть байт типа и имя поля, у элементов массива -
+ * ключ-индекс ("0", "1", ...), число всегда занимает 8 байт. Поэтому решения о выносе из документа принимаются по BSON.
+ */
+public class JsonResultBsonSize {
+    private static final Codec<Document> DOCUMENT_CODEC = MongoClientSettings.getDefaultCodecRegistry().get(Document.class);
+    private static final long UNBOUNDED = Long.MAX_VALUE / 4;  // запас от переполнения при сложении
+
+    /**
+     * Превышает ли размер jsonResult в BSON порог thresholdBytes.
+     * Сначала считаются границы размера обходом значений (длины строк известны в символах, а не в байтах UTF-8),
+     * точный размер (кодирование в счётчик байт, без буфера) нужен, только если порог лежит между границами.
+     */
+    public static boolean exceeds(Map<String, Object> jsonResult, long thresholdBytes) {
+        long[] bounds = new long[2];
+        addDocumentBounds(jsonResult, bounds);
+        if (bounds[0] > thresholdBytes) {
+            return true;
+        }
+        if (bounds[1] <= thresholdBytes) {
+            return false;
+        }
+        return size(jsonResult) > thresholdBytes;
+    }
+
+    // Точный размер jsonResult в BSON
+    public static long size(Map<String, Object> jsonResult) {
+        Document document = jsonResult instanceof Document doc ? doc : new Document(jsonResult);
+        CountingOutputBuffer counter = new CountingOutputBuffer();
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(counter)) {
+            DOCUMENT_CODEC.encode(writer, document, EncoderContext.builder().build());
+        }
+        return counter.size;
+    }
+
+    // bounds[0] - нижняя граница, bounds[1] - верхняя; документ: int32 длины, элементы (тип, имя cstring, значение), 0x00
+    private static void addDocumentBounds(Map<?, ?> document, long[] bounds) {
+        bounds[0] += 5;
+        bounds[1] += 5;
+        for (Map.Entry<?, ?> element : document.entrySet()) {
+            int nameLength = String.valueOf(element.getKey()).length();
+            bounds[0] += 2 + nameLength;        // символ имени - от 1 до 3 байт UTF-8
+            bounds[1] += 2 + 3L * nameLength;
+            addValueBounds(element.getValue(), bounds);
+        }
+    }
+
+    private static void addValueBounds(Object value, long[] bounds) {
+        if (value instanceof Map<?, ?> map) {
+            addDocumentBounds(map, bounds);
+        } else if (value instanceof Collection<?> list) {
+            // массив - документ с ключами-индексами
+            bounds[0] += 5;
+            bounds[1] += 5;
+            int index = 0;
+            for (Object element : list) {
+                int nameLength = Integer.toString(index++).length();
+                bounds[0] += 2 + nameLength;
+                bounds[1] += 2 + nameLength;
+                addValueBounds(element, bounds);
+            }
+        } else if (value instanceof CharSequence text) {
+            bounds[0] += 5 + text.length();     // int32 длины, UTF-8, 0x00
+            bounds[1] += 5 + 3L * text.length();
+        } else if (value == null) {
+            return;
+        } else if (value instanceof Boolean) {
+            bounds[0] += 1;
+            bounds[1] += 1;
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            bounds[0] += 4;
+            bounds[1] += 4;
+        } else if (value instanceof Double || value instanceof Float || value instanceof Long || value instanceof Date) {
+            bounds[0] += 8;
+            bounds[1] += 8;
+        } else if (value instanceof BigDecimal || value instanceof Decimal128) {
+            bounds[0] += 16;
+            bounds[1] += 16;
+        } else if (value instanceof ObjectId) {
+            bounds[0] += 12;
+            bounds[1] += 12;
+        } else {
+            bounds[1] = UNBOUNDED;              // тип без оценки: нужен точный размер
+        }
+    }
+
+    // Счётчик байт для BsonBinaryWriter: данные не сохраняются, дозапись длин документов (write по позиции) не нужна
+    private static class CountingOutputBuffer extends OutputBuffer {
+        private int size = 0;
+
+        @Override
+        public void writeBytes(byte[] bytes, int offset, int length) {
+            size += length;
+        }
+
+        @Override
+        public void writeByte(int value) {
+            size++;
+        }
+
+        @Override
+        protected void write(int position, int value) {
+        }
+
+        @Override
+        public int getPosition() {
+            return size;
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public void truncateToPosition(int newPosition) {
+            size = newPosition;
+        }
+
+        @Override
+        public int pipe(OutputStream out) {
+            throw new UnsupportedOperationException("Counting buffer has no data");
+        }
+
+        @Override
+        public List<ByteBuf> getByteBuffers() {
+            throw new UnsupportedOperationException("Counting buffer has no data");
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package io.github.maksim0840.extractionresults.storage;
+
+import com.mongodb.MongoClientSettings;
+import io.github.maksim0840.extractionresults.domain.ExtractionResult;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.Binary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.mapping.event.AfterConvertCallback;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveCallback;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Режим хранения крупных jsonResult в сжатом виде.
+ * Перед записью (BeforeSaveCallback) jsonResult, размер которого в BSON не меньше порога, заменяется в документе
+ * на LZ4-сжатый BSON (поле jsonResultLz4) с исходным размером (поле jsonResultSize).
+ * Небольшие документы остаются обычным вложенным BSON и доступны для запросов по содержимому.
+ * После чтения (AfterConvertCallback) сжатое поле разворачивается обратно в jsonResult домена,
+ * поэтому для сервиса и репозитория режим прозрачен. Распаковка выполняется всегда (даже при выключенном режиме),
+ * чтобы ранее сжатые записи оставались читаемыми.
+ */
+@Component
+public class JsonResultCompressionCallback implements BeforeSaveCallback<ExtractionResult>, AfterConvertCallback<ExtractionResult> {
+    public static final String JSON_RESULT_FIELD = "jsonResult";
+    public static final String COMPRESSED_FIELD = "jsonResultLz4";
+    public static final String ORIGINAL_SIZE_FIELD = "jsonResultSize";
+
+    private static final Codec<Document> DOCUMENT_CODEC = MongoClientSettings.getDefaultCodecRegistry().get(Document.class);
+    private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+    private static final LZ4FastDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().fastDecompressor();
+
+    private final boolean enabled;
+    private final int thresholdBytes;
+
+    public JsonResultCompressionCallback(@Value("${extraction-results.storage.compression.enabled:false}") boolean enabled,
+                                         @Value("${extraction-results.storage.compression.threshold-bytes:16384}") int thresholdBytes) {
+        this.enabled = enabled;
+        this.thresholdBytes = thresholdBytes;
+    }
+
+    @Override
+    public ExtractionResult onBeforeSave(ExtractionResult entity, Document document, String collection) {
+        // jsonResult, вынесенный в GridFS (GridFsSpillOverCallback) или в общее хранилище (JsonResultDedupCallback),
+        // а также jsonResult версии, хранящейся как patch (JsonPatchVersionCallback), не сжимается - он будет удалён из документа
+        if (!enabled || document.containsKey(GridFsSpillOverCallback.GRIDFS_ID_FIELD)
+                || document.containsKey(JsonResultDedupCallback.HASH_FIELD)
+                || entity.getJsonPatch() != null
+                || !(document.get(JSON_RESULT_FIELD) instanceof Document jsonResult)) {
+            return entity;
+        }
+
+        byte[] bson = encode(jsonResult);
+        if (bson.length < thresholdBytes) {
+            return entity;
+        }
+
+        document.remove(JSON_RESULT_FIELD);
+        document.put(COMPRESSED_FIELD, new Binary(COMPRESSOR.compress(bson)));
+        document.put(ORIGINAL_SIZE_FIELD, bson.length);
+        return entity;
+    }
+
+    @Override
+    public ExtractionResult onAfterConvert(ExtractionResult entity, Document document, String collection) {
+        if (document.get(COMPRESSED_FIELD) instanceof Binary compressed) {
+            byte[] bson = DECOMPRESSOR.decompress(compressed.getData(), document.getInteger(ORIGINAL_SIZE_FIELD));
+            entity.setJsonResult(decode(bson));
+        }
+        return entity;
+    }
+
+    private static byte[] encode(Document document) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            DOCUMENT_CODEC.encode(writer, document, EncoderContext.builder().build());
+        }
+        return buffer.toByteArray();
+    }
+
+    private static Document decode(byte[] bson) {
+        try (BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(bson))) {
+            return DOCUMENT_CODEC.decode(reader, DecoderContext.builder().build());
+        }
+    }
+}
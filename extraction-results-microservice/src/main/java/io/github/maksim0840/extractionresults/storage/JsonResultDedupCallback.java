@@ -0,0 +1,64 @@
+package io.github.maksim0840.extractionresults.storage;
+
+import io.github.maksim0840.extractionresults.domain.ExtractionResult;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertCallback;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveCallback;
+import org.springframework.stereotype.Component;
+
+/**
+ * Режим дедупликации jsonResult при записи (в т.ч. пакетной).
+ * Перед конвертацией (BeforeConvertCallback) jsonResult размером от minBytes до порога GridFS добавляется
+ * в общее хранилище DedupPayloadStore и в домене проставляется хэш jsonResultHash,
+ * перед записью (BeforeSaveCallback) сам jsonResult удаляется из сохраняемого документа.
+ * Объект домена при этом сохраняет jsonResult - ответ на create формируется без повторного чтения.
+ * Выполняется раньше остальных callback-ов хранения: записи с хэшем не сжимаются и не выносятся в GridFS.
+ */
+@Component
+@Order(0)
+public class JsonResultDedupCallback implements BeforeConvertCallback<ExtractionResult>, BeforeSaveCallback<ExtractionResult> {
+    public static final String HASH_FIELD = "jsonResultHash";
+
+    private final DedupPayloadStore dedupPayloadStore;
+    private final boolean enabled;
+    private final long minBytes;
+    private final long maxBytes;
+
+    public JsonResultDedupCallback(DedupPayloadStore dedupPayloadStore,
+                                   @Value("${extraction-results.storage.dedup.enabled:false}") boolean enabled,
+                                   @Value("${extraction-results.storage.dedup.min-bytes:1024}") long minBytes,
+                                   @Value("${extraction-results.storage.gridfs.threshold-bytes:8388608}") long maxBytes) {
+        this.dedupPayloadStore = dedupPayloadStore;
+        this.enabled = enabled;
+        this.minBytes = minBytes;
+        this.maxBytes = Math.min(maxBytes, GridFsSpillOverCallback.MAX_INLINE_BYTES);
+    }
+
+    @Override
+    public ExtractionResult onBeforeConvert(ExtractionResult entity, String collection) {
+        // версия, хранящаяся как patch (JsonPatchVersionCallback), jsonResult в документе не содержит
+        if (!enabled || entity.getJsonResult() == null || entity.getJsonPatch() != null
+                || entity.getJsonResultHash() != null || entity.getJsonResultGridFsId() != null) {
+            return entity;
+        }
+
+        // payload-ы больше порога GridFS (в BSON, как и в GridFsSpillOverCallback) не помещаются в документ хранилища
+        // и выносятся в GridFS как обычно; minBytes сравнивается с размером канонического JSON
+        DedupPayloadStore.Digest digest = dedupPayloadStore.digest(entity.getJsonResult());
+        if (digest.size() >= minBytes && !JsonResultBsonSize.exceeds(entity.getJsonResult(), maxBytes)) {
+            dedupPayloadStore.acquire(digest, entity.getJsonResult());
+            entity.setJsonResultHash(digest.hash());
+        }
+        return entity;
+    }
+
+    @Override
+    public ExtractionResult onBeforeSave(ExtractionResult entity, Document document, String collection) {
+        if (entity.getJsonResultHash() != null) {
+            document.remove(JsonResultCompressionCallback.JSON_RESULT_FIELD);
+        }
+        return entity;
+    }
+}
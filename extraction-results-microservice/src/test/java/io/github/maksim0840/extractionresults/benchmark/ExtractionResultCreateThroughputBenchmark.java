@@ -0,0 +1,129 @@
+package io.github.maksim0840.extractionresults.benchmark;
+
+import io.github.maksim0840.extraction_result.v1.*;
+import io.github.maksim0840.extractionresults.repository.ExtractionResultRepository;
+import io.github.maksim0840.internalapi.extraction_result.v1.mapper.ProtoJsonMapper;
+import io.grpc.stub.StreamObserver;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сравнение пропускной способности записи: N унарных вызовов create против одного потока createBatch.
+ * Не входит в обычный прогон тестов, запуск: ./gradlew :extraction-results-microservice:test -Pbenchmark
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Testcontainers
+@SpringBootTest(properties = {
+        "grpc.server.inProcessName=benchmark",
+        "grpc.server.port=-1",
+        "extraction-results.metrics.port=-1",
+        "grpc.client.inProcess.address=in-process:benchmark"
+})
+public class ExtractionResultCreateThroughputBenchmark {
+
+    private static final int DOCUMENTS = 20_000;
+    private static final int WARMUP_DOCUMENTS = 2_000;
+
+    @Container
+    static MongoDBContainer mongoDBContainer = new MongoDBContainer(DockerImageName.parse("mongo:7.0"));
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", mongoDBContainer::getReplicaSetUrl);
+    }
+
+    @GrpcClient("inProcess")
+    private ExtractionResultServiceGrpc.ExtractionResultServiceBlockingStub blockingStub;
+
+    @GrpcClient("inProcess")
+    private ExtractionResultServiceGrpc.ExtractionResultServiceStub asyncStub;
+
+    @Autowired
+    ExtractionResultRepository repository;
+
+    @BeforeEach
+    void cleanDb() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void unaryCreateVsCreateBatch() throws Exception {
+        List<CreateExtractionResultRequest> requests = buildRequests(DOCUMENTS);
+
+        // прогрев JIT и пула соединений
+        buildRequests(WARMUP_DOCUMENTS).forEach(blockingStub::create);
+        createBatch(buildRequests(WARMUP_DOCUMENTS));
+        repository.deleteAll();
+
+        long unaryStart = System.nanoTime();
+        requests.forEach(blockingStub::create);
+        double unarySeconds = (System.nanoTime() - unaryStart) / 1e9;
+        assertThat(repository.count()).isEqualTo(DOCUMENTS);
+        repository.deleteAll();
+
+        long batchStart = System.nanoTime();
+        CreateBatchExtractionResultResponse response = createBatch(requests);
+        double batchSeconds = (System.nanoTime() - batchStart) / 1e9;
+        assertThat(response.getItemsList()).allMatch(item -> item.getResultCase() == CreateBatchExtractionResultItem.ResultCase.ID);
+        assertThat(repository.count()).isEqualTo(DOCUMENTS);
+
+        System.out.printf("create      : %d docs in %.2f s -> %.0f docs/s%n", DOCUMENTS, unarySeconds, DOCUMENTS / unarySeconds);
+        System.out.printf("createBatch : %d docs in %.2f s -> %.0f docs/s%n", DOCUMENTS, batchSeconds, DOCUMENTS / batchSeconds);
+    }
+
+    private List<CreateExtractionResultRequest> buildRequests(int count) {
+        List<CreateExtractionResultRequest> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            requests.add(CreateExtractionResultRequest.newBuilder()
+                    .setUrl("https://example.com/catalog/page/" + i)
+                    .setUserId("user-" + (i % 16))
+                    .setJsonResult(ProtoJsonMapper.mapToStruct(Map.of(
+                            "title", "Product #" + i,
+                            "price", 100.0 + i,
+                            "tags", List.of("catalog", "page-" + i))))
+                    .build());
+        }
+        return requests;
+    }
+
+    private CreateBatchExtractionResultResponse createBatch(List<CreateExtractionResultRequest> requests) throws Exception {
+        CompletableFuture<CreateBatchExtractionResultResponse> responseFuture = new CompletableFuture<>();
+        StreamObserver<CreateExtractionResultRequest> requestObserver = asyncStub.createBatch(new StreamObserver<>() {
+            @Override
+            public void onNext(CreateBatchExtractionResultResponse response) {
+                responseFuture.complete(response);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                responseFuture.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        });
+
+        requests.forEach(requestObserver::onNext);
+        requestObserver.onCompleted();
+        return responseFuture.get(5, TimeUnit.MINUTES);
+    }
+}
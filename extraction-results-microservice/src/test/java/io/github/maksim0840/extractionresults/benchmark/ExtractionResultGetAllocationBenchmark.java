@@ -0,0 +1,94 @@
+package io.github.maksim0840.extractionresults.benchmark;
+
+import com.sun.management.ThreadMXBean;
+import io.github.maksim0840.extraction_result.v1.*;
+import io.github.maksim0840.extractionresults.repository.ExtractionResultRepository;
+import io.github.maksim0840.internalapi.extraction_result.v1.mapper.ProtoJsonMapper;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сквозной замер Get по сети (Netty, localhost) при попадании в кэш: время и байты, выделенные JVM на один вызов.
+ * Подклассы запускают сервис с extraction-results.get.pre-encoded=true и false ("после" и "до").
+ * Вызовы сервера выполняются в платформенных потоках (virtual-threads=false), чтобы их аллокации учитывал
+ * ThreadMXBean; клиент работает в той же JVM, его доля в обоих вариантах одинакова.
+ * Не входит в обычный прогон тестов, запуск: ./gradlew :extraction-results-microservice:test -Pbenchmark
+ */
+@Testcontainers
+abstract class ExtractionResultGetAllocationBenchmark {
+
+    private static final int DOCUMENTS = 100;
+    private static final int WARMUP_CALLS = 20_000;
+    private static final int CALLS = 100_000;
+
+    @Container
+    static MongoDBContainer mongoDBContainer = new MongoDBContainer(DockerImageName.parse("mongo:7.0"));
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", mongoDBContainer::getReplicaSetUrl);
+    }
+
+    @GrpcClient("network")
+    private ExtractionResultServiceGrpc.ExtractionResultServiceBlockingStub blockingStub;
+
+    @Autowired
+    ExtractionResultRepository repository;
+
+    @Test
+    void cachedGetAllocationPerCall() {
+        repository.deleteAll();
+        List<String> ids = new ArrayList<>(DOCUMENTS);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            ids.add(blockingStub.create(createRequest(i)).getExtractionResult().getId());
+        }
+
+        // прогрев JIT и заполнение кэша
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            get(ids.get(i % DOCUMENTS));
+        }
+
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedStart = threads.getTotalThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) {
+            assertThat(get(ids.get(i % DOCUMENTS)).hasJsonResult()).isTrue();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long allocated = threads.getTotalThreadAllocatedBytes() - allocatedStart;
+
+        System.out.printf("%s: %d cached get calls in %.2f s (%.0f calls/s), allocated %.1f KB/call%n",
+                getClass().getSimpleName(), CALLS, seconds, CALLS / seconds, allocated / 1024.0 / CALLS);
+    }
+
+    private ExtractionResultProto get(String id) {
+        return blockingStub.get(GetExtractionResultRequest.newBuilder().setId(id).build()).getExtractionResult();
+    }
+
+    // Результат размером ~20 KB: 200 строк распознанного текста
+    private static CreateExtractionResultRequest createRequest(int i) {
+        List<Object> lines = new ArrayList<>();
+        for (int line = 0; line < 200; line++) {
+            lines.add(Map.of("text", "recognized text line #" + line + " of page " + i, "confidence", 0.5 + (line % 50) / 100.0));
+        }
+        return CreateExtractionResultRequest.newBuilder()
+                .setUrl("https://example.com/catalog/page/" + i)
+                .setUserId("user-" + Math.floorMod(i, 16))
+                .setJsonResult(ProtoJsonMapper.mapToStruct(Map.of("lines", lines)))
+                .build();
+    }
+}
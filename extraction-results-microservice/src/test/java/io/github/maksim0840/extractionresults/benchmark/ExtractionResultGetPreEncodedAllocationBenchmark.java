@@ -0,0 +1,19 @@
+package io.github.maksim0840.extractionresults.benchmark;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Get "после": ответ из байтов кэша через PreEncodedGetResponseMarshaller
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(properties = {
+        "grpc.server.port=19191",
+        "extraction-results.metrics.port=-1",
+        "grpc.client.network.address=static://127.0.0.1:19191",
+        "grpc.client.network.negotiation-type=plaintext",
+        "extraction-results.server.virtual-threads=false",
+        "extraction-results.get.pre-encoded=true"
+})
+public class ExtractionResultGetPreEncodedAllocationBenchmark extends ExtractionResultGetAllocationBenchmark {
+}
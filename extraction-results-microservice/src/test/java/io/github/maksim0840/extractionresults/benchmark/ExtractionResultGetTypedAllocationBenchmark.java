@@ -0,0 +1,19 @@
+package io.github.maksim0840.extractionresults.benchmark;
+
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Get "до": разбор байтов кэша в proto, сборка и сериализация GetExtractionResultResponse
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(properties = {
+        "grpc.server.port=19192",
+        "extraction-results.metrics.port=-1",
+        "grpc.client.network.address=static://127.0.0.1:19192",
+        "grpc.client.network.negotiation-type=plaintext",
+        "extraction-results.server.virtual-threads=false",
+        "extraction-results.get.pre-encoded=false"
+})
+public class ExtractionResultGetTypedAllocationBenchmark extends ExtractionResultGetAllocationBenchmark {
+}
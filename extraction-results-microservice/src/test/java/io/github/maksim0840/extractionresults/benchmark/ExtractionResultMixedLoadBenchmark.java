@@ -0,0 +1,144 @@
+package io.github.maksim0840.extractionresults.benchmark;
+
+import io.github.maksim0840.extraction_result.v1.*;
+import io.github.maksim0840.extractionresults.repository.ExtractionResultRepository;
+import io.github.maksim0840.internalapi.extraction_result.v1.mapper.ProtoJsonMapper;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Нагрузочный тест смешанного трафика Get/GetList/Create (60/20/20) от большого числа параллельных клиентов.
+ * Печатает p50/p99/max задержки по каждому методу и число вызовов, отклонённых с RESOURCE_EXHAUSTED.
+ * Не входит в обычный прогон тестов, запуск: ./gradlew :extraction-results-microservice:test -Pbenchmark
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Testcontainers
+@SpringBootTest(properties = {
+        "grpc.server.inProcessName=load",
+        "grpc.server.port=-1",
+        "extraction-results.metrics.port=-1",
+        "grpc.client.inProcess.address=in-process:load"
+})
+public class ExtractionResultMixedLoadBenchmark {
+
+    private static final int CLIENTS = 512;
+    private static final int CALLS_PER_CLIENT = 200;
+    private static final int SEED_DOCUMENTS = 2_000;
+
+    private enum Method { GET, GET_LIST, CREATE }
+
+    @Container
+    static MongoDBContainer mongoDBContainer = new MongoDBContainer(DockerImageName.parse("mongo:7.0"));
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", mongoDBContainer::getReplicaSetUrl);
+    }
+
+    @GrpcClient("inProcess")
+    private ExtractionResultServiceGrpc.ExtractionResultServiceBlockingStub blockingStub;
+
+    @Autowired
+    ExtractionResultRepository repository;
+
+    @Test
+    void mixedGetGetListCreate() throws Exception {
+        repository.deleteAll();
+        List<String> ids = new ArrayList<>(SEED_DOCUMENTS);
+        for (int i = 0; i < SEED_DOCUMENTS; i++) {
+            ids.add(blockingStub.create(createRequest(i)).getExtractionResult().getId());
+        }
+
+        Map<Method, ConcurrentLinkedQueue<Long>> latencies = new EnumMap<>(Method.class);
+        for (Method method : Method.values()) {
+            latencies.put(method, new ConcurrentLinkedQueue<>());
+        }
+        AtomicLong rejected = new AtomicLong();
+
+        List<Future<?>> results = new ArrayList<>(CLIENTS);
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < CLIENTS; c++) {
+                results.add(clients.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < CALLS_PER_CLIENT; i++) {
+                        int dice = random.nextInt(10);
+                        Method method = dice < 6 ? Method.GET : (dice < 8 ? Method.GET_LIST : Method.CREATE);
+                        long callStart = System.nanoTime();
+                        try {
+                            switch (method) {
+                                case GET -> blockingStub.get(GetExtractionResultRequest.newBuilder()
+                                        .setId(ids.get(random.nextInt(ids.size()))).build());
+                                case GET_LIST -> blockingStub.getList(GetListExtractionResultRequest.newBuilder()
+                                        .setUserId("user-" + random.nextInt(16)).setPageNum(0).setPageSize(20).build());
+                                case CREATE -> blockingStub.create(createRequest(random.nextInt()));
+                            }
+                            latencies.get(method).add(System.nanoTime() - callStart);
+                        } catch (StatusRuntimeException e) {
+                            if (e.getStatus().getCode() != Status.Code.RESOURCE_EXHAUSTED) {
+                                throw e;
+                            }
+                            rejected.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        for (Future<?> result : results) {
+            result.get();  // пробрасываем неожиданные ошибки клиентов
+        }
+
+        long total = (long) CLIENTS * CALLS_PER_CLIENT;
+        System.out.printf("%d calls from %d clients in %.2f s (%.0f calls/s), rejected RESOURCE_EXHAUSTED: %d%n",
+                total, CLIENTS, seconds, total / seconds, rejected.get());
+        for (Method method : Method.values()) {
+            long[] sorted = latencies.get(method).stream().mapToLong(Long::longValue).sorted().toArray();
+            if (sorted.length == 0) {
+                continue;
+            }
+            System.out.printf("%-8s n=%-6d p50=%6.2f ms  p99=%6.2f ms  max=%6.2f ms%n", method, sorted.length,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), sorted[sorted.length - 1] / 1e6);
+        }
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private static CreateExtractionResultRequest createRequest(int i) {
+        return CreateExtractionResultRequest.newBuilder()
+                .setUrl("https://example.com/catalog/page/" + i)
+                .setUserId("user-" + Math.floorMod(i, 16))
+                .setJsonResult(ProtoJsonMapper.mapToStruct(Map.of(
+                        "title", "Product #" + i,
+                        "price", 100.0 + i,
+                        "tags", Arrays.asList("catalog", "page-" + i))))
+                .build();
+    }
+}
@@ -0,0 +1,126 @@
+package io.github.maksim0840.extractionresults.benchmark;
+
+import io.github.maksim0840.extractionresults.domain.ExtractionResult;
+import io.github.maksim0840.extractionresults.storage.JsonResultCompressionCallback;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.mapping.callback.EntityCallbacks;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сравнение обычного и LZ4-сжатого хранения jsonResult: задержка записи/чтения и размер коллекции.
+ * Документы пишутся двумя MongoTemplate в разные коллекции - без callback-ов и с JsonResultCompressionCallback.
+ * Не входит в обычный прогон тестов, запуск: ./gradlew :extraction-results-microservice:test -Pbenchmark
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Testcontainers
+public class JsonResultCompressionBenchmark {
+
+    private static final int DOCUMENTS = 200;
+    private static final int WARMUP_DOCUMENTS = 50;
+    private static final int PAYLOAD_BLOCKS = 2_000;  // ~250 KB BSON на документ
+    private static final String PLAIN_COLLECTION = "benchmark_plain";
+    private static final String COMPRESSED_COLLECTION = "benchmark_lz4";
+
+    @Container
+    static MongoDBContainer mongoDBContainer = new MongoDBContainer(DockerImageName.parse("mongo:7.0"));
+
+    static SimpleMongoClientDatabaseFactory databaseFactory;
+    static MongoTemplate plainTemplate;
+    static MongoTemplate compressedTemplate;
+
+    @BeforeAll
+    static void setUp() {
+        databaseFactory = new SimpleMongoClientDatabaseFactory(mongoDBContainer.getReplicaSetUrl("benchmark"));
+        plainTemplate = new MongoTemplate(databaseFactory);
+        compressedTemplate = new MongoTemplate(databaseFactory);
+        compressedTemplate.setEntityCallbacks(EntityCallbacks.create(new JsonResultCompressionCallback(true, 16384)));
+    }
+
+    @AfterAll
+    static void tearDown() throws Exception {
+        databaseFactory.destroy();
+    }
+
+    @Test
+    void plainVsCompressedStorage() {
+        Map<String, Object> payload = buildPayload();
+
+        // прогрев JIT и пула соединений
+        run(plainTemplate, PLAIN_COLLECTION, payload, WARMUP_DOCUMENTS);
+        run(compressedTemplate, COMPRESSED_COLLECTION, payload, WARMUP_DOCUMENTS);
+        plainTemplate.dropCollection(PLAIN_COLLECTION);
+        compressedTemplate.dropCollection(COMPRESSED_COLLECTION);
+
+        Result plain = run(plainTemplate, PLAIN_COLLECTION, payload, DOCUMENTS);
+        Result compressed = run(compressedTemplate, COMPRESSED_COLLECTION, payload, DOCUMENTS);
+
+        print("plain", plain, collStats(PLAIN_COLLECTION));
+        print("lz4  ", compressed, collStats(COMPRESSED_COLLECTION));
+    }
+
+    private Result run(MongoTemplate template, String collection, Map<String, Object> payload, int count) {
+        List<String> ids = new ArrayList<>(count);
+
+        long writeStart = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            ExtractionResult entity = new ExtractionResult("https://example.com/page/" + i, "user", payload);
+            entity.setCreatedAt(Instant.now());
+            ids.add(template.insert(entity, collection).getId());
+        }
+        long writeNanos = System.nanoTime() - writeStart;
+
+        long readStart = System.nanoTime();
+        for (String id : ids) {
+            ExtractionResult entity = template.findById(id, ExtractionResult.class, collection);
+            assertThat(entity.getJsonResult()).hasSameSizeAs(payload);
+        }
+        long readNanos = System.nanoTime() - readStart;
+
+        return new Result(writeNanos / 1e3 / count, readNanos / 1e3 / count);
+    }
+
+    private Document collStats(String collection) {
+        return plainTemplate.getDb().runCommand(new Document("collStats", collection));
+    }
+
+    private void print(String mode, Result result, Document stats) {
+        System.out.printf("%s: write %.0f us/doc, read %.0f us/doc, size %d KB, storageSize %d KB%n",
+                mode, result.writeMicros(), result.readMicros(),
+                stats.get("size", Number.class).longValue() / 1024,
+                stats.get("storageSize", Number.class).longValue() / 1024);
+    }
+
+    // Payload, похожий на результат OCR/HTML парсинга: список блоков с текстом, координатами и флагами
+    private static Map<String, Object> buildPayload() {
+        List<Map<String, Object>> blocks = new ArrayList<>(PAYLOAD_BLOCKS);
+        for (int i = 0; i < PAYLOAD_BLOCKS; i++) {
+            Map<String, Object> block = new HashMap<>();
+            block.put("text", "recognized text line #" + i + " of the catalog page");
+            block.put("confidence", 0.5 + (i % 50) / 100.0);
+            block.put("bold", i % 3 == 0);
+            block.put("bbox", List.of((double) i, i + 10.0, i * 2.0, i * 2.0 + 16));
+            blocks.add(block);
+        }
+        return Map.of("source", "https://example.com/catalog", "blocks", blocks);
+    }
+
+    private record Result(double writeMicros, double readMicros) {
+    }
+}
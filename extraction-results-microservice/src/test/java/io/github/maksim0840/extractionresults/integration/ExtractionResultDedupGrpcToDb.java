@@ -0,0 +1,141 @@
+package io.github.maksim0840.extractionresults.integration;
+
+import io.github.maksim0840.extraction_result.v1.*;
+import io.github.maksim0840.extractionresults.domain.ExtractionResult;
+import io.github.maksim0840.extractionresults.repository.ExtractionResultRepository;
+import io.github.maksim0840.internalapi.extraction_result.v1.mapper.ProtoJsonMapper;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты режима дедупликации jsonResult (extraction-results.storage.dedup.enabled).
+ * Вынесены в отдельный класс, т.к. режим меняет способ хранения всех записей, которые проверяют остальные тесты.
+ */
+@Testcontainers
+@SpringBootTest(properties = {
+        "grpc.server.inProcessName=dedup",
+        "grpc.server.port=-1",
+        "extraction-results.metrics.port=-1",
+        "grpc.client.inProcess.address=in-process:dedup",
+        "extraction-results.storage.dedup.enabled=true",
+        "extraction-results.storage.dedup.min-bytes=1"   // дедуплицируем даже небольшие тестовые jsonResult
+})
+public class ExtractionResultDedupGrpcToDb {
+    private static final String PAYLOADS = "extraction_result_payloads";
+
+    @Container
+    static MongoDBContainer mongoDBContainer = new MongoDBContainer(DockerImageName.parse("mongo:7.0"));
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", mongoDBContainer::getReplicaSetUrl);
+    }
+
+    @GrpcClient("inProcess")
+    private ExtractionResultServiceGrpc.ExtractionResultServiceBlockingStub blockingStub;
+
+    @Autowired
+    ExtractionResultRepository repository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void cleanDb() {
+        repository.deleteAll();
+        mongoTemplate.dropCollection(PAYLOADS);
+    }
+
+
+    /*
+    Проверяет, что одинаковый jsonResult хранится один раз:
+    - три записи с одинаковым содержимым (в разном порядке полей) ссылаются на один payload с refCount = 3
+    - в документах записей jsonResult нет, только хэш jsonResultHash
+    - запись с другим содержимым получает свой payload
+    - get и getList возвращают jsonResult в исходном виде
+    */
+    @Test
+    void createIdenticalSharesPayload() {
+        Map<String, Object> ordered = new LinkedHashMap<>();
+        ordered.put("title", "Product");
+        ordered.put("price", 100.0);
+        Map<String, Object> reversed = new LinkedHashMap<>();
+        reversed.put("price", 100.0);
+        reversed.put("title", "Product");
+
+        String id1 = blockingStub.create(createRequest("url1", ordered)).getExtractionResult().getId();
+        String id2 = blockingStub.create(createRequest("url2", reversed)).getExtractionResult().getId();
+        ExtractionResultProto created3 = blockingStub.create(createRequest("url3", ordered)).getExtractionResult();
+        blockingStub.create(createRequest("url4", Map.of("title", "Other")));
+
+        assertThat(created3.getJsonResult()).isEqualTo(ProtoJsonMapper.mapToStruct(ordered));
+        assertThat(mongoTemplate.getCollection(PAYLOADS).countDocuments()).isEqualTo(2);
+
+        Document raw = rawRecord(id1);
+        assertThat(raw).doesNotContainKey("jsonResult").containsKey("jsonResultHash");
+        assertThat(rawRecord(id2).getString("jsonResultHash")).isEqualTo(raw.getString("jsonResultHash"));
+        assertThat(refCount(raw.getString("jsonResultHash"))).isEqualTo(3);
+
+        GetExtractionResultRequest getRequest = GetExtractionResultRequest.newBuilder().setId(id2).build();
+        assertThat(ProtoJsonMapper.structToMap(blockingStub.get(getRequest).getExtractionResult().getJsonResult())).isEqualTo(ordered);
+
+        List<ExtractionResultProto> list = blockingStub.getList(GetListExtractionResultRequest.newBuilder()
+                .setUserId("1").setPageNum(0).setPageSize(10).build()).getExtractionResultsList();
+        assertThat(list).hasSize(4);
+        assertThat(list).allSatisfy(proto -> assertThat(proto.hasJsonResult()).isTrue());
+    }
+
+    /*
+    Проверяет подсчёт ссылок при удалении:
+    - удаление одной из двух записей уменьшает refCount, payload остаётся и читается второй записью
+    - удаление последней записи удаляет payload
+    */
+    @Test
+    void deleteReleasesPayload() {
+        Map<String, Object> map = Map.of("age", 40.0);
+        String id1 = blockingStub.create(createRequest("url1", map)).getExtractionResult().getId();
+        String id2 = blockingStub.create(createRequest("url2", map)).getExtractionResult().getId();
+        String hash = rawRecord(id1).getString("jsonResultHash");
+
+        blockingStub.delete(DeleteExtractionResultRequest.newBuilder().setId(id1).build());
+        assertThat(refCount(hash)).isEqualTo(1);
+        GetExtractionResultRequest getRequest = GetExtractionResultRequest.newBuilder().setId(id2).build();
+        assertThat(ProtoJsonMapper.structToMap(blockingStub.get(getRequest).getExtractionResult().getJsonResult())).isEqualTo(map);
+
+        blockingStub.delete(DeleteExtractionResultRequest.newBuilder().setId(id2).build());
+        assertThat(mongoTemplate.getCollection(PAYLOADS).countDocuments()).isEqualTo(0);
+    }
+
+
+    private static CreateExtractionResultRequest createRequest(String url, Map<String, Object> jsonResult) {
+        return CreateExtractionResultRequest.newBuilder()
+                .setUrl(url).setUserId("1").setJsonResult(ProtoJsonMapper.mapToStruct(jsonResult)).build();
+    }
+
+    private Document rawRecord(String id) {
+        String collection = mongoTemplate.getCollectionName(ExtractionResult.class);
+        return mongoTemplate.getCollection(collection).find(new Document("_id", new ObjectId(id))).first();
+    }
+
+    private int refCount(String hash) {
+        return mongoTemplate.getCollection(PAYLOADS).find(new Document("_id", hash)).first().getInteger("refCount");
+    }
+}
@@ -1,14 +1,30 @@
 package io.github.maksim0840.extractionresults.integration;
 
+import com.google.protobuf.Struct;
+import com.google.protobuf.Value;
 import io.github.maksim0840.extraction_result.v1.*;
+import io.github.maksim0840.extractionresults.cache.ExtractionResultProtoCache;
 import io.github.maksim0840.extractionresults.domain.ExtractionResult;
 import io.github.maksim0840.extractionresults.repository.ExtractionResultRepository;
+import io.github.maksim0840.extractionresults.schema.ResultSchemaValidator;
+import io.github.maksim0840.extractionresults.service.ExtractionResultService;
 import io.github.maksim0840.internalapi.common.v1.mapper.ProtoTimeMapper;
 import io.github.maksim0840.internalapi.extraction_result.v1.mapper.ProtoJsonMapper;
 import io.github.maksim0840.parsing_param.v1.GetListParsingParamRequest;
+import io.grpc.Context;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
 import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
@@ -23,12 +39,21 @@ import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.utility.DockerImageName;
 
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.BDDAssertions.and;
@@ -45,7 +70,17 @@ import static org.springframework.data.mongodb.core.aggregation.BooleanOperators
 @SpringBootTest(properties = {
         "grpc.server.inProcessName=test",      // включаем in-process server (клиент и сервер общаются внутри одного JVM-процесса)
         "grpc.server.port=-1",                 // выключаем внешний server (не отдаем порт наружу)
-        "grpc.client.inProcess.address=in-process:test" // подключаем клиента к in-process серверу
+        "extraction-results.metrics.port=-1",   // без HTTP-эндпоинта метрик
+        "grpc.client.inProcess.address=in-process:test", // подключаем клиента к in-process серверу
+        "extraction-results.create-batch.size=2",        // маленькие пачки, чтобы createBatch записывал поток в несколько bulk-запросов
+        "extraction-results.create-batch.max-items=6",   // небольшой предел элементов потока createBatch
+        "extraction-results.delete-by-filter.batch-size=2", // маленькие порции, чтобы deleteByFilter удалял в несколько проходов
+        "extraction-results.export.batch-rows=2",           // маленькие порции, чтобы экспорт писал файл в несколько record batch
+        "extraction-results.cache.max-entry-bytes=4096", // небольшой предел, чтобы проверить некэшируемые крупные записи
+        "extraction-results.storage.search-text.enabled=true", // searchText и текстовый индекс для тестов search
+        "extraction-results.storage.compression.enabled=true",      // включаем сжатое хранение крупных jsonResult
+        "extraction-results.storage.compression.threshold-bytes=1024",
+        "extraction-results.storage.gridfs.threshold-bytes=65536"   // выносим в GridFS уже с 64 KB, чтобы не гонять в тестах 16 MB
 })
 public class ExtractionResultGrpcToDb {
 
@@ -57,12 +92,18 @@ public class ExtractionResultGrpcToDb {
     @DynamicPropertySource
     static void configureProperties(DynamicPropertyRegistry registry) {
         registry.add("spring.data.mongodb.uri", mongoDBContainer::getReplicaSetUrl);
+        registry.add("extraction-results.export.directory",
+                () -> Path.of(System.getProperty("java.io.tmpdir"), "extraction-results-export-test").toString());
     }
 
     // Объект для отправки gRPC запросов серверу
     @GrpcClient("inProcess")
     private ExtractionResultServiceGrpc.ExtractionResultServiceBlockingStub blockingStub;
 
+    // Асинхронный stub для client-streaming вызовов (createBatch)
+    @GrpcClient("inProcess")
+    private ExtractionResultServiceGrpc.ExtractionResultServiceStub asyncStub;
+
     // Репозиторий для отправки запросов к базе данных
     @Autowired
     ExtractionResultRepository repository;
@@ -71,10 +112,22 @@ public class ExtractionResultGrpcToDb {
     @Autowired
     private MongoTemplate mongoTemplate;
 
-    // Очищаем базу перед каждым новым тестом
+    @Autowired
+    private ExtractionResultService extractionResultService;
+
+    // Кэш сериализованных proto для get (общий для всех тестов в рамках spring контекста)
+    @Autowired
+    private ExtractionResultProtoCache extractionResultProtoCache;
+
+    // Реестр метрик (пул соединений и команды MongoDB)
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Очищаем базу и кэш перед каждым новым тестом
     @BeforeEach
     void cleanDb() {
         repository.deleteAll();
+        extractionResultProtoCache.invalidateAll();
     }
 
 
@@ -242,6 +295,316 @@ public class ExtractionResultGrpcToDb {
         assertThat(repository.count()).isEqualTo(1);
     }
 
+    /*
+    Проверяет сжатое хранение jsonResult:
+    - jsonResult больше порога (1024 байт в тесте) хранится в MongoDB как LZ4-блок jsonResultLz4 с исходным размером jsonResultSize
+    - небольшой jsonResult остаётся обычным вложенным документом
+    - при чтении через репозиторий и gRPC get оба возвращаются в исходном виде
+    */
+    @Test
+    void createLargeJsonStoredCompressed() {
+        Map<String, Object> largeMap = Map.of(
+                "text", "recognized text line ".repeat(200),
+                "numbers", List.of(1.0, 2.5, 3.0)
+        );
+        Map<String, Object> smallMap = Map.of("age", 40.0);
+        CreateExtractionResultRequest largeRequest = CreateExtractionResultRequest.newBuilder()
+                .setUrl("url").setUserId("1").setJsonResult(ProtoJsonMapper.mapToStruct(largeMap)).build();
+        CreateExtractionResultRequest smallRequest = CreateExtractionResultRequest.newBuilder()
+                .setUrl("url").setUserId("1").setJsonResult(ProtoJsonMapper.mapToStruct(smallMap)).build();
+
+        String largeId = blockingStub.create(largeRequest).getExtractionResult().getId();
+        String smallId = blockingStub.create(smallRequest).getExtractionResult().getId();
+
+        String collection = mongoTemplate.getCollectionName(ExtractionResult.class);
+        Document largeRaw = mongoTemplate.getCollection(collection).find(new Document("_id", new ObjectId(largeId))).first();
+        Document smallRaw = mongoTemplate.getCollection(collection).find(new Document("_id", new ObjectId(smallId))).first();
+        assertThat(largeRaw).doesNotContainKey("jsonResult").containsKeys("jsonResultLz4", "jsonResultSize");
+        assertThat(smallRaw).containsKey("jsonResult").doesNotContainKey("jsonResultLz4");
+
+        assertThat(repository.findById(largeId).orElseThrow().getJsonResult()).isEqualTo(largeMap);
+        assertThat(repository.findById(smallId).orElseThrow().getJsonResult()).isEqualTo(smallMap);
+        assertThat(blockingStub.get(GetExtractionResultRequest.newBuilder().setId(largeId).build()).getExtractionResult().getJsonResult())
+                .isEqualTo(largeRequest.getJsonResult());
+    }
+
+    /*
+    Проверяет вынос jsonResult больше порога в GridFS:
+    - в документе MongoDB вместо jsonResult хранится ссылка jsonResultGridFsId на файл GridFS
+    - get собирает jsonResult из GridFS и возвращает его в исходном виде
+    - delete удаляет и запись, и файл GridFS
+    */
+    @Test
+    void createHugeJsonSpilledToGridFs() {
+        List<Object> lines = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            lines.add(Map.of("text", "recognized text line #" + i, "confidence", 0.5 + (i % 50) / 100.0, "bold", i % 3 == 0));
+        }
+        CreateExtractionResultRequest request = CreateExtractionResultRequest.newBuilder()
+                .setUrl("url").setUserId("1").setJsonResult(ProtoJsonMapper.mapToStruct(Map.of("lines", lines))).build();
+
+        ExtractionResultProto createdProto = blockingStub.create(request).getExtractionResult();
+        assertThat(createdProto.getJsonResult()).isEqualTo(request.getJsonResult());
+
+        String collection = mongoTemplate.getCollectionName(ExtractionResult.class);
+        Document raw = mongoTemplate.getCollection(collection).find(new Document("_id", new ObjectId(createdProto.getId()))).first();
+        assertThat(raw).doesNotContainKeys("jsonResult", "jsonResultLz4").containsKey("jsonResultGridFsId");
+        ObjectId fileId = new ObjectId(raw.getString("jsonResultGridFsId"));
+        assertThat(mongoTemplate.getCollection("extraction_results_json.files").countDocuments(new Document("_id", fileId))).isEqualTo(1);
+
+        GetExtractionResultRequest getRequest = GetExtractionResultRequest.newBuilder().setId(createdProto.getId()).build();
+        assertThat(blockingStub.get(getRequest).getExtractionResult().getJsonResult()).isEqualTo(request.getJsonResult());
+
+        blockingStub.delete(DeleteExtractionResultRequest.newBuilder().setId(createdProto.getId()).build());
+        assertThat(repository.count()).isEqualTo(0);
+        assertThat(mongoTemplate.getCollection("extraction_results_json.files").countDocuments(new Document("_id", fileId))).isEqualTo(0);
+    }
+
+
+    /*
+    Проверяет уровни хранения (retention_tier):
+    - у записи уровня из extraction-results.retention.tiers expireAt = createdAt + срок уровня
+    - запись без уровня (уровень по умолчанию) и запись неизвестного уровня хранятся бессрочно (expireAt не заполнен)
+    - уровень применяется и к элементам createBatch
+    - в коллекции есть индекс по expireAt для удаления записей с истёкшим сроком
+    */
+    @Test
+    void createWithRetentionTier() throws Exception {
+        CreateExtractionResultRequest request = CreateExtractionResultRequest.newBuilder()
+                .setUrl("url").setUserId("1").setJsonResult(ProtoJsonMapper.mapToStruct(Map.of("age", 40.0))).build();
+
+        String freeId = blockingStub.create(request.toBuilder().setRetentionTier("free").build()).getExtractionResult().getId();
+        String defaultId = blockingStub.create(request).getExtractionResult().getId();
+        String unknownId = blockingStub.create(request.toBuilder().setRetentionTier("no-such-tier").build()).getExtractionResult().getId();
+        CreateBatchExtractionResultResponse batchResponse = createBatch(List.of(request.toBuilder().setRetentionTier("pro").build()));
+
+        ExtractionResult free = repository.findById(freeId).orElseThrow();
+        assertThat(free.getExpireAt()).isEqualTo(free.getCreatedAt().plus(30, ChronoUnit.DAYS));
+        assertThat(repository.findById(defaultId).orElseThrow().getExpireAt()).isNull();
+        assertThat(repository.findById(unknownId).orElseThrow().getExpireAt()).isNull();
+        ExtractionResult pro = repository.findById(batchResponse.getItems(0).getId()).orElseThrow();
+        assertThat(pro.getExpireAt()).isEqualTo(pro.getCreatedAt().plus(365, ChronoUnit.DAYS));
+
+        String collection = mongoTemplate.getCollectionName(ExtractionResult.class);
+        assertThat(mongoTemplate.indexOps(collection).getIndexInfo())
+                .anySatisfy(index -> assertThat(index.getName()).isEqualTo("expire_at_idx"))
+                .noneSatisfy(index -> assertThat(index.getName()).isEqualTo("expire_at_ttl_idx"));
+    }
+
+    /*
+    Проверяет удаление записей с истёкшим сроком хранения (ExpiredExtractionResultReaper):
+    - удаляется только запись с expireAt в прошлом, запись со сроком в будущем и бессрочная остаются
+    - вынесенный в GridFS jsonResult удалённой записи удаляется вместе с ней
+    */
+    @Test
+    void deleteExpiredReleasesGridFs() {
+        List<Object> lines = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            lines.add(Map.of("text", "recognized text line #" + i));
+        }
+        CreateExtractionResultRequest hugeRequest = CreateExtractionResultRequest.newBuilder().setUrl("url").setUserId("expiry")
+                .setJsonResult(ProtoJsonMapper.mapToStruct(Map.of("lines", lines))).setRetentionTier("free").build();
+        String expiredId = blockingStub.create(hugeRequest).getExtractionResult().getId();
+        String freeId = blockingStub.create(createRequest("expiry", Map.of("age", 1.0)).toBuilder().setRetentionTier("free").build())
+                .getExtractionResult().getId();
+        String unlimitedId = blockingStub.create(createRequest("expiry", Map.of("age", 2.0))).getExtractionResult().getId();
+
+        String collection = mongoTemplate.getCollectionName(ExtractionResult.class);
+        Document raw = mongoTemplate.getCollection(collection).find(new Document("_id", new ObjectId(expiredId))).first();
+        ObjectId fileId = new ObjectId(raw.getString("jsonResultGridFsId"));
+        mongoTemplate.getCollection(collection).updateOne(new Document("_id", new ObjectId(expiredId)),
+                new Document("$set", new Document("expireAt", Date.from(Instant.now().minusSeconds(60)))));
+
+        assertThat(extractionResultService.deleteExpiredExtractionResults(Instant.now())).isEqualTo(1);
+
+        assertThat(repository.findAll()).extracting(ExtractionResult::getId).containsExactlyInAnyOrder(freeId, unlimitedId);
+        assertThat(mongoTemplate.getCollection("extraction_results_json.files").countDocuments(new Document("_id", fileId))).isEqualTo(0);
+        assertThat(extractionResultService.deleteExpiredExtractionResults(Instant.now())).isEqualTo(0);
+    }
+
+
+    /*
+    Проверяет схемы результата:
+    - повторная регистрация той же схемы возвращает её, регистрация с другими полями - ALREADY_EXISTS
+    - имя схемы с символами пути (../) - INVALID_ARGUMENT
+    - create со схемой сохраняет проверенные значения полей в typedFields и возвращает result_schema
+    - нет обязательного поля, значение другого типа или незарегистрированная схема - INVALID_ARGUMENT
+    - в createBatch ошибка проверки относится только к своему элементу
+    */
+    @Test
+    void createWithResultSchemaStoresTypedFields() throws Exception {
+        String schemaName = "product-" + System.nanoTime();
+        ResultSchemaProto schema = productSchema(schemaName);
+        assertThat(blockingStub.registerResultSchema(RegisterResultSchemaExtractionResultRequest.newBuilder().setSchema(schema).build())
+                .getSchema().getFieldsList()).isEqualTo(schema.getFieldsList());
+        assertThat(blockingStub.registerResultSchema(RegisterResultSchemaExtractionResultRequest.newBuilder().setSchema(schema).build())
+                .getSchema().getName()).isEqualTo(schemaName);
+        StatusRuntimeException alreadyExists = assertThrows(StatusRuntimeException.class, () -> blockingStub.registerResultSchema(
+                RegisterResultSchemaExtractionResultRequest.newBuilder().setSchema(schema.toBuilder().removeFields(2)).build()));
+        assertThat(alreadyExists.getStatus().getCode()).isEqualTo(Status.Code.ALREADY_EXISTS);
+        StatusRuntimeException invalidName = assertThrows(StatusRuntimeException.class, () -> blockingStub.registerResultSchema(
+                RegisterResultSchemaExtractionResultRequest.newBuilder().setSchema(productSchema("../../etc/x")).build()));
+        assertThat(invalidName.getStatus().getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT);
+
+        ExtractionResultProto created = blockingStub.create(createRequest("1", Map.of(
+                "title", "Phone", "offer", Map.of("price", 199.5, "currency", "EUR"), "description", "long text"))
+                .toBuilder().setResultSchema(schemaName).build()).getExtractionResult();
+        assertThat(created.getResultSchema()).isEqualTo(schemaName);
+        ExtractionResult stored = repository.findById(created.getId()).orElseThrow();
+        assertThat(stored.getResultSchema()).isEqualTo(schemaName);
+        assertThat(stored.getTypedFields()).containsOnlyKeys("title", "offer").containsEntry("title", "Phone");
+        assertThat(ResultSchemaValidator.valueAt(stored.getTypedFields(), "offer.price")).isEqualTo(199.5);
+        assertThat(ResultSchemaValidator.valueAt(stored.getTypedFields(), "offer.currency")).isNull();
+
+        for (Map<String, Object> invalid : List.of(
+                Map.<String, Object>of("title", "No price"),
+                Map.<String, Object>of("title", "Price as text", "offer", Map.of("price", "199")))) {
+            StatusRuntimeException ex = assertThrows(StatusRuntimeException.class,
+                    () -> blockingStub.create(createRequest("1", invalid).toBuilder().setResultSchema(schemaName).build()));
+            assertThat(ex.getStatus().getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT);
+            assertThat(ex.getStatus().getDescription()).contains("offer.price");
+        }
+        StatusRuntimeException unknown = assertThrows(StatusRuntimeException.class,
+                () -> blockingStub.create(createRequest("1", Map.of("title", "x")).toBuilder().setResultSchema("no-such-schema").build()));
+        assertThat(unknown.getStatus().getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT);
+
+        CreateBatchExtractionResultResponse batchResponse = createBatch(List.of(
+                createRequest("1", Map.of("title", "Valid", "offer", Map.of("price", 1.0))).toBuilder().setResultSchema(schemaName).build(),
+                createRequest("1", Map.of("title", "Invalid")).toBuilder().setResultSchema(schemaName).build()));
+        assertThat(batchResponse.getItems(0).hasId()).isTrue();
+        assertThat(batchResponse.getItems(1).getError()).contains("offer.price");
+        assertThat(repository.count()).isEqualTo(2);
+    }
+
+    /*
+    Проверяет выгрузку записей схемы в Arrow IPC файл:
+    - выгружаются только записи схемы выбранных пользователей (запись без схемы и запись другого пользователя пропускаются)
+    - файл записан несколькими порциями (batch-rows в тесте = 2), столбцы - служебные поля и поля схемы
+    - состояние задачи доступно через getExport, неизвестная задача - NOT_FOUND
+    */
+    @Test
+    void exportResultSchemaToArrow() throws Exception {
+        String schemaName = "export-" + System.nanoTime();
+        blockingStub.registerResultSchema(RegisterResultSchemaExtractionResultRequest.newBuilder()
+                .setSchema(productSchema(schemaName)).build());
+        for (String userId : List.of("a", "b", "a", "c")) {
+            blockingStub.create(createRequest(userId, Map.of("title", "Item of " + userId, "offer", Map.of("price", 10.0), "inStock", true))
+                    .toBuilder().setResultSchema(schemaName).build());
+        }
+        blockingStub.create(createRequest("a", Map.of("title", "Without schema")));
+
+        ExportJobProto job = blockingStub.startExport(StartExportExtractionResultRequest.newBuilder()
+                .setResultSchema(schemaName).addUserIds("a").addUserIds("b").build()).getJob();
+        for (int i = 0; i < 300 && job.getState() == ExportJobState.EXPORT_JOB_STATE_RUNNING; i++) {
+            Thread.sleep(100);
+            job = blockingStub.getExport(GetExportExtractionResultRequest.newBuilder().setJobId(job.getId()).build()).getJob();
+        }
+        assertThat(job.getState()).as(job.getError()).isEqualTo(ExportJobState.EXPORT_JOB_STATE_COMPLETED);
+        assertThat(job.getRowsWritten()).isEqualTo(3);
+
+        List<String> titles = new ArrayList<>();
+        int batches = 0;
+        try (BufferAllocator allocator = new RootAllocator();
+             ArrowFileReader reader = new ArrowFileReader(FileChannel.open(Path.of(job.getFilePath())), allocator)) {
+            VectorSchemaRoot root = reader.getVectorSchemaRoot();
+            assertThat(root.getSchema().getFields()).extracting(field -> field.getName())
+                    .containsExactly("id", "url", "user_id", "created_at", "title", "offer.price", "inStock");
+            while (reader.loadNextBatch()) {
+                batches++;
+                for (int row = 0; row < root.getRowCount(); row++) {
+                    titles.add(((VarCharVector) root.getVector("title")).getObject(row).toString());
+                    assertThat(((Float8Vector) root.getVector("offer.price")).get(row)).isEqualTo(10.0);
+                    assertThat(((BitVector) root.getVector("inStock")).getObject(row)).isTrue();
+                }
+            }
+        }
+        assertThat(batches).isEqualTo(2);
+        assertThat(titles).containsExactlyInAnyOrder("Item of a", "Item of b", "Item of a");
+
+        StatusRuntimeException ex = assertThrows(StatusRuntimeException.class,
+                () -> blockingStub.getExport(GetExportExtractionResultRequest.newBuilder().setJobId("no-such-job").build()));
+        assertThat(ex.getStatus().getCode()).isEqualTo(Status.Code.NOT_FOUND);
+    }
+
+    /*
+    Проверяет happy-path для createBatch:
+    - поток из 5 запросов записывается несколькими bulk-запросами (размер пачки в тесте = 2)
+    - по каждому элементу в ответе возвращается id, индексы соответствуют порядку запросов
+    - все записи действительно сохраняются в MongoDB и содержимое совпадает с запросами
+    */
+    @Test
+    void createBatchSeveral() throws Exception {
+        List<CreateExtractionResultRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            requests.add(CreateExtractionResultRequest.newBuilder()
+                    .setUrl("url" + i)
+                    .setUserId("batch-user")
+                    .setJsonResult(ProtoJsonMapper.mapToStruct(Map.of("n", (double) i)))
+                    .build());
+        }
+
+        Instant timeBefore = Instant.now();
+        CreateBatchExtractionResultResponse response = createBatch(requests);
+        Instant timeAfter = Instant.now();
+
+        assertThat(response.getItemsList()).hasSize(5);
+        for (CreateBatchExtractionResultItem item : response.getItemsList()) {
+            assertThat(item.getResultCase()).isEqualTo(CreateBatchExtractionResultItem.ResultCase.ID);
+            CreateExtractionResultRequest request = requests.get(item.getIndex());
+            ExtractionResult responseRepo = repository.findById(item.getId()).orElseThrow();
+            assertExtractionResultDomainFieldsValidity(request.getUrl(), request.getUserId(), Map.of("n", (double) item.getIndex()), responseRepo, timeBefore, timeAfter);
+        }
+        assertThat(repository.count()).isEqualTo(5);
+    }
+
+    /*
+    Проверяет предел элементов потока createBatch (в тесте = 6):
+    - поток из 8 запросов завершается RESOURCE_EXHAUSTED с индексом первого незаписанного элемента
+    - первые 6 элементов записаны, остальные - нет
+    */
+    @Test
+    void createBatchOverMaxItems() {
+        List<CreateExtractionResultRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            requests.add(createRequest("batch-user", Map.of("n", (double) i)));
+        }
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> createBatch(requests));
+        StatusRuntimeException cause = (StatusRuntimeException) ex.getCause();
+        assertThat(cause.getStatus().getCode()).isEqualTo(Status.Code.RESOURCE_EXHAUSTED);
+        assertThat(cause.getStatus().getDescription()).contains("from index 6");
+        assertThat(repository.count()).isEqualTo(6);
+    }
+
+    /*
+    Проверяет, что ошибка одного элемента createBatch не мешает записи остальных:
+    - второй запрос содержит jsonResult с незаполненным Value (не преобразуется в документ)
+    - в ответе у него error, у остальных - id
+    - в базу записываются только валидные элементы
+    */
+    @Test
+    void createBatchWithInvalidItem() throws Exception {
+        CreateExtractionResultRequest valid = CreateExtractionResultRequest.newBuilder()
+                .setUrl("url")
+                .setUserId("user")
+                .setJsonResult(ProtoJsonMapper.mapToStruct(Map.of("age", 40.0)))
+                .build();
+        CreateExtractionResultRequest invalid = valid.toBuilder()
+                .setJsonResult(Struct.newBuilder().putFields("broken", Value.getDefaultInstance()))
+                .build();
+
+        CreateBatchExtractionResultResponse response = createBatch(List.of(valid, invalid, valid));
+
+        assertThat(response.getItemsList()).hasSize(3);
+        for (CreateBatchExtractionResultItem item : response.getItemsList()) {
+            CreateBatchExtractionResultItem.ResultCase expected = item.getIndex() == 1
+                    ? CreateBatchExtractionResultItem.ResultCase.ERROR
+                    : CreateBatchExtractionResultItem.ResultCase.ID;
+            assertThat(item.getResultCase()).isEqualTo(expected);
+        }
+        assertThat(repository.count()).isEqualTo(2);
+    }
+
 
     /*
     Проверяет happy-path для get по существующим данным:
@@ -305,6 +668,56 @@ public class ExtractionResultGrpcToDb {
         assertThat(ex.getStatus().getDescription()).contains("not found").contains("*@$");
     }
 
+    /*
+    Проверяет кэширование get и инвалидацию при delete:
+    - первый get читает запись из базы (промах), повторный get возвращает её из кэша (попадание)
+      даже после удаления документа напрямую из MongoDB в обход сервиса
+    - после delete через gRPC запись пропадает и из кэша: get возвращает NOT_FOUND
+    */
+    @Test
+    void getCachedAndInvalidatedByDelete() {
+        ExtractionResult entity = new ExtractionResult("url", "userid", Map.of("age", 40.0));
+        repository.save(entity);
+        GetExtractionResultRequest request = GetExtractionResultRequest.newBuilder().setId(entity.getId()).build();
+
+        ExtractionResultProto firstProto = blockingStub.get(request).getExtractionResult();
+        repository.deleteById(entity.getId());
+        ExtractionResultProto cachedProto = blockingStub.get(request).getExtractionResult();
+
+        assertThat(cachedProto).isEqualTo(firstProto);
+        assertThat(extractionResultProtoCache.stats().missCount()).isEqualTo(1);
+        assertThat(extractionResultProtoCache.stats().hitCount()).isEqualTo(1);
+
+        repository.save(entity);
+        blockingStub.delete(DeleteExtractionResultRequest.newBuilder().setId(entity.getId()).build());
+
+        StatusRuntimeException ex = assertThrows(
+                StatusRuntimeException.class,
+                () -> blockingStub.get(request)
+        );
+        assertThat(ex.getStatus().getCode()).isEqualTo(Status.Code.NOT_FOUND);
+    }
+
+    /*
+    Проверяет, что записи больше extraction-results.cache.max-entry-bytes не попадают в кэш:
+    - после удаления документа напрямую из MongoDB повторный get возвращает NOT_FOUND
+    */
+    @Test
+    void getLargeEntryNotCached() {
+        ExtractionResult entity = new ExtractionResult("url", "userid", Map.of("text", "x".repeat(8192)));
+        repository.save(entity);
+        GetExtractionResultRequest request = GetExtractionResultRequest.newBuilder().setId(entity.getId()).build();
+
+        assertThat(blockingStub.get(request).getExtractionResult().getId()).isEqualTo(entity.getId());
+        repository.deleteById(entity.getId());
+
+        StatusRuntimeException ex = assertThrows(
+                StatusRuntimeException.class,
+                () -> blockingStub.get(request)
+        );
+        assertThat(ex.getStatus().getCode()).isEqualTo(Status.Code.NOT_FOUND);
+    }
+
 
     /*
     Проверяет getList при указании всех параметров:
@@ -586,6 +999,238 @@ public class ExtractionResultGrpcToDb {
         checkGetListRequest(request, expectedResultIds);
     }
 
+    /*
+    Проверяет getList с summaryOnly=true:
+    - ожидает те же записи и в том же порядке, что и без проекции
+    - у каждого элемента заполнены id, url, userId, createdAt, но отсутствует jsonResult
+    */
+    @Test
+    void getListSummaryOnly() {
+        rawDbInsert(listTestEntities());
+
+        GetListExtractionResultRequest request = GetListExtractionResultRequest.newBuilder()
+                .setUserId("3")
+                .setPageNum(0)
+                .setPageSize(100)
+                .setSummaryOnly(true)
+                .build();
+
+        List<ExtractionResultProto> actualResultsProto = blockingStub.getList(request).getExtractionResultsList();
+
+        assertThat(actualResultsProto).extracting(ExtractionResultProto::getId)
+                .containsExactly(expand24("6"), expand24("5"), expand24("4"));
+        for (ExtractionResultProto extractionResultProto : actualResultsProto) {
+            ExtractionResult extractionResultDomain = repository.findById(extractionResultProto.getId()).orElseThrow();
+            assertThat(extractionResultProto.hasJsonResult()).isFalse();
+            assertThat(extractionResultProto.getUrl()).isEqualTo(extractionResultDomain.getUrl());
+            assertThat(extractionResultProto.getUserId()).isEqualTo(extractionResultDomain.getUserId());
+            assertThat(ProtoTimeMapper.timestampToInstant(extractionResultProto.getCreatedAt())).isEqualTo(extractionResultDomain.getCreatedAt());
+        }
+    }
+
+
+    /*
+    Проверяет stats без фильтров:
+    - total равен числу записей
+    - byUser по убыванию количества, byDay по возрастанию дня (UTC), byHost по убыванию количества
+    - url без распознаваемого хоста попадает в группу с пустым ключом
+    */
+    @Test
+    void statsAllGroups() {
+        rawDbInsert(statsTestEntities());
+
+        StatsExtractionResultResponse response = blockingStub.stats(StatsExtractionResultRequest.newBuilder().build());
+
+        assertThat(response.getTotal()).isEqualTo(6);
+        assertThat(response.getByUserList()).containsExactly(statsCount("1", 3), statsCount("2", 2), statsCount("3", 1));
+        assertThat(response.getByDayList()).containsExactly(statsCount("2026-01-01", 2), statsCount("2026-01-02", 3), statsCount("2026-01-03", 1));
+        assertThat(response.getByHostList()).containsExactly(statsCount("shop.example.com", 3), statsCount("", 1), statsCount("example.org", 1), statsCount("news.example.com", 1));
+    }
+
+    /*
+    Проверяет stats с фильтрами и ограничением topN:
+    - userId и диапазон createdAt применяются до группировки
+    - topN ограничивает byUser/byHost, но не total и byDay
+    */
+    @Test
+    void statsWithFilteringAndTopN() {
+        rawDbInsert(statsTestEntities());
+
+        StatsExtractionResultRequest request = StatsExtractionResultRequest.newBuilder()
+                .setUserId("1")
+                .setCreatedFrom(ProtoTimeMapper.instantToTimestamp(Instant.parse("2026-01-02T00:00:00.000Z")))
+                .setTopN(1)
+                .build();
+        StatsExtractionResultResponse response = blockingStub.stats(request);
+
+        assertThat(response.getTotal()).isEqualTo(2);
+        assertThat(response.getByUserList()).containsExactly(statsCount("1", 2));
+        assertThat(response.getByDayList()).containsExactly(statsCount("2026-01-02", 2));
+        assertThat(response.getByHostList()).containsExactly(statsCount("news.example.com", 1));  // при равенстве количества - по возрастанию ключа
+    }
+
+    /*
+    Проверяет stats по пустой выборке: нулевой total и пустые группы (без исключений)
+    */
+    @Test
+    void statsNoData() {
+        StatsExtractionResultResponse response = blockingStub.stats(StatsExtractionResultRequest.newBuilder().setUserId("1919").build());
+
+        assertThat(response.getTotal()).isEqualTo(0);
+        assertThat(response.getByUserList()).isEmpty();
+        assertThat(response.getByDayList()).isEmpty();
+        assertThat(response.getByHostList()).isEmpty();
+    }
+
+
+    /*
+    Проверяет subscribe:
+    - подписка с фильтром по userId получает события создания только записей этого пользователя, в порядке создания
+    - событие содержит полную запись (в т.ч. json_result)
+    - повторная подписка с resume_token первого события продолжается со следующего события
+    */
+    @Test
+    void subscribeReceivesCreatedAndResumes() throws Exception {
+        SubscribeExtractionResultRequest request = SubscribeExtractionResultRequest.newBuilder()
+                .setUserId("subscriber")
+                .setStartAt(ProtoTimeMapper.instantToTimestamp(Instant.now().minusSeconds(5)))  // события, созданные до открытия курсора, не теряются
+                .build();
+        BlockingQueue<SubscribeExtractionResultResponse> events = new LinkedBlockingQueue<>();
+        Context.CancellableContext subscription = Context.current().withCancellation();
+        subscription.run(() -> asyncStub.subscribe(request, collectingObserver(events)));
+
+        String id1 = blockingStub.create(createRequest("subscriber", Map.of("n", 1.0))).getExtractionResult().getId();
+        blockingStub.create(createRequest("other", Map.of("n", 2.0)));
+        String id2 = blockingStub.create(createRequest("subscriber", Map.of("n", 3.0))).getExtractionResult().getId();
+
+        SubscribeExtractionResultResponse first = events.poll(10, TimeUnit.SECONDS);
+        SubscribeExtractionResultResponse second = events.poll(10, TimeUnit.SECONDS);
+        subscription.cancel(null);
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+        assertThat(first.getExtractionResult().getId()).isEqualTo(id1);
+        assertThat(ProtoJsonMapper.structToMap(first.getExtractionResult().getJsonResult())).isEqualTo(Map.of("n", 1.0));
+        assertThat(second.getExtractionResult().getId()).isEqualTo(id2);
+
+        BlockingQueue<SubscribeExtractionResultResponse> resumedEvents = new LinkedBlockingQueue<>();
+        Context.CancellableContext resumed = Context.current().withCancellation();
+        resumed.run(() -> asyncStub.subscribe(request.toBuilder().clearStartAt().setResumeToken(first.getResumeToken()).build(),
+                collectingObserver(resumedEvents)));
+        SubscribeExtractionResultResponse resumedFirst = resumedEvents.poll(10, TimeUnit.SECONDS);
+        resumed.cancel(null);
+        assertThat(resumedFirst).isNotNull();
+        assertThat(resumedFirst.getExtractionResult().getId()).isEqualTo(id2);
+    }
+
+    // Проверяет, что subscribe с невалидным resume_token возвращает INVALID_ARGUMENT
+    @Test
+    void subscribeInvalidResumeTokenInvalidArgumentException() {
+        SubscribeExtractionResultRequest request = SubscribeExtractionResultRequest.newBuilder()
+                .setResumeToken("not a token")
+                .build();
+
+        StatusRuntimeException exception = assertThrows(StatusRuntimeException.class, () ->
+                blockingStub.subscribe(request).hasNext());
+        assertThat(exception.getStatus().getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT);
+    }
+
+
+    /*
+    Проверяет полнотекстовый search:
+    - находятся записи, содержащие слово в любом строковом значении jsonResult (в т.ч. во вложенных объектах и списках)
+    - hits отсортированы по убыванию score, у каждого есть фрагменты с выделенным совпадением
+    - фильтр по userId сужает выдачу, summary_only убирает json_result, но оставляет фрагменты
+    */
+    @Test
+    void searchRanksAndHighlights() {
+        String quantumId = blockingStub.create(createRequest("1", Map.of(
+                "title", "Quantum computing basics",
+                "body", "Intro to quantum bits and quantum gates"))).getExtractionResult().getId();
+        blockingStub.create(createRequest("1", Map.of("title", "Classical computing")));
+        String nestedId = blockingStub.create(createRequest("2", Map.of(
+                "nested", Map.of("tags", List.of("physics", "quantum"))))).getExtractionResult().getId();
+
+        List<SearchExtractionResultHit> hits = blockingStub.search(SearchExtractionResultRequest.newBuilder()
+                .setQuery("quantum").build()).getHitsList();
+        assertThat(hits).extracting(hit -> hit.getExtractionResult().getId()).containsExactlyInAnyOrder(quantumId, nestedId);
+        assertThat(hits.get(0).getScore()).isGreaterThanOrEqualTo(hits.get(1).getScore());
+        assertThat(hits).allSatisfy(hit -> assertThat(hit.getScore()).isPositive());
+
+        List<SearchExtractionResultHit> userHits = blockingStub.search(SearchExtractionResultRequest.newBuilder()
+                .setQuery("quantum").setUserId("1").setSummaryOnly(true).build()).getHitsList();
+        assertThat(userHits).hasSize(1);
+        SearchExtractionResultHit hit = userHits.get(0);
+        assertThat(hit.getExtractionResult().getId()).isEqualTo(quantumId);
+        assertThat(hit.getExtractionResult().hasJsonResult()).isFalse();
+        assertThat(hit.getHighlightsList()).contains(
+                "<em>Quantum</em> computing basics",
+                "Intro to <em>quantum</em> bits and <em>quantum</em> gates");
+    }
+
+    // Проверяет, что search с пустым запросом возвращает INVALID_ARGUMENT
+    @Test
+    void searchBlankQueryInvalidArgumentException() {
+        StatusRuntimeException exception = assertThrows(StatusRuntimeException.class, () ->
+                blockingStub.search(SearchExtractionResultRequest.newBuilder().setQuery("  ").build()));
+        assertThat(exception.getStatus().getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT);
+    }
+
+
+    /*
+    Проверяет getLatestByUrl:
+    - из нескольких записей пользователя для url возвращается самая поздняя по createdAt
+    - записи других пользователей и других url не учитываются
+    */
+    @Test
+    void getLatestByUrlReturnsNewest() {
+        rawDbInsert(latestTestEntities());
+
+        ExtractionResultProto latest = blockingStub.getLatestByUrl(GetLatestByUrlExtractionResultRequest.newBuilder()
+                .setUserId("1").setUrl("https://a.example.com").build()).getExtractionResult();
+
+        assertThat(latest.getId()).isEqualTo(expand24("3"));
+        assertThat(ProtoJsonMapper.structToMap(latest.getJsonResult())).isEqualTo(Map.of("version", 3.0));
+    }
+
+    /*
+    Проверяет, что getLatestByUrl без записей для url возвращает NOT_FOUND,
+    а пустой user_id - INVALID_ARGUMENT
+    */
+    @Test
+    void getLatestByUrlNotFoundException() {
+        rawDbInsert(latestTestEntities());
+
+        StatusRuntimeException notFound = assertThrows(StatusRuntimeException.class, () ->
+                blockingStub.getLatestByUrl(GetLatestByUrlExtractionResultRequest.newBuilder()
+                        .setUserId("2").setUrl("https://b.example.com").build()));
+        assertThat(notFound.getStatus().getCode()).isEqualTo(Status.Code.NOT_FOUND);
+
+        StatusRuntimeException invalid = assertThrows(StatusRuntimeException.class, () ->
+                blockingStub.getLatestByUrl(GetLatestByUrlExtractionResultRequest.newBuilder()
+                        .setUrl("https://a.example.com").build()));
+        assertThat(invalid.getStatus().getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT);
+    }
+
+    /*
+    Проверяет getLatestByUrls:
+    - для каждого url возвращается самая поздняя запись пользователя, в порядке url запроса
+    - url без записей и повторы url пропускаются
+    */
+    @Test
+    void getLatestByUrlsInRequestOrder() {
+        rawDbInsert(latestTestEntities());
+
+        List<ExtractionResultProto> latest = blockingStub.getLatestByUrls(GetLatestByUrlsExtractionResultRequest.newBuilder()
+                .setUserId("1")
+                .addUrls("https://b.example.com")
+                .addUrls("https://missing.example.com")
+                .addUrls("https://a.example.com")
+                .addUrls("https://b.example.com")
+                .build()).getExtractionResultsList();
+
+        assertThat(latest).extracting(ExtractionResultProto::getId).containsExactly(expand24("5"), expand24("3"));
+    }
+
 
     /*
     Проверяет happy-path для delete по существующим данным:
@@ -646,21 +1291,194 @@ public class ExtractionResultGrpcToDb {
         assertThat(ex.getStatus().getDescription()).contains("didn't exist").contains("*@$");
     }
 
+    /*
+    Проверяет deleteByFilter по userId и диапазону дат:
+    - записей пользователя больше размера порции, поэтому удаление идёт в несколько проходов
+    - удаляются только подходящие под фильтр записи, ответ содержит их количество
+    */
+    @Test
+    void deleteByFilterUserAndDateRange() {
+        rawDbInsert(statsTestEntities());
+
+        DeleteByFilterExtractionResultRequest byDate = DeleteByFilterExtractionResultRequest.newBuilder()
+                .setCreatedFrom(ProtoTimeMapper.instantToTimestamp(Instant.parse("2026-01-02T00:00:00.000Z")))
+                .setCreatedTo(ProtoTimeMapper.instantToTimestamp(Instant.parse("2026-01-02T12:00:00.000Z")))
+                .build();
+        assertThat(blockingStub.deleteByFilter(byDate).getDeletedCount()).isEqualTo(2);  // записи 2 и 5
+        assertThat(repository.existsById(expand24("2"))).isFalse();
+        assertThat(repository.existsById(expand24("5"))).isFalse();
+
+        DeleteByFilterExtractionResultRequest byUser = DeleteByFilterExtractionResultRequest.newBuilder().setUserId("1").build();
+        assertThat(blockingStub.deleteByFilter(byUser).getDeletedCount()).isEqualTo(2);  // записи 1 и 3
+        assertThat(blockingStub.deleteByFilter(byUser).getDeletedCount()).isEqualTo(0);
+
+        assertThat(repository.findAll()).extracting(ExtractionResult::getId).containsExactlyInAnyOrder(expand24("4"), expand24("6"));
+    }
+
+    /*
+    Проверяет, что deleteByFilter освобождает вынесенный в GridFS jsonResult и сбрасывает кэш get
+    */
+    @Test
+    void deleteByFilterReleasesGridFsAndCache() {
+        List<Object> lines = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            lines.add(Map.of("text", "recognized text line #" + i));
+        }
+        String hugeId = blockingStub.create(CreateExtractionResultRequest.newBuilder().setUrl("url").setUserId("purge")
+                .setJsonResult(ProtoJsonMapper.mapToStruct(Map.of("lines", lines))).build()).getExtractionResult().getId();
+        String smallId = blockingStub.create(createRequest("purge", Map.of("age", 1.0))).getExtractionResult().getId();
+        blockingStub.get(GetExtractionResultRequest.newBuilder().setId(smallId).build());  // кладём запись в кэш
+
+        String collection = mongoTemplate.getCollectionName(ExtractionResult.class);
+        Document raw = mongoTemplate.getCollection(collection).find(new Document("_id", new ObjectId(hugeId))).first();
+        ObjectId fileId = new ObjectId(raw.getString("jsonResultGridFsId"));
+
+        DeleteByFilterExtractionResultRequest request = DeleteByFilterExtractionResultRequest.newBuilder().setUserId("purge").build();
+        assertThat(blockingStub.deleteByFilter(request).getDeletedCount()).isEqualTo(2);
+
+        assertThat(repository.count()).isEqualTo(0);
+        assertThat(mongoTemplate.getCollection("extraction_results_json.files").countDocuments(new Document("_id", fileId))).isEqualTo(0);
+        StatusRuntimeException ex = assertThrows(StatusRuntimeException.class,
+                () -> blockingStub.get(GetExtractionResultRequest.newBuilder().setId(smallId).build()));
+        assertThat(ex.getStatus().getCode()).isEqualTo(Status.Code.NOT_FOUND);
+    }
+
+    /*
+    Проверяет, что deleteByFilter без фильтров (удаление всех записей) отклоняется с INVALID_ARGUMENT
+    */
+    @Test
+    void deleteByFilterWithoutFiltersInvalidArgumentException() {
+        repository.save(new ExtractionResult("url", "userid", Map.of("age", 40)));
+
+        StatusRuntimeException ex = assertThrows(
+                StatusRuntimeException.class,
+                () -> blockingStub.deleteByFilter(DeleteByFilterExtractionResultRequest.getDefaultInstance())
+        );
+
+        assertThat(ex.getStatus().getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT);
+        assertThat(repository.count()).isEqualTo(1);
+    }
+
+    /*
+    Проверяет публикацию метрик клиента MongoDB:
+    - create (write concern majority) и getList (read preference secondaryPreferred) выполняются на одноузловом replica set
+    - время получения соединения из пула, задержки команд и глубина очереди ожидания соединения видны в MeterRegistry
+    */
+    @Test
+    void mongoClientMetricsPublished() {
+        String id = blockingStub.create(createRequest("metrics", Map.of("age", 1.0))).getExtractionResult().getId();
+        GetListExtractionResultRequest request = GetListExtractionResultRequest.newBuilder()
+                .setUserId("metrics").setPageNum(0).setPageSize(10).build();
+        assertThat(blockingStub.getList(request).getExtractionResultsList()).extracting(ExtractionResultProto::getId).containsExactly(id);
+
+        Timer checkout = meterRegistry.find("mongodb.driver.pool.checkout").tag("outcome", "success").timer();
+        assertThat(checkout).isNotNull();
+        assertThat(checkout.count()).isPositive();
+        assertThat(meterRegistry.find("mongodb.driver.commands").tag("command", "insert").timer()).isNotNull();
+        assertThat(meterRegistry.find("mongodb.driver.pool.waitqueuesize").gauge()).isNotNull();
+    }
+
+
+    /*
+    Проверяет потоковую выгрузку streamList порциями меньше общего числа записей:
+    - batchSize=3 при 10 записях в базе (несколько keyset-порций подряд)
+    - ожидает все записи в порядке убывания createdAt без пропусков и повторов
+    - у каждого сообщения заполнен continuationToken
+    */
+    @Test
+    void streamListInBatches() {
+        rawDbInsert(listTestEntities());
+
+        StreamListExtractionResultRequest request = StreamListExtractionResultRequest.newBuilder()
+                .setBatchSize(3)
+                .build();
+
+        List<String> actualIds = new ArrayList<>();
+        blockingStub.streamList(request).forEachRemaining(response -> {
+            assertThat(response.getContinuationToken()).isNotBlank();
+            actualIds.add(response.getExtractionResult().getId());
+        });
+
+        assertThat(actualIds).containsExactly(expand24("10"), expand24("9"), expand24("8"), expand24("7"), expand24("6"), expand24("5"), expand24("4"), expand24("3"), expand24("2"), expand24("1"));
+    }
+
+    /*
+    Проверяет возобновление выгрузки streamList по continuationToken:
+    - первый вызов (userId=4, по возрастанию) прерывается после двух записей
+    - второй вызов с токеном второй записи возвращает только оставшиеся записи
+    */
+    @Test
+    void streamListResumeFromToken() throws Exception {
+        rawDbInsert(listTestEntities());
+
+        StreamListExtractionResultRequest request = StreamListExtractionResultRequest.newBuilder()
+                .setUserId("4")
+                .setSortCreatedDesc(false)
+                .setBatchSize(1)
+                .build();
+
+        // первый вызов отменяем после двух полученных записей (имитация обрыва выгрузки)
+        Context.CancellableContext firstCallContext = Context.current().withCancellation();
+        StreamListExtractionResultResponse lastReceived = firstCallContext.call(() -> {
+            Iterator<StreamListExtractionResultResponse> firstCall = blockingStub.streamList(request);
+            assertThat(firstCall.next().getExtractionResult().getId()).isEqualTo(expand24("7"));
+            return firstCall.next();
+        });
+        firstCallContext.cancel(null);
+        assertThat(lastReceived.getExtractionResult().getId()).isEqualTo(expand24("8"));
+
+        StreamListExtractionResultRequest resumeRequest = request.toBuilder()
+                .setContinuationToken(lastReceived.getContinuationToken())
+                .build();
+        List<String> resumedIds = new ArrayList<>();
+        blockingStub.streamList(resumeRequest).forEachRemaining(response -> resumedIds.add(response.getExtractionResult().getId()));
+
+        assertThat(resumedIds).containsExactly(expand24("9"), expand24("10"));
+    }
+
+    /*
+    Проверяет обработку невалидного continuationToken в streamList:
+    - ожидает StatusRuntimeException со статусом INVALID_ARGUMENT
+    */
+    @Test
+    void streamListInvalidTokenInvalidArgumentException() {
+        StreamListExtractionResultRequest request = StreamListExtractionResultRequest.newBuilder()
+                .setContinuationToken("not-a-token")
+                .build();
+
+        StatusRuntimeException ex = assertThrows(
+                StatusRuntimeException.class,
+                () -> blockingStub.streamList(request).hasNext()
+        );
+
+        assertThat(ex.getStatus().getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT);
+        assertThat(ex.getStatus().getDescription()).contains("not-a-token");
+    }
+
+    /*
+    Проверяет streamList с summaryOnly=true:
+    - выгружаются все записи, ни у одной нет jsonResult
+    */
+    @Test
+    void streamListSummaryOnly() {
+        rawDbInsert(listTestEntities());
+
+        StreamListExtractionResultRequest request = StreamListExtractionResultRequest.newBuilder()
+                .setBatchSize(4)
+                .setSummaryOnly(true)
+                .build();
+
+        List<ExtractionResultProto> actualResultsProto = new ArrayList<>();
+        blockingStub.streamList(request).forEachRemaining(response -> actualResultsProto.add(response.getExtractionResult()));
+
+        assertThat(actualResultsProto).hasSize(10);
+        assertThat(actualResultsProto).noneMatch(ExtractionResultProto::hasJsonResult);
+    }
+
 
     // Вспомогательный метод для тестов getList
     void checkGetListRequest(GetListExtractionResultRequest request, List<String> expectedResultIds) {
-        List<ExtractionResult> entities = List.of(
-                ExtractionResult.builder().id(expand24("1")).url("url1").userId("1").jsonResult(Map.of("age", 10.0)).createdAt(Instant.parse("2026-01-01T00:00:00.000Z")).build(),
-                ExtractionResult.builder().id(expand24("2")).url("url2").userId("2").jsonResult(Map.of("age", 20.0)).createdAt(Instant.parse("2026-01-02T00:00:00.000Z")).build(),
-                ExtractionResult.builder().id(expand24("3")).url("url3").userId("2").jsonResult(Map.of("age", 30.0)).createdAt(Instant.parse("2026-01-03T00:00:00.000Z")).build(),
-                ExtractionResult.builder().id(expand24("4")).url("url4").userId("3").jsonResult(Map.of("age", 40.0)).createdAt(Instant.parse("2026-01-04T00:00:00.000Z")).build(),
-                ExtractionResult.builder().id(expand24("5")).url("url5").userId("3").jsonResult(Map.of("age", 50.0)).createdAt(Instant.parse("2026-01-05T00:00:00.000Z")).build(),
-                ExtractionResult.builder().id(expand24("6")).url("url6").userId("3").jsonResult(Map.of("age", 60.0)).createdAt(Instant.parse("2026-01-06T00:00:00.000Z")).build(),
-                ExtractionResult.builder().id(expand24("7")).url("url7").userId("4").jsonResult(Map.of("age", 70.0)).createdAt(Instant.parse("2026-01-07T00:00:00.000Z")).build(),
-                ExtractionResult.builder().id(expand24("8")).url("url8").userId("4").jsonResult(Map.of("age", 80.0)).createdAt(Instant.parse("2026-01-08T00:00:00.000Z")).build(),
-                ExtractionResult.builder().id(expand24("9")).url("url9").userId("4").jsonResult(Map.of("age", 90.0)).createdAt(Instant.parse("2026-01-09T00:00:00.000Z")).build(),
-                ExtractionResult.builder().id(expand24("10")).url("url10").userId("4").jsonResult(Map.of("age", 100.0)).createdAt(Instant.parse("2026-01-10T00:00:00.000Z")).build()
-        );
+        List<ExtractionResult> entities = listTestEntities();
 
         // Вставляем данные в базу данных
         rawDbInsert(entities);
@@ -678,6 +1496,105 @@ public class ExtractionResultGrpcToDb {
         }
     }
 
+    // Тестовый набор записей для тестов getList/streamList
+    List<ExtractionResult> listTestEntities() {
+        return List.of(
+                ExtractionResult.builder().id(expand24("1")).url("url1").userId("1").jsonResult(Map.of("age", 10.0)).createdAt(Instant.parse("2026-01-01T00:00:00.000Z")).build(),
+                ExtractionResult.builder().id(expand24("2")).url("url2").userId("2").jsonResult(Map.of("age", 20.0)).createdAt(Instant.parse("2026-01-02T00:00:00.000Z")).build(),
+                ExtractionResult.builder().id(expand24("3")).url("url3").userId("2").jsonResult(Map.of("age", 30.0)).createdAt(Instant.parse("2026-01-03T00:00:00.000Z")).build(),
+                ExtractionResult.builder().id(expand24("4")).url("url4").userId("3").jsonResult(Map.of("age", 40.0)).createdAt(Instant.parse("2026-01-04T00:00:00.000Z")).build(),
+                ExtractionResult.builder().id(expand24("5")).url("url5").userId("3").jsonResult(Map.of("age", 50.0)).createdAt(Instant.parse("2026-01-05T00:00:00.000Z")).build(),
+                ExtractionResult.builder().id(expand24("6")).url("url6").userId("3").jsonResult(Map.of("age", 60.0)).createdAt(Instant.parse("2026-01-06T00:00:00.000Z")).build(),
+                ExtractionResult.builder().id(expand24("7")).url("url7").userId("4").jsonResult(Map.of("age", 70.0)).createdAt(Instant.parse("2026-01-07T00:00:00.000Z")).build(),
+                ExtractionResult.builder().id(expand24("8")).url("url8").userId("4").jsonResult(Map.of("age", 80.0)).createdAt(Instant.parse("2026-01-08T00:00:00.000Z")).build(),
+                ExtractionResult.builder().id(expand24("9")).url("url9").userId("4").jsonResult(Map.of("age", 90.0)).createdAt(Instant.parse("2026-01-09T00:00:00.000Z")).build(),
+                ExtractionResult.builder().id(expand24("10")).url("url10").userId("4").jsonResult(Map.of("age", 100.0)).createdAt(Instant.parse("2026-01-10T00:00:00.000Z")).build()
+        );
+    }
+
+    // Схема результата для тестов схем и экспорта: title (обязательное), offer.price (обязательное), inStock
+    ResultSchemaProto productSchema(String name) {
+        return ResultSchemaProto.newBuilder()
+                .setName(name)
+                .addFields(ResultSchemaFieldProto.newBuilder().setPath("title").setType(ResultFieldType.RESULT_FIELD_TYPE_STRING).setRequired(true))
+                .addFields(ResultSchemaFieldProto.newBuilder().setPath("offer.price").setType(ResultFieldType.RESULT_FIELD_TYPE_NUMBER).setRequired(true))
+                .addFields(ResultSchemaFieldProto.newBuilder().setPath("inStock").setType(ResultFieldType.RESULT_FIELD_TYPE_BOOL))
+                .build();
+    }
+
+    // Тестовый набор записей для тестов stats (разные пользователи, дни и хосты url)
+    List<ExtractionResult> statsTestEntities() {
+        return List.of(
+                ExtractionResult.builder().id(expand24("1")).url("https://shop.example.com/catalog?page=1").userId("1").jsonResult(Map.of()).createdAt(Instant.parse("2026-01-01T10:00:00.000Z")).build(),
+                ExtractionResult.builder().id(expand24("2")).url("http://shop.example.com:8080/item/2").userId("1").jsonResult(Map.of()).createdAt(Instant.parse("2026-01-02T10:00:00.000Z")).build(),
+                ExtractionResult.builder().id(expand24("3")).url("news.example.com/today").userId("1").jsonResult(Map.of()).createdAt(Instant.parse("2026-01-02T23:59:59.000Z")).build(),
+                ExtractionResult.builder().id(expand24("4")).url("https://shop.example.com").userId("2").jsonResult(Map.of()).createdAt(Instant.parse("2026-01-01T00:00:00.000Z")).build(),
+                ExtractionResult.builder().id(expand24("5")).url("https://example.org/a#b").userId("2").jsonResult(Map.of()).createdAt(Instant.parse("2026-01-02T12:00:00.000Z")).build(),
+                ExtractionResult.builder().id(expand24("6")).url("/relative/path").userId("3").jsonResult(Map.of()).createdAt(Instant.parse("2026-01-03T00:00:00.000Z")).build()
+        );
+    }
+
+    // Складывает события потока в очередь (ошибки и завершение потока тесту не нужны)
+    <T> StreamObserver<T> collectingObserver(BlockingQueue<T> received) {
+        return new StreamObserver<>() {
+            @Override
+            public void onNext(T value) {
+                received.add(value);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        };
+    }
+
+    CreateExtractionResultRequest createRequest(String userId, Map<String, Object> jsonResult) {
+        return CreateExtractionResultRequest.newBuilder()
+                .setUrl("url").setUserId(userId).setJsonResult(ProtoJsonMapper.mapToStruct(jsonResult)).build();
+    }
+
+    List<ExtractionResult> latestTestEntities() {
+        return List.of(
+                ExtractionResult.builder().id(expand24("1")).url("https://a.example.com").userId("1").jsonResult(Map.of("version", 1.0)).createdAt(Instant.parse("2026-01-01T10:00:00.000Z")).build(),
+                ExtractionResult.builder().id(expand24("2")).url("https://a.example.com").userId("1").jsonResult(Map.of("version", 2.0)).createdAt(Instant.parse("2026-01-03T10:00:00.000Z")).build(),
+                ExtractionResult.builder().id(expand24("3")).url("https://a.example.com").userId("1").jsonResult(Map.of("version", 3.0)).createdAt(Instant.parse("2026-01-05T10:00:00.000Z")).build(),
+                ExtractionResult.builder().id(expand24("4")).url("https://a.example.com").userId("2").jsonResult(Map.of("version", 4.0)).createdAt(Instant.parse("2026-01-07T10:00:00.000Z")).build(),
+                ExtractionResult.builder().id(expand24("5")).url("https://b.example.com").userId("1").jsonResult(Map.of("version", 1.0)).createdAt(Instant.parse("2026-01-02T10:00:00.000Z")).build()
+        );
+    }
+
+    StatsCount statsCount(String key, long count) {
+        return StatsCount.newBuilder().setKey(key).setCount(count).build();
+    }
+
+    // Отправляет поток запросов createBatch через асинхронный stub и дожидается ответа сервера
+    CreateBatchExtractionResultResponse createBatch(List<CreateExtractionResultRequest> requests) throws Exception {
+        CompletableFuture<CreateBatchExtractionResultResponse> responseFuture = new CompletableFuture<>();
+        StreamObserver<CreateExtractionResultRequest> requestObserver = asyncStub.createBatch(new StreamObserver<>() {
+            @Override
+            public void onNext(CreateBatchExtractionResultResponse response) {
+                responseFuture.complete(response);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                responseFuture.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        });
+
+        requests.forEach(requestObserver::onNext);
+        requestObserver.onCompleted();
+        return responseFuture.get(30, TimeUnit.SECONDS);
+    }
+
     // Расширить переданный id нулями до 24 символов "8" -> "000000000000000000000008"
     String expand24(String id) {
         return "0".repeat(24 - id.length()) + id;
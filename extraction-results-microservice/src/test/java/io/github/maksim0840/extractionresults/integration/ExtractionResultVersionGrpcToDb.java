@@ -0,0 +1,270 @@
+package io.github.maksim0840.extractionresults.integration;
+
+import io.github.maksim0840.extraction_result.v1.*;
+import io.github.maksim0840.extractionresults.domain.ExtractionResult;
+import io.github.maksim0840.extractionresults.repository.ExtractionResultRepository;
+import io.github.maksim0840.internalapi.extraction_result.v1.mapper.ProtoJsonMapper;
+import io.grpc.stub.StreamObserver;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты режима версий (extraction-results.versioning.enabled): повторные результаты url хранятся как JSON Patch.
+ * Вынесены в отдельный класс, т.к. режим меняет способ хранения повторных записей, которые проверяют остальные тесты.
+ */
+@Testcontainers
+@SpringBootTest(properties = {
+        "grpc.server.inProcessName=versions",
+        "grpc.server.port=-1",
+        "extraction-results.metrics.port=-1",
+        "grpc.client.inProcess.address=in-process:versions",
+        "extraction-results.versioning.enabled=true",
+        "extraction-results.versioning.snapshot-interval=3"   // полная версия - каждая третья
+})
+public class ExtractionResultVersionGrpcToDb {
+    private static final String URL = "https://shop.example/phone";
+    private static final String DESCRIPTION = "Long product description. ".repeat(12);
+
+    @Container
+    static MongoDBContainer mongoDBContainer = new MongoDBContainer(DockerImageName.parse("mongo:7.0"));
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", mongoDBContainer::getReplicaSetUrl);
+    }
+
+    @GrpcClient("inProcess")
+    private ExtractionResultServiceGrpc.ExtractionResultServiceBlockingStub blockingStub;
+
+    @GrpcClient("inProcess")
+    private ExtractionResultServiceGrpc.ExtractionResultServiceStub asyncStub;
+
+    @Autowired
+    ExtractionResultRepository repository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void cleanDb() {
+        repository.deleteAll();
+    }
+
+
+    /*
+    Проверяет хранение версий одного url:
+    - первая версия хранится целиком, следующие - только jsonPatch к ней (без jsonResult в документе)
+    - каждая третья версия (snapshot-interval) снова хранится целиком
+    - версия, patch которой не меньше половины jsonResult, хранится целиком
+    - другой url или другой пользователь начинают свою историю с версии 1
+    - get, getList и getLatestByUrl возвращают jsonResult каждой версии целиком
+    */
+    @Test
+    void createStoresPatchVersionsWithPeriodicSnapshots() {
+        List<String> ids = new ArrayList<>();
+        for (double price = 100; price < 104; price++) {
+            ids.add(create("1", URL, product(price)).getId());
+        }
+        String replacedId = create("1", URL, Map.of("other", DESCRIPTION)).getId();
+        String otherUrlId = create("1", URL + "?page=2", product(100)).getId();
+        String otherUserId = create("2", URL, product(100)).getId();
+
+        assertStoredInFull(ids.get(0), 1);
+        assertStoredAsPatch(ids.get(1), 2, ids.get(0));
+        assertStoredAsPatch(ids.get(2), 3, ids.get(0));
+        assertStoredInFull(ids.get(3), 4);
+        assertStoredInFull(replacedId, 5);
+        assertStoredInFull(otherUrlId, 1);
+        assertStoredInFull(otherUserId, 1);
+
+        for (int i = 0; i < ids.size(); i++) {
+            assertThat(jsonResult(get(ids.get(i)))).isEqualTo(product(100 + i));
+        }
+        List<ExtractionResultProto> list = blockingStub.getList(GetListExtractionResultRequest.newBuilder()
+                .setUserId("1").setPageNum(0).setPageSize(10).build()).getExtractionResultsList();
+        assertThat(list).hasSize(6);
+        assertThat(list).filteredOn(proto -> proto.getId().equals(ids.get(2)))
+                .singleElement().satisfies(proto -> assertThat(jsonResult(proto)).isEqualTo(product(102)));
+
+        ExtractionResultProto latest = blockingStub.getLatestByUrl(GetLatestByUrlExtractionResultRequest.newBuilder()
+                .setUserId("1").setUrl(URL).build()).getExtractionResult();
+        assertThat(latest.getId()).isEqualTo(replacedId);
+        assertThat(jsonResult(latest)).isEqualTo(Map.of("other", DESCRIPTION));
+    }
+
+    /*
+    Проверяет createBatch в режиме версий:
+    - элементы одного url получают версии в порядке потока и хранятся как patch, как при create
+    - нумерация продолжает версии, записанные до потока
+    */
+    @Test
+    void createBatchAssignsVersions() throws Exception {
+        String v1 = create("1", URL, product(100)).getId();
+
+        CreateBatchExtractionResultResponse response = createBatch(List.of(
+                createRequest("1", URL, product(101)),
+                createRequest("1", URL + "?page=2", product(1)),
+                createRequest("1", URL, product(102))));
+
+        assertThat(response.getItemsList()).hasSize(3)
+                .allMatch(item -> item.getResultCase() == CreateBatchExtractionResultItem.ResultCase.ID);
+        Map<Integer, String> ids = new HashMap<>();
+        response.getItemsList().forEach(item -> ids.put(item.getIndex(), item.getId()));
+        assertStoredAsPatch(ids.get(0), 2, v1);
+        assertStoredInFull(ids.get(1), 1);
+        assertStoredAsPatch(ids.get(2), 3, v1);
+        assertThat(jsonResult(get(ids.get(2)))).isEqualTo(product(102));
+    }
+
+    /*
+    Проверяет getHistory:
+    - версии приходят по возрастанию createdAt с номером версии и признаком полной версии
+    - changes - операции RFC 6902 относительно предыдущей версии (у первой пусто)
+    - summary_only возвращает только метаданные версий
+    */
+    @Test
+    void getHistoryStreamsVersionsWithChanges() {
+        create("1", URL, product(100));
+        create("1", URL, product(150));
+        create("1", URL, product(150));
+        create("1", URL + "?page=2", product(1));
+
+        List<GetHistoryExtractionResultResponse> history = new ArrayList<>();
+        blockingStub.getHistory(GetHistoryExtractionResultRequest.newBuilder()
+                .setUserId("1").setUrl(URL).setBatchSize(2).build()).forEachRemaining(history::add);
+
+        assertThat(history).extracting(GetHistoryExtractionResultResponse::getVersion).containsExactly(1, 2, 3);
+        assertThat(history).extracting(GetHistoryExtractionResultResponse::getSnapshot).containsExactly(true, false, false);
+        assertThat(jsonResult(history.get(1).getExtractionResult())).isEqualTo(product(150));
+        assertThat(history.get(0).getChangesList()).isEmpty();
+        assertThat(history.get(1).getChangesList()).singleElement().satisfies(change -> {
+            assertThat(change.getOp()).isEqualTo("replace");
+            assertThat(change.getPath()).isEqualTo("/price");
+            assertThat(change.getValue().getNumberValue()).isEqualTo(150.0);
+        });
+        assertThat(history.get(2).getChangesList()).isEmpty();
+
+        List<GetHistoryExtractionResultResponse> summary = new ArrayList<>();
+        blockingStub.getHistory(GetHistoryExtractionResultRequest.newBuilder()
+                .setUserId("1").setUrl(URL).setSummaryOnly(true).build()).forEachRemaining(summary::add);
+        assertThat(summary).hasSize(3);
+        assertThat(summary).allSatisfy(response -> {
+            assertThat(response.getExtractionResult().hasJsonResult()).isFalse();
+            assertThat(response.getChangesList()).isEmpty();
+        });
+    }
+
+    /*
+    Проверяет удаление полной версии, от которой хранятся patch-версии:
+    - delete: последняя patch-версия становится полной, остальные хранят patch от неё, jsonResult версий не меняется
+    - deleteByFilter по дате: patch-версии вне диапазона перестраиваются до удаления и остаются читаемыми
+    */
+    @Test
+    void deleteSnapshotRebasesVersions() throws Exception {
+        String v1 = create("1", URL, product(100)).getId();
+        String v2 = create("1", URL, product(101)).getId();
+        String v3 = create("1", URL, product(102)).getId();
+
+        blockingStub.delete(DeleteExtractionResultRequest.newBuilder().setId(v1).build());
+        assertStoredInFull(v3, 3);
+        assertStoredAsPatch(v2, 2, v3);
+        assertThat(jsonResult(get(v2))).isEqualTo(product(101));
+        assertThat(jsonResult(get(v3))).isEqualTo(product(102));
+
+        ExtractionResultProto first = create("2", URL, product(1));
+        Thread.sleep(5);  // следующие версии создаются строго позже created_to фильтра
+        String second = create("2", URL, product(2)).getId();
+        String third = create("2", URL, product(3)).getId();
+
+        long deleted = blockingStub.deleteByFilter(DeleteByFilterExtractionResultRequest.newBuilder()
+                .setUserId("2").setCreatedTo(first.getCreatedAt()).build()).getDeletedCount();
+        assertThat(deleted).isEqualTo(1);
+        assertStoredInFull(third, 3);
+        assertThat(jsonResult(get(second))).isEqualTo(product(2));
+        assertThat(jsonResult(get(third))).isEqualTo(product(3));
+    }
+
+
+    private static Map<String, Object> product(double price) {
+        return Map.of("title", "Phone", "description", DESCRIPTION, "price", price);
+    }
+
+    private ExtractionResultProto create(String userId, String url, Map<String, Object> jsonResult) {
+        return blockingStub.create(createRequest(userId, url, jsonResult)).getExtractionResult();
+    }
+
+    private static CreateExtractionResultRequest createRequest(String userId, String url, Map<String, Object> jsonResult) {
+        return CreateExtractionResultRequest.newBuilder()
+                .setUrl(url).setUserId(userId).setJsonResult(ProtoJsonMapper.mapToStruct(jsonResult)).build();
+    }
+
+    private CreateBatchExtractionResultResponse createBatch(List<CreateExtractionResultRequest> requests) throws Exception {
+        CompletableFuture<CreateBatchExtractionResultResponse> responseFuture = new CompletableFuture<>();
+        StreamObserver<CreateExtractionResultRequest> requestObserver = asyncStub.createBatch(new StreamObserver<>() {
+            @Override
+            public void onNext(CreateBatchExtractionResultResponse response) {
+                responseFuture.complete(response);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                responseFuture.completeExceptionally(t);
+            }
+
+            @Override
+            public void onCompleted() {
+            }
+        });
+
+        requests.forEach(requestObserver::onNext);
+        requestObserver.onCompleted();
+        return responseFuture.get(30, TimeUnit.SECONDS);
+    }
+
+    private ExtractionResultProto get(String id) {
+        return blockingStub.get(GetExtractionResultRequest.newBuilder().setId(id).build()).getExtractionResult();
+    }
+
+    private static Map<String, Object> jsonResult(ExtractionResultProto proto) {
+        return ProtoJsonMapper.structToMap(proto.getJsonResult());
+    }
+
+    private void assertStoredInFull(String id, int version) {
+        Document raw = rawRecord(id);
+        assertThat(raw.getInteger("version")).isEqualTo(version);
+        assertThat(raw).containsKey("jsonResult").doesNotContainKeys("snapshotId", "jsonPatch");
+    }
+
+    private void assertStoredAsPatch(String id, int version, String snapshotId) {
+        Document raw = rawRecord(id);
+        assertThat(raw.getInteger("version")).isEqualTo(version);
+        assertThat(raw.getString("snapshotId")).isEqualTo(snapshotId);
+        assertThat(raw).containsKey("jsonPatch").doesNotContainKey("jsonResult");
+    }
+
+    private Document rawRecord(String id) {
+        String collection = mongoTemplate.getCollectionName(ExtractionResult.class);
+        return mongoTemplate.getCollection(collection).find(new Document("_id", new ObjectId(id))).first();
+    }
+}
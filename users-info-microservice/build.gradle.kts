@@ -2,6 +2,7 @@ plugins {
     id("org.springframework.boot") version "3.4.2"
     id("io.spring.dependency-management") version "1.1.7"
     java
+    id("me.champeau.jmh") version "0.7.3" // JMH бенчмарки (src/jmh)
 }
 
 group = "io.github.maksim0840"
@@ -35,6 +36,12 @@ dependencies {
 
     // Хэширование
     implementation("org.springframework.security:spring-security-crypto")
+    implementation("org.bouncycastle:bcprov-jdk18on:1.78.1") // Argon2 для Argon2PasswordEncoder
+
+    // Кэш проверенных паролей + метрики (hit/miss/eviction); /actuator/prometheus отдаёт PrometheusScrapeServer без starter-web
+    implementation("com.github.ben-manes.caffeine:caffeine")
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
+    implementation("io.micrometer:micrometer-registry-prometheus")
 
     // Tests
     testImplementation("org.springframework.boot:spring-boot-starter-test")
@@ -47,6 +54,16 @@ dependencies {
     testImplementation("net.devh:grpc-client-spring-boot-starter:3.1.0.RELEASE")
 }
 
+// Запуск: ./gradlew :users-info-microservice:jmh
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(2)
+    iterations.set(5)
+}
+
 tasks.test {
     useJUnitPlatform()
+    // бенчмарки из src/test/.../benchmark запускаются только явно: ./gradlew test -Pbenchmark
+    systemProperty("benchmark", project.hasProperty("benchmark"))
 }
@@ -0,0 +1,59 @@
+package io.github.maksim0840.usersinfo.utils;
+
+import io.github.maksim0840.usersinfo.config.PasswordHashConfiguration;
+import io.github.maksim0840.usersinfo.config.PasswordHashProperties;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость хэширования и проверки пароля для каждого алгоритма и набора параметров users-info.password-hash.
+ * Запускается на целевом железе: время одной проверки - задержка входа и загрузка ядра пула passwordCryptoExecutor,
+ * по нему выбирается стоимость (обычно самая дорогая, укладывающаяся в ~250 мс).
+ * Формат параметра: bcrypt:strength, argon2id:memoryKib:iterations:parallelism, pbkdf2:iterations.
+ * Свои варианты - через jar задачи jmhJar: java -jar build/libs/users-info-microservice-1.0.0-jmh.jar PasswordHashBenchmark -p spec=bcrypt:13
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PasswordHashBenchmark {
+
+    @Param({"bcrypt:10", "bcrypt:12", "bcrypt:14",
+            "argon2id:19456:2:1", "argon2id:65536:3:1",
+            "pbkdf2:310000", "pbkdf2:600000"})
+    private String spec;
+
+    private static final String PASSWORD = "Bench-Pass_2026!";
+
+    private PasswordEncoder encoder;
+    private String passwordHash;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] parts = spec.split(":");
+        PasswordHashProperties properties = switch (parts[0]) {
+            case "bcrypt" -> new PasswordHashProperties("bcrypt",
+                    new PasswordHashProperties.Bcrypt(Integer.parseInt(parts[1])), null, null);
+            case "argon2id" -> new PasswordHashProperties("argon2id", null,
+                    new PasswordHashProperties.Argon2id(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), Integer.parseInt(parts[3])), null);
+            case "pbkdf2" -> new PasswordHashProperties("pbkdf2", null, null,
+                    new PasswordHashProperties.Pbkdf2(Integer.parseInt(parts[1]), null));
+            default -> throw new IllegalArgumentException("Unknown password hash spec: " + spec);
+        };
+        encoder = PasswordHashConfiguration.encoders(properties).get(PasswordHashConfiguration.encodeId(properties));
+        passwordHash = encoder.encode(PASSWORD);
+    }
+
+    // Хэширование (create и пересчёт хэша при входе)
+    @Benchmark
+    public String hash() {
+        return encoder.encode(PASSWORD);
+    }
+
+    // Проверка пароля (checkPassword)
+    @Benchmark
+    public boolean matches() {
+        return encoder.matches(PASSWORD, passwordHash);
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.maksim0840.usersinfo.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.HexFormat;
+
+/**
+ * Кэш недавно успешно проверенных паролей (checkPassword) на короткое время ttl: повторная проверка того же пароля
+ * не повторяет BCrypt/Argon2. Выключен по умолчанию (users-info.credential-cache.enabled).
+ * - ключ - (userId, HMAC-SHA256(пароль)); сам пароль не хранится, а ключ HMAC случаен и живёт только в памяти процесса,
+ *   поэтому содержимое кэша (например, в дампе памяти) не позволяет перебирать пароли быстрее, чем по хэшу в базе
+ * - значение - хэш пароля, с которым пароль был проверен; при попадании он сравнивается с текущим хэшем пользователя
+ *   из базы, поэтому смена пароля (в т.ч. на другом экземпляре сервиса) действует сразу
+ * - кэшируются только совпадения: неверный пароль проверяется полностью каждый раз
+ * - записи пользователя удаляются при его удалении и смене роли
+ * Метрики (hit/miss/eviction) публикуются в MeterRegistry под именем кэша users_info_verified_credentials.
+ */
+@Component
+public class VerifiedCredentialCache {
+    private static final String CACHE_NAME = "users_info_verified_credentials";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private record Key(Long userId, String passwordHmac) {
+    }
+
+    private final boolean enabled;
+    private final Cache<Key, String> cache;
+    private final Mac hmacPrototype;
+
+    public VerifiedCredentialCache(@Value("${users-info.credential-cache.enabled:false}") boolean enabled,
+                                   @Value("${users-info.credential-cache.ttl:60s}") Duration ttl,
+                                   @Value("${users-info.credential-cache.max-size:10000}") long maxSize,
+                                   MeterRegistry meterRegistry) throws GeneralSecurityException {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+
+        SecretKey hmacKey = KeyGenerator.getInstance(HMAC_ALGORITHM).generateKey();
+        this.hmacPrototype = Mac.getInstance(HMAC_ALGORITHM);
+        this.hmacPrototype.init(hmacKey);
+    }
+
+    // Пароль уже был успешно проверен с тем же хэшем (passwordHash - текущий хэш пользователя из базы)
+    public boolean isVerified(Long userId, String password, String passwordHash) {
+        if (!enabled) {
+            return false;
+        }
+        String verifiedHash = cache.getIfPresent(new Key(userId, hmac(password)));
+        return verifiedHash != null && verifiedHash.equals(passwordHash);
+    }
+
+    public void putVerified(Long userId, String password, String passwordHash) {
+        if (enabled) {
+            cache.put(new Key(userId, hmac(password)), passwordHash);
+        }
+    }
+
+    // Удаление всех записей пользователя (проход по кэшу, размер которого ограничен maxSize)
+    public void invalidateUser(Long userId) {
+        if (enabled) {
+            cache.asMap().keySet().removeIf(key -> key.userId().equals(userId));
+        }
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    // Mac не потокобезопасен: каждый вызов работает со своей копией уже инициализированного прототипа
+    private String hmac(String password) {
+        try {
+            Mac mac = (Mac) hmacPrototype.clone();
+            return HexFormat.of().formatHex(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("HMAC can't be cloned", e);
+        }
+    }
+}
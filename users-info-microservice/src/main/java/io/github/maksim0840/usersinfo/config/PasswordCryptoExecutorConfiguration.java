@@ -0,0 +1,29 @@
+package io.github.maksim0840.usersinfo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class PasswordCryptoExecutorConfiguration {
+
+    /**
+     * Отдельный пул для BCrypt (хэширование при create, проверка в checkPassword): ~250 мс CPU на операцию.
+     * Размер пула - по числу ядер за вычетом одного, чтобы поток входов не занимал весь CPU
+     * и остальные вызовы users-info (get, getList) выполнялись без задержки.
+     * Очередь ограничена: при заполнении задача отклоняется (RejectedExecutionException) и вызов сразу получает RESOURCE_EXHAUSTED.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor passwordCryptoExecutor(@Value("${users-info.crypto.pool-size:0}") int poolSize,
+                                                     @Value("${users-info.crypto.queue-capacity:64}") int queueCapacity) {
+        int threads = poolSize > 0 ? poolSize : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("password-crypto-", 0).daemon().factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
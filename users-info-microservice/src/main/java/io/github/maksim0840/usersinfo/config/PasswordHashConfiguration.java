@@ -0,0 +1,53 @@
+package io.github.maksim0840.usersinfo.config;
+
+import io.github.maksim0840.usersinfo.utils.PasswordEncryption;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+public class PasswordHashConfiguration {
+    // Число итераций хэшей с префиксом {pbkdf2} (без числа итераций в префиксе) - значение по умолчанию до его появления
+    static final int LEGACY_PBKDF2_ITERATIONS = 600_000;
+
+    // Настройка PasswordEncryption при старте: алгоритм новых хэшей и стоимость каждого алгоритма из users-info.password-hash
+    public PasswordHashConfiguration(PasswordHashProperties properties) {
+        PasswordEncryption.configure(encodeId(properties), encoders(properties));
+    }
+
+    /*
+    Префикс новых хэшей. Хэш PBKDF2 (в отличие от BCrypt и Argon2) не хранит число итераций,
+    поэтому оно входит в префикс: {pbkdf2-600000}. После смены iterations старые хэши проверяются
+    по своему префиксу и пересчитываются при входе (префикс отличается от текущего).
+    */
+    public static String encodeId(PasswordHashProperties properties) {
+        return properties.algorithm().equals("pbkdf2") ? pbkdf2Id(properties.pbkdf2().iterations()) : properties.algorithm();
+    }
+
+    public static Map<String, PasswordEncoder> encoders(PasswordHashProperties properties) {
+        PasswordHashProperties.Argon2id argon2id = properties.argon2id();
+        PasswordHashProperties.Pbkdf2 pbkdf2 = properties.pbkdf2();
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", new BCryptPasswordEncoder(properties.bcrypt().strength()));
+        encoders.put("argon2id", new Argon2PasswordEncoder(16, 32, argon2id.parallelism(), argon2id.memoryKib(), argon2id.iterations()));
+        encoders.put("pbkdf2", pbkdf2Encoder(LEGACY_PBKDF2_ITERATIONS));
+        encoders.put(pbkdf2Id(pbkdf2.iterations()), pbkdf2Encoder(pbkdf2.iterations()));
+        for (int iterations : pbkdf2.previousIterations()) {
+            encoders.put(pbkdf2Id(iterations), pbkdf2Encoder(iterations));
+        }
+        return encoders;
+    }
+
+    private static String pbkdf2Id(int iterations) {
+        return "pbkdf2-" + iterations;
+    }
+
+    private static PasswordEncoder pbkdf2Encoder(int iterations) {
+        return new Pbkdf2PasswordEncoder("", 16, iterations, Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256);
+    }
+}
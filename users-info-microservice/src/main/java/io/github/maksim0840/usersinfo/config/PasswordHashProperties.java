@@ -0,0 +1,53 @@
+package io.github.maksim0840.usersinfo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Алгоритм и стоимость хэширования новых паролей (применяются в PasswordHashConfiguration).
+ * Хэши всех алгоритмов проверяются независимо от настройки, при успешной проверке хэш,
+ * вычисленный другим алгоритмом или с меньшей стоимостью, пересчитывается (UserService.checkUserPassword).
+ * Стоимость под конкретное железо подбирается бенчмарком PasswordHashBenchmark.
+ * @param algorithm алгоритм новых хэшей: bcrypt, argon2id или pbkdf2
+ */
+@ConfigurationProperties("users-info.password-hash")
+public record PasswordHashProperties(String algorithm, Bcrypt bcrypt, Argon2id argon2id, Pbkdf2 pbkdf2) {
+    public static final Set<String> ALGORITHMS = Set.of("bcrypt", "argon2id", "pbkdf2");
+
+    public PasswordHashProperties {
+        algorithm = algorithm == null ? "bcrypt" : algorithm;
+        bcrypt = bcrypt == null ? new Bcrypt(12) : bcrypt;
+        argon2id = argon2id == null ? new Argon2id(19_456, 2, 1) : argon2id;
+        pbkdf2 = pbkdf2 == null ? new Pbkdf2(600_000, null) : pbkdf2;
+        if (!ALGORITHMS.contains(algorithm)) {
+            throw new IllegalArgumentException("Unknown password hash algorithm: " + algorithm);
+        }
+    }
+
+    /**
+     * @param strength log2 числа раундов (4..31), +1 - вдвое дороже
+     */
+    public record Bcrypt(int strength) {
+    }
+
+    /**
+     * @param memoryKib память на один хэш в КиБ
+     * @param iterations число проходов по памяти
+     * @param parallelism число параллельных линий
+     */
+    public record Argon2id(int memoryKib, int iterations, int parallelism) {
+    }
+
+    /**
+     * Число итераций входит в префикс хэша ({pbkdf2-600000}): хэш PBKDF2 его не хранит.
+     * @param iterations число итераций PBKDF2-HMAC-SHA256 для новых хэшей
+     * @param previousIterations прежние значения iterations, хэши с которыми ещё хранятся (проверяются и пересчитываются при входе)
+     */
+    public record Pbkdf2(int iterations, List<Integer> previousIterations) {
+        public Pbkdf2 {
+            previousIterations = previousIterations == null ? List.of() : List.copyOf(previousIterations);
+        }
+    }
+}
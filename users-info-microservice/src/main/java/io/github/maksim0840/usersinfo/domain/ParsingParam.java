@@ -31,13 +31,15 @@ public class ParsingParam {
     @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)      // пользователь не загружается вместе с параметрами (нужен только user_id)
     @JoinColumn(name = "user_id")
     @OnDelete(action = OnDeleteAction.CASCADE)
     private User user;
 
     private String name;
     private String description;
+    @Column(name = "result_schema")
+    private String resultSchema;            // имя схемы результата в extraction-results (null - результаты без схемы)
     @CreatedDate                            // автозаполнение даты при сохранении
     @Column(name = "created_at")            // названия колонок с составными именами лучше указать явно
     private Instant createdAt;
@@ -57,4 +59,13 @@ public class ParsingParam {
         this.description = description;
         this.createdAt = createdAt;
     }
+
+    public ParsingParam(Long id, User user, String name, String description, String resultSchema, Instant createdAt) {
+        this.id = id;
+        this.user = user;
+        this.name = name;
+        this.description = description;
+        this.resultSchema = resultSchema;
+        this.createdAt = createdAt;
+    }
 }
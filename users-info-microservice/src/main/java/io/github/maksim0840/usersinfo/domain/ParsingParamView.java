@@ -0,0 +1,10 @@
+package io.github.maksim0840.usersinfo.domain;
+
+import java.time.Instant;
+
+/**
+ * Проекция ParsingParam для списков (GetList, StreamList): userId читается колонкой user_id,
+ * без загрузки пользователя (ни отдельными select-ами на каждую запись, ни join-ом всей строки users).
+ */
+public record ParsingParamView(Long id, Long userId, String name, String description, String resultSchema, Instant createdAt) {
+}
@@ -0,0 +1,73 @@
+package io.github.maksim0840.usersinfo.grpc;
+
+import io.grpc.Context;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+
+import java.time.Duration;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Отправка сообщений серверного потока, который читает курсор JDBC (StreamList).
+ * Курсор читается в отдельном виртуальном потоке (start), а метод endpoint-а сразу возвращается,
+ * поэтому поток grpc-исполнителя не занят всё время вызова и может доставлять onReady.
+ * Перед каждым сообщением write ждёт готовности клиента принимать (backpressure) - сигнала из onReadyHandler,
+ * так что медленный клиент приостанавливает чтение курсора, а не накапливает сообщения в памяти сервера.
+ * Ожидание ограничено idleTimeout: курсор держит транзакцию и соединение пула, и клиент, переставший читать поток
+ * (без deadline), иначе занимал бы соединение бессрочно.
+ */
+class BlockingStreamWriter<T> {
+    private final ServerCallStreamObserver<T> observer;
+    private final long idleTimeoutNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition readyOrCancelled = lock.newCondition();
+
+    // Регистрирует обработчики; вызывается внутри метода endpoint-а до его возврата
+    BlockingStreamWriter(StreamObserver<T> observer, Duration idleTimeout) {
+        this.observer = (ServerCallStreamObserver<T>) observer;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.observer.setOnReadyHandler(this::signal);
+        this.observer.setOnCancelHandler(this::signal);
+    }
+
+    // Запуск чтения в виртуальном потоке с контекстом grpc вызова (deadline, отмена)
+    void start(Runnable producer) {
+        Thread.ofVirtual().name("stream-list").start(Context.current().wrap(producer));
+    }
+
+    // При отмене вызова клиентом (или истечении deadline) - StatusRuntimeException CANCELLED, чтение прекращается;
+    // если клиент не готов принимать дольше idleTimeout - DEADLINE_EXCEEDED
+    void write(T message) {
+        lock.lock();
+        try {
+            long remainingNanos = idleTimeoutNanos;
+            while (!observer.isCancelled() && !observer.isReady()) {
+                if (remainingNanos <= 0) {
+                    throw Status.DEADLINE_EXCEEDED.withDescription("Client did not read the stream for "
+                            + Duration.ofNanos(idleTimeoutNanos)).asRuntimeException();
+                }
+                remainingNanos = readyOrCancelled.awaitNanos(remainingNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Status.CANCELLED.withDescription("Stream interrupted").withCause(e).asRuntimeException();
+        } finally {
+            lock.unlock();
+        }
+        if (observer.isCancelled()) {
+            throw Status.CANCELLED.withDescription("Stream cancelled by client").asRuntimeException();
+        }
+        observer.onNext(message);
+    }
+
+    private void signal() {
+        lock.lock();
+        try {
+            readyOrCancelled.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -4,24 +4,31 @@ import io.github.maksim0840.internalapi.common.v1.mapper.ProtoTimeMapper;
 import io.github.maksim0840.parsing_param.v1.*;
 import io.github.maksim0840.user.v1.DeleteUserResponse;
 import io.github.maksim0840.usersinfo.domain.ParsingParam;
+import io.github.maksim0840.usersinfo.domain.ParsingParamView;
 import io.github.maksim0840.usersinfo.exception.NotFoundException;
 import io.github.maksim0840.usersinfo.mapper.ProtoDomainParsingParamMapper;
+import io.github.maksim0840.usersinfo.repository.KeysetCursor;
 import io.github.maksim0840.usersinfo.service.ParsingParamService;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
 import io.grpc.stub.StreamObserver;
 import net.devh.boot.grpc.server.service.GrpcService;
+import org.springframework.data.domain.Slice;
 
 import java.time.Instant;
 import java.util.List;
 
 @GrpcService
 public class ParsingParamGrpcEndpoint extends ParsingParamServiceGrpc.ParsingParamServiceImplBase {
+    private static final int DEFAULT_STREAM_FETCH_SIZE = 500;
+    private static final int MAX_STREAM_FETCH_SIZE = 5000;
 
     private final ParsingParamService parsingParamService;
+    private final StreamListLimiter streamListLimiter;
 
-    public ParsingParamGrpcEndpoint(ParsingParamService parsingParamService) {
+    public ParsingParamGrpcEndpoint(ParsingParamService parsingParamService, StreamListLimiter streamListLimiter) {
         this.parsingParamService = parsingParamService;
+        this.streamListLimiter = streamListLimiter;
     }
 
     @Override
@@ -29,9 +36,10 @@ public class ParsingParamGrpcEndpoint extends ParsingParamServiceGrpc.ParsingPar
         Long userId = request.getUserId();
         String name = request.getName();
         String description = request.getDescription();
+        String resultSchema = request.hasResultSchema() ? request.getResultSchema() : null;
 
         try {
-            ParsingParam parsingParam = parsingParamService.createParsingParam(userId, name, description);
+            ParsingParam parsingParam = parsingParamService.createParsingParam(userId, name, description, resultSchema);
             ParsingParamProto parsingParamProto = ProtoDomainParsingParamMapper.domainToProto(parsingParam);
             CreateParsingParamResponse response = CreateParsingParamResponse.newBuilder()
                     .setParsingParam(parsingParamProto).build();
@@ -72,21 +80,76 @@ public class ParsingParamGrpcEndpoint extends ParsingParamServiceGrpc.ParsingPar
         int pageNum = request.getPageNum();
         int pageSize = request.getPageSize();
         Boolean isSortDesc = request.hasSortCreatedDesc() ? request.getSortCreatedDesc() : null;
+        KeysetCursor after;
+        try {
+            after = request.hasContinuationToken() ? KeysetCursor.decode(request.getContinuationToken()) : null;
+        } catch (IllegalArgumentException e) {
+            observerResponse.onError(error(Status.INVALID_ARGUMENT, e.getMessage()));
+            return;
+        }
 
         try {
-            List<ParsingParam> parsingParams = parsingParamService.getListParsingParamByPageWithFiltering(userId, createdFrom, createdTo, pageNum, pageSize, isSortDesc);
+            Slice<ParsingParamView> parsingParams = after == null
+                    ? parsingParamService.getListParsingParamByPageWithFiltering(userId, createdFrom, createdTo, pageNum, pageSize, isSortDesc)
+                    : parsingParamService.getListParsingParamAfterCursorWithFiltering(userId, createdFrom, createdTo, after, pageSize, isSortDesc);
             List<ParsingParamProto> parsingParamsProto = parsingParams.stream()
-                            .map(ProtoDomainParsingParamMapper::domainToProto).toList();
-            GetListParsingParamResponse response = GetListParsingParamResponse.newBuilder()
-                    .addAllParsingParams(parsingParamsProto).build();
-
-            observerResponse.onNext(response);
+                            .map(ProtoDomainParsingParamMapper::viewToProto).toList();
+            GetListParsingParamResponse.Builder responseBuilder = GetListParsingParamResponse.newBuilder()
+                    .addAllParsingParams(parsingParamsProto)
+                    .setHasNext(parsingParams.hasNext());
+            if (parsingParams.hasNext()) {
+                ParsingParamView last = parsingParams.getContent().get(parsingParams.getNumberOfElements() - 1);
+                responseBuilder.setNextContinuationToken(new KeysetCursor(last.createdAt(), last.id()).encode());
+            }
+
+            observerResponse.onNext(responseBuilder.build());
             observerResponse.onCompleted();
         } catch (RuntimeException e) {
             observerResponse.onError(error(Status.UNAVAILABLE, e.getMessage()));
         }
     }
 
+    @Override
+    public void streamList(StreamListParsingParamRequest request, StreamObserver<StreamListParsingParamResponse> observerResponse) {
+        Long userId = request.hasUserId() ? request.getUserId() : null;
+        Instant createdFrom = request.hasCreatedFrom() ? ProtoTimeMapper.timestampToInstant(request.getCreatedFrom()) : null;
+        Instant createdTo = request.hasCreatedTo() ? ProtoTimeMapper.timestampToInstant(request.getCreatedTo()) : null;
+        Boolean isSortDesc = request.hasSortCreatedDesc() ? request.getSortCreatedDesc() : null;
+        int fetchSize = request.getFetchSize() > 0 ? Math.min(request.getFetchSize(), MAX_STREAM_FETCH_SIZE) : DEFAULT_STREAM_FETCH_SIZE;
+        KeysetCursor after;
+        try {
+            after = request.hasContinuationToken() ? KeysetCursor.decode(request.getContinuationToken()) : null;
+        } catch (IllegalArgumentException e) {
+            observerResponse.onError(error(Status.INVALID_ARGUMENT, e.getMessage()));
+            return;
+        }
+
+        if (!streamListLimiter.tryAcquire()) {
+            observerResponse.onError(error(Status.RESOURCE_EXHAUSTED, "Too many concurrent StreamList calls, retry later"));
+            return;
+        }
+        BlockingStreamWriter<StreamListParsingParamResponse> writer = new BlockingStreamWriter<>(observerResponse, streamListLimiter.idleTimeout());
+        writer.start(() -> {
+            try {
+                parsingParamService.streamParsingParamWithFiltering(userId, createdFrom, createdTo, after, isSortDesc, fetchSize, parsingParam ->
+                        writer.write(StreamListParsingParamResponse.newBuilder()
+                                .setParsingParam(ProtoDomainParsingParamMapper.viewToProto(parsingParam))
+                                .setContinuationToken(new KeysetCursor(parsingParam.createdAt(), parsingParam.id()).encode())
+                                .build()));
+                observerResponse.onCompleted();
+            } catch (StatusRuntimeException e) {
+                // CANCELLED из writer.write: клиент отменил вызов (или истёк deadline), ответ уже не отправить
+                if (e.getStatus().getCode() != Status.Code.CANCELLED) {
+                    observerResponse.onError(e);
+                }
+            } catch (RuntimeException e) {
+                observerResponse.onError(error(Status.UNAVAILABLE, e.getMessage()));
+            } finally {
+                streamListLimiter.release();
+            }
+        });
+    }
+
     @Override
     public void delete(DeleteParsingParamRequest request, StreamObserver<DeleteParsingParamResponse> observerResponse) {
         Long id = request.getId();
@@ -0,0 +1,39 @@
+package io.github.maksim0840.usersinfo.grpc;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Общий для всех StreamList (пользователи, параметры парсинга) предел одновременных потоков.
+ * Каждый поток держит read-only транзакцию и соединение пула Hikari всё время передачи, поэтому без предела
+ * медленные клиенты StreamList занимали бы весь пул, и остальные вызовы ждали бы соединение.
+ * Сверх предела вызов сразу завершается RESOURCE_EXHAUSTED (без ожидания).
+ */
+@Component
+class StreamListLimiter {
+    private final Semaphore permits;
+    private final Duration idleTimeout;
+
+    StreamListLimiter(@Value("${users-info.stream-list.max-concurrent:4}") int maxConcurrent,
+                      @Value("${users-info.stream-list.idle-timeout:30s}") Duration idleTimeout) {
+        this.permits = new Semaphore(maxConcurrent);
+        this.idleTimeout = idleTimeout;
+    }
+
+    // false - предел достигнут; при true release() обязателен по завершении потока
+    boolean tryAcquire() {
+        return permits.tryAcquire();
+    }
+
+    void release() {
+        permits.release();
+    }
+
+    // Предел ожидания готовности клиента в BlockingStreamWriter.write
+    Duration idleTimeout() {
+        return idleTimeout;
+    }
+}
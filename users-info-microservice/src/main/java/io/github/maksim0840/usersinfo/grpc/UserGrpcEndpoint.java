@@ -9,22 +9,36 @@ import io.github.maksim0840.usersinfo.exception.EncryptionException;
 import io.github.maksim0840.usersinfo.exception.EncryptionIllegalArgumentException;
 import io.github.maksim0840.usersinfo.exception.NotFoundException;
 import io.github.maksim0840.usersinfo.mapper.ProtoDomainUserMapper;
+import io.github.maksim0840.usersinfo.repository.KeysetCursor;
 import io.github.maksim0840.usersinfo.service.UserService;
+import io.grpc.Context;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
 import io.grpc.stub.StreamObserver;
 import net.devh.boot.grpc.server.service.GrpcService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Slice;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 @GrpcService
 public class UserGrpcEndpoint extends UserServiceGrpc.UserServiceImplBase {
+    private static final int DEFAULT_STREAM_FETCH_SIZE = 500;
+    private static final int MAX_STREAM_FETCH_SIZE = 5000;
 
     private final UserService userService;
+    private final Executor passwordCryptoExecutor;
+    private final StreamListLimiter streamListLimiter;
 
-    public UserGrpcEndpoint(UserService userService) {
+    public UserGrpcEndpoint(UserService userService,
+                            @Qualifier("passwordCryptoExecutor") Executor passwordCryptoExecutor,
+                            StreamListLimiter streamListLimiter) {
         this.userService = userService;
+        this.passwordCryptoExecutor = passwordCryptoExecutor;
+        this.streamListLimiter = streamListLimiter;
     }
 
     @Override
@@ -39,21 +53,24 @@ public class UserGrpcEndpoint extends UserServiceGrpc.UserServiceImplBase {
             return;
         }
 
-        try {
-            User user = userService.createUser(name, password, role);
-            UserProto userProto = ProtoDomainUserMapper.domainToProto(user);
-            CreateUserResponse response = CreateUserResponse.newBuilder()
-                    .setUser(userProto).build();
+        // хэширование пароля (BCrypt) выполняется в passwordCryptoExecutor, ответ отправляется оттуда же
+        runPasswordCrypto(observerResponse, () -> {
+            try {
+                User user = userService.createUser(name, password, role);
+                UserProto userProto = ProtoDomainUserMapper.domainToProto(user);
+                CreateUserResponse response = CreateUserResponse.newBuilder()
+                        .setUser(userProto).build();
 
-            observerResponse.onNext(response);
-            observerResponse.onCompleted();
-        } catch (EncryptionIllegalArgumentException e) {
-            observerResponse.onError(error(Status.INVALID_ARGUMENT, e.getMessage()));
-        } catch (EncryptionException e) {
-            observerResponse.onError(error(Status.INTERNAL, e.getMessage()));
-        } catch (RuntimeException e) {
-            observerResponse.onError(error(Status.UNAVAILABLE, e.getMessage()));
-        }
+                observerResponse.onNext(response);
+                observerResponse.onCompleted();
+            } catch (EncryptionIllegalArgumentException e) {
+                observerResponse.onError(error(Status.INVALID_ARGUMENT, e.getMessage()));
+            } catch (EncryptionException e) {
+                observerResponse.onError(error(Status.INTERNAL, e.getMessage()));
+            } catch (RuntimeException e) {
+                observerResponse.onError(error(Status.UNAVAILABLE, e.getMessage()));
+            }
+        });
     }
 
     @Override
@@ -78,8 +95,10 @@ public class UserGrpcEndpoint extends UserServiceGrpc.UserServiceImplBase {
     @Override
     public void getList(GetListUserRequest request, StreamObserver<GetListUserResponse> observerResponse) {
         UserRole role;
+        KeysetCursor after;
         try {
             role = request.hasRole() ? ProtoUserRoleMapper.protoToDomain(request.getRole()) : null;
+            after = request.hasContinuationToken() ? KeysetCursor.decode(request.getContinuationToken()) : null;
         } catch (IllegalArgumentException e) {
             observerResponse.onError(error(Status.INVALID_ARGUMENT, e.getMessage()));
             return;
@@ -91,20 +110,69 @@ public class UserGrpcEndpoint extends UserServiceGrpc.UserServiceImplBase {
         Boolean isSortDesc = request.hasSortCreatedDesc() ? request.getSortCreatedDesc() : null;
 
         try {
-            List<User> users = userService.getListUserByPageWithFiltering(role, createdFrom, createdTo, pageNum, pageSize, isSortDesc);
+            Slice<User> users = after == null
+                    ? userService.getListUserByPageWithFiltering(role, createdFrom, createdTo, pageNum, pageSize, isSortDesc)
+                    : userService.getListUserAfterCursorWithFiltering(role, createdFrom, createdTo, after, pageSize, isSortDesc);
             List<UserProto> usersProto = users.stream()
                     .map(ProtoDomainUserMapper::domainToProto)
                     .toList();
-            GetListUserResponse response = GetListUserResponse.newBuilder()
-                    .addAllUsers(usersProto).build();
+            GetListUserResponse.Builder responseBuilder = GetListUserResponse.newBuilder()
+                    .addAllUsers(usersProto)
+                    .setHasNext(users.hasNext());
+            if (users.hasNext()) {
+                User last = users.getContent().get(users.getNumberOfElements() - 1);
+                responseBuilder.setNextContinuationToken(new KeysetCursor(last.getCreatedAt(), last.getId()).encode());
+            }
 
-            observerResponse.onNext(response);
+            observerResponse.onNext(responseBuilder.build());
             observerResponse.onCompleted();
         } catch (RuntimeException e) {
             observerResponse.onError(error(Status.UNAVAILABLE, e.getMessage()));
         }
     }
 
+    @Override
+    public void streamList(StreamListUserRequest request, StreamObserver<StreamListUserResponse> observerResponse) {
+        UserRole role;
+        KeysetCursor after;
+        try {
+            role = request.hasRole() ? ProtoUserRoleMapper.protoToDomain(request.getRole()) : null;
+            after = request.hasContinuationToken() ? KeysetCursor.decode(request.getContinuationToken()) : null;
+        } catch (IllegalArgumentException e) {
+            observerResponse.onError(error(Status.INVALID_ARGUMENT, e.getMessage()));
+            return;
+        }
+        Instant createdFrom = request.hasCreatedFrom() ? ProtoTimeMapper.timestampToInstant(request.getCreatedFrom()) : null;
+        Instant createdTo = request.hasCreatedTo() ? ProtoTimeMapper.timestampToInstant(request.getCreatedTo()) : null;
+        Boolean isSortDesc = request.hasSortCreatedDesc() ? request.getSortCreatedDesc() : null;
+        int fetchSize = request.getFetchSize() > 0 ? Math.min(request.getFetchSize(), MAX_STREAM_FETCH_SIZE) : DEFAULT_STREAM_FETCH_SIZE;
+
+        if (!streamListLimiter.tryAcquire()) {
+            observerResponse.onError(error(Status.RESOURCE_EXHAUSTED, "Too many concurrent StreamList calls, retry later"));
+            return;
+        }
+        BlockingStreamWriter<StreamListUserResponse> writer = new BlockingStreamWriter<>(observerResponse, streamListLimiter.idleTimeout());
+        writer.start(() -> {
+            try {
+                userService.streamUserWithFiltering(role, createdFrom, createdTo, after, isSortDesc, fetchSize, user ->
+                        writer.write(StreamListUserResponse.newBuilder()
+                                .setUser(ProtoDomainUserMapper.domainToProto(user))
+                                .setContinuationToken(new KeysetCursor(user.getCreatedAt(), user.getId()).encode())
+                                .build()));
+                observerResponse.onCompleted();
+            } catch (StatusRuntimeException e) {
+                // CANCELLED из writer.write: клиент отменил вызов (или истёк deadline), ответ уже не отправить
+                if (e.getStatus().getCode() != Status.Code.CANCELLED) {
+                    observerResponse.onError(e);
+                }
+            } catch (RuntimeException e) {
+                observerResponse.onError(error(Status.UNAVAILABLE, e.getMessage()));
+            } finally {
+                streamListLimiter.release();
+            }
+        });
+    }
+
     @Override
     public void delete(DeleteUserRequest request, StreamObserver<DeleteUserResponse> observerResponse) {
         Long id = request.getId();
@@ -153,21 +221,58 @@ public class UserGrpcEndpoint extends UserServiceGrpc.UserServiceImplBase {
         Long id = request.getId();
         String password = request.getPassword();
 
+        // чтение пользователя и проверка по кэшу проверенных паролей - в потоке grpc-сервера:
+        // в очередь passwordCryptoExecutor попадает только вызов, которому нужен BCrypt
+        User user;
         try {
-            boolean match = userService.checkUserPasswordById(id, password);
-            CheckUserPasswordResponse response = CheckUserPasswordResponse.newBuilder()
-                    .setMatch(match).build();
-
-            observerResponse.onNext(response);
-            observerResponse.onCompleted();
-        } catch (EncryptionIllegalArgumentException e) {
-            observerResponse.onError(error(Status.INVALID_ARGUMENT, e.getMessage()));
-        } catch (EncryptionException e) {
-            observerResponse.onError(error(Status.INTERNAL, e.getMessage()));
+            user = userService.getUserById(id);
+            if (userService.isPasswordVerified(user, password)) {
+                observerResponse.onNext(CheckUserPasswordResponse.newBuilder().setMatch(true).build());
+                observerResponse.onCompleted();
+                return;
+            }
         } catch (NotFoundException e) {
             observerResponse.onError(error(Status.NOT_FOUND, e.getMessage()));
+            return;
         } catch (RuntimeException e) {
             observerResponse.onError(error(Status.UNAVAILABLE, e.getMessage()));
+            return;
+        }
+
+        runPasswordCrypto(observerResponse, () -> {
+            try {
+                boolean match = userService.checkUserPassword(user, password);
+                CheckUserPasswordResponse response = CheckUserPasswordResponse.newBuilder()
+                        .setMatch(match).build();
+
+                observerResponse.onNext(response);
+                observerResponse.onCompleted();
+            } catch (EncryptionIllegalArgumentException e) {
+                observerResponse.onError(error(Status.INVALID_ARGUMENT, e.getMessage()));
+            } catch (EncryptionException e) {
+                observerResponse.onError(error(Status.INTERNAL, e.getMessage()));
+            } catch (RuntimeException e) {
+                observerResponse.onError(error(Status.UNAVAILABLE, e.getMessage()));
+            }
+        });
+    }
+
+    /*
+    Выполнение вызова с BCrypt в passwordCryptoExecutor: поток grpc-сервера освобождается сразу,
+    вызов завершается из пула. При заполненной очереди пула - сразу RESOURCE_EXHAUSTED.
+    Вызов, отменённый клиентом (или с истёкшим deadline) за время ожидания в очереди, не выполняется.
+    */
+    private void runPasswordCrypto(StreamObserver<?> observerResponse, Runnable call) {
+        try {
+            passwordCryptoExecutor.execute(Context.current().wrap(() -> {
+                if (Context.current().isCancelled()) {
+                    observerResponse.onError(error(Status.CANCELLED, "Call cancelled while waiting for password processing"));
+                    return;
+                }
+                call.run();
+            }));
+        } catch (RejectedExecutionException e) {
+            observerResponse.onError(error(Status.RESOURCE_EXHAUSTED, "users-info password processing is overloaded, retry later"));
         }
     }
 
@@ -3,17 +3,34 @@ package io.github.maksim0840.usersinfo.mapper;
 import io.github.maksim0840.internalapi.common.v1.mapper.ProtoTimeMapper;
 import io.github.maksim0840.parsing_param.v1.ParsingParamProto;
 import io.github.maksim0840.usersinfo.domain.ParsingParam;
+import io.github.maksim0840.usersinfo.domain.ParsingParamView;
 
 public class ProtoDomainParsingParamMapper {
 
     public static ParsingParamProto domainToProto(ParsingParam domain) {
-        return ParsingParamProto.newBuilder()
+        ParsingParamProto.Builder builder = ParsingParamProto.newBuilder()
                 .setId(domain.getId())
                 .setUserId(domain.getUser().getId())
                 .setName(domain.getName())
                 .setDescription(domain.getDescription())
-                .setCreatedAt(ProtoTimeMapper.instantToTimestamp(domain.getCreatedAt()))
-                .build();
+                .setCreatedAt(ProtoTimeMapper.instantToTimestamp(domain.getCreatedAt()));
+        if (domain.getResultSchema() != null) {
+            builder.setResultSchema(domain.getResultSchema());
+        }
+        return builder.build();
+    }
+
+    public static ParsingParamProto viewToProto(ParsingParamView view) {
+        ParsingParamProto.Builder builder = ParsingParamProto.newBuilder()
+                .setId(view.id())
+                .setUserId(view.userId())
+                .setName(view.name())
+                .setDescription(view.description())
+                .setCreatedAt(ProtoTimeMapper.instantToTimestamp(view.createdAt()));
+        if (view.resultSchema() != null) {
+            builder.setResultSchema(view.resultSchema());
+        }
+        return builder.build();
     }
 
 //    public static ParsingParam protoToDomain(ParsingParamProto proto) {
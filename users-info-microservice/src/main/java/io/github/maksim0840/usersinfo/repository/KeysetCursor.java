@@ -0,0 +1,64 @@
+package io.github.maksim0840.usersinfo.repository;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Позиция keyset-курсора по паре (createdAt, id) для списков users и parsing_params.
+ * Пара однозначно задаёт место записи в сортировке, поэтому следующая страница читается условием
+ * "строго после курсора" по индексу (role/user_id, created_at), без OFFSET по уже выданным строкам.
+ */
+public record KeysetCursor(Instant createdAt, Long id) {
+
+    private static final String SEPARATOR = "_";
+
+    // Сортировка списков: createdAt, при равенстве - id (порядок курсора однозначен)
+    public static Sort sort(Boolean isSortDesc) {
+        Sort.Direction sortDir = Sort.Direction.DESC;
+        if (isSortDesc != null) sortDir = isSortDesc ? Sort.Direction.DESC : Sort.Direction.ASC;
+        return Sort.by(sortDir, "createdAt", "id");
+    }
+
+    /**
+     * Условие "строго после курсора" в сортировке sort(isSortDesc).
+     * Записывается как createdAt <= c AND (createdAt < c OR id < i) (для убывания), а не как одно OR:
+     * так первое условие остаётся диапазоном по created_at для индекса.
+     */
+    public <T> Specification<T> after(Boolean isSortDesc) {
+        boolean desc = isSortDesc == null || isSortDesc;
+        return (root, criteriaQuery, criteriaBuilder) -> {
+            var createdAtPath = root.<Instant>get("createdAt");
+            var idPath = root.<Long>get("id");
+            return desc
+                    ? criteriaBuilder.and(
+                            criteriaBuilder.lessThanOrEqualTo(createdAtPath, createdAt),
+                            criteriaBuilder.or(criteriaBuilder.lessThan(createdAtPath, createdAt), criteriaBuilder.lessThan(idPath, id)))
+                    : criteriaBuilder.and(
+                            criteriaBuilder.greaterThanOrEqualTo(createdAtPath, createdAt),
+                            criteriaBuilder.or(criteriaBuilder.greaterThan(createdAtPath, createdAt), criteriaBuilder.greaterThan(idPath, id)));
+        };
+    }
+
+    // Токен для передачи клиенту: base64url("<epoch seconds>.<nanos>_<id>"), точность created_at сохраняется полностью
+    public String encode() {
+        String raw = createdAt.getEpochSecond() + "." + createdAt.getNano() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separatorIdx = raw.indexOf(SEPARATOR);
+            String[] createdAt = raw.substring(0, separatorIdx).split("\\.", 2);
+            Instant instant = Instant.ofEpochSecond(Long.parseLong(createdAt[0]), Long.parseLong(createdAt[1]));
+            Long id = Long.parseLong(raw.substring(separatorIdx + 1));
+            return new KeysetCursor(instant, id);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid continuation token: " + token, e);
+        }
+    }
+}
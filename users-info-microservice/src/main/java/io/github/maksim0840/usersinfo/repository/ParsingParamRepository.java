@@ -6,5 +6,6 @@ import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 
 public interface ParsingParamRepository extends
         JpaRepository<ParsingParam, Long>,
-        JpaSpecificationExecutor<ParsingParam> {
+        JpaSpecificationExecutor<ParsingParam>,
+        ParsingParamRepositoryCustom {
 }
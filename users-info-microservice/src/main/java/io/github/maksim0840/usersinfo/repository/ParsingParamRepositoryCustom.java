@@ -0,0 +1,18 @@
+package io.github.maksim0840.usersinfo.repository;
+
+import io.github.maksim0840.usersinfo.domain.ParsingParam;
+import io.github.maksim0840.usersinfo.domain.ParsingParamView;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.function.Consumer;
+
+// Списки читаются проекцией ParsingParamView (user_id - колонкой, без запросов к users)
+public interface ParsingParamRepositoryCustom {
+    Slice<ParsingParamView> findSlice(Specification<ParsingParam> spec, Pageable pageable);
+
+    // Вызывается внутри транзакции (курсор JDBC)
+    void streamAll(Specification<ParsingParam> spec, Sort sort, int fetchSize, Consumer<ParsingParamView> consumer);
+}
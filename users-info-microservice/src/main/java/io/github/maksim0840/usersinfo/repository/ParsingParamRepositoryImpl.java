@@ -0,0 +1,38 @@
+package io.github.maksim0840.usersinfo.repository;
+
+import io.github.maksim0840.usersinfo.domain.ParsingParam;
+import io.github.maksim0840.usersinfo.domain.ParsingParamView;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.function.Consumer;
+
+public class ParsingParamRepositoryImpl implements ParsingParamRepositoryCustom {
+
+    // user.id - внешний ключ user_id самой таблицы parsing_params: Hibernate читает его без join с users
+    private static final SpecificationQueries.Projection<ParsingParam, ParsingParamView> VIEW = (root, criteriaBuilder) ->
+            criteriaBuilder.construct(ParsingParamView.class,
+                    root.get("id"),
+                    root.get("user").get("id"),
+                    root.get("name"),
+                    root.get("description"),
+                    root.get("resultSchema"),
+                    root.get("createdAt"));
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Slice<ParsingParamView> findSlice(Specification<ParsingParam> spec, Pageable pageable) {
+        return SpecificationQueries.findSlice(entityManager, ParsingParam.class, ParsingParamView.class, VIEW, spec, pageable);
+    }
+
+    @Override
+    public void streamAll(Specification<ParsingParam> spec, Sort sort, int fetchSize, Consumer<ParsingParamView> consumer) {
+        SpecificationQueries.streamAll(entityManager, ParsingParam.class, ParsingParamView.class, VIEW, spec, sort, fetchSize, consumer);
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.maksim0840.usersinfo.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Запросы по Specification без подсчёта общего количества (findAll(spec, pageable) выполняет ещё и COUNT(*)).
+ * Общие для UserRepositoryImpl и ParsingParamRepositoryImpl.
+ * Кроме сущностей целиком можно читать проекцию (DTO) - только выбранные колонки, без загрузки связей.
+ */
+class SpecificationQueries {
+
+    // Выбираемое значение строки запроса: сама сущность (root) или проекция, например cb.construct(...)
+    @FunctionalInterface
+    interface Projection<T, R> {
+        Selection<R> select(Root<T> root, CriteriaBuilder criteriaBuilder);
+    }
+
+    static <T> Slice<T> findSlice(EntityManager entityManager, Class<T> type, Specification<T> spec, Pageable pageable) {
+        return findSlice(entityManager, type, type, (root, criteriaBuilder) -> root, spec, pageable);
+    }
+
+    // Страница pageable и признак следующей (читается на одну строку больше размера страницы)
+    static <T, R> Slice<R> findSlice(EntityManager entityManager, Class<T> type, Class<R> resultType, Projection<T, R> projection,
+                                     Specification<T> spec, Pageable pageable) {
+        List<R> rows = query(entityManager, type, resultType, projection, spec, pageable.getSort())
+                .setFirstResult(Math.toIntExact(pageable.getOffset()))
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+
+    static <T> void streamAll(EntityManager entityManager, Class<T> type, Specification<T> spec, Sort sort,
+                              int fetchSize, Consumer<T> consumer) {
+        streamAll(entityManager, type, type, (root, criteriaBuilder) -> root, spec, sort, fetchSize, consumer);
+    }
+
+    /**
+     * Построчное чтение через курсор JDBC: PostgreSQL отдаёт по fetchSize строк за обращение
+     * (только внутри транзакции - при autocommit драйвер читает весь результат сразу).
+     * Переданные consumer-у сущности отсоединяются от persistence context, чтобы он не рос с выгрузкой
+     * (проекции в persistence context не попадают).
+     */
+    static <T, R> void streamAll(EntityManager entityManager, Class<T> type, Class<R> resultType, Projection<T, R> projection,
+                                 Specification<T> spec, Sort sort, int fetchSize, Consumer<R> consumer) {
+        boolean managed = resultType.equals(type);
+        try (Stream<R> rows = query(entityManager, type, resultType, projection, spec, sort)
+                .setHint(AvailableHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(AvailableHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+            rows.forEach(row -> {
+                consumer.accept(row);
+                if (managed) {
+                    entityManager.detach(row);
+                }
+            });
+        }
+    }
+
+    private static <T, R> TypedQuery<R> query(EntityManager entityManager, Class<T> type, Class<R> resultType, Projection<T, R> projection,
+                                              Specification<T> spec, Sort sort) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<R> criteriaQuery = criteriaBuilder.createQuery(resultType);
+        Root<T> root = criteriaQuery.from(type);
+        criteriaQuery.select(projection.select(root, criteriaBuilder));
+        Predicate predicate = spec.toPredicate(root, criteriaQuery, criteriaBuilder);
+        if (predicate != null) {
+            criteriaQuery.where(predicate);
+        }
+        criteriaQuery.orderBy(QueryUtils.toOrders(sort, root, criteriaBuilder));
+        return entityManager.createQuery(criteriaQuery);
+    }
+}
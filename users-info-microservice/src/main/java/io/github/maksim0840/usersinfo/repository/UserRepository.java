@@ -3,8 +3,19 @@ package io.github.maksim0840.usersinfo.repository;
 import io.github.maksim0840.usersinfo.domain.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface UserRepository extends
         JpaRepository<User, Long>,
-        JpaSpecificationExecutor<User> {
+        JpaSpecificationExecutor<User>,
+        UserRepositoryCustom {
+
+    // Замена хэша пароля, только если он не изменился с момента чтения (возвращает число обновлённых строк)
+    @Modifying
+    @Transactional
+    @Query("update User u set u.passwordHash = :newHash where u.id = :id and u.passwordHash = :oldHash")
+    int replacePasswordHash(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
 }
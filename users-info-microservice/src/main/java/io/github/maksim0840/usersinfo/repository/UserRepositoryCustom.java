@@ -0,0 +1,16 @@
+package io.github.maksim0840.usersinfo.repository;
+
+import io.github.maksim0840.usersinfo.domain.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.function.Consumer;
+
+public interface UserRepositoryCustom {
+    Slice<User> findSlice(Specification<User> spec, Pageable pageable);
+
+    // Вызывается внутри транзакции (курсор JDBC)
+    void streamAll(Specification<User> spec, Sort sort, int fetchSize, Consumer<User> consumer);
+}
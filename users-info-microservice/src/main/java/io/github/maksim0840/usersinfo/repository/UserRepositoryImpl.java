@@ -0,0 +1,27 @@
+package io.github.maksim0840.usersinfo.repository;
+
+import io.github.maksim0840.usersinfo.domain.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.function.Consumer;
+
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Slice<User> findSlice(Specification<User> spec, Pageable pageable) {
+        return SpecificationQueries.findSlice(entityManager, User.class, spec, pageable);
+    }
+
+    @Override
+    public void streamAll(Specification<User> spec, Sort sort, int fetchSize, Consumer<User> consumer) {
+        SpecificationQueries.streamAll(entityManager, User.class, spec, sort, fetchSize, consumer);
+    }
+}
@@ -1,21 +1,24 @@
 package io.github.maksim0840.usersinfo.service;
 
 import io.github.maksim0840.usersinfo.domain.ParsingParam;
+import io.github.maksim0840.usersinfo.domain.ParsingParamView;
 import io.github.maksim0840.usersinfo.domain.User;
 import io.github.maksim0840.usersinfo.exception.NotFoundException;
 import io.github.maksim0840.usersinfo.repository.ParsingParamRepository;
+import io.github.maksim0840.usersinfo.repository.KeysetCursor;
 import io.github.maksim0840.usersinfo.repository.ParsingParamSpecification;
 import io.github.maksim0840.usersinfo.repository.UserRepository;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
-import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 public class ParsingParamService {
@@ -28,8 +31,9 @@ public class ParsingParamService {
         this.parsingParamRepository = parsingParamRepository;
     }
 
-    public ParsingParam createParsingParam(Long userId, String name, String description) {
+    public ParsingParam createParsingParam(Long userId, String name, String description, String resultSchema) {
         ParsingParam parsingParam = new ParsingParam(getUserById(userId), name, description);
+        parsingParam.setResultSchema(resultSchema);
         try {
             return parsingParamRepository.save(parsingParam);
         } catch (DataAccessException e) {
@@ -46,24 +50,38 @@ public class ParsingParamService {
         }
     }
 
-    public List<ParsingParam> getListParsingParamByPageWithFiltering(Long userId, Instant dateFrom, Instant dateTo, int pageNum, int pageSize, Boolean isSortDesc) {
-        // Настраиваем фильтрацию
-        Specification<ParsingParam> spec = Specification.where(null);
-        if (dateFrom != null) spec = spec.and(ParsingParamSpecification.greaterOrEqualCreatedAt(dateFrom));
-        if (dateTo != null) spec = spec.and(ParsingParamSpecification.lessOrEqualCreatedAt(dateTo));
-        if (userId != null) spec = spec.and(ParsingParamSpecification.hasUser(userId));
+    // Списки читаются проекцией ParsingParamView: пользователь не загружается, userId - колонка user_id
 
-        // Настраиваем сортировку
-        Sort.Direction sortDir = Sort.Direction.DESC;
-        if (isSortDesc != null) sortDir = isSortDesc ? Sort.Direction.DESC : Sort.Direction.ASC;
-        Sort sort = Sort.by(sortDir, "createdAt");
+    // Страница по номеру (OFFSET) без подсчёта общего количества записей
+    public Slice<ParsingParamView> getListParsingParamByPageWithFiltering(Long userId, Instant dateFrom, Instant dateTo, int pageNum, int pageSize, Boolean isSortDesc) {
+        Pageable pageable = PageRequest.of(pageNum, pageSize, KeysetCursor.sort(isSortDesc));
+        try {
+            return parsingParamRepository.findSlice(filter(userId, dateFrom, dateTo), pageable);
+        } catch (DataAccessException e) {
+            throw new RuntimeException("PostgreSQL parsingParam read failed", e);
+        }
+    }
 
-        // Настраиваем пагинацию
-        Pageable pageable = PageRequest.of(pageNum, pageSize, sort);
+    // Страница строго после курсора (keyset по (createdAt, id)): стоимость не зависит от глубины страницы
+    public Slice<ParsingParamView> getListParsingParamAfterCursorWithFiltering(Long userId, Instant dateFrom, Instant dateTo, KeysetCursor after, int pageSize, Boolean isSortDesc) {
+        Pageable pageable = PageRequest.of(0, pageSize, KeysetCursor.sort(isSortDesc));
+        try {
+            return parsingParamRepository.findSlice(filter(userId, dateFrom, dateTo).and(after.after(isSortDesc)), pageable);
+        } catch (DataAccessException e) {
+            throw new RuntimeException("PostgreSQL parsingParam read failed", e);
+        }
+    }
 
-        // Выполняем запрос
+    /**
+     * Потоковое чтение всех записей по фильтрам (после курсора after, если задан) через курсор JDBC с fetchSize строк
+     * за обращение к PostgreSQL. consumer вызывается внутри read-only транзакции для каждой записи по порядку.
+     */
+    @Transactional(readOnly = true)
+    public void streamParsingParamWithFiltering(Long userId, Instant dateFrom, Instant dateTo, KeysetCursor after, Boolean isSortDesc, int fetchSize, Consumer<ParsingParamView> consumer) {
+        Specification<ParsingParam> spec = filter(userId, dateFrom, dateTo);
+        if (after != null) spec = spec.and(after.after(isSortDesc));
         try {
-            return parsingParamRepository.findAll(spec, pageable).getContent();
+            parsingParamRepository.streamAll(spec, KeysetCursor.sort(isSortDesc), fetchSize, consumer);
         } catch (DataAccessException e) {
             throw new RuntimeException("PostgreSQL parsingParam read failed", e);
         }
@@ -96,4 +114,12 @@ public class ParsingParamService {
             throw new RuntimeException("PostgreSQL user read failed", e);
         }
     }
+
+    private Specification<ParsingParam> filter(Long userId, Instant dateFrom, Instant dateTo) {
+        Specification<ParsingParam> spec = Specification.where(null);
+        if (dateFrom != null) spec = spec.and(ParsingParamSpecification.greaterOrEqualCreatedAt(dateFrom));
+        if (dateTo != null) spec = spec.and(ParsingParamSpecification.lessOrEqualCreatedAt(dateTo));
+        if (userId != null) spec = spec.and(ParsingParamSpecification.hasUser(userId));
+        return spec;
+    }
 }
@@ -1,32 +1,36 @@
 package io.github.maksim0840.usersinfo.service;
 
+import io.github.maksim0840.usersinfo.cache.VerifiedCredentialCache;
 import io.github.maksim0840.usersinfo.domain.User;
 import io.github.maksim0840.internalapi.user.v1.enums.UserRole;
 import io.github.maksim0840.usersinfo.exception.EncryptionException;
 import io.github.maksim0840.usersinfo.exception.EncryptionIllegalArgumentException;
 import io.github.maksim0840.usersinfo.exception.NotFoundException;
 import io.github.maksim0840.usersinfo.repository.UserRepository;
+import io.github.maksim0840.usersinfo.repository.KeysetCursor;
 import io.github.maksim0840.usersinfo.repository.UserSpecification;
 import io.github.maksim0840.usersinfo.utils.PasswordEncryption;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
-import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 public class UserService {
 
     private final UserRepository userRepository;
+    private final VerifiedCredentialCache verifiedCredentialCache;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, VerifiedCredentialCache verifiedCredentialCache) {
         this.userRepository = userRepository;
+        this.verifiedCredentialCache = verifiedCredentialCache;
     }
 
     public User createUser(String name, String password, UserRole role) {
@@ -56,24 +60,36 @@ public class UserService {
         }
     }
 
-    public List<User> getListUserByPageWithFiltering(UserRole role, Instant dateFrom, Instant dateTo, int pageNum, int pageSize, Boolean isSortDesc) {
-        // Настраиваем фильтрацию
-        Specification<User> spec = Specification.where(null);
-        if (dateFrom != null) spec = spec.and(UserSpecification.greaterOrEqualCreatedAt(dateFrom));
-        if (dateTo != null) spec = spec.and(UserSpecification.lessOrEqualCreatedAt(dateTo));
-        if (role != null) spec = spec.and(UserSpecification.hasRole(role));
-
-        // Настраиваем сортировку
-        Sort.Direction sortDir = Sort.Direction.DESC;
-        if (isSortDesc != null) sortDir = isSortDesc ? Sort.Direction.DESC : Sort.Direction.ASC;
-        Sort sort = Sort.by(sortDir, "createdAt");
+    // Страница по номеру (OFFSET) без подсчёта общего количества записей
+    public Slice<User> getListUserByPageWithFiltering(UserRole role, Instant dateFrom, Instant dateTo, int pageNum, int pageSize, Boolean isSortDesc) {
+        Pageable pageable = PageRequest.of(pageNum, pageSize, KeysetCursor.sort(isSortDesc));
+        try {
+            return userRepository.findSlice(filter(role, dateFrom, dateTo), pageable);
+        } catch (DataAccessException e) {
+            throw new RuntimeException("PostgreSQL user read failed", e);
+        }
+    }
 
-        // Настраиваем пагинацию
-        Pageable pageable = PageRequest.of(pageNum, pageSize, sort);
+    // Страница строго после курсора (keyset по (createdAt, id)): стоимость не зависит от глубины страницы
+    public Slice<User> getListUserAfterCursorWithFiltering(UserRole role, Instant dateFrom, Instant dateTo, KeysetCursor after, int pageSize, Boolean isSortDesc) {
+        Pageable pageable = PageRequest.of(0, pageSize, KeysetCursor.sort(isSortDesc));
+        try {
+            return userRepository.findSlice(filter(role, dateFrom, dateTo).and(after.after(isSortDesc)), pageable);
+        } catch (DataAccessException e) {
+            throw new RuntimeException("PostgreSQL user read failed", e);
+        }
+    }
 
-        // Выполняем запрос
+    /**
+     * Потоковое чтение всех записей по фильтрам (после курсора after, если задан) через курсор JDBC с fetchSize строк
+     * за обращение к PostgreSQL. consumer вызывается внутри read-only транзакции для каждой записи по порядку.
+     */
+    @Transactional(readOnly = true)
+    public void streamUserWithFiltering(UserRole role, Instant dateFrom, Instant dateTo, KeysetCursor after, Boolean isSortDesc, int fetchSize, Consumer<User> consumer) {
+        Specification<User> spec = filter(role, dateFrom, dateTo);
+        if (after != null) spec = spec.and(after.after(isSortDesc));
         try {
-            return userRepository.findAll(spec, pageable).getContent();
+            userRepository.streamAll(spec, KeysetCursor.sort(isSortDesc), fetchSize, consumer);
         } catch (DataAccessException e) {
             throw new RuntimeException("PostgreSQL user read failed", e);
         }
@@ -89,25 +105,62 @@ public class UserService {
         } catch (DataAccessException e) {
             throw new RuntimeException("PostgreSQL user delete failed", e);
         }
+        verifiedCredentialCache.invalidateUser(id);
     }
 
     @Transactional
     public User setUserRoleById(Long id, UserRole role) {
         User user = getUserById(id);
         user.setRole(role);
+        verifiedCredentialCache.invalidateUser(id);
         return user;
     }
 
-    public boolean checkUserPasswordById(Long id, String password) {
-        User user = getUserById(id);
+    /**
+     * Проверка пароля по кэшу недавно проверенных паролей (без BCrypt/Argon2): true - пароль верен,
+     * false - результат неизвестен, нужна полная проверка checkUserPassword.
+     */
+    public boolean isPasswordVerified(User user, String password) {
+        return verifiedCredentialCache.isVerified(user.getId(), password, user.getPasswordHash());
+    }
+
+    // Полная проверка пароля (BCrypt/Argon2) с пересчётом устаревшего хэша; user - прочитанный getUserById
+    public boolean checkUserPassword(User user, String password) {
+        Long id = user.getId();
         String passwordHash = user.getPasswordHash();
+
+        boolean match;
         try {
-            return PasswordEncryption.checkMatching(password, passwordHash);
+            match = PasswordEncryption.checkMatching(password, passwordHash);
         } catch (IllegalArgumentException e) {
             throw new EncryptionIllegalArgumentException("User's password illegal argument", e);
         } catch (RuntimeException e) {
             throw new EncryptionException("User's password check failed", e);
         }
+
+        if (match) {
+            if (PasswordEncryption.needsUpgrade(passwordHash)) {
+                passwordHash = upgradePasswordHash(id, password, passwordHash);
+            }
+            verifiedCredentialCache.putVerified(id, password, passwordHash);
+        }
+        return match;
+    }
+
+    /*
+    Пересчёт хэша текущим алгоритмом и стоимостью после успешной проверки пароля (только тогда известен сам пароль).
+    Хэш заменяется, только если пароль не сменился параллельно; ошибка пересчёта не влияет на результат проверки -
+    хэш будет пересчитан при следующем входе. Возвращает хэш, который хранится в базе после вызова.
+    */
+    private String upgradePasswordHash(Long id, String password, String oldPasswordHash) {
+        try {
+            String newPasswordHash = PasswordEncryption.makeHash(password);
+            if (userRepository.replacePasswordHash(id, oldPasswordHash, newPasswordHash) == 1) {
+                return newPasswordHash;
+            }
+        } catch (RuntimeException ignored) {
+        }
+        return oldPasswordHash;
     }
 
     private boolean checkExistenceUserById(Long id) {
@@ -117,4 +170,12 @@ public class UserService {
             throw new RuntimeException("PostgreSQL user check existence failed", e);
         }
     }
+
+    private Specification<User> filter(UserRole role, Instant dateFrom, Instant dateTo) {
+        Specification<User> spec = Specification.where(null);
+        if (dateFrom != null) spec = spec.and(UserSpecification.greaterOrEqualCreatedAt(dateFrom));
+        if (dateTo != null) spec = spec.and(UserSpecification.lessOrEqualCreatedAt(dateTo));
+        if (role != null) spec = spec.and(UserSpecification.hasRole(role));
+        return spec;
+    }
 }
@@ -1,20 +1,42 @@
 package io.github.maksim0840.usersinfo.utils;
 
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.util.Map;
+
 /**
  * Класс для хэширования и проверки паролей.
- * Используется алгоритм BCrypt, специализирующийся на безопасном хранении паролей.
+ * Хэш хранится с префиксом алгоритма ({bcrypt}, {argon2id}, {pbkdf2-<итерации>}), поэтому алгоритм и стоимость новых хэшей
+ * можно менять без потери сохранённых: каждый хэш проверяется своим алгоритмом.
+ * Хэши без префикса (записанные до его появления) - BCrypt.
+ * До настройки из users-info.password-hash (PasswordHashConfiguration) используется BCrypt со стоимостью 12.
  */
 public class PasswordEncryption {
-    private static final PasswordEncoder ENCODER = new BCryptPasswordEncoder(12);
+    private static volatile DelegatingPasswordEncoder encoder = delegating("bcrypt", Map.of("bcrypt", new BCryptPasswordEncoder(12)));
+
+    // encodeId - префикс новых хэшей (ключ в encoders), см. PasswordHashConfiguration.encodeId
+    public static void configure(String encodeId, Map<String, PasswordEncoder> encoders) {
+        encoder = delegating(encodeId, encoders);
+    }
 
     public static String makeHash(String password) {
-        return ENCODER.encode(password);
+        return encoder.encode(password);
     }
 
     public static boolean checkMatching(String rawPassword, String passwordHash) {
-        return ENCODER.matches(rawPassword, passwordHash);
+        return encoder.matches(rawPassword, passwordHash);
+    }
+
+    // Хэш получен другим алгоритмом или с меньшей стоимостью, чем текущие настройки, и его стоит пересчитать
+    public static boolean needsUpgrade(String passwordHash) {
+        return encoder.upgradeEncoding(passwordHash);
+    }
+
+    private static DelegatingPasswordEncoder delegating(String encodeId, Map<String, PasswordEncoder> encoders) {
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(encodeId, encoders);
+        delegating.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+        return delegating;
     }
 }
@@ -14,8 +14,11 @@ import io.github.maksim0840.usersinfo.repository.UserRepository;
 import io.github.maksim0840.usersinfo.utils.PasswordEncryption;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
+import jakarta.persistence.EntityManagerFactory;
 import net.devh.boot.grpc.client.inject.GrpcClient;
 import org.junit.jupiter.api.BeforeEach;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -51,7 +54,9 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
     properties = {
     "grpc.server.inProcessName=test",      // включаем in-process server (клиент и сервер общаются внутри одного JVM-процесса)
     "grpc.server.port=-1",                 // выключаем внешний server (не отдаем порт наружу)
-    "grpc.client.inProcess.address=in-process:test" // подключаем клиента к in-process серверу
+    "users-info.metrics.port=-1",
+    "grpc.client.inProcess.address=in-process:test", // подключаем клиента к in-process серверу
+    "spring.jpa.properties.hibernate.generate_statistics=true" // счётчики запросов Hibernate (проверка отсутствия N+1)
 })
 public class ParsingParamGrpcToDb {
 
@@ -81,6 +86,10 @@ public class ParsingParamGrpcToDb {
     @Autowired
     private NamedParameterJdbcTemplate jdbcTemplate;
 
+    // Статистика Hibernate (число подготовленных SQL-запросов и загруженных сущностей)
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     // Очищаем базу перед каждым новым тестом
     @BeforeEach
     void cleanDb() {
@@ -138,6 +147,32 @@ public class ParsingParamGrpcToDb {
         assertThat(parsingParamRepository.count()).isEqualTo(2);
     }
 
+    /*
+    Проверяет create с именем схемы результата:
+    - result_schema возвращается в ответе и сохраняется в БД
+    - запись без result_schema возвращается без него
+    */
+    @Test
+    void createWithResultSchema() {
+        User user = new User("user", "passwordHash", UserRole.USER);
+        userRepository.save(user);
+
+        CreateParsingParamRequest request = CreateParsingParamRequest.newBuilder()
+                .setUserId(user.getId())
+                .setName("Цена")
+                .setDescription("цена товара")
+                .setResultSchema("product-v1")
+                .build();
+        CreateParsingParamRequest requestWithoutSchema = request.toBuilder().clearResultSchema().build();
+
+        ParsingParamProto responseProto = blockingStub.create(request).getParsingParam();
+        ParsingParamProto responseProtoWithoutSchema = blockingStub.create(requestWithoutSchema).getParsingParam();
+
+        assertThat(responseProto.getResultSchema()).isEqualTo("product-v1");
+        assertThat(parsingParamRepository.findById(responseProto.getId()).orElseThrow().getResultSchema()).isEqualTo("product-v1");
+        assertThat(responseProtoWithoutSchema.hasResultSchema()).isFalse();
+    }
+
     /*
     Проверяет валидацию create: отсутствие обязательного userId
     - создаёт пользователя в БД (но НЕ передаёт его id в запросе)
@@ -624,6 +659,101 @@ public class ParsingParamGrpcToDb {
     }
 
 
+    /*
+    Проверяет keyset-пагинацию getList и streamList для ParsingParam:
+    - getList по continuation_token проходит все записи пользователя по убыванию (createdAt, id) страницами по 2
+    - streamList с fetch_size=1 возвращает те же записи в том же порядке, токен записи продолжает выгрузку после неё
+    */
+    @Test
+    void getListAndStreamListByContinuationToken() {
+        User user = User.builder().id(1L).name("user1").passwordHash("passwordHash1").role(UserRole.USER).createdAt(Instant.parse("2026-01-01T00:00:00.000Z")).build();
+        rawDbInsertUser(List.of(user));
+        rawDbInsertParsingParam(List.of(
+                ParsingParam.builder().id(1L).user(user).name("name1").description("description1").createdAt(Instant.parse("2026-02-01T00:00:00.000Z")).build(),
+                ParsingParam.builder().id(2L).user(user).name("name2").description("description2").createdAt(Instant.parse("2026-02-02T00:00:00.000Z")).build(),
+                ParsingParam.builder().id(3L).user(user).name("name3").description("description3").createdAt(Instant.parse("2026-02-02T00:00:00.000Z")).build(),
+                ParsingParam.builder().id(4L).user(user).name("name4").description("description4").createdAt(Instant.parse("2026-02-03T00:00:00.000Z")).build()
+        ));
+
+        GetListParsingParamRequest.Builder requestBuilder = GetListParsingParamRequest.newBuilder()
+                .setUserId(1L)
+                .setPageSize(2);
+        List<Long> pagedIds = new ArrayList<>();
+        GetListParsingParamResponse response = blockingStub.getList(requestBuilder.build());
+        response.getParsingParamsList().forEach(param -> pagedIds.add(param.getId()));
+        while (response.getHasNext()) {
+            response = blockingStub.getList(requestBuilder.setContinuationToken(response.getNextContinuationToken()).build());
+            response.getParsingParamsList().forEach(param -> pagedIds.add(param.getId()));
+        }
+        assertThat(pagedIds).containsExactly(4L, 3L, 2L, 1L);
+
+        List<StreamListParsingParamResponse> streamed = new ArrayList<>();
+        blockingStub.streamList(StreamListParsingParamRequest.newBuilder()
+                .setUserId(1L)
+                .setFetchSize(1)
+                .build()).forEachRemaining(streamed::add);
+        assertThat(streamed).extracting(item -> item.getParsingParam().getId()).containsExactly(4L, 3L, 2L, 1L);
+        assertThat(streamed.get(0).getParsingParam().getUserId()).isEqualTo(1L);
+
+        List<StreamListParsingParamResponse> resumed = new ArrayList<>();
+        blockingStub.streamList(StreamListParsingParamRequest.newBuilder()
+                .setUserId(1L)
+                .setContinuationToken(streamed.get(1).getContinuationToken())
+                .build()).forEachRemaining(resumed::add);
+        assertThat(resumed).extracting(item -> item.getParsingParam().getId()).containsExactly(2L, 1L);
+    }
+
+
+    /*
+    Проверяет, что списки ParsingParam читаются одним SQL-запросом на страницу независимо от её размера и числа пользователей:
+    - создаёт 60 параметров трёх пользователей
+    - getList страницами по 7 и 25 (по номеру и по continuation_token) и streamList - по одному запросу на вызов
+    - пользователи (сущности User) при этом не загружаются, userId в ответах совпадает с user_id в БД
+    */
+    @Test
+    void getListAndStreamListConstantQueryCount() {
+        List<User> users = List.of(
+                User.builder().id(1L).name("user1").passwordHash("passwordHash1").role(UserRole.VISITOR).createdAt(Instant.parse("2026-01-01T00:00:00.000Z")).build(),
+                User.builder().id(2L).name("user2").passwordHash("passwordHash2").role(UserRole.USER).createdAt(Instant.parse("2026-01-02T00:00:00.000Z")).build(),
+                User.builder().id(3L).name("user3").passwordHash("passwordHash3").role(UserRole.ADMIN).createdAt(Instant.parse("2026-01-03T00:00:00.000Z")).build()
+        );
+        rawDbInsertUser(users);
+        List<ParsingParam> entities = new ArrayList<>();
+        for (long id = 1; id <= 60; id++) {
+            entities.add(ParsingParam.builder().id(id).user(users.get((int) (id % users.size()))).name("name" + id).description("description" + id)
+                    .createdAt(Instant.parse("2026-02-01T00:00:00.000Z").plus(id, ChronoUnit.MINUTES)).build());
+        }
+        rawDbInsertParsingParam(entities);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (int pageSize : List.of(7, 25)) {
+            statistics.clear();
+            GetListParsingParamResponse response = blockingStub.getList(GetListParsingParamRequest.newBuilder()
+                    .setPageNum(1).setPageSize(pageSize).build());
+            assertThat(response.getParsingParamsList()).hasSize(pageSize);
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+            statistics.clear();
+            response = blockingStub.getList(GetListParsingParamRequest.newBuilder()
+                    .setPageSize(pageSize).setContinuationToken(response.getNextContinuationToken()).build());
+            assertThat(response.getParsingParamsList()).hasSize(pageSize);
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+            assertThat(statistics.getEntityLoadCount()).isZero();
+            assertThat(response.getParsingParamsList())
+                    .allSatisfy(param -> assertThat(param.getUserId()).isEqualTo(users.get((int) (param.getId() % users.size())).getId()));
+        }
+
+        statistics.clear();
+        List<StreamListParsingParamResponse> streamed = new ArrayList<>();
+        blockingStub.streamList(StreamListParsingParamRequest.newBuilder()
+                .setFetchSize(10)
+                .build()).forEachRemaining(streamed::add);
+        assertThat(streamed).hasSize(entities.size());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+
     // Вспомогательный метод для тестов getList
     void checkGetListRequest(GetListParsingParamRequest request, List<Long> expectedParamIds) {
         List<User> users = List.of(
@@ -0,0 +1,138 @@
+package io.github.maksim0840.usersinfo.users.benchmark;
+
+import io.github.maksim0840.internalapi.user.v1.enums.UserRole;
+import io.github.maksim0840.user.v1.*;
+import io.github.maksim0840.usersinfo.Main;
+import io.github.maksim0840.usersinfo.domain.User;
+import io.github.maksim0840.usersinfo.repository.UserRepository;
+import io.github.maksim0840.usersinfo.utils.PasswordEncryption;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Нагрузочный тест: задержка Get во время потока входов (checkPassword с BCrypt от большого числа клиентов).
+ * Печатает p50/p99/max задержки Get без нагрузки и во время потока входов, число выполненных и отклонённых
+ * (RESOURCE_EXHAUSTED) checkPassword. p99 Get под нагрузкой должен оставаться в пределах нескольких миллисекунд от базового.
+ * Не входит в обычный прогон тестов, запуск: ./gradlew :users-info-microservice:test -Pbenchmark
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@Testcontainers
+@SpringBootTest(
+        classes = Main.class,
+        properties = {
+        "grpc.server.inProcessName=load",
+        "grpc.server.port=-1",
+        "users-info.metrics.port=-1",
+        "grpc.client.inProcess.address=in-process:load"
+})
+public class UserLoginStormBenchmark {
+
+    private static final int LOGIN_CLIENTS = 256;
+    private static final int GET_CALLS = 2_000;
+    private static final String PASSWORD = "Login-Storm-2026";
+
+    @Container
+    static PostgreSQLContainer postgreSQLContainer = new PostgreSQLContainer("postgres:16-alpine").withDatabaseName("testdb").withUsername("test").withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+    }
+
+    @GrpcClient("inProcess")
+    private UserServiceGrpc.UserServiceBlockingStub blockingStub;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Test
+    void getLatencyDuringLoginStorm() throws Exception {
+        userRepository.deleteAll();
+        User user = userRepository.save(new User("storm", PasswordEncryption.makeHash(PASSWORD), UserRole.USER));
+        GetUserRequest getRequest = GetUserRequest.newBuilder().setId(user.getId()).build();
+        CheckUserPasswordRequest loginRequest = CheckUserPasswordRequest.newBuilder()
+                .setId(user.getId()).setPassword(PASSWORD).build();
+
+        long[] baseline = measureGets(getRequest);
+
+        AtomicBoolean storm = new AtomicBoolean(true);
+        AtomicLong logins = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        long[] underLoad;
+        List<Future<?>> results = new ArrayList<>(LOGIN_CLIENTS);
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < LOGIN_CLIENTS; c++) {
+                results.add(clients.submit(() -> {
+                    while (storm.get()) {
+                        try {
+                            assertThat(blockingStub.checkPassword(loginRequest).getMatch()).isTrue();
+                            logins.incrementAndGet();
+                        } catch (StatusRuntimeException e) {
+                            if (e.getStatus().getCode() != Status.Code.RESOURCE_EXHAUSTED) {
+                                throw e;
+                            }
+                            rejected.incrementAndGet();
+                            Thread.sleep(10);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            Thread.sleep(1_000);  // очередь BCrypt заполняется
+            underLoad = measureGets(getRequest);
+            storm.set(false);
+        }
+        for (Future<?> result : results) {
+            result.get();  // пробрасываем неожиданные ошибки клиентов
+        }
+
+        System.out.printf("checkPassword during storm: completed %d, rejected RESOURCE_EXHAUSTED %d%n", logins.get(), rejected.get());
+        print("Get idle", baseline);
+        print("Get storm", underLoad);
+        assertThat(percentile(underLoad, 0.99)).isLessThan(percentile(baseline, 0.99) * 3 + 20);
+    }
+
+    private long[] measureGets(GetUserRequest request) {
+        long[] latencies = new long[GET_CALLS];
+        for (int i = 0; i < GET_CALLS; i++) {
+            long callStart = System.nanoTime();
+            blockingStub.get(request);
+            latencies[i] = System.nanoTime() - callStart;
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static void print(String name, long[] sorted) {
+        System.out.printf("%-10s n=%-6d p50=%6.2f ms  p99=%6.2f ms  max=%6.2f ms%n", name, sorted.length,
+                percentile(sorted, 0.50), percentile(sorted, 0.99), sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+}
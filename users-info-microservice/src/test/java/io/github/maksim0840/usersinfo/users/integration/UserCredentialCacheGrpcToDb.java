@@ -0,0 +1,127 @@
+package io.github.maksim0840.usersinfo.users.integration;
+
+import io.github.maksim0840.internalapi.user.v1.enums.UserRole;
+import io.github.maksim0840.internalapi.user.v1.mapper.ProtoUserRoleMapper;
+import io.github.maksim0840.user.v1.*;
+import io.github.maksim0840.usersinfo.Main;
+import io.github.maksim0840.usersinfo.cache.VerifiedCredentialCache;
+import io.github.maksim0840.usersinfo.domain.User;
+import io.github.maksim0840.usersinfo.repository.UserRepository;
+import io.github.maksim0840.usersinfo.utils.PasswordEncryption;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Тесты кэша проверенных паролей (users-info.credential-cache.enabled=true).
+ * Вынесены в отдельный класс, т.к. по умолчанию кэш выключен и остальные тесты проверяют полную проверку пароля.
+ */
+@Testcontainers
+@SpringBootTest(
+        classes = Main.class,
+        properties = {
+        "grpc.server.inProcessName=credentials",
+        "grpc.server.port=-1",
+        "users-info.metrics.port=-1",
+        "grpc.client.inProcess.address=in-process:credentials",
+        "users-info.credential-cache.enabled=true"
+})
+public class UserCredentialCacheGrpcToDb {
+
+    @Container
+    static PostgreSQLContainer postgreSQLContainer = new PostgreSQLContainer("postgres:16-alpine").withDatabaseName("testdb").withUsername("test").withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+    }
+
+    @GrpcClient("inProcess")
+    private UserServiceGrpc.UserServiceBlockingStub blockingStub;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    VerifiedCredentialCache verifiedCredentialCache;
+
+    @BeforeEach
+    void cleanDb() {
+        userRepository.deleteAll();
+    }
+
+
+    /*
+    Проверяет попадания в кэш:
+    - повторная проверка верного пароля - попадание в кэш, match=true
+    - неверный пароль не кэшируется: каждый раз полная проверка, match=false
+    */
+    @Test
+    void checkPasswordRepeatedHitsCache() {
+        User user = userRepository.save(new User("cached", PasswordEncryption.makeHash("Cache-Pass_1"), UserRole.USER));
+        long hitsBefore = verifiedCredentialCache.stats().hitCount();
+
+        assertThat(checkPassword(user.getId(), "Cache-Pass_1")).isTrue();
+        assertThat(checkPassword(user.getId(), "Cache-Pass_1")).isTrue();
+        assertThat(checkPassword(user.getId(), "Cache-Pass_1")).isTrue();
+        assertThat(verifiedCredentialCache.stats().hitCount() - hitsBefore).isEqualTo(2);
+
+        assertThat(checkPassword(user.getId(), "Cache-Pass_2")).isFalse();
+        assertThat(checkPassword(user.getId(), "Cache-Pass_2")).isFalse();
+        assertThat(verifiedCredentialCache.stats().hitCount() - hitsBefore).isEqualTo(2);
+    }
+
+    /*
+    Проверяет, что кэш не переживает изменения пользователя:
+    - смена хэша пароля в базе в обход сервиса: старый пароль больше не подходит
+    - смена роли удаляет записи пользователя из кэша
+    - после удаления пользователя checkPassword возвращает NOT_FOUND
+    */
+    @Test
+    void checkPasswordCacheInvalidatedOnUserChanges() {
+        User user = userRepository.save(new User("changing", PasswordEncryption.makeHash("Old-Pass_1"), UserRole.USER));
+        assertThat(checkPassword(user.getId(), "Old-Pass_1")).isTrue();
+
+        user.setPasswordHash(PasswordEncryption.makeHash("New-Pass_2"));
+        userRepository.save(user);
+        assertThat(checkPassword(user.getId(), "Old-Pass_1")).isFalse();
+        assertThat(checkPassword(user.getId(), "New-Pass_2")).isTrue();
+
+        long hitsBefore = verifiedCredentialCache.stats().hitCount();
+        blockingStub.setRole(SetUserRoleRequest.newBuilder()
+                .setId(user.getId())
+                .setRole(ProtoUserRoleMapper.domainToProto(UserRole.ADMIN))
+                .build());
+        assertThat(checkPassword(user.getId(), "New-Pass_2")).isTrue();
+        assertThat(verifiedCredentialCache.stats().hitCount()).isEqualTo(hitsBefore);
+
+        blockingStub.delete(DeleteUserRequest.newBuilder().setId(user.getId()).build());
+        StatusRuntimeException ex = assertThrows(
+                StatusRuntimeException.class,
+                () -> checkPassword(user.getId(), "New-Pass_2")
+        );
+        assertThat(ex.getStatus().getCode()).isEqualTo(Status.Code.NOT_FOUND);
+    }
+
+
+    private boolean checkPassword(Long id, String password) {
+        return blockingStub.checkPassword(CheckUserPasswordRequest.newBuilder()
+                .setId(id)
+                .setPassword(password)
+                .build()).getMatch();
+    }
+}
@@ -23,6 +23,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
@@ -56,6 +57,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
         properties = {
         "grpc.server.inProcessName=test",      // включаем in-process server (клиент и сервер общаются внутри одного JVM-процесса)
         "grpc.server.port=-1",                 // выключаем внешний server (не отдаем порт наружу)
+        "users-info.metrics.port=-1",
         "grpc.client.inProcess.address=in-process:test" // подключаем клиента к in-process серверу
 })
 public class UserGrpcToDb {
@@ -856,6 +858,110 @@ public class UserGrpcToDb {
         assertThat(ex.getStatus().getDescription()).contains("not found").contains("-1");
     }
 
+    /*
+    Проверяет пересчёт устаревшего хэша при checkPassword:
+    - пользователь с хэшом BCrypt без префикса алгоритма и с меньшей стоимостью (10)
+    - неверный пароль: match=false, хэш в базе не меняется
+    - верный пароль: match=true, хэш в базе пересчитан текущим алгоритмом ({bcrypt}, стоимость 12) и снова проверяется
+    */
+    @Test
+    void checkPasswordUpgradesLegacyHash() {
+        String legacyHash = new BCryptPasswordEncoder(10).encode("Legacy-Pass_10");
+        User entity = userRepository.save(new User("legacy", legacyHash, UserRole.USER));
+
+        CheckUserPasswordRequest wrongRequest = CheckUserPasswordRequest.newBuilder()
+                .setId(entity.getId())
+                .setPassword("Legacy-Pass_11")
+                .build();
+        assertThat(blockingStub.checkPassword(wrongRequest).getMatch()).isFalse();
+        assertThat(userRepository.findById(entity.getId()).orElseThrow().getPasswordHash()).isEqualTo(legacyHash);
+
+        CheckUserPasswordRequest request = CheckUserPasswordRequest.newBuilder()
+                .setId(entity.getId())
+                .setPassword("Legacy-Pass_10")
+                .build();
+        assertThat(blockingStub.checkPassword(request).getMatch()).isTrue();
+
+        String upgradedHash = userRepository.findById(entity.getId()).orElseThrow().getPasswordHash();
+        assertThat(upgradedHash).startsWith("{bcrypt}$2a$12$");
+        assertThat(PasswordEncryption.needsUpgrade(upgradedHash)).isFalse();
+        assertThat(blockingStub.checkPassword(request).getMatch()).isTrue();
+    }
+
+
+    /*
+    Проверяет keyset-пагинацию getList по continuation_token:
+    - страницы по 2 записи по убыванию (createdAt, id); у двух записей одинаковый createdAt - порядок по id
+    - has_next и next_continuation_token есть у всех страниц, кроме последней
+    - страница по токену продолжает предыдущую без пропусков и повторов (page_num не используется)
+    - неверный токен - INVALID_ARGUMENT
+    */
+    @Test
+    void getListContinuationTokenPages() {
+        rawDbInsert(keysetUsers());
+
+        GetListUserRequest.Builder requestBuilder = GetListUserRequest.newBuilder()
+                .setPageNum(0)
+                .setPageSize(2);
+        List<Long> actualIds = new ArrayList<>();
+        List<Boolean> hasNext = new ArrayList<>();
+        GetListUserResponse response = blockingStub.getList(requestBuilder.build());
+        while (true) {
+            response.getUsersList().forEach(user -> actualIds.add(user.getId()));
+            hasNext.add(response.getHasNext());
+            if (!response.getHasNext()) {
+                assertThat(response.hasNextContinuationToken()).isFalse();
+                break;
+            }
+            response = blockingStub.getList(requestBuilder.setPageNum(100).setContinuationToken(response.getNextContinuationToken()).build());
+        }
+
+        assertThat(actualIds).containsExactly(5L, 4L, 3L, 2L, 1L);
+        assertThat(hasNext).containsExactly(true, true, false);
+
+        StatusRuntimeException ex = assertThrows(
+                StatusRuntimeException.class,
+                () -> blockingStub.getList(requestBuilder.setContinuationToken("not-a-token").build())
+        );
+        assertThat(ex.getStatus().getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT);
+    }
+
+    /*
+    Проверяет streamList:
+    - все записи по фильтру приходят по возрастанию (createdAt, id) при fetch_size меньше числа записей
+    - выгрузка с токеном второй записи продолжается с третьей
+    */
+    @Test
+    void streamListAllAndResume() {
+        rawDbInsert(keysetUsers());
+
+        List<StreamListUserResponse> all = new ArrayList<>();
+        blockingStub.streamList(StreamListUserRequest.newBuilder()
+                .setSortCreatedDesc(false)
+                .setFetchSize(2)
+                .build()).forEachRemaining(all::add);
+        assertThat(all).extracting(response -> response.getUser().getId()).containsExactly(1L, 2L, 3L, 4L, 5L);
+
+        List<StreamListUserResponse> resumed = new ArrayList<>();
+        blockingStub.streamList(StreamListUserRequest.newBuilder()
+                .setRole(ProtoUserRoleMapper.domainToProto(UserRole.USER))
+                .setSortCreatedDesc(false)
+                .setContinuationToken(all.get(1).getContinuationToken())
+                .build()).forEachRemaining(resumed::add);
+        assertThat(resumed).extracting(response -> response.getUser().getId()).containsExactly(3L, 5L);
+    }
+
+
+    // Пользователи для тестов keyset-пагинации (у 2 и 3 одинаковый createdAt)
+    private static List<User> keysetUsers() {
+        return List.of(
+                User.builder().id(1L).name("k1").passwordHash("hash1").role(UserRole.USER).createdAt(Instant.parse("2026-02-01T00:00:00.000001Z")).build(),
+                User.builder().id(2L).name("k2").passwordHash("hash2").role(UserRole.ADMIN).createdAt(Instant.parse("2026-02-02T00:00:00.000002Z")).build(),
+                User.builder().id(3L).name("k3").passwordHash("hash3").role(UserRole.USER).createdAt(Instant.parse("2026-02-02T00:00:00.000002Z")).build(),
+                User.builder().id(4L).name("k4").passwordHash("hash4").role(UserRole.VISITOR).createdAt(Instant.parse("2026-02-03T00:00:00Z")).build(),
+                User.builder().id(5L).name("k5").passwordHash("hash5").role(UserRole.USER).createdAt(Instant.parse("2026-02-04T00:00:00Z")).build()
+        );
+    }
 
     // Вспомогательный метод для тестов getList
     void checkGetListRequest(GetListUserRequest request, List<Long> expectedUserIds) {
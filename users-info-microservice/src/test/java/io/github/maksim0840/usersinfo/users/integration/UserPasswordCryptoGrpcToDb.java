@@ -0,0 +1,95 @@
+package io.github.maksim0840.usersinfo.users.integration;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import io.github.maksim0840.internalapi.user.v1.enums.UserRole;
+import io.github.maksim0840.user.v1.*;
+import io.github.maksim0840.usersinfo.Main;
+import io.github.maksim0840.usersinfo.domain.User;
+import io.github.maksim0840.usersinfo.repository.UserRepository;
+import io.github.maksim0840.usersinfo.utils.PasswordEncryption;
+import io.grpc.Status;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты пула BCrypt (passwordCryptoExecutor) с одним потоком и очередью на одну задачу:
+ * вызовы сверх очереди отклоняются с RESOURCE_EXHAUSTED, принятые выполняются асинхронно и завершаются корректно.
+ */
+@Testcontainers
+@SpringBootTest(
+        classes = Main.class,
+        properties = {
+        "grpc.server.inProcessName=crypto",
+        "grpc.server.port=-1",
+        "users-info.metrics.port=-1",
+        "grpc.client.inProcess.address=in-process:crypto",
+        "users-info.crypto.pool-size=1",
+        "users-info.crypto.queue-capacity=1"
+})
+public class UserPasswordCryptoGrpcToDb {
+
+    @Container
+    static PostgreSQLContainer postgreSQLContainer = new PostgreSQLContainer("postgres:16-alpine").withDatabaseName("testdb").withUsername("test").withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+    }
+
+    @GrpcClient("inProcess")
+    private UserServiceGrpc.UserServiceFutureStub futureStub;
+
+    @Autowired
+    UserRepository userRepository;
+
+
+    /*
+    Проверяет переполнение очереди BCrypt:
+    - 8 одновременных checkPassword (~250 мс каждый) при одном потоке и очереди на одну задачу
+    - часть вызовов сразу получает RESOURCE_EXHAUSTED
+    - принятые вызовы возвращают match=true
+    */
+    @Test
+    void checkPasswordBurstRejectedWhenQueueFull() throws InterruptedException {
+        User user = userRepository.save(new User("storm", PasswordEncryption.makeHash("Storm-Pass-1"), UserRole.USER));
+        CheckUserPasswordRequest request = CheckUserPasswordRequest.newBuilder()
+                .setId(user.getId())
+                .setPassword("Storm-Pass-1")
+                .build();
+
+        List<ListenableFuture<CheckUserPasswordResponse>> calls = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            calls.add(futureStub.checkPassword(request));
+        }
+
+        int matched = 0;
+        int rejected = 0;
+        for (ListenableFuture<CheckUserPasswordResponse> call : calls) {
+            try {
+                assertThat(call.get().getMatch()).isTrue();
+                matched++;
+            } catch (ExecutionException e) {
+                assertThat(Status.fromThrowable(e.getCause()).getCode()).isEqualTo(Status.Code.RESOURCE_EXHAUSTED);
+                rejected++;
+            }
+        }
+        assertThat(matched).isGreaterThanOrEqualTo(1);
+        assertThat(rejected).isGreaterThanOrEqualTo(1);
+        userRepository.deleteAll();
+    }
+}
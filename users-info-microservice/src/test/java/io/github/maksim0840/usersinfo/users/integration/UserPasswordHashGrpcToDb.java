@@ -0,0 +1,107 @@
+package io.github.maksim0840.usersinfo.users.integration;
+
+import io.github.maksim0840.internalapi.user.v1.enums.UserRole;
+import io.github.maksim0840.user.v1.*;
+import io.github.maksim0840.usersinfo.Main;
+import io.github.maksim0840.usersinfo.config.PasswordHashConfiguration;
+import io.github.maksim0840.usersinfo.config.PasswordHashProperties;
+import io.github.maksim0840.usersinfo.domain.User;
+import io.github.maksim0840.usersinfo.repository.UserRepository;
+import io.github.maksim0840.usersinfo.utils.PasswordEncryption;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Тесты смены стоимости PBKDF2 (users-info.password-hash.algorithm=pbkdf2).
+ * Вынесены в отдельный класс, т.к. меняют алгоритм новых хэшей, который проверяют остальные тесты.
+ * Стоимость занижена, чтобы тесты не тратили время на хэширование.
+ */
+@Testcontainers
+@SpringBootTest(
+        classes = Main.class,
+        properties = {
+        "grpc.server.inProcessName=password-hash",
+        "grpc.server.port=-1",
+        "users-info.metrics.port=-1",
+        "grpc.client.inProcess.address=in-process:password-hash",
+        "users-info.password-hash.algorithm=pbkdf2",
+        "users-info.password-hash.pbkdf2.iterations=2000",
+        "users-info.password-hash.pbkdf2.previous-iterations=1000"
+})
+public class UserPasswordHashGrpcToDb {
+
+    @Container
+    static PostgreSQLContainer postgreSQLContainer = new PostgreSQLContainer("postgres:16-alpine").withDatabaseName("testdb").withUsername("test").withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgreSQLContainer::getJdbcUrl);
+        registry.add("spring.datasource.username", postgreSQLContainer::getUsername);
+        registry.add("spring.datasource.password", postgreSQLContainer::getPassword);
+    }
+
+    @GrpcClient("inProcess")
+    private UserServiceGrpc.UserServiceBlockingStub blockingStub;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @BeforeEach
+    void cleanDb() {
+        userRepository.deleteAll();
+    }
+
+    // PasswordEncryption настраивается статически: возвращаем настройки по умолчанию для контекстов остальных тестов
+    @AfterAll
+    static void restoreDefaultPasswordHash() {
+        PasswordHashProperties defaults = new PasswordHashProperties(null, null, null, null);
+        PasswordEncryption.configure(PasswordHashConfiguration.encodeId(defaults), PasswordHashConfiguration.encoders(defaults));
+    }
+
+
+    /*
+    Проверяет смену числа итераций PBKDF2:
+    - новый хэш записывается с префиксом текущей стоимости {pbkdf2-2000} и не требует пересчёта
+    - хэш прежней стоимости {pbkdf2-1000} по-прежнему проверяется (неверный пароль - match=false, хэш не меняется)
+    - после верного пароля он пересчитан с текущей стоимостью и снова проверяется
+    */
+    @Test
+    void checkPasswordUpgradesPreviousPbkdf2Iterations() {
+        String currentHash = PasswordEncryption.makeHash("Current-Pass_1");
+        assertThat(currentHash).startsWith("{pbkdf2-2000}");
+        assertThat(PasswordEncryption.needsUpgrade(currentHash)).isFalse();
+
+        String previousHash = "{pbkdf2-1000}" + new Pbkdf2PasswordEncoder("", 16, 1000,
+                Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256).encode("Previous-Pass_1");
+        User user = userRepository.save(new User("previous", previousHash, UserRole.USER));
+
+        assertThat(checkPassword(user.getId(), "Previous-Pass_2")).isFalse();
+        assertThat(userRepository.findById(user.getId()).orElseThrow().getPasswordHash()).isEqualTo(previousHash);
+
+        assertThat(checkPassword(user.getId(), "Previous-Pass_1")).isTrue();
+        String upgradedHash = userRepository.findById(user.getId()).orElseThrow().getPasswordHash();
+        assertThat(upgradedHash).startsWith("{pbkdf2-2000}");
+        assertThat(PasswordEncryption.needsUpgrade(upgradedHash)).isFalse();
+        assertThat(checkPassword(user.getId(), "Previous-Pass_1")).isTrue();
+    }
+
+
+    private boolean checkPassword(Long id, String password) {
+        return blockingStub.checkPassword(CheckUserPasswordRequest.newBuilder()
+                .setId(id)
+                .setPassword(password)
+                .build()).getMatch();
+    }
+}